@@ -4,7 +4,9 @@
 package edu.harvard.hms.dbmi.bd2k.irct.action;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+import edu.harvard.hms.dbmi.bd2k.irct.model.resource.Resource;
 import edu.harvard.hms.dbmi.bd2k.irct.model.result.Result;
 import edu.harvard.hms.dbmi.bd2k.irct.model.security.SecureSession;
 import edu.harvard.hms.dbmi.bd2k.irct.exception.ResourceInterfaceException;
@@ -41,12 +43,59 @@ public interface Action {
 	 * @throws ResourceInterfaceException A resource interface exception occurred
 	 */
 	Result getResults(SecureSession secureSession) throws ResourceInterfaceException;
+
+	/**
+	 * Returns a future that completes with the results from an action. Actions
+	 * that wait for a resource return it without holding a thread while they
+	 * wait.
+	 * 
+	 * @param secureSession A secure session (Null if not needed or set)
+	 * @return The future results of the action
+	 */
+	default CompletableFuture<Result> getResultsAsync(SecureSession secureSession) {
+		CompletableFuture<Result> future = new CompletableFuture<Result>();
+		try {
+			future.complete(getResults(secureSession));
+		} catch (ResourceInterfaceException | RuntimeException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
 	
+	/**
+	 * Cancels the action if it is running. The results of a cancelled action
+	 * have a status of cancelled.
+	 * 
+	 * @param secureSession A secure session (Null if not needed or set)
+	 */
+	default void cancel(SecureSession secureSession) {
+	}
+
 	/**
 	 * Returns the actions status
 	 * 
 	 * @return Action Status
 	 */
 	ActionStatus getStatus();
+
+	/**
+	 * Returns the resource the action runs on
+	 * 
+	 * @return Resource (Null if the action does not run on a resource)
+	 */
+	default Resource getResource() {
+		return null;
+	}
+
+	/**
+	 * Returns a fingerprint of the work the action does. Actions with the same
+	 * fingerprint return the same results, so only one of them is run in an
+	 * execution plan.
+	 * 
+	 * @return Fingerprint (Null if the action cannot be shared)
+	 */
+	default String getFingerprint() {
+		return null;
+	}
 	
 }
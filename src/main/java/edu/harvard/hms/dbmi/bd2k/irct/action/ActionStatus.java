@@ -10,10 +10,11 @@ package edu.harvard.hms.dbmi.bd2k.irct.action;
  * RUNNING - The action is currently running and no results has been created
  * COMPLETE - The action has been run and is complete
  * ERROR - The action has an encountered an error
+ * CANCELLED - The action was cancelled before it completed
  * 
  * @author Jeremy R. Easton-Marks
  *
  */
 public enum ActionStatus {
-	CREATED, RUNNING, COMPLETE, ERROR
+	CREATED, RUNNING, COMPLETE, ERROR, CANCELLED
 }
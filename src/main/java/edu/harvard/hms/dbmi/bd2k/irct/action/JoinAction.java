@@ -19,6 +19,7 @@ import edu.harvard.hms.dbmi.bd2k.irct.util.Utilities;
 import edu.harvard.hms.dbmi.bd2k.irct.event.IRCTEventListener;
 import edu.harvard.hms.dbmi.bd2k.irct.exception.JoinActionSetupException;
 import edu.harvard.hms.dbmi.bd2k.irct.exception.ResourceInterfaceException;
+import edu.harvard.hms.dbmi.bd2k.irct.executable.Fingerprint;
 
 /**
  * Implements the Action interface to run a join
@@ -98,4 +99,17 @@ public class JoinAction implements Action {
 	public ActionStatus getStatus() {
 		return status;
 	}
+
+	@Override
+	public String getFingerprint() {
+		if (this.join == null) {
+			return null;
+		}
+		Fingerprint fingerprint = new Fingerprint("join");
+		fingerprint.add((this.join.getJoinType() == null) ? null : this.join
+				.getJoinType().getName());
+		fingerprint.add(this.join.getStringValues());
+		fingerprint.add(this.join.getObjectValues());
+		return fingerprint.toString();
+	}
 }
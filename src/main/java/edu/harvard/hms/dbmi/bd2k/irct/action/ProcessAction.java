@@ -6,11 +6,15 @@ package edu.harvard.hms.dbmi.bd2k.irct.action;
 
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import javax.naming.NamingException;
 
 import edu.harvard.hms.dbmi.bd2k.irct.event.IRCTEventListener;
 import edu.harvard.hms.dbmi.bd2k.irct.exception.ResourceInterfaceException;
+import edu.harvard.hms.dbmi.bd2k.irct.executable.Fingerprint;
 import edu.harvard.hms.dbmi.bd2k.irct.model.process.IRCTProcess;
 import edu.harvard.hms.dbmi.bd2k.irct.model.resource.Resource;
 import edu.harvard.hms.dbmi.bd2k.irct.model.resource.implementation.ProcessResourceImplementationInterface;
@@ -31,6 +35,8 @@ public class ProcessAction implements Action {
 	private Resource resource;
 	private ActionStatus status;
 	private Result result;
+	private volatile CompletableFuture<Result> completion;
+	private volatile boolean cancelled;
 	
 	private IRCTEventListener irctEventListener;
 	
@@ -78,25 +84,73 @@ public class ProcessAction implements Action {
 
 	@Override
 	public Result getResults(SecureSession session) throws ResourceInterfaceException {
-		this.result = ((ProcessResourceImplementationInterface)resource.getImplementingInterface()).getResults(session, result);
+		return getResultsAsync(session).join();
+	}
+
+	@Override
+	public CompletableFuture<Result> getResultsAsync(SecureSession session) {
+		CompletableFuture<Result> completion;
 		try {
-			while((this.result.getResultStatus() != ResultStatus.ERROR) && (this.result.getResultStatus() != ResultStatus.COMPLETE)) {
-				Thread.sleep(5000);
-				this.result = ((ProcessResourceImplementationInterface)resource.getImplementingInterface()).getResults(session, result);
+			ProcessResourceImplementationInterface processInterface = (ProcessResourceImplementationInterface) resource.getImplementingInterface();
+			completion = processInterface.getProcessCompletion(session, result);
+			if(completion == null) {
+				completion = ResultPoller.poll(result, current -> processInterface.getResults(session, current));
 			}
-			
-			result.getData().close();
-		} catch(Exception e) {
-			this.result.setResultStatus(ResultStatus.ERROR);
+		} catch(RuntimeException e) {
+			completion = new CompletableFuture<Result>();
+			completion.completeExceptionally(e);
+		}
+		this.completion = completion;
+		if(this.cancelled) {
+			completion.cancel(false);
+		}
+		return completion.handle(this::completeResults);
+	}
+
+	@Override
+	public void cancel(SecureSession session) {
+		this.cancelled = true;
+		this.status = ActionStatus.CANCELLED;
+		CompletableFuture<Result> completion = this.completion;
+		if(completion != null) {
+			completion.cancel(false);
+		}
+		if(this.result == null) {
+			return;
+		}
+		try {
+			((ProcessResourceImplementationInterface) resource.getImplementingInterface()).cancelProcess(session, result);
+		} catch(ResourceInterfaceException | RuntimeException e) {
 			this.result.setMessage(e.getMessage());
 		}
+	}
+
+	private Result completeResults(Result completedResult, Throwable error) {
+		if(error instanceof CancellationException) {
+			this.result.setResultStatus(ResultStatus.CANCELLED);
+			this.result.setMessage("The process was cancelled");
+		} else if(error != null) {
+			if(error instanceof CompletionException) {
+				error = error.getCause();
+			}
+			this.result.setResultStatus(ResultStatus.ERROR);
+			this.result.setMessage(error.getMessage());
+		} else {
+			this.result = completedResult;
+			try {
+				result.getData().close();
+			} catch(Exception e) {
+				this.result.setResultStatus(ResultStatus.ERROR);
+				this.result.setMessage(e.getMessage());
+			}
+		}
 		
 		
 		result.setEndTime(new Date());
 		//Save the query Action
 		try {
 			ActionUtilities.mergeResult(result);
-			this.status = ActionStatus.COMPLETE;
+			this.status = (result.getResultStatus() == ResultStatus.CANCELLED) ? ActionStatus.CANCELLED : ActionStatus.COMPLETE;
 		} catch (NamingException e) {
 			result.setMessage(e.getMessage());
 			this.status = ActionStatus.ERROR;
@@ -127,4 +181,29 @@ public class ProcessAction implements Action {
 	public ActionStatus getStatus() {
 		return status;
 	}
+
+	@Override
+	public Resource getResource() {
+		return this.resource;
+	}
+
+	@Override
+	public String getFingerprint() {
+		if (this.process == null) {
+			return null;
+		}
+		Fingerprint fingerprint = new Fingerprint("process");
+		fingerprint.add((this.resource == null) ? null : this.resource
+				.getName());
+		fingerprint.add((this.process.getProcessType() == null) ? null
+				: this.process.getProcessType().getName());
+		if (this.process.getResources() != null) {
+			for (Resource processResource : this.process.getResources()) {
+				fingerprint.add(processResource.getName());
+			}
+		}
+		fingerprint.add(this.process.getStringValues());
+		fingerprint.add(this.process.getObjectValues());
+		return fingerprint.toString();
+	}
 }
@@ -5,11 +5,20 @@ package edu.harvard.hms.dbmi.bd2k.irct.action;
 
 import java.util.Date;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import javax.naming.NamingException;
 
+import edu.harvard.hms.dbmi.bd2k.irct.executable.Fingerprint;
+import edu.harvard.hms.dbmi.bd2k.irct.model.ontology.Entity;
 import edu.harvard.hms.dbmi.bd2k.irct.model.query.ClauseAbstract;
+import edu.harvard.hms.dbmi.bd2k.irct.model.query.JoinClause;
 import edu.harvard.hms.dbmi.bd2k.irct.model.query.Query;
+import edu.harvard.hms.dbmi.bd2k.irct.model.query.SelectClause;
+import edu.harvard.hms.dbmi.bd2k.irct.model.query.SortClause;
 import edu.harvard.hms.dbmi.bd2k.irct.model.query.WhereClause;
 import edu.harvard.hms.dbmi.bd2k.irct.model.resource.Resource;
 import edu.harvard.hms.dbmi.bd2k.irct.model.resource.implementation.QueryResourceImplementationInterface;
@@ -33,6 +42,8 @@ public class QueryAction implements Action {
 	private Resource resource;
 	private ActionStatus status;
 	private Result result;
+	private volatile CompletableFuture<Result> completion;
+	private volatile boolean cancelled;
 
 	private IRCTEventListener irctEventListener;
 
@@ -98,38 +109,85 @@ public class QueryAction implements Action {
 	@Override
 	public Result getResults(SecureSession session)
 			throws ResourceInterfaceException {
+		return getResultsAsync(session).join();
+	}
+
+	@Override
+	public CompletableFuture<Result> getResultsAsync(SecureSession session) {
+		CompletableFuture<Result> completion;
 		try {
-			this.result = ((QueryResourceImplementationInterface) resource
-					.getImplementingInterface()).getResults(session, result);
-
-			while ((this.result.getResultStatus() != ResultStatus.ERROR)
-					&& (this.result.getResultStatus() != ResultStatus.COMPLETE)) {
-				Thread.sleep(3000);
-				this.result = ((QueryResourceImplementationInterface) resource
-						.getImplementingInterface())
-						.getResults(session, result);
+			QueryResourceImplementationInterface queryInterface = (QueryResourceImplementationInterface) resource
+					.getImplementingInterface();
+			completion = queryInterface.getQueryCompletion(session, result);
+			if (completion == null) {
+				completion = ResultPoller.poll(result,
+						current -> queryInterface.getResults(session, current));
 			}
+		} catch (RuntimeException e) {
+			completion = new CompletableFuture<Result>();
+			completion.completeExceptionally(e);
+		}
+		this.completion = completion;
+		if (this.cancelled) {
+			completion.cancel(false);
+		}
+		return completion.handle(this::completeResults);
+	}
 
-			if (this.result.getResultStatus() == ResultStatus.COMPLETE) {
-				if (((Persistable) result.getData()).isPersisted()) {
-					((Persistable) result.getData()).merge();
-				} else {
-					((Persistable) result.getData()).persist();
-				}
+	@Override
+	public void cancel(SecureSession session) {
+		this.cancelled = true;
+		this.status = ActionStatus.CANCELLED;
+		CompletableFuture<Result> completion = this.completion;
+		if (completion != null) {
+			completion.cancel(false);
+		}
+		if (this.result == null) {
+			return;
+		}
+		try {
+			((QueryResourceImplementationInterface) resource
+					.getImplementingInterface()).cancelQuery(session, result);
+		} catch (ResourceInterfaceException | RuntimeException e) {
+			this.result.setMessage(e.getMessage());
+		}
+	}
 
+	private Result completeResults(Result completedResult, Throwable error) {
+		if (error instanceof CancellationException) {
+			this.result.setResultStatus(ResultStatus.CANCELLED);
+			this.result.setMessage("The query was cancelled");
+		} else if (error != null) {
+			if (error instanceof CompletionException) {
+				error = error.getCause();
 			}
-
-			result.getData().close();
-		} catch (Exception e) {
 			this.result.setResultStatus(ResultStatus.ERROR);
-			this.result.setMessage(e.getMessage());
+			this.result.setMessage(error.getMessage());
+		} else {
+			this.result = completedResult;
+			try {
+				if (this.result.getResultStatus() == ResultStatus.COMPLETE) {
+					if (((Persistable) result.getData()).isPersisted()) {
+						((Persistable) result.getData()).merge();
+					} else {
+						((Persistable) result.getData()).persist();
+					}
+
+				}
+
+				result.getData().close();
+			} catch (Exception e) {
+				this.result.setResultStatus(ResultStatus.ERROR);
+				this.result.setMessage(e.getMessage());
+			}
 		}
 
 		result.setEndTime(new Date());
 		// Save the query Action
 		try {
 			ActionUtilities.mergeResult(result);
-			this.status = ActionStatus.COMPLETE;
+			this.status = (result.getResultStatus() == ResultStatus.CANCELLED) ? ActionStatus.CANCELLED
+					: ActionStatus.COMPLETE;
 		} catch (NamingException e) {
 			result.setMessage(e.getMessage());
 			this.status = ActionStatus.ERROR;
@@ -162,4 +220,67 @@ public class QueryAction implements Action {
 	public ActionStatus getStatus() {
 		return status;
 	}
+
+	@Override
+	public Resource getResource() {
+		return this.resource;
+	}
+
+	@Override
+	public String getFingerprint() {
+		if ((this.query == null)
+				|| ((this.query.getSubQueries() != null) && !this.query
+						.getSubQueries().isEmpty())) {
+			return null;
+		}
+		Fingerprint fingerprint = new Fingerprint("query");
+		fingerprint.add((this.resource == null) ? null : this.resource
+				.getName());
+
+		for (ClauseAbstract clause : new TreeMap<Long, ClauseAbstract>(
+				this.query.getClauses()).values()) {
+			fingerprint.add(clause.getClass().getSimpleName());
+			if (clause instanceof SelectClause) {
+				SelectClause selectClause = (SelectClause) clause;
+				addEntity(fingerprint, selectClause.getParameter());
+				fingerprint.add(selectClause.getAlias());
+				fingerprint.add((selectClause.getOperationType() == null) ? null
+						: selectClause.getOperationType().getName());
+				fingerprint.add(selectClause.getStringValues());
+				fingerprint.add(selectClause.getObjectValues());
+			} else if (clause instanceof WhereClause) {
+				WhereClause whereClause = (WhereClause) clause;
+				if (whereClause.getSubQuery() != null) {
+					return null;
+				}
+				fingerprint.add(whereClause.getLogicalOperator());
+				addEntity(fingerprint, whereClause.getField());
+				fingerprint.add((whereClause.getPredicateType() == null) ? null
+						: whereClause.getPredicateType().getName());
+				fingerprint.add(whereClause.getStringValues());
+				fingerprint.add(whereClause.getObjectValues());
+			} else if (clause instanceof SortClause) {
+				SortClause sortClause = (SortClause) clause;
+				addEntity(fingerprint, sortClause.getParameter());
+				fingerprint.add((sortClause.getOperationType() == null) ? null
+						: sortClause.getOperationType().getName());
+				fingerprint.add(sortClause.getStringValues());
+				fingerprint.add(sortClause.getObjectValues());
+			} else if (clause instanceof JoinClause) {
+				JoinClause joinClause = (JoinClause) clause;
+				addEntity(fingerprint, joinClause.getField());
+				fingerprint.add((joinClause.getJoinType() == null) ? null
+						: joinClause.getJoinType().getName());
+				fingerprint.add(joinClause.getStringValues());
+				fingerprint.add(joinClause.getObjectValues());
+			} else {
+				return null;
+			}
+		}
+		return fingerprint.toString();
+	}
+
+	private void addEntity(Fingerprint fingerprint, Entity entity) {
+		fingerprint.add((entity == null) ? null : entity.getPui());
+	}
 }
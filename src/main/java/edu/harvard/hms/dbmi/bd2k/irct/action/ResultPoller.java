@@ -0,0 +1,112 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.action;
+
+import java.util.concurrent.CompletableFuture;
+
+import edu.harvard.hms.dbmi.bd2k.irct.exception.ResourceInterfaceException;
+import edu.harvard.hms.dbmi.bd2k.irct.executable.ExecutionScheduler;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.Result;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.ResultStatus;
+
+/**
+ * Polls a resource for a result until it is complete, for resources that
+ * cannot notify the IRCT when a result completes. The first poll is made
+ * immediately and the interval doubles after each poll up to a maximum, so
+ * fast results are picked up quickly and slow ones are not polled often. No
+ * thread waits between polls; each poll is scheduled on a timer and run by the
+ * execution scheduler. Polling stops when the future is cancelled.
+ *
+ * The intervals are set with system properties:
+ *
+ * <pre>
+ * irct.execution.pollInterval     first interval in milliseconds
+ * irct.execution.maxPollInterval  maximum interval in milliseconds
+ * </pre>
+ */
+public class ResultPoller {
+	/**
+	 * Milliseconds to wait before the second poll. The default can be changed
+	 * with the irct.execution.pollInterval system property.
+	 */
+	public static final long POLL_INTERVAL = Long.getLong(
+			"irct.execution.pollInterval", 50);
+	/**
+	 * Maximum milliseconds to wait between polls. The default can be changed
+	 * with the irct.execution.maxPollInterval system property.
+	 */
+	public static final long MAX_POLL_INTERVAL = Long.getLong(
+			"irct.execution.maxPollInterval", 3000);
+
+	/**
+	 * Returns the current state of a result
+	 */
+	@FunctionalInterface
+	public interface Poll {
+		/**
+		 * Returns the current state of the result
+		 *
+		 * @param result
+		 *            Result as of the last poll
+		 * @return Current result
+		 * @throws ResourceInterfaceException
+		 *             A resource interface exception occurred
+		 */
+		Result poll(Result result) throws ResourceInterfaceException;
+	}
+
+	private ResultPoller() {
+	}
+
+	/**
+	 * Polls for a result until it is complete or has an error
+	 *
+	 * @param result
+	 *            Result to poll
+	 * @param poll
+	 *            Returns the current state of the result
+	 * @return A future that completes with the result
+	 */
+	public static CompletableFuture<Result> poll(Result result, Poll poll) {
+		CompletableFuture<Result> future = new CompletableFuture<Result>();
+		poll(future, result, poll, Math.max(1, POLL_INTERVAL));
+		return future;
+	}
+
+	/**
+	 * Returns true if a result will not change anymore
+	 *
+	 * @param result
+	 *            Result
+	 * @return True if the result is complete, has an error or was cancelled
+	 */
+	public static boolean isDone(Result result) {
+		return (result.getResultStatus() == ResultStatus.ERROR)
+				|| (result.getResultStatus() == ResultStatus.COMPLETE)
+				|| (result.getResultStatus() == ResultStatus.CANCELLED);
+	}
+
+	private static void poll(CompletableFuture<Result> future, Result result,
+			Poll poll, long interval) {
+		if (future.isDone()) {
+			return;
+		}
+		Result current;
+		try {
+			current = poll.poll(result);
+		} catch (ResourceInterfaceException | RuntimeException e) {
+			future.completeExceptionally(e);
+			return;
+		}
+		if (isDone(current)) {
+			future.complete(current);
+			return;
+		}
+
+		long nextInterval = Math.min(interval * 2,
+				Math.max(interval, MAX_POLL_INTERVAL));
+		ExecutionScheduler.getInstance().schedule(
+				() -> poll(future, current, poll, nextInterval), interval);
+	}
+}
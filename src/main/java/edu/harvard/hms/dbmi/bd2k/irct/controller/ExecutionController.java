@@ -4,19 +4,17 @@
 package edu.harvard.hms.dbmi.bd2k.irct.controller;
 
 import java.util.Date;
-import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.annotation.Resource;
-import javax.ejb.Asynchronous;
 import javax.ejb.Stateless;
 import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.inject.Inject;
-import javax.naming.InitialContext;
-import javax.naming.NamingException;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import javax.transaction.UserTransaction;
 
 import edu.harvard.hms.dbmi.bd2k.irct.action.JoinAction;
 import edu.harvard.hms.dbmi.bd2k.irct.action.ProcessAction;
@@ -31,18 +29,29 @@ import edu.harvard.hms.dbmi.bd2k.irct.model.result.Result;
 import edu.harvard.hms.dbmi.bd2k.irct.model.result.ResultStatus;
 import edu.harvard.hms.dbmi.bd2k.irct.model.result.exception.PersistableException;
 import edu.harvard.hms.dbmi.bd2k.irct.model.security.SecureSession;
+import edu.harvard.hms.dbmi.bd2k.irct.model.security.User;
 
 /**
  * The execution controller is a stateless controller that manages the
  * executions of different processes, queries, and joins by creating an
  * execution plan and running it.
  *
+ * A running execution can be cancelled by the user who started it. An
+ * execution that runs longer than the irct.execution.timeout system property
+ * in milliseconds is cancelled; by default executions have no timeout.
  *
  * @author Jeremy R. Easton-Marks
  *
  */
 @Stateless
 public class ExecutionController {
+	/**
+	 * Milliseconds an execution can run before it is cancelled, or 0 if
+	 * executions have no timeout. The default can be changed with the
+	 * irct.execution.timeout system property.
+	 */
+	public static final long EXECUTION_TIMEOUT = Long.getLong(
+			"irct.execution.timeout", 0);
 
 	@Inject
 	Logger log;
@@ -56,6 +65,12 @@ public class ExecutionController {
 	@Inject
 	private ResourceController rc;
 
+	@Inject
+	private ResultController resultController;
+
+	@Inject
+	private ExecutionRegistry executionRegistry;
+
 	/**
 	 * Runs the process
 	 *
@@ -166,7 +181,10 @@ public class ExecutionController {
 	}
 
 	/**
-	 * Runs an execution plan
+	 * Runs an execution plan. The plan is run as a pipeline of asynchronous
+	 * stages that set up and run the plan, wait for its results, persist them
+	 * and save the result. No thread is held while the plan waits on its
+	 * resources, so this returns immediately.
 	 *
 	 * @param executionPlan
 	 *            Execution Plan
@@ -175,60 +193,93 @@ public class ExecutionController {
 	 * @throws PersistableException
 	 *             A persistable exception occurred
 	 */
-	@Asynchronous
 	public void runExecutionPlan(final ExecutionPlan executionPlan,
 			final Result result) throws PersistableException {
+		result.setStartTime(new Date());
+		if (executionPlan.getTimeout() == 0) {
+			executionPlan.setTimeout(EXECUTION_TIMEOUT);
+		}
+		executionRegistry.register(result.getId(), executionPlan);
+
+		CompletableFuture.supplyAsync(executionPlan::runAsync, mes)
+				.thenCompose(planResults -> planResults)
+				.thenApplyAsync(finalResult -> persistResult(result, finalResult), mes)
+				.exceptionally(e -> errorResult(result, e))
+				.thenAcceptAsync(this::saveResult, mes)
+				.whenComplete((saved, e) -> executionRegistry.unregister(result.getId()));
+	}
 
-		Callable<Result> runPlan = new Callable<Result>() {
-			@Override
-			public Result call() {
-				try {
-					result.setStartTime(new Date());
-					executionPlan.run();
-
-					Result finalResult = executionPlan.getResults();
-
-					if ((finalResult.getResultStatus() == ResultStatus.COMPLETE) && (finalResult.getData() instanceof Persistable)) {
-						result.setDataType(finalResult.getDataType());
-						result.setData(finalResult.getData());
-						result.setResultSetLocation(finalResult.getResultSetLocation());
-						result.setMessage(finalResult.getMessage());
-
-						if(((Persistable) result.getData()).isPersisted()) {
-							((Persistable) result.getData()).merge();
-						} else {
-							((Persistable) result.getData()).persist();
-						}
-						result.setResultStatus(ResultStatus.AVAILABLE);
-					} else {
-						result.setResultStatus(ResultStatus.ERROR);
-						result.setMessage(finalResult.getMessage());
-					}
-
-					result.setEndTime(new Date());
-					UserTransaction userTransaction = lookup();
-					userTransaction.begin();
-					entityManager.merge(result);
-					userTransaction.commit();
-				} catch (PersistableException e) {
-					result.setResultStatus(ResultStatus.ERROR);
-					result.setMessage(e.getMessage());
-				} catch (Exception e) {
-					e.printStackTrace();
-					log.info(e.getMessage());
-					result.setResultStatus(ResultStatus.ERROR);
-				} finally {
+	/**
+	 * Cancels a running execution. The result of the execution will have a
+	 * status of cancelled.
+	 *
+	 * @param user
+	 *            User cancelling the execution
+	 * @param resultId
+	 *            Result Id of the execution
+	 * @return True if the execution was running and has been cancelled
+	 */
+	public boolean cancelExecution(User user, Long resultId) {
+		ExecutionPlan executionPlan = executionRegistry.getRunningPlan(resultId);
+		if (executionPlan == null) {
+			return false;
+		}
+		Result result = entityManager.find(Result.class, resultId);
+		if ((result == null) || (result.getUser() == null) || (user == null)
+				|| !result.getUser().getUserId().equals(user.getUserId())) {
+			return false;
+		}
+		executionPlan.cancel();
+		return true;
+	}
 
+	private Result persistResult(Result result, Result finalResult) {
+		try {
+			if (finalResult.getResultStatus() == ResultStatus.CANCELLED) {
+				result.setResultStatus(ResultStatus.CANCELLED);
+				result.setMessage(finalResult.getMessage());
+			} else if ((finalResult.getResultStatus() == ResultStatus.COMPLETE) && (finalResult.getData() instanceof Persistable)) {
+				result.setDataType(finalResult.getDataType());
+				result.setData(finalResult.getData());
+				result.setResultSetLocation(finalResult.getResultSetLocation());
+				result.setMessage(finalResult.getMessage());
+
+				if(((Persistable) result.getData()).isPersisted()) {
+					((Persistable) result.getData()).merge();
+				} else {
+					((Persistable) result.getData()).persist();
 				}
-				return result;
+				result.setResultStatus(ResultStatus.AVAILABLE);
+			} else {
+				result.setResultStatus(ResultStatus.ERROR);
+				result.setMessage(finalResult.getMessage());
 			}
-		};
+		} catch (PersistableException e) {
+			result.setResultStatus(ResultStatus.ERROR);
+			result.setMessage(e.getMessage());
+		}
 
-		mes.submit(runPlan);
+		result.setEndTime(new Date());
+		return result;
 	}
 
-	private UserTransaction lookup() throws NamingException {
-		InitialContext ic = new InitialContext();
-		return (UserTransaction) ic.lookup("java:comp/UserTransaction");
+	private Result errorResult(Result result, Throwable e) {
+		if ((e instanceof CompletionException) && (e.getCause() != null)) {
+			e = e.getCause();
+		}
+		log.log(Level.WARNING, "Execution plan failed", e);
+		result.setResultStatus(ResultStatus.ERROR);
+		result.setMessage(e.getMessage());
+		result.setEndTime(new Date());
+		return result;
+	}
+
+	private void saveResult(Result result) {
+		try {
+			resultController.mergeResult(result);
+		} catch (RuntimeException e) {
+			log.log(Level.WARNING, "Unable to save result " + result.getId(), e);
+			resultController.invalidateResult(result.getId());
+		}
 	}
 }
@@ -0,0 +1,87 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.controller;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.enterprise.concurrent.ManagedExecutorService;
+
+import edu.harvard.hms.dbmi.bd2k.irct.executable.ExecutionPlan;
+import edu.harvard.hms.dbmi.bd2k.irct.executable.ExecutionScheduler;
+
+/**
+ * An application wide registry of the execution plans that are running, so
+ * that they can be cancelled. It is started with the application and sets the
+ * executor of the execution scheduler to the managed executor service once,
+ * so that executables run on container threads that can look up the
+ * components of the application.
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ExecutionRegistry {
+	private final ConcurrentMap<Long, ExecutionPlan> runningPlans = new ConcurrentHashMap<Long, ExecutionPlan>();
+
+	@Resource(name = "DefaultManagedExecutorService")
+	private ManagedExecutorService mes;
+
+	/**
+	 * Runs the executables of the execution plans on the managed executor
+	 * service
+	 */
+	@PostConstruct
+	public void init() {
+		ExecutionScheduler.getInstance().setExecutor(mes);
+	}
+
+	/**
+	 * Returns the execution plans to the pool of the scheduler when the
+	 * application stops
+	 */
+	@PreDestroy
+	public void destroy() {
+		ExecutionScheduler.getInstance().setExecutor(null);
+	}
+
+	/**
+	 * Registers a running execution plan
+	 * 
+	 * @param resultId
+	 *            Result Id of the execution
+	 * @param executionPlan
+	 *            Execution plan
+	 */
+	public void register(Long resultId, ExecutionPlan executionPlan) {
+		runningPlans.put(resultId, executionPlan);
+	}
+
+	/**
+	 * Removes an execution plan once it has completed
+	 * 
+	 * @param resultId
+	 *            Result Id of the execution
+	 */
+	public void unregister(Long resultId) {
+		runningPlans.remove(resultId);
+	}
+
+	/**
+	 * Returns the running execution plan of a result
+	 * 
+	 * @param resultId
+	 *            Result Id of the execution
+	 * @return Execution plan, or null if it is not running
+	 */
+	public ExecutionPlan getRunningPlan(Long resultId) {
+		return runningPlans.get(resultId);
+	}
+}
@@ -9,23 +9,34 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.annotation.Resource;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import javax.ws.rs.core.StreamingOutput;
 
 import edu.harvard.hms.dbmi.bd2k.irct.IRCTApplication;
+import edu.harvard.hms.dbmi.bd2k.irct.dataconverter.ByteRangeStreamingOutput;
 import edu.harvard.hms.dbmi.bd2k.irct.dataconverter.ResultDataConverter;
 import edu.harvard.hms.dbmi.bd2k.irct.dataconverter.ResultDataStream;
 import edu.harvard.hms.dbmi.bd2k.irct.event.IRCTEventListener;
 import edu.harvard.hms.dbmi.bd2k.irct.model.result.DataConverterImplementation;
 import edu.harvard.hms.dbmi.bd2k.irct.model.result.Result;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.ResultCursor;
 import edu.harvard.hms.dbmi.bd2k.irct.model.result.ResultDataType;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.ResultPage;
 import edu.harvard.hms.dbmi.bd2k.irct.model.result.ResultStatus;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.ResultStatusCache;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.ResultSummary;
 import edu.harvard.hms.dbmi.bd2k.irct.model.result.exception.PersistableException;
 import edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular.FileResultSet;
 import edu.harvard.hms.dbmi.bd2k.irct.model.security.User;
@@ -34,15 +45,46 @@ import edu.harvard.hms.dbmi.bd2k.irct.model.security.User;
  * A stateless controller for retrieving the status of a result as well as the
  * result themselves.
  * 
+ * Results are looked up by their primary key and the access of the user is
+ * checked on the loaded result. The status and data type of results are kept
+ * in a cache that is written to once the transaction that loaded or saved a
+ * result has committed, so polling the status of a result does not load it.
+ * Polling a cached status does not fire the get result events, as no result
+ * is loaded. The size of the cache can be changed with the
+ * irct.result.statusCacheSize system property.
+ * 
+ * Results can be listed a page at a time. The maximum size of a page can be
+ * changed with the irct.result.maxPageSize system property.
+ * 
  * @author Jeremy R. Easton-Marks
  *
  */
 
 @Stateless
 public class ResultController {
+	/**
+	 * Maximum number of results in the status cache. The default can be
+	 * changed with the irct.result.statusCacheSize system property.
+	 */
+	public static final int STATUS_CACHE_SIZE = Integer.getInteger(
+			"irct.result.statusCacheSize", 10000);
+
+	/**
+	 * Maximum number of results in a page. The default can be changed with
+	 * the irct.result.maxPageSize system property.
+	 */
+	public static final int MAX_PAGE_SIZE = Integer.getInteger(
+			"irct.result.maxPageSize", 1000);
+
+	private static final ResultStatusCache STATUS_CACHE = new ResultStatusCache(
+			STATUS_CACHE_SIZE);
+
 	@PersistenceContext(unitName = "primary")
 	EntityManager entityManager;
 
+	@Resource
+	private TransactionSynchronizationRegistry transactionRegistry;
+
 	@Inject
 	private IRCTApplication irctApp;
 	
@@ -77,6 +119,109 @@ public class ResultController {
 		return entityManager.createQuery(criteria).getResultList();
 	}
 
+	/**
+	 * Returns a page of the results that the user has access to, which are
+	 * the results the user owns and the results without an owner. Results are
+	 * listed in a single order: the results that have not ended first,
+	 * followed by the results that have ended, newest first, with ties broken
+	 * by id. Only the fields shown in a listing are loaded.
+	 * 
+	 * @param user
+	 *            User
+	 * @param cursor
+	 *            Cursor returned with the previous page, or null for the first
+	 *            page
+	 * @param pageSize
+	 *            Number of results in the page, up to the maximum page size
+	 * @param resultStatus
+	 *            Status of the results, or null for any status
+	 * @param jobType
+	 *            Job type of the results, or null for any job type
+	 * @return Page of results
+	 */
+	public ResultPage getAvailableResults(User user, ResultCursor cursor,
+			int pageSize, ResultStatus resultStatus, String jobType) {
+		int size = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+
+		// The results of the user and the results without an owner are each
+		// a range of the index on the user, end time and id of the results.
+		// Both are listed in the same order and merged into one page.
+		List<ResultSummary> results = new ArrayList<ResultSummary>();
+		results.addAll(listResults(user, cursor, size + 1, resultStatus,
+				jobType));
+		results.addAll(listResults(null, cursor, size + 1, resultStatus,
+				jobType));
+		results.sort(ResultCursor.ORDER);
+
+		if (results.size() <= size) {
+			return new ResultPage(results, null);
+		}
+		results = new ArrayList<ResultSummary>(results.subList(0, size));
+		return new ResultPage(results, ResultCursor.after(results
+				.get(size - 1)));
+	}
+
+	/**
+	 * Lists the results of an owner, or the results without an owner, after
+	 * the cursor
+	 */
+	private List<ResultSummary> listResults(User owner, ResultCursor cursor,
+			int limit, ResultStatus resultStatus, String jobType) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+		CriteriaQuery<ResultSummary> criteria = cb
+				.createQuery(ResultSummary.class);
+		Root<Result> result = criteria.from(Result.class);
+		Path<Date> endTime = result.get("endTime");
+		Path<Long> id = result.get("id");
+		criteria.select(cb.construct(ResultSummary.class, id,
+				result.get("startTime"), endTime, result.get("resultStatus"),
+				result.get("dataType"), result.get("jobType"),
+				result.get("message")));
+
+		List<Predicate> restrictions = new ArrayList<Predicate>();
+		if (owner == null) {
+			restrictions.add(cb.isNull(result.get("user")));
+		} else {
+			restrictions.add(cb.equal(result.get("user"), owner));
+		}
+		if (resultStatus != null) {
+			restrictions.add(cb.equal(result.get("resultStatus"),
+					resultStatus));
+		}
+		if (jobType != null) {
+			restrictions.add(cb.equal(result.get("jobType"), jobType));
+		}
+		if (cursor != null) {
+			restrictions.add(after(cb, endTime, id, cursor));
+		}
+		criteria.where(restrictions.toArray(new Predicate[restrictions.size()]));
+
+		// Databases differ in where they sort nulls, so the results that
+		// have not ended are put first explicitly
+		criteria.orderBy(
+				cb.asc(cb.<Integer> selectCase().when(cb.isNull(endTime), 0)
+						.otherwise(1)), cb.desc(endTime), cb.desc(id));
+
+		return entityManager.createQuery(criteria).setMaxResults(limit)
+				.getResultList();
+	}
+
+	/**
+	 * Returns the restriction to the results that are listed after the cursor
+	 */
+	private Predicate after(CriteriaBuilder cb, Path<Date> endTime,
+			Path<Long> id, ResultCursor cursor) {
+		if (cursor.getEndTime() == null) {
+			return cb.or(cb.and(cb.isNull(endTime),
+					cb.lessThan(id, cursor.getId())), cb.isNotNull(endTime));
+		}
+		return cb.and(cb.isNotNull(endTime), cb.or(
+				cb.lessThan(endTime, cursor.getEndTime()),
+				cb.and(cb.equal(endTime, cursor.getEndTime()),
+						cb.lessThan(id, cursor.getId()))));
+	}
+
 	/**
 	 * Returns the status of a result if the user has access to it
 	 * 
@@ -87,11 +232,11 @@ public class ResultController {
 	 * @return Status of the result
 	 */
 	public ResultStatus getResultStatus(User user, Long resultId) {
-		List<Result> results = getResults(user, resultId);
-		if ((results == null) || (results.isEmpty())) {
+		ResultStatusCache.Entry entry = getStatus(user, resultId);
+		if (entry == null) {
 			return null;
 		}
-		return results.get(0).getResultStatus();
+		return entry.getResultStatus();
 	}
 
 	/**
@@ -105,17 +250,17 @@ public class ResultController {
 	 * @return Available Formats
 	 */
 	public List<String> getAvailableFormats(User user, Long resultId) {
-		List<Result> results = getResults(user, resultId);
+		ResultStatusCache.Entry entry = getStatus(user, resultId);
 
-		if (results == null || results.size() == 0) {
+		if (entry == null) {
 			return null;
 		}
-		if(results.get(0).getResultStatus() != ResultStatus.AVAILABLE) {
+		if(entry.getResultStatus() != ResultStatus.AVAILABLE) {
 			return null;
 		}
 		
 		List<DataConverterImplementation> rdc = irctApp
-				.getResultDataConverters().get(results.get(0).getDataType());
+				.getResultDataConverters().get(entry.getDataType());
 
 		List<String> converterNames = new ArrayList<String>();
 		for (DataConverterImplementation rd : rdc) {
@@ -138,20 +283,85 @@ public class ResultController {
 	 */
 	public ResultDataStream getResultDataStream(User user, Long resultId,
 			String format) {
+		return createDataStream(user, resultId, format, 0, -1);
+	}
+
+	/**
+	 * Returns a datastream object of a window of rows of the result for the
+	 * given format if the user has access to the result, and the format
+	 * supports windows of rows. Only the rows in the window are read from a
+	 * tabular result.
+	 * 
+	 * @param user
+	 *            User
+	 * @param resultId
+	 *            Result Id
+	 * @param format
+	 *            Format
+	 * @param firstRow
+	 *            First row of the window
+	 * @param rows
+	 *            Number of rows in the window
+	 * @return Result Data Stream
+	 */
+	public ResultDataStream getResultDataStream(User user, Long resultId,
+			String format, long firstRow, long rows) {
+		if ((firstRow < 0) || (rows < 0)) {
+			ResultDataStream rds = new ResultDataStream();
+			rds.setMessage("Invalid window of rows");
+			return rds;
+		}
+		return createDataStream(user, resultId, format, firstRow, rows);
+	}
+
+	/**
+	 * Returns a datastream object of a range of bytes of the result in the
+	 * given format if the user has access to the result, so that a download
+	 * can be resumed. The bytes before the range are still created by the
+	 * converter but are not sent.
+	 * 
+	 * @param user
+	 *            User
+	 * @param resultId
+	 *            Result Id
+	 * @param format
+	 *            Format
+	 * @param firstByte
+	 *            First byte of the range
+	 * @param lastByte
+	 *            Last byte of the range, or -1 for the end of the result
+	 * @return Result Data Stream
+	 */
+	public ResultDataStream getResultDataRange(User user, Long resultId,
+			String format, long firstByte, long lastByte) {
+		if ((firstByte < 0) || ((lastByte != -1) && (lastByte < firstByte))) {
+			ResultDataStream rds = new ResultDataStream();
+			rds.setMessage("Invalid range of bytes");
+			return rds;
+		}
+		ResultDataStream rds = createDataStream(user, resultId, format, 0, -1);
+		if (rds.getResult() != null) {
+			rds.setResult(new ByteRangeStreamingOutput(rds.getResult(),
+					firstByte, lastByte));
+			rds.setFirstByte(firstByte);
+			rds.setLastByte(lastByte);
+		}
+		return rds;
+	}
+
+	private ResultDataStream createDataStream(User user, Long resultId,
+			String format, long firstRow, long rows) {
 		
 		logger.log(Level.FINEST, "getResultDataStream() user:"+user.getName()+" resultId:"+resultId+" format:"+(format==null?"NULL":format));
 		ResultDataStream rds = new ResultDataStream();
-		List<Result> results = getResults(user, resultId);
+		Result result = findResult(user, resultId);
 
-		if (results == null || results.size() == 0) {
+		if (result == null) {
 			rds.setMessage("Unable to find result");
 			return rds;
-		} else {
-			logger.log(Level.FINEST, "getResultDataStream() there are ```"+results.size()+"``` results found.");
 		}
-		Result result = results.get(0);
 		
-		logger.log(Level.FINEST, "getResultDataStream() The first result status is "+result.getResultStatus().name());
+		logger.log(Level.FINEST, "getResultDataStream() The result status is "+result.getResultStatus().name());
 		if(result.getResultStatus() != ResultStatus.AVAILABLE) {
 			rds.setMessage("Result is not available");
 			return rds;
@@ -166,8 +376,15 @@ public class ResultController {
 			return rds;
 		}
 
+		StreamingOutput stream = (rows < 0) ? rdc.createStream(result) : rdc
+				.createStream(result, firstRow, rows);
+		if (stream == null) {
+			rds.setMessage("Format does not support windows of rows");
+			return rds;
+		}
+
 		rds.setMediaType(rdc.getMediaType());
-		rds.setResult(rdc.createStream(result));
+		rds.setResult(stream);
 		rds.setFileExtension(rdc.getFileExtension());
 
 		return rds;
@@ -183,41 +400,56 @@ public class ResultController {
 	 * @return Result
 	 */
 	public Result getResult(User user, Long resultId) {
-		List<Result> results = getResults(user, resultId);
+		return findResult(user, resultId);
+	}
 
-		if ((results == null) || (results.isEmpty())) {
-			return null;
+	/**
+	 * Removes a result from the status cache, so that its status is loaded
+	 * again the next time it is requested
+	 * 
+	 * @param resultId
+	 *            Result Id
+	 */
+	public void invalidateResult(Long resultId) {
+		STATUS_CACHE.invalidate(resultId);
+	}
+
+	/**
+	 * Returns the cached status of a result if the user has access to it,
+	 * loading the result if it is not cached
+	 */
+	private ResultStatusCache.Entry getStatus(User user, Long resultId) {
+		ResultStatusCache.Entry entry = STATUS_CACHE.get(resultId);
+		if (entry == null) {
+			Result result = findResult(user, resultId);
+			return (result == null) ? null : new ResultStatusCache.Entry(
+					result);
 		}
 
-		return results.get(0);
+		if (!entry.isAccessibleBy(user)) {
+			return null;
+		}
+		return entry;
 	}
 
-	private List<Result> getResults(User user, Long resultId) {
+	private Result findResult(User user, Long resultId) {
 		irctEventListener.beforeGetResult(user, resultId);
-		
-		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-
-		CriteriaQuery<Result> criteria = cb.createQuery(Result.class);
-		Root<Result> resultRoot = criteria.from(Result.class);
-		criteria.select(resultRoot);
-
-		Predicate restrictions = cb.conjunction();
-		restrictions = cb.and(restrictions, cb.isNull(resultRoot.get("user")));
-		restrictions = cb.or(restrictions,
-				cb.equal(resultRoot.get("user"), user));
-		restrictions = cb.and(restrictions,
-				cb.equal(resultRoot.get("id"), resultId));
-		criteria.where(restrictions);
-
-		List<Result> results = entityManager.createQuery(criteria).getResultList();
+		if (resultId == null) {
+			return null;
+		}
 
-		if ((results == null) || (results.isEmpty())) {
+		Result result = entityManager.find(Result.class, resultId);
+		if (result == null) {
 			return null;
 		}
-		
-		irctEventListener.afterGetResult(results.get(0));
-		
-		return results;
+		cacheAfterCommit(result);
+		if (!new ResultStatusCache.Entry(result).isAccessibleBy(user)) {
+			return null;
+		}
+
+		irctEventListener.afterGetResult(result);
+
+		return result;
 	}
 
 	/**
@@ -255,6 +487,7 @@ public class ResultController {
 		}
 		result.setResultStatus(ResultStatus.CREATED);
 		entityManager.merge(result);
+		cacheAfterCommit(result);
 		return result;
 	}
 
@@ -266,8 +499,42 @@ public class ResultController {
 	 */
 	public void mergeResult(Result result) {
 		irctEventListener.beforeSaveResult(result);
-		entityManager.merge(result);
+		try {
+			entityManager.merge(result);
+		} catch (RuntimeException e) {
+			STATUS_CACHE.invalidate(result.getId());
+			throw e;
+		}
+		cacheAfterCommit(result);
 		irctEventListener.afterSaveResult(result);
 	}
 
+	/**
+	 * Writes the status of a result to the cache once the current transaction
+	 * has committed, or removes it from the cache if the transaction is rolled
+	 * back. The status is written straight away if there is no transaction.
+	 */
+	private void cacheAfterCommit(Result result) {
+		if ((transactionRegistry == null)
+				|| (transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE)) {
+			STATUS_CACHE.put(result);
+			return;
+		}
+		transactionRegistry
+				.registerInterposedSynchronization(new Synchronization() {
+					@Override
+					public void beforeCompletion() {
+					}
+
+					@Override
+					public void afterCompletion(int status) {
+						if (status == Status.STATUS_COMMITTED) {
+							STATUS_CACHE.put(result);
+						} else {
+							STATUS_CACHE.invalidate(result.getId());
+						}
+					}
+				});
+	}
+
 }
@@ -9,6 +9,7 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import javax.ejb.Stateless;
@@ -22,17 +23,33 @@ import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Root;
 
 import edu.harvard.hms.dbmi.bd2k.irct.model.security.SecureSession;
+import edu.harvard.hms.dbmi.bd2k.irct.model.security.SecureSessionCache;
 import edu.harvard.hms.dbmi.bd2k.irct.model.security.Token;
 import edu.harvard.hms.dbmi.bd2k.irct.model.security.User;
+import edu.harvard.hms.dbmi.bd2k.irct.security.TokenDelegationService;
 
 /**
  * A stateless controller for managing security.
  * 
+ * Validated keys are cached so that most requests do not need to look up their
+ * session. Revoking a key removes its session from the cache, and the cached
+ * sessions of a user can be invalidated. The number of sessions cached can be
+ * changed with the irct.security.sessionCacheSize system property.
+ * 
  * @author Jeremy R. Easton-Marks
  *
  */
 @Stateless
 public class SecurityController {
+	/**
+	 * Maximum number of sessions that are cached. The default can be changed
+	 * with the irct.security.sessionCacheSize system property.
+	 */
+	public static final int SESSION_CACHE_SIZE = Integer.getInteger(
+			"irct.security.sessionCacheSize", 10000);
+
+	private static final SecureSessionCache SESSION_CACHE = new SecureSessionCache(
+			SESSION_CACHE_SIZE);
 
 	@PersistenceContext(unitName = "primary")
 	EntityManager entityManager;
@@ -84,6 +101,11 @@ public class SecurityController {
 	 *         not valid
 	 */
 	public SecureSession validateKey(String key) {
+		long timeOut = TimeUnit.MINUTES.toMillis(Integer.parseInt(keyTimeOut));
+		SecureSession cached = SESSION_CACHE.get(key, timeOut);
+		if (cached != null) {
+			return cached;
+		}
 		
 		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
 		CriteriaQuery<SecureSession> cq = cb.createQuery(SecureSession.class);
@@ -108,11 +130,54 @@ public class SecurityController {
 		}
 
 		SecureSession ss = ssl.get(0);
+		SESSION_CACHE.put(ss, timeOut);
 
 		log.finest("Found valid key for " + ss.getUser().getName());
 		return ss;
 	}
 
+	/**
+	 * Revokes a key so that it is no longer valid
+	 * 
+	 * @param key
+	 *            Key to revoke
+	 */
+	public void revokeKey(String key) {
+		SESSION_CACHE.invalidate(key);
+
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<SecureSession> cq = cb.createQuery(SecureSession.class);
+		Root<SecureSession> secureSession = cq.from(SecureSession.class);
+		cq.where(cb.equal(secureSession.get("accessKey"), key));
+		cq.select(secureSession);
+		for (SecureSession ss : entityManager.createQuery(cq).getResultList()) {
+			entityManager.remove(ss);
+		}
+		log.finest("Revoked key");
+	}
+
+	/**
+	 * Removes the cached sessions and delegated tokens of a user, so that their
+	 * keys are validated and their tokens delegated again on their next use
+	 * 
+	 * @param userId
+	 *            User Id
+	 */
+	public void invalidateSessions(String userId) {
+		SESSION_CACHE.invalidateUser(userId);
+		TokenDelegationService.getInstance().invalidate(userId);
+	}
+
+	/**
+	 * Returns the cache of validated sessions, which reports how often keys
+	 * were found in it
+	 * 
+	 * @return Session cache
+	 */
+	public SecureSessionCache getSessionCache() {
+		return SESSION_CACHE;
+	}
+
 	/**
 	 * Get a given user from a database from a user id
 	 * 
@@ -0,0 +1,108 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.dataconverter;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Writes a range of the bytes of another streaming output, so that a download
+ * can be resumed. The other output still renders every byte before the range,
+ * which is then discarded, so resuming a download costs as much as rendering
+ * it up to the first byte of the range. The converted bytes do not line up
+ * with the rows of a result, so the row index of a result set cannot be used
+ * to seek to the range. The other output is stopped once the last byte of the
+ * range has been written.
+ */
+public class ByteRangeStreamingOutput implements StreamingOutput {
+	private final StreamingOutput output;
+	private final long firstByte;
+	private final long lastByte;
+
+	/**
+	 * Thrown into the other output to stop it after the range
+	 */
+	private static class RangeWrittenException extends IOException {
+		private static final long serialVersionUID = -2918446164302913524L;
+
+		RangeWrittenException() {
+			super("Range has been written");
+		}
+	}
+
+	/**
+	 * Creates an output of a range of the bytes of another output
+	 *
+	 * @param output
+	 *            Output to write the range of
+	 * @param firstByte
+	 *            First byte of the range
+	 * @param lastByte
+	 *            Last byte of the range, or -1 for the end of the output
+	 */
+	public ByteRangeStreamingOutput(StreamingOutput output, long firstByte,
+			long lastByte) {
+		this.output = output;
+		this.firstByte = firstByte;
+		this.lastByte = lastByte;
+	}
+
+	@Override
+	public void write(OutputStream outputStream) throws IOException,
+			WebApplicationException {
+		RangeOutputStream range = new RangeOutputStream(outputStream);
+		try {
+			output.write(range);
+		} catch (IOException | WebApplicationException e) {
+			if (!range.isComplete()) {
+				throw e;
+			}
+		}
+		range.flush();
+	}
+
+	/**
+	 * Passes on the bytes in the range
+	 */
+	private class RangeOutputStream extends FilterOutputStream {
+		private long position;
+
+		RangeOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		boolean isComplete() {
+			return (lastByte != -1) && (position > lastByte);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (isComplete()) {
+				throw new RangeWrittenException();
+			}
+			long end = position + len;
+			long start = Math.max(position, firstByte);
+			long stop = (lastByte == -1) ? end : Math.min(end, lastByte + 1);
+			if (start < stop) {
+				out.write(b, off + (int) (start - position),
+						(int) (stop - start));
+			}
+			position = end;
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+	}
+}
@@ -0,0 +1,75 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.dataconverter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular.Column;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular.Row;
+
+/**
+ * Converts a tabular result into comma separated values. The first line holds
+ * the names of the columns, and values are quoted when they need to be.
+ */
+public class CSVTabularDataConverter extends TabularDataConverter {
+
+	@Override
+	public String getName() {
+		return "CSV";
+	}
+
+	@Override
+	public String getMediaType() {
+		return "text/csv";
+	}
+
+	@Override
+	public String getFileExtension() {
+		return "csv";
+	}
+
+	@Override
+	protected void write(Column[] columns, Stream<Row> rows,
+			OutputStream outputStream) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(
+				outputStream, StandardCharsets.UTF_8));
+		for (int column = 0; column < columns.length; column++) {
+			writeValue(writer, column, columns[column].getName());
+		}
+		writer.write("\r\n");
+
+		forEachRow(rows, row -> {
+			for (int column = 0; column < columns.length; column++) {
+				writeValue(writer, column, row.getColumn(column));
+			}
+			writer.write("\r\n");
+		});
+		writer.flush();
+	}
+
+	private void writeValue(Writer writer, int column, Object value)
+			throws IOException {
+		if (column != 0) {
+			writer.write(',');
+		}
+		if (value == null) {
+			return;
+		}
+		String text = value.toString();
+		if ((text.indexOf(',') == -1) && (text.indexOf('"') == -1)
+				&& (text.indexOf('\n') == -1) && (text.indexOf('\r') == -1)) {
+			writer.write(text);
+			return;
+		}
+		writer.write('"');
+		writer.write(text.replace("\"", "\"\""));
+		writer.write('"');
+	}
+}
@@ -0,0 +1,75 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.dataconverter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.stream.Stream;
+
+import javax.json.Json;
+import javax.json.stream.JsonGenerator;
+
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular.Column;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular.Row;
+
+/**
+ * Converts a tabular result into a JSON array with an object for each row,
+ * keyed by the names of the columns
+ */
+public class JSONTabularDataConverter extends TabularDataConverter {
+
+	@Override
+	public String getName() {
+		return "JSON";
+	}
+
+	@Override
+	public String getMediaType() {
+		return "application/json";
+	}
+
+	@Override
+	public String getFileExtension() {
+		return "json";
+	}
+
+	@Override
+	protected void write(Column[] columns, Stream<Row> rows,
+			OutputStream outputStream) throws IOException {
+		JsonGenerator generator = Json.createGenerator(outputStream);
+		generator.writeStartArray();
+		forEachRow(rows, row -> {
+			generator.writeStartObject();
+			for (int column = 0; column < columns.length; column++) {
+				writeValue(generator, columns[column].getName(),
+						row.getColumn(column));
+			}
+			generator.writeEnd();
+		});
+		generator.writeEnd();
+		generator.flush();
+	}
+
+	private void writeValue(JsonGenerator generator, String name, Object value) {
+		if (value == null) {
+			generator.writeNull(name);
+		} else if (value instanceof Boolean) {
+			generator.write(name, (Boolean) value);
+		} else if ((value instanceof Integer) || (value instanceof Long)) {
+			generator.write(name, ((Number) value).longValue());
+		} else if ((value instanceof Double) || (value instanceof Float)) {
+			double number = ((Number) value).doubleValue();
+			if (Double.isNaN(number) || Double.isInfinite(number)) {
+				generator.write(name, value.toString());
+			} else {
+				generator.write(name, number);
+			}
+		} else if (value instanceof Number) {
+			generator.write(name, new BigDecimal(value.toString()));
+		} else {
+			generator.write(name, value.toString());
+		}
+	}
+}
@@ -45,6 +45,23 @@ public interface ResultDataConverter {
 	 */
 	public StreamingOutput createStream(final Result result);
 	
+	/**
+	 * Returns an output stream of a window of rows of the result. Converters
+	 * of tabular results should write the rows of
+	 * ResultSet.stream(firstRow, rows), so that only the rows in the window
+	 * are read from the persisted result. Converters that do not support
+	 * windows of rows return null.
+	 * 
+	 * @param result Result to stream out
+	 * @param firstRow First row of the window
+	 * @param rows Number of rows in the window
+	 * @return Output Stream
+	 */
+	public default StreamingOutput createStream(final Result result,
+			long firstRow, long rows) {
+		return null;
+	}
+	
 	/**
 	 * Returns the file extension that is typically associated with a file of that type
 	 * 
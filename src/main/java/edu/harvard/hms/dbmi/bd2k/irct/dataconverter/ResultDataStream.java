@@ -16,6 +16,8 @@ public class ResultDataStream {
 	private StreamingOutput result;
 	private String message;
 	private String fileExtension;
+	private long firstByte = -1;
+	private long lastByte = -1;
 	
 	/**
 	 * @return the mediaType
@@ -69,7 +71,36 @@ public class ResultDataStream {
 	public String getFileExtension() {
 		return this.fileExtension;
 	}
-	
-	
-	
+
+	/**
+	 * Returns the first byte of the range of bytes in the stream
+	 * 
+	 * @return First byte, or -1 if the stream holds the whole result
+	 */
+	public long getFirstByte() {
+		return firstByte;
+	}
+
+	/**
+	 * @param firstByte the firstByte to set
+	 */
+	public void setFirstByte(long firstByte) {
+		this.firstByte = firstByte;
+	}
+
+	/**
+	 * Returns the last byte of the range of bytes in the stream
+	 * 
+	 * @return Last byte, or -1 if the range ends with the result
+	 */
+	public long getLastByte() {
+		return lastByte;
+	}
+
+	/**
+	 * @param lastByte the lastByte to set
+	 */
+	public void setLastByte(long lastByte) {
+		this.lastByte = lastByte;
+	}
 }
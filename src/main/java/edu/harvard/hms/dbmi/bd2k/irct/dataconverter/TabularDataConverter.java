@@ -0,0 +1,112 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.dataconverter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.stream.Stream;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.Result;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.ResultDataType;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.exception.ResultSetException;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular.Column;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular.ResultSet;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular.Row;
+
+/**
+ * A base class for converters of tabular results. The rows are written from
+ * a stream of the result set, so a window of rows only reads the rows in the
+ * window from a persisted result.
+ */
+public abstract class TabularDataConverter implements ResultDataConverter {
+
+	@Override
+	public ResultDataType getResultDataType() {
+		return ResultDataType.TABULAR;
+	}
+
+	@Override
+	public StreamingOutput createStream(final Result result) {
+		return outputStream -> {
+			ResultSet rs = (ResultSet) result.getData();
+			try (Stream<Row> rows = rs.stream()) {
+				write(rs.getColumns(), rows, outputStream);
+			} catch (ResultSetException e) {
+				throw new WebApplicationException(e);
+			}
+		};
+	}
+
+	@Override
+	public StreamingOutput createStream(final Result result, long firstRow,
+			long rows) {
+		return outputStream -> {
+			ResultSet rs = (ResultSet) result.getData();
+			try (Stream<Row> window = rs.stream(firstRow, rows)) {
+				write(rs.getColumns(), window, outputStream);
+			} catch (ResultSetException e) {
+				throw new WebApplicationException(e);
+			}
+		};
+	}
+
+	/**
+	 * Writes the columns and rows of a result set
+	 * 
+	 * @param columns
+	 *            Columns
+	 * @param rows
+	 *            Rows
+	 * @param outputStream
+	 *            Output stream
+	 * @throws IOException
+	 *             An error occurred writing the rows
+	 */
+	protected abstract void write(Column[] columns, Stream<Row> rows,
+			OutputStream outputStream) throws IOException;
+
+	/**
+	 * Writes each row of a stream, passing on any error writing a row
+	 * 
+	 * @param rows
+	 *            Rows
+	 * @param writer
+	 *            Writes a row
+	 * @throws IOException
+	 *             An error occurred writing a row
+	 */
+	protected void forEachRow(Stream<Row> rows, RowWriter writer)
+			throws IOException {
+		try {
+			rows.forEachOrdered(row -> {
+				try {
+					writer.write(row);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Writes a row of a result set
+	 */
+	protected interface RowWriter {
+		/**
+		 * Writes a row
+		 * 
+		 * @param row
+		 *            Row
+		 * @throws IOException
+		 *             An error occurred writing the row
+		 */
+		void write(Row row) throws IOException;
+	}
+}
@@ -3,6 +3,8 @@
  * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
 package edu.harvard.hms.dbmi.bd2k.irct.executable;
 
+import java.util.concurrent.CompletableFuture;
+
 import edu.harvard.hms.dbmi.bd2k.irct.model.result.Result;
 import edu.harvard.hms.dbmi.bd2k.irct.model.security.SecureSession;
 import edu.harvard.hms.dbmi.bd2k.irct.exception.ResourceInterfaceException;
@@ -25,6 +27,31 @@ public interface Executable {
 	 */
 	void run() throws ResourceInterfaceException;
 
+	/**
+	 * Starts running the executable. Executables that run their action
+	 * through the execution scheduler do not hold a thread while the action
+	 * waits to run.
+	 * 
+	 * @return A future that completes once the executable has run
+	 */
+	default CompletableFuture<Void> runAsync() {
+		CompletableFuture<Void> future = new CompletableFuture<Void>();
+		try {
+			run();
+			future.complete(null);
+		} catch (ResourceInterfaceException | RuntimeException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * Cancels the executable if it is running. An executable that has not run
+	 * yet will not run.
+	 */
+	default void cancel() {
+	}
+
 	/**
 	 * Get the current state of the executable
 	 * 
@@ -39,4 +66,30 @@ public interface Executable {
 	 * @throws ResourceInterfaceException An error occurred
 	 */
 	Result getResults() throws ResourceInterfaceException;
+
+	/**
+	 * Returns a future that completes with the result set
+	 * 
+	 * @return Future result
+	 */
+	default CompletableFuture<Result> getResultsAsync() {
+		CompletableFuture<Result> future = new CompletableFuture<Result>();
+		try {
+			future.complete(getResults());
+		} catch (ResourceInterfaceException | RuntimeException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * Returns a fingerprint of the executable and everything it depends on.
+	 * Executables with the same fingerprint return the same results, so an
+	 * execution plan only runs one of them.
+	 * 
+	 * @return Fingerprint (Null if the executable cannot be shared)
+	 */
+	default String getFingerprint() {
+		return null;
+	}
 }
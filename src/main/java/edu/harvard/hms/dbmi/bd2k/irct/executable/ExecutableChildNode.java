@@ -3,13 +3,10 @@
  * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
 package edu.harvard.hms.dbmi.bd2k.irct.executable;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 
 import edu.harvard.hms.dbmi.bd2k.irct.action.Action;
 import edu.harvard.hms.dbmi.bd2k.irct.event.IRCTEventListener;
@@ -30,71 +27,71 @@ public class ExecutableChildNode implements Executable {
 	private SecureSession session;
 	private boolean blocking;
 	private Action action;
-	private Map<String, Executable> children;
-	private Map<String, Result> childrenResults;
-	private ExecutableStatus state;
+	private Map<String, Executable> children = new LinkedHashMap<String, Executable>();
+	private volatile ExecutableStatus state;
 	
 	private IRCTEventListener irctEventListener;
 
 	@Override
 	public void setup(SecureSession secureSession) {
 		this.session = secureSession;
-		this.children = new HashMap<String, Executable>();
-		this.childrenResults = new HashMap<String, Result>();
 		this.state = ExecutableStatus.CREATED;
 		this.irctEventListener = Utilities.getIRCTEventListener();
 	}
 
+	/**
+	 * Runs the node and its children through an execution plan, so that the
+	 * children are scheduled the same way as in any other plan
+	 */
 	@Override
 	public void run() throws ResourceInterfaceException {
-		irctEventListener.beforeAction(session, action);
-		
-		if (isBlocking() && !children.isEmpty()) {
-			runSequentially();
-		} else if (!children.isEmpty()){
-			runConcurrently();
-		}
-		if(!childrenResults.isEmpty()) {
-			action.updateActionParams(childrenResults);
-		}
-		
-		this.state = ExecutableStatus.RUNNING;
-		this.action.run(this.session);
-		this.state = ExecutableStatus.COMPLETED;
-		
-		irctEventListener.afterAction(session, action);
-	}
+		ExecutionPlan plan = new ExecutionPlan();
+		plan.setup(this, this.session);
+		plan.run();
 
-	private void runSequentially() throws ResourceInterfaceException {
-		for (String key : this.children.keySet()) {
-			Executable executable = this.children.get(key);
-			executable.setup(this.session);
-			executable.run();
-			childrenResults.put(key, executable.getResults());
+		Result result = plan.getResults();
+		if ((result != null) && (result.getResultStatus() == ResultStatus.ERROR)) {
+			throw new ResourceInterfaceException(result.getMessage());
 		}
 	}
 
-	private void runConcurrently() {
-		List<ExecutorThread> myThreads = new ArrayList<ExecutorThread>();
-		for (String key : this.children.keySet()) {
-			myThreads.add(new ExecutorThread(key, this.children.get(key),
-					this.session));
-		}
-		ExecutorService taskExecutor = Executors.newFixedThreadPool(10);
-		for (ExecutorThread executorThread : myThreads) {
-			taskExecutor.execute(executorThread);
+	/**
+	 * Starts running the action of the node with the results of children that
+	 * have already been run by the execution plan
+	 * 
+	 * @param childrenResults
+	 *            Results of the children by their key
+	 * @return A future that completes once the action has run
+	 */
+	CompletableFuture<Void> runAsync(Map<String, Result> childrenResults) {
+		if (this.state == ExecutableStatus.CANCELLED) {
+			return CompletableFuture.completedFuture(null);
 		}
-		taskExecutor.shutdown();
-		try {
-			taskExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+		irctEventListener.beforeAction(session, action);
+		if (!childrenResults.isEmpty()) {
+			action.updateActionParams(childrenResults);
 		}
 
-		for (ExecutorThread executorThread : myThreads) {
-			childrenResults.put(executorThread.getId(),
-					executorThread.getResult());
+		this.state = ExecutableStatus.RUNNING;
+		return ExecutionScheduler.getInstance()
+				.runAction(this.action, this.session).thenRun(() -> {
+					if (this.state != ExecutableStatus.CANCELLED) {
+						this.state = ExecutableStatus.COMPLETED;
+					}
+					irctEventListener.afterAction(session, action);
+				});
+	}
+
+	/**
+	 * Cancels the action of the node. The execution plan cancels each of the
+	 * children it started itself.
+	 */
+	@Override
+	public void cancel() {
+		if (this.state != ExecutableStatus.COMPLETED) {
+			this.state = ExecutableStatus.CANCELLED;
 		}
+		this.action.cancel(this.session);
 	}
 
 	@Override
@@ -107,6 +104,55 @@ public class ExecutableChildNode implements Executable {
 		return this.action.getResults(this.session);
 	}
 
+	@Override
+	public CompletableFuture<Result> getResultsAsync() {
+		return this.action.getResultsAsync(this.session);
+	}
+
+	@Override
+	public String getFingerprint() {
+		String actionFingerprint = (this.action == null) ? null : this.action
+				.getFingerprint();
+		if (actionFingerprint == null) {
+			return null;
+		}
+		Fingerprint fingerprint = new Fingerprint("child");
+		fingerprint.add(actionFingerprint);
+		fingerprint.add(Boolean.valueOf(this.blocking));
+		for (Map.Entry<String, Executable> child : new TreeMap<String, Executable>(
+				this.children).entrySet()) {
+			String childFingerprint = child.getValue().getFingerprint();
+			if (childFingerprint == null) {
+				return null;
+			}
+			fingerprint.add(child.getKey());
+			fingerprint.add(childFingerprint);
+		}
+		return fingerprint.toString();
+	}
+
+	/**
+	 * Adds a child whose results are passed to the action under the given key.
+	 * The same executable can be the child of more than one node.
+	 * 
+	 * @param key
+	 *            Key of the results
+	 * @param executable
+	 *            Child
+	 */
+	public void addChild(String key, Executable executable) {
+		this.children.put(key, executable);
+	}
+
+	/**
+	 * Returns the children of the node by their key
+	 * 
+	 * @return Children
+	 */
+	public Map<String, Executable> getChildren() {
+		return children;
+	}
+
 	/**
 	 * Returns the action that is to be executed
 	 * 
@@ -148,60 +194,3 @@ public class ExecutableChildNode implements Executable {
 		this.blocking = blocking;
 	}
 }
-
-/**
- * A subclass that implements a runnable execution thread for actions
- * 
- * @author Jeremy R. Easton-Marks
- *
- */
-class ExecutorThread implements Runnable {
-
-	private String id;
-	private SecureSession session;
-	private Executable executable;
-	private Result result;
-
-	/**
-	 * Create the executor thread with the executable component
-	 * 
-	 * @param id Id of the executable
-	 * @param executable Executable
-	 * @param session Session to run it in
-	 */
-	public ExecutorThread(String id, Executable executable,
-			SecureSession session) {
-		this.session = session;
-		this.executable = executable;
-	}
-
-	@Override
-	public void run() {
-		executable.setup(this.session);
-		try {
-			executable.run();
-			this.result = executable.getResults();
-		} catch (ResourceInterfaceException e) {
-			result.setResultStatus(ResultStatus.ERROR);
-		}
-	}
-
-	/**
-	 * Returns the results
-	 * 
-	 * @return Results
-	 */
-	public Result getResult() {
-		return this.result;
-	}
-
-	/**
-	 * Sets the results
-	 * 
-	 * @return Results
-	 */
-	public String getId() {
-		return this.id;
-	}
-
-}
\ No newline at end of file
@@ -3,6 +3,9 @@
  * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
 package edu.harvard.hms.dbmi.bd2k.irct.executable;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 import edu.harvard.hms.dbmi.bd2k.irct.action.Action;
 import edu.harvard.hms.dbmi.bd2k.irct.event.IRCTEventListener;
 import edu.harvard.hms.dbmi.bd2k.irct.exception.ResourceInterfaceException;
@@ -21,7 +24,7 @@ public class ExecutableLeafNode implements Executable {
 
 	private SecureSession session;
 	private Action action;
-	private ExecutableStatus state;
+	private volatile ExecutableStatus state;
 	
 	private IRCTEventListener irctEventListener;
 
@@ -35,13 +38,39 @@ public class ExecutableLeafNode implements Executable {
 
 	@Override
 	public void run() throws ResourceInterfaceException {
+		try {
+			runAsync().join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof ResourceInterfaceException) {
+				throw (ResourceInterfaceException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	@Override
+	public CompletableFuture<Void> runAsync() {
+		if (this.state == ExecutableStatus.CANCELLED) {
+			return CompletableFuture.completedFuture(null);
+		}
 		irctEventListener.beforeAction(session, action);
 		
 		this.state = ExecutableStatus.RUNNING;
-		this.action.run(this.session);
-		this.state = ExecutableStatus.COMPLETED;
-		
-		irctEventListener.afterAction(session, action);
+		return ExecutionScheduler.getInstance()
+				.runAction(this.action, this.session).thenRun(() -> {
+					if (this.state != ExecutableStatus.CANCELLED) {
+						this.state = ExecutableStatus.COMPLETED;
+					}
+					irctEventListener.afterAction(session, action);
+				});
+	}
+
+	@Override
+	public void cancel() {
+		if (this.state != ExecutableStatus.COMPLETED) {
+			this.state = ExecutableStatus.CANCELLED;
+		}
+		this.action.cancel(this.session);
 	}
 
 	@Override
@@ -54,6 +83,16 @@ public class ExecutableLeafNode implements Executable {
 		return this.action.getResults(this.session);
 	}
 
+	@Override
+	public CompletableFuture<Result> getResultsAsync() {
+		return this.action.getResultsAsync(this.session);
+	}
+
+	@Override
+	public String getFingerprint() {
+		return (this.action == null) ? null : this.action.getFingerprint();
+	}
+
 	/**
 	 * Returns the action that is to be executed
 	 * 
@@ -34,5 +34,9 @@ public enum ExecutableStatus {
 	/**
 	 * The executable has completed
 	 */
-	COMPLETED
+	COMPLETED,
+	/**
+	 * The executable was cancelled before it completed
+	 */
+	CANCELLED
 }
@@ -3,28 +3,57 @@
  * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
 package edu.harvard.hms.dbmi.bd2k.irct.executable;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
 
 import edu.harvard.hms.dbmi.bd2k.irct.model.result.Result;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.ResultStatus;
 import edu.harvard.hms.dbmi.bd2k.irct.model.security.SecureSession;
 import edu.harvard.hms.dbmi.bd2k.irct.util.Utilities;
 import edu.harvard.hms.dbmi.bd2k.irct.event.IRCTEventListener;
-import edu.harvard.hms.dbmi.bd2k.irct.exception.ResourceInterfaceException;
 
 /**
  * An execution plan is series of executable processes that are run by the IRCT.
  * An execution plan is run each time a query, join, or process request for
  * execution is made.
  * 
+ * The executables of a plan form a directed acyclic graph. An executable that
+ * is the child of more than one node, or that has the same fingerprint as
+ * another executable in the plan, is only run once and its result is passed
+ * to every node that depends on it. Each node is run as soon as the children
+ * it depends on have completed, so independent branches run concurrently.
+ * 
+ * A running plan can be cancelled, or given a timeout after which it is
+ * cancelled. Cancelling a plan cancels its executables, which ask their
+ * resources to stop, and the results of the plan have a status of cancelled.
+ * 
  * @author Jeremy R. Easton-Marks
  *
  */
 public class ExecutionPlan {
-	private ExecutableStatus status;
+	private volatile ExecutableStatus status;
 	private Executable executable;
-	private Result results;
+	private volatile Result results;
 	private SecureSession session;
+	private long timeout;
+	private volatile boolean cancelled;
+	private CompletableFuture<Result> completion;
+	private ScheduledFuture<?> deadline;
 
 	private IRCTEventListener irctEventListener;
+
+	private Map<Executable, CompletableFuture<Result>> scheduled;
+	private Map<String, CompletableFuture<Result>> scheduledFingerprints;
+	private Set<Executable> started;
 	
 	/**
 	 * Setup the execution plan with the base executable
@@ -38,27 +67,241 @@ public class ExecutionPlan {
 		this.session = session;
 		this.status = ExecutableStatus.CREATED;
 		this.results = null;
+		this.cancelled = false;
 		
 		this.irctEventListener = Utilities.getIRCTEventListener();
 	}
 
 	/**
-	 * Run the base execution plan
+	 * Run the base execution plan and wait for it to complete
 	 */
 	public void run() {
+		runAsync().join();
+	}
+
+	/**
+	 * Starts running the base execution plan. No thread is held while the
+	 * executables wait on their resources.
+	 * 
+	 * @return A future that completes with the results of the plan
+	 */
+	public CompletableFuture<Result> runAsync() {
 		irctEventListener.beforeExecutionPlan(session, executable);
 		
 		this.status = ExecutableStatus.RUNNING;
+		this.completion = new CompletableFuture<Result>();
+		this.scheduled = new IdentityHashMap<Executable, CompletableFuture<Result>>();
+		this.scheduledFingerprints = new HashMap<String, CompletableFuture<Result>>();
+		this.started = Collections
+				.newSetFromMap(new IdentityHashMap<Executable, Boolean>());
+		if (this.timeout > 0) {
+			this.deadline = ExecutionScheduler.getInstance().schedule(
+					() -> cancel("The execution did not complete within "
+							+ this.timeout + " ms"), this.timeout);
+		}
+
+		CompletableFuture<Result> future;
 		try {
-			this.executable.setup(session);
-			this.executable.run();
-			this.results = this.executable.getResults();
-		} catch (ResourceInterfaceException e) {
-			e.printStackTrace();
+			future = schedule(this.executable);
+		} catch (RuntimeException e) {
+			future = CompletableFuture.completedFuture(getErrorResult(e));
 		}
+		future.whenComplete((planResults, error) -> complete((error == null) ? planResults
+				: getErrorResult(error)));
+		return this.completion;
+	}
+
+	/**
+	 * Cancels the execution plan if it is running
+	 */
+	public void cancel() {
+		cancel("The execution was cancelled");
+	}
+
+	private void cancel(String message) {
+		List<Executable> running;
+		synchronized (this) {
+			if (this.cancelled || (this.completion == null)
+					|| this.completion.isDone()) {
+				return;
+			}
+			this.cancelled = true;
+			// Only the executables that were started are cancelled. An
+			// executable that shares the results of another was never set up.
+			running = new ArrayList<Executable>(this.started);
+		}
+
+		for (Executable node : running) {
+			if (node.getStatus() != ExecutableStatus.COMPLETED) {
+				node.cancel();
+			}
+		}
+		Result cancelledResult = new Result();
+		cancelledResult.setResultStatus(ResultStatus.CANCELLED);
+		cancelledResult.setMessage(message);
+		complete(cancelledResult);
+	}
 
-		this.status = ExecutableStatus.COMPLETED;
+	private void complete(Result planResults) {
+		synchronized (this) {
+			if (this.completion.isDone() || (this.results != null)) {
+				return;
+			}
+			this.results = planResults;
+			this.status = (planResults.getResultStatus() == ResultStatus.CANCELLED) ? ExecutableStatus.CANCELLED
+					: ExecutableStatus.COMPLETED;
+		}
+		if (this.deadline != null) {
+			this.deadline.cancel(false);
+		}
 		irctEventListener.afterExecutionPlan(session, executable);
+		this.completion.complete(planResults);
+	}
+
+	/**
+	 * Schedules an executable to run once its children have completed. An
+	 * executable that has already been scheduled, or that has the same
+	 * fingerprint as one that has, is not scheduled again.
+	 * 
+	 * @param node
+	 *            Executable
+	 * @return The future results of the executable
+	 */
+	private synchronized CompletableFuture<Result> schedule(Executable node) {
+		CompletableFuture<Result> future = scheduled.get(node);
+		if (future != null) {
+			return future;
+		}
+		String fingerprint = node.getFingerprint();
+		if (fingerprint != null) {
+			future = scheduledFingerprints.get(fingerprint);
+			if (future != null) {
+				scheduled.put(node, future);
+				return future;
+			}
+		}
+
+		node.setup(session);
+		if (node instanceof ExecutableChildNode) {
+			future = scheduleChildNode((ExecutableChildNode) node);
+		} else {
+			future = CompletableFuture.supplyAsync(() -> runNode(node),
+					ExecutionScheduler.getInstance().getExecutor()).thenCompose(
+					results -> results);
+		}
+
+		scheduled.put(node, future);
+		if (fingerprint != null) {
+			scheduledFingerprints.put(fingerprint, future);
+		}
+		return future;
+	}
+
+	private CompletableFuture<Result> scheduleChildNode(
+			ExecutableChildNode node) {
+		Map<String, Result> childrenResults = new LinkedHashMap<String, Result>();
+		CompletableFuture<Void> childrenComplete = CompletableFuture
+				.completedFuture(null);
+
+		if (node.isBlocking()) {
+			// Each child is only scheduled once the previous child completed
+			for (Map.Entry<String, Executable> child : node.getChildren()
+					.entrySet()) {
+				childrenComplete = childrenComplete.thenCompose(previous -> schedule(
+						child.getValue()).thenAccept(
+						result -> putResult(childrenResults, child.getKey(),
+								result)));
+			}
+		} else {
+			List<CompletableFuture<Void>> children = new ArrayList<CompletableFuture<Void>>();
+			for (Map.Entry<String, Executable> child : node.getChildren()
+					.entrySet()) {
+				children.add(schedule(child.getValue()).thenAccept(
+						result -> putResult(childrenResults, child.getKey(),
+								result)));
+			}
+			childrenComplete = CompletableFuture.allOf(children
+					.toArray(new CompletableFuture<?>[children.size()]));
+		}
+
+		return childrenComplete.thenComposeAsync(
+				complete -> runChildNode(node, childrenResults),
+				ExecutionScheduler.getInstance().getExecutor());
+	}
+
+	private void putResult(Map<String, Result> childrenResults, String key,
+			Result result) {
+		synchronized (childrenResults) {
+			childrenResults.put(key, result);
+		}
+	}
+
+	private CompletableFuture<Result> runNode(Executable node) {
+		if (!start(node)) {
+			return CompletableFuture.completedFuture(getCancelledResult());
+		}
+		try {
+			return getResultsAsync(node, node.runAsync());
+		} catch (RuntimeException e) {
+			return CompletableFuture.completedFuture(getErrorResult(e));
+		}
+	}
+
+	private CompletableFuture<Result> runChildNode(ExecutableChildNode node,
+			Map<String, Result> childrenResults) {
+		if (!start(node)) {
+			return CompletableFuture.completedFuture(getCancelledResult());
+		}
+		try {
+			return getResultsAsync(node, node.runAsync(childrenResults));
+		} catch (RuntimeException e) {
+			return CompletableFuture.completedFuture(getErrorResult(e));
+		}
+	}
+
+	/**
+	 * Records that a node is about to run, unless the plan has been cancelled
+	 * 
+	 * @return False if the plan has been cancelled
+	 */
+	private synchronized boolean start(Executable node) {
+		if (this.cancelled) {
+			return false;
+		}
+		this.started.add(node);
+		return true;
+	}
+
+	/**
+	 * Returns the results of a node once its action has run
+	 */
+	private CompletableFuture<Result> getResultsAsync(Executable node,
+			CompletableFuture<Void> run) {
+		return run.thenCompose(
+				ran -> (node.getStatus() == ExecutableStatus.CANCELLED) ? CompletableFuture
+						.completedFuture(getCancelledResult()) : getResultsAsync(node))
+				.exceptionally(this::getErrorResult);
+	}
+
+	private CompletableFuture<Result> getResultsAsync(Executable node) {
+		return node.getResultsAsync().exceptionally(this::getErrorResult);
+	}
+
+	private Result getCancelledResult() {
+		Result result = new Result();
+		result.setResultStatus(ResultStatus.CANCELLED);
+		result.setMessage("The execution was cancelled");
+		return result;
+	}
+
+	private Result getErrorResult(Throwable e) {
+		if ((e instanceof CompletionException) && (e.getCause() != null)) {
+			e = e.getCause();
+		}
+		Result result = new Result();
+		result.setResultStatus(ResultStatus.ERROR);
+		result.setMessage(e.getMessage());
+		return result;
 	}
 
 	/**
@@ -70,6 +313,26 @@ public class ExecutionPlan {
 		return this.results;
 	}
 
+	/**
+	 * Returns the number of milliseconds the plan can run before it is
+	 * cancelled
+	 * 
+	 * @return Timeout (0 if the plan has no timeout)
+	 */
+	public long getTimeout() {
+		return this.timeout;
+	}
+
+	/**
+	 * Sets the number of milliseconds the plan can run before it is cancelled
+	 * 
+	 * @param timeout
+	 *            Timeout (0 if the plan has no timeout)
+	 */
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
 	/**
 	 * Returns the current execution state
 	 * 
@@ -0,0 +1,263 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.executable;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import edu.harvard.hms.dbmi.bd2k.irct.action.Action;
+import edu.harvard.hms.dbmi.bd2k.irct.action.ActionStatus;
+import edu.harvard.hms.dbmi.bd2k.irct.exception.ResourceInterfaceException;
+import edu.harvard.hms.dbmi.bd2k.irct.model.resource.Resource;
+import edu.harvard.hms.dbmi.bd2k.irct.model.security.SecureSession;
+
+/**
+ * The application wide scheduler that runs the actions of an execution plan.
+ * The actions run on a single executor, so the number of threads stays bounded
+ * however many plans are running. In a container this is the managed executor
+ * service; otherwise it is a pool of the scheduler.
+ *
+ * The number of actions that run at once can also be limited for each
+ * resource and for each user. An action that is over a limit is queued until
+ * an earlier action releases its permit, without holding a thread while it
+ * waits. The limits are set with system properties:
+ *
+ * <pre>
+ * irct.execution.parallelism                 threads of the pool
+ * irct.execution.resourceParallelism         actions per resource
+ * irct.execution.resourceParallelism.[name]  actions on the named resource
+ * irct.execution.userParallelism             actions per user
+ * </pre>
+ */
+public class ExecutionScheduler {
+	/**
+	 * Number of threads that run executables. The default can be changed with
+	 * the irct.execution.parallelism system property.
+	 */
+	public static final int PARALLELISM = Integer.getInteger(
+			"irct.execution.parallelism",
+			Math.max(10, 2 * Runtime.getRuntime().availableProcessors()));
+	/**
+	 * Number of actions that can run on a resource at once. The default can
+	 * be changed with the irct.execution.resourceParallelism system property.
+	 */
+	public static final int RESOURCE_PARALLELISM = Integer.getInteger(
+			"irct.execution.resourceParallelism", PARALLELISM);
+	/**
+	 * Number of actions that a user can run at once. The default can be
+	 * changed with the irct.execution.userParallelism system property.
+	 */
+	public static final int USER_PARALLELISM = Integer.getInteger(
+			"irct.execution.userParallelism", PARALLELISM);
+
+	private static final ExecutionScheduler INSTANCE = new ExecutionScheduler(
+			PARALLELISM, RESOURCE_PARALLELISM, USER_PARALLELISM);
+
+	private static final ScheduledExecutorService TIMER = Executors
+			.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "irct-execution-timer");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	private final ForkJoinPool pool;
+	private volatile Executor executor;
+	private final int resourceParallelism;
+	private final int userParallelism;
+	private final ConcurrentMap<String, Permits> resourcePermits = new ConcurrentHashMap<String, Permits>();
+	private final ConcurrentMap<String, Permits> userPermits = new ConcurrentHashMap<String, Permits>();
+
+	/**
+	 * A number of permits that are handed to waiting actions in the order
+	 * they asked for them. Asking for a permit returns a future instead of
+	 * blocking the thread.
+	 */
+	private static class Permits {
+		private final Queue<CompletableFuture<Void>> waiting = new ArrayDeque<CompletableFuture<Void>>();
+		private int available;
+
+		Permits(int permits) {
+			this.available = permits;
+		}
+
+		synchronized CompletableFuture<Void> acquire() {
+			if ((available > 0) && waiting.isEmpty()) {
+				available--;
+				return CompletableFuture.completedFuture(null);
+			}
+			CompletableFuture<Void> permit = new CompletableFuture<Void>();
+			waiting.add(permit);
+			return permit;
+		}
+
+		void release() {
+			CompletableFuture<Void> next;
+			do {
+				synchronized (this) {
+					next = waiting.poll();
+					if (next == null) {
+						available++;
+						return;
+					}
+				}
+				// A waiting action that was cancelled passes the permit on
+			} while (!next.complete(null));
+		}
+	}
+
+	/**
+	 * Creates a scheduler with its own pool
+	 *
+	 * @param parallelism
+	 *            Number of threads
+	 * @param resourceParallelism
+	 *            Number of actions per resource
+	 * @param userParallelism
+	 *            Number of actions per user
+	 */
+	ExecutionScheduler(int parallelism, int resourceParallelism,
+			int userParallelism) {
+		ForkJoinWorkerThreadFactory factory = new ForkJoinWorkerThreadFactory() {
+			@Override
+			public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+				ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory
+						.newThread(pool);
+				thread.setName("irct-execution-" + thread.getPoolIndex());
+				return thread;
+			}
+		};
+		this.pool = new ForkJoinPool(Math.max(1, parallelism), factory, null,
+				false);
+		this.executor = pool;
+		this.resourceParallelism = Math.max(1, resourceParallelism);
+		this.userParallelism = Math.max(1, userParallelism);
+	}
+
+	/**
+	 * Returns the application wide scheduler
+	 *
+	 * @return Scheduler
+	 */
+	public static ExecutionScheduler getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the executor that runs the executables of an execution plan and
+	 * the stages that wait on resources
+	 *
+	 * @return Executor
+	 */
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Sets the executor that runs the executables of an execution plan and
+	 * the stages that wait on resources. In a container this is the managed
+	 * executor service, whose threads can look up the components of the
+	 * application. The pool of the scheduler is used until it is set.
+	 *
+	 * @param executor
+	 *            Executor
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = (executor == null) ? pool : executor;
+	}
+
+	/**
+	 * Runs a task on the executor after a delay. No thread waits for the delay
+	 * to pass.
+	 *
+	 * @param task
+	 *            Task to run
+	 * @param delay
+	 *            Delay in milliseconds
+	 * @return The scheduled task, which can be cancelled
+	 */
+	public ScheduledFuture<?> schedule(Runnable task, long delay) {
+		return TIMER.schedule(() -> getExecutor().execute(task), delay,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Runs an action once the user and the resource of the action are below
+	 * their limits. The action is run on the executor, and is not run if it
+	 * was cancelled while it waited.
+	 *
+	 * @param action
+	 *            Action to run
+	 * @param session
+	 *            Session to run it in
+	 * @return A future that completes once the action has run, or completes
+	 *         exceptionally with the ResourceInterfaceException of the action
+	 */
+	public CompletableFuture<Void> runAction(Action action,
+			SecureSession session) {
+		Permits userPermit = getUserPermits(session);
+		Permits resourcePermit = getResourcePermits(action.getResource());
+
+		// Permits are always taken user first so that waiting actions cannot
+		// block each other
+		return acquire(userPermit).thenCompose(user -> acquire(resourcePermit))
+				.thenRunAsync(() -> {
+					if (action.getStatus() == ActionStatus.CANCELLED) {
+						return;
+					}
+					try {
+						action.run(session);
+					} catch (ResourceInterfaceException e) {
+						throw new CompletionException(e);
+					}
+				}, getExecutor()).whenComplete((ran, error) -> {
+					release(resourcePermit);
+					release(userPermit);
+				});
+	}
+
+	private Permits getUserPermits(SecureSession session) {
+		if ((session == null) || (session.getUser() == null)
+				|| (session.getUser().getUserId() == null)) {
+			return null;
+		}
+		return userPermits.computeIfAbsent(session.getUser().getUserId(),
+				userId -> new Permits(userParallelism));
+	}
+
+	private Permits getResourcePermits(Resource resource) {
+		if ((resource == null) || (resource.getName() == null)) {
+			return null;
+		}
+		return resourcePermits.computeIfAbsent(
+				resource.getName(),
+				name -> new Permits(Math.max(1, Integer.getInteger(
+						"irct.execution.resourceParallelism." + name,
+						resourceParallelism))));
+	}
+
+	private CompletableFuture<Void> acquire(Permits permits) {
+		if (permits == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return permits.acquire();
+	}
+
+	private void release(Permits permits) {
+		if (permits != null) {
+			permits.release();
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.executable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Builds the fingerprint of an executable from the values that describe it.
+ * Two executables with the same fingerprint produce the same result, so an
+ * execution plan only runs one of them. Each value is hashed together with its
+ * length so that different sequences of values cannot produce the same
+ * fingerprint.
+ *
+ * A value that cannot be described reliably, such as an object in the object
+ * values of a clause, makes the fingerprint unknown. An executable with an
+ * unknown fingerprint is never shared.
+ */
+public class Fingerprint {
+	private MessageDigest digest;
+	private boolean known = true;
+
+	/**
+	 * Starts a fingerprint of the given type of executable
+	 *
+	 * @param type
+	 *            Type of executable
+	 */
+	public Fingerprint(String type) {
+		try {
+			this.digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+		add(type);
+	}
+
+	/**
+	 * Adds a string value, which can be null
+	 *
+	 * @param value
+	 *            Value
+	 * @return This fingerprint
+	 */
+	public Fingerprint add(String value) {
+		if (value == null) {
+			digest.update(ByteBuffer.allocate(4).putInt(-1).array());
+			return this;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+		digest.update(bytes);
+		return this;
+	}
+
+	/**
+	 * Adds a value. Strings, numbers, booleans, enums and nulls are added by
+	 * their string representation; any other object makes the fingerprint
+	 * unknown.
+	 *
+	 * @param value
+	 *            Value
+	 * @return This fingerprint
+	 */
+	public Fingerprint add(Object value) {
+		if ((value == null) || (value instanceof String)
+				|| (value instanceof Number) || (value instanceof Boolean)
+				|| (value instanceof Enum)) {
+			return add((value == null) ? null : value.toString());
+		}
+		this.known = false;
+		return this;
+	}
+
+	/**
+	 * Adds the entries of a map in the order of their keys
+	 *
+	 * @param values
+	 *            Values
+	 * @return This fingerprint
+	 */
+	public Fingerprint add(Map<String, ?> values) {
+		if (values == null) {
+			return add((String) null);
+		}
+		add(Integer.valueOf(values.size()));
+		for (Map.Entry<String, ?> entry : new TreeMap<String, Object>(values)
+				.entrySet()) {
+			add(entry.getKey());
+			add(entry.getValue());
+		}
+		return this;
+	}
+
+	/**
+	 * Marks the fingerprint as unknown
+	 *
+	 * @return This fingerprint
+	 */
+	public Fingerprint unknown() {
+		this.known = false;
+		return this;
+	}
+
+	/**
+	 * Returns the fingerprint as a hexadecimal string, or null if it is
+	 * unknown. The fingerprint cannot be added to afterwards.
+	 *
+	 * @return Fingerprint
+	 */
+	@Override
+	public String toString() {
+		if (!known) {
+			return null;
+		}
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+}
@@ -3,6 +3,7 @@
  * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
 package edu.harvard.hms.dbmi.bd2k.irct.model.ontology;
 
+import java.nio.ByteBuffer;
 import java.util.regex.Pattern;
 
 import javax.json.JsonObject;
@@ -32,6 +33,81 @@ public interface DataType {
 	 */
 	public abstract Object fromBytes(byte[] bytes);
 
+	/**
+	 * Writes the byte representation of the given object into a buffer at its
+	 * current position, and advances the position past it. The bytes are the
+	 * same as those returned by toBytes, but no array is allocated for them.
+	 * 
+	 * @param value
+	 *            Object to convert
+	 * @param buffer
+	 *            Buffer to write to
+	 * @return Number of bytes written, or -1 if the value cannot be converted
+	 * @throws java.nio.BufferOverflowException
+	 *             The buffer does not have room for the value
+	 */
+	public default int encode(Object value, ByteBuffer buffer) {
+		byte[] bytes = toBytes(value);
+		if (bytes == null) {
+			return -1;
+		}
+		buffer.put(bytes);
+		return bytes.length;
+	}
+
+	/**
+	 * Returns the object representation of a range of bytes of a buffer. The
+	 * position of the buffer is not changed.
+	 * 
+	 * @param buffer
+	 *            Buffer
+	 * @param offset
+	 *            Index of the first byte
+	 * @param length
+	 *            Number of bytes
+	 * @return Value
+	 */
+	public default Object decode(ByteBuffer buffer, int offset, int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = buffer.get(offset + i);
+		}
+		return fromBytes(bytes);
+	}
+
+	/**
+	 * Returns the value of a range of bytes of a buffer as a long without
+	 * boxing it. The position of the buffer is not changed.
+	 * 
+	 * @param buffer
+	 *            Buffer
+	 * @param offset
+	 *            Index of the first byte
+	 * @param length
+	 *            Number of bytes
+	 * @return Value
+	 */
+	public default long decodeLong(ByteBuffer buffer, int offset, int length) {
+		return ((Number) decode(buffer, offset, length)).longValue();
+	}
+
+	/**
+	 * Returns the value of a range of bytes of a buffer as a double without
+	 * boxing it. The position of the buffer is not changed.
+	 * 
+	 * @param buffer
+	 *            Buffer
+	 * @param offset
+	 *            Index of the first byte
+	 * @param length
+	 *            Number of bytes
+	 * @return Value
+	 */
+	public default double decodeDouble(ByteBuffer buffer, int offset,
+			int length) {
+		return ((Number) decode(buffer, offset, length)).doubleValue();
+	}
+
 	/**
 	 * Returns the name of the data type
 	 * 
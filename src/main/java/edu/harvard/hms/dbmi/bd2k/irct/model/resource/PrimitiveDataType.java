@@ -4,10 +4,15 @@
 package edu.harvard.hms.dbmi.bd2k.irct.model.resource;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.Date;
 import java.util.regex.Pattern;
 
@@ -25,7 +30,7 @@ import edu.harvard.hms.dbmi.bd2k.irct.model.ontology.DataType;
  * @version 1.0
  */
 public enum PrimitiveDataType implements DataType {
-	BOOLEAN {
+	BOOLEAN("^(true|false)$") {
 		@Override
 		public byte[] toBytes(Object value) {
 			if (value == null) {
@@ -59,13 +64,14 @@ public enum PrimitiveDataType implements DataType {
 		}
 
 		@Override
-		public String getName() {
-			return "boolean";
+		public boolean validate(String value) {
+			return "true".equalsIgnoreCase(value)
+					|| "false".equalsIgnoreCase(value);
 		}
 
 		@Override
-		public Pattern getPattern() {
-			return Pattern.compile("^(true|false)$", Pattern.CASE_INSENSITIVE);
+		public String getName() {
+			return "boolean";
 		}
 
 		@Override
@@ -80,7 +86,7 @@ public enum PrimitiveDataType implements DataType {
 
 		@Override
 		public byte[] fromString(String value) {
-			if (this.getPattern().matcher(value).matches()) {
+			if (validate(value)) {
 				if (value.equalsIgnoreCase("true")) {
 					return toBytes(true);
 				} else {
@@ -99,7 +105,7 @@ public enum PrimitiveDataType implements DataType {
 			}
 		}
 	},
-	BYTE {
+	BYTE("^.{1,1}$") {
 		@Override
 		public byte[] toBytes(Object value) {
 			if (value == null) {
@@ -120,13 +126,13 @@ public enum PrimitiveDataType implements DataType {
 		}
 
 		@Override
-		public String getName() {
-			return "byte";
+		public boolean validate(String value) {
+			return (value.length() == 1) && !isLineTerminator(value.charAt(0));
 		}
 
 		@Override
-		public Pattern getPattern() {
-			return Pattern.compile("^.{1,1}$", Pattern.CASE_INSENSITIVE);
+		public String getName() {
+			return "byte";
 		}
 
 		@Override
@@ -141,7 +147,7 @@ public enum PrimitiveDataType implements DataType {
 
 		@Override
 		public byte[] fromString(String value) {
-			if (this.getPattern().matcher(value).matches()) {
+			if (validate(value)) {
 				return value.getBytes();
 			}
 			return null;
@@ -152,7 +158,7 @@ public enum PrimitiveDataType implements DataType {
 			return new String(bytes);
 		}
 	},
-	DOUBLE {
+	DOUBLE("^[0-9]{1,13}(\\.[0-9]*)$") {
 		@Override
 		public byte[] toBytes(Object value) {
 			if (value == null) {
@@ -178,14 +184,45 @@ public enum PrimitiveDataType implements DataType {
 		}
 
 		@Override
-		public String getName() {
-			return "double";
+		public int encode(Object value, ByteBuffer buffer) {
+			if (value == null) {
+				return encodeNull(buffer);
+			}
+			buffer.putDouble((Double) value);
+			return 8;
+		}
+
+		@Override
+		public Object decode(ByteBuffer buffer, int offset, int length) {
+			if (isNull(buffer, offset, length)) {
+				return null;
+			}
+			return buffer.getDouble(offset);
 		}
 
 		@Override
-		public Pattern getPattern() {
-			return Pattern.compile("^[0-9]{1,13}(\\.[0-9]*)$",
-					Pattern.CASE_INSENSITIVE);
+		public long decodeLong(ByteBuffer buffer, int offset, int length) {
+			return (long) buffer.getDouble(offset);
+		}
+
+		@Override
+		public double decodeDouble(ByteBuffer buffer, int offset, int length) {
+			return buffer.getDouble(offset);
+		}
+
+		@Override
+		public boolean validate(String value) {
+			int digits = countDigits(value, 0);
+			if ((digits < 1) || (digits > 13) || (digits == value.length())
+					|| (value.charAt(digits) != '.')) {
+				return false;
+			}
+			return countDigits(value, digits + 1) == value.length() - digits - 1;
+		}
+
+		@Override
+		public String getName() {
+			return "double";
 		}
 
 		@Override
@@ -200,7 +237,7 @@ public enum PrimitiveDataType implements DataType {
 
 		@Override
 		public byte[] fromString(String value) {
-			if (this.getPattern().matcher(value).matches()) {
+			if (validate(value)) {
 				return toBytes(value.getBytes());
 			}
 			return null;
@@ -211,7 +248,7 @@ public enum PrimitiveDataType implements DataType {
 			return String.valueOf((double) fromBytes(bytes));
 		}
 	},
-	FLOAT {
+	FLOAT("^([+-]?\\d*\\.?\\d*)$") {
 		@Override
 		public byte[] toBytes(Object value) {
 			if (value == null) {
@@ -237,14 +274,50 @@ public enum PrimitiveDataType implements DataType {
 		}
 
 		@Override
-		public String getName() {
-			return "float";
+		public int encode(Object value, ByteBuffer buffer) {
+			if (value == null) {
+				return encodeNull(buffer);
+			}
+			buffer.putFloat((Float) value);
+			return 4;
 		}
 
 		@Override
-		public Pattern getPattern() {
-			return Pattern.compile("^([+-]?\\d*\\.?\\d*)$",
-					Pattern.CASE_INSENSITIVE);
+		public Object decode(ByteBuffer buffer, int offset, int length) {
+			if (isNull(buffer, offset, length)) {
+				return null;
+			}
+			return buffer.getFloat(offset);
+		}
+
+		@Override
+		public long decodeLong(ByteBuffer buffer, int offset, int length) {
+			return (long) buffer.getFloat(offset);
+		}
+
+		@Override
+		public double decodeDouble(ByteBuffer buffer, int offset, int length) {
+			return buffer.getFloat(offset);
+		}
+
+		@Override
+		public boolean validate(String value) {
+			int position = 0;
+			if ((value.length() > 0)
+					&& ((value.charAt(0) == '+') || (value.charAt(0) == '-'))) {
+				position++;
+			}
+			position += countDigits(value, position);
+			if ((position < value.length()) && (value.charAt(position) == '.')) {
+				position++;
+			}
+			position += countDigits(value, position);
+			return position == value.length();
+		}
+
+		@Override
+		public String getName() {
+			return "float";
 		}
 
 		@Override
@@ -259,7 +332,7 @@ public enum PrimitiveDataType implements DataType {
 
 		@Override
 		public byte[] fromString(String value) {
-			if (this.getPattern().matcher(value).matches()) {
+			if (validate(value)) {
 				return toBytes(value.getBytes());
 			}
 			return null;
@@ -270,7 +343,7 @@ public enum PrimitiveDataType implements DataType {
 			return String.valueOf((float) fromBytes(bytes));
 		}
 	},
-	INTEGER {
+	INTEGER("^\\d+$") {
 		@Override
 		public byte[] toBytes(Object value) {
 			if (value == null) {
@@ -296,13 +369,41 @@ public enum PrimitiveDataType implements DataType {
 		}
 
 		@Override
-		public String getName() {
-			return "integer";
+		public int encode(Object value, ByteBuffer buffer) {
+			if (value == null) {
+				return encodeNull(buffer);
+			}
+			buffer.putInt((Integer) value);
+			return 4;
+		}
+
+		@Override
+		public Object decode(ByteBuffer buffer, int offset, int length) {
+			if (isNull(buffer, offset, length)) {
+				return null;
+			}
+			return buffer.getInt(offset);
+		}
+
+		@Override
+		public long decodeLong(ByteBuffer buffer, int offset, int length) {
+			return buffer.getInt(offset);
+		}
+
+		@Override
+		public double decodeDouble(ByteBuffer buffer, int offset, int length) {
+			return buffer.getInt(offset);
+		}
+
+		@Override
+		public boolean validate(String value) {
+			return (value.length() > 0)
+					&& (countDigits(value, 0) == value.length());
 		}
 
 		@Override
-		public Pattern getPattern() {
-			return Pattern.compile("^\\d+$", Pattern.CASE_INSENSITIVE);
+		public String getName() {
+			return "integer";
 		}
 
 		@Override
@@ -317,7 +418,7 @@ public enum PrimitiveDataType implements DataType {
 
 		@Override
 		public byte[] fromString(String value) {
-			if (this.getPattern().matcher(value).matches()) {
+			if (validate(value)) {
 				return toBytes(value.getBytes());
 			}
 			return null;
@@ -328,7 +429,7 @@ public enum PrimitiveDataType implements DataType {
 			return String.valueOf((int) fromBytes(bytes));
 		}
 	},
-	LONG {
+	LONG("^-?\\d{1,19}$") {
 		@Override
 		public byte[] toBytes(Object value) {
 			if (value == null) {
@@ -354,13 +455,40 @@ public enum PrimitiveDataType implements DataType {
 		}
 
 		@Override
-		public String getName() {
-			return "long";
+		public int encode(Object value, ByteBuffer buffer) {
+			if (value == null) {
+				return encodeNull(buffer);
+			}
+			buffer.putLong((Long) value);
+			return 8;
 		}
 
 		@Override
-		public Pattern getPattern() {
-			return Pattern.compile("^-?\\d{1,19}$", Pattern.CASE_INSENSITIVE);
+		public Object decode(ByteBuffer buffer, int offset, int length) {
+			if (isNull(buffer, offset, length)) {
+				return null;
+			}
+			return buffer.getLong(offset);
+		}
+
+		@Override
+		public long decodeLong(ByteBuffer buffer, int offset, int length) {
+			return buffer.getLong(offset);
+		}
+
+		@Override
+		public double decodeDouble(ByteBuffer buffer, int offset, int length) {
+			return buffer.getLong(offset);
+		}
+
+		@Override
+		public boolean validate(String value) {
+			return isLong(value);
+		}
+
+		@Override
+		public String getName() {
+			return "long";
 		}
 
 		@Override
@@ -375,7 +503,7 @@ public enum PrimitiveDataType implements DataType {
 
 		@Override
 		public byte[] fromString(String value) {
-			if (this.getPattern().matcher(value).matches()) {
+			if (validate(value)) {
 				return toBytes(value.getBytes());
 			}
 			return null;
@@ -386,7 +514,7 @@ public enum PrimitiveDataType implements DataType {
 			return String.valueOf((long) fromBytes(bytes));
 		}
 	},
-	STRING {
+	STRING("^.*$") {
 		@Override
 		public byte[] toBytes(Object value) {
 			if (value == null) {
@@ -406,13 +534,25 @@ public enum PrimitiveDataType implements DataType {
 		}
 
 		@Override
-		public String getName() {
-			return "string";
+		public int encode(Object value, ByteBuffer buffer) {
+			if (value == null) {
+				return encodeNull(buffer);
+			}
+			return encodeString((String) value, buffer);
 		}
 
 		@Override
-		public Pattern getPattern() {
-			return Pattern.compile("^.*$", Pattern.CASE_INSENSITIVE);
+		public Object decode(ByteBuffer buffer, int offset, int length) {
+			if (isNull(buffer, offset, length)) {
+				return null;
+			}
+			return decodeString(buffer, offset, length,
+					StandardCharsets.UTF_16).trim();
+		}
+
+		@Override
+		public String getName() {
+			return "string";
 		}
 
 		@Override
@@ -435,7 +575,7 @@ public enum PrimitiveDataType implements DataType {
 			return new String(bytes);
 		}
 	},
-	RESULTSET {
+	RESULTSET("^-?\\d{1,19}$") {
 		@Override
 		public byte[] toBytes(Object value) {
 			if (value == null) {
@@ -461,13 +601,40 @@ public enum PrimitiveDataType implements DataType {
 		}
 
 		@Override
-		public String getName() {
-			return "resultSet";
+		public int encode(Object value, ByteBuffer buffer) {
+			if (value == null) {
+				return encodeNull(buffer);
+			}
+			buffer.putLong((Long) value);
+			return 8;
+		}
+
+		@Override
+		public Object decode(ByteBuffer buffer, int offset, int length) {
+			if (isNull(buffer, offset, length)) {
+				return null;
+			}
+			return buffer.getLong(offset);
+		}
+
+		@Override
+		public long decodeLong(ByteBuffer buffer, int offset, int length) {
+			return buffer.getLong(offset);
 		}
 
 		@Override
-		public Pattern getPattern() {
-			return Pattern.compile("^-?\\d{1,19}$", Pattern.CASE_INSENSITIVE);
+		public double decodeDouble(ByteBuffer buffer, int offset, int length) {
+			return buffer.getLong(offset);
+		}
+
+		@Override
+		public boolean validate(String value) {
+			return isLong(value);
+		}
+
+		@Override
+		public String getName() {
+			return "resultSet";
 		}
 
 		@Override
@@ -482,7 +649,7 @@ public enum PrimitiveDataType implements DataType {
 
 		@Override
 		public byte[] fromString(String value) {
-			if (this.getPattern().matcher(value).matches()) {
+			if (validate(value)) {
 				return toBytes(value.getBytes());
 			}
 			return null;
@@ -493,7 +660,7 @@ public enum PrimitiveDataType implements DataType {
 			return String.valueOf((long) fromBytes(bytes));
 		}
 	},
-	COLUMN {
+	COLUMN("^.*$") {
 		@Override
 		public byte[] toBytes(Object value) {
 			if (value == null) {
@@ -515,13 +682,25 @@ public enum PrimitiveDataType implements DataType {
 		}
 
 		@Override
-		public String getName() {
-			return "column";
+		public int encode(Object value, ByteBuffer buffer) {
+			if (value == null) {
+				return encodeNull(buffer);
+			}
+			return encodeString((String) value, buffer);
+		}
+
+		@Override
+		public Object decode(ByteBuffer buffer, int offset, int length) {
+			if (isNull(buffer, offset, length)) {
+				return null;
+			}
+			return decodeString(buffer, offset, length,
+					StandardCharsets.UTF_16).trim();
 		}
 
 		@Override
-		public Pattern getPattern() {
-			return Pattern.compile("^.*$", Pattern.CASE_INSENSITIVE);
+		public String getName() {
+			return "column";
 		}
 
 		@Override
@@ -544,9 +723,12 @@ public enum PrimitiveDataType implements DataType {
 			return new String(bytes);
 		}
 	},
-	DATE {
-
-		DateFormat dateFormat = new SimpleDateFormat("yyyy-mm-dd");
+	DATE(
+			"^\\d{4}\\-(0?[1-9]|1[012])\\-(0?[1-9]|[12][0-9]|3[01])$") {
+		private final DateTimeFormatter format = DateTimeFormatter
+				.ofPattern("yyyy-MM-dd");
+		private final DateTimeFormatter parser = DateTimeFormatter
+				.ofPattern("yyyy-M-d");
 
 		@Override
 		public byte[] toBytes(Object value) {
@@ -555,8 +737,7 @@ public enum PrimitiveDataType implements DataType {
 			}
 
 			// Convert to Date into String in correct format
-			String dateString = dateFormat.format((Date) value);
-			return fromString(dateString);
+			return fromString(format(toEpochValue(value)));
 		}
 
 		@Override
@@ -567,23 +748,41 @@ public enum PrimitiveDataType implements DataType {
 			}
 
 			try {
-				return dateFormat.parse(toString(bytes));
-			} catch (ParseException e) {
-				e.printStackTrace();
+				return toDate(parse(toString(bytes)));
+			} catch (DateTimeParseException e) {
+				return null;
 			}
-			return null;
 		}
 
 		@Override
-		public String getName() {
-			return "date";
+		public int encode(Object value, ByteBuffer buffer) {
+			if (value == null) {
+				return encodeNull(buffer);
+			}
+			return encodeAscii(format(toEpochValue(value)), buffer);
 		}
 
 		@Override
-		public Pattern getPattern() {
-			return Pattern.compile(
-					"^\\d{4}\\-(0?[1-9]|1[012])\\-(0?[1-9]|[12][0-9]|3[01])$",
-					Pattern.CASE_INSENSITIVE);
+		public Object decode(ByteBuffer buffer, int offset, int length) {
+			if (isNull(buffer, offset, length)) {
+				return null;
+			}
+			try {
+				return toDate(decodeLong(buffer, offset, length));
+			} catch (DateTimeParseException e) {
+				return null;
+			}
+		}
+
+		@Override
+		public long decodeLong(ByteBuffer buffer, int offset, int length) {
+			return parse(decodeString(buffer, offset, length,
+					Charset.defaultCharset()));
+		}
+
+		@Override
+		public String getName() {
+			return "date";
 		}
 
 		@Override
@@ -599,7 +798,7 @@ public enum PrimitiveDataType implements DataType {
 		@Override
 		public byte[] fromString(String value) {
 
-			if (this.getPattern().matcher(value).matches()) {
+			if (validate(value)) {
 				return value.getBytes();
 			}
 			return null;
@@ -609,10 +808,38 @@ public enum PrimitiveDataType implements DataType {
 		public String toString(byte[] bytes) {
 			return new String(bytes);
 		}
-	},
-	DATETIME {
 
-		DateFormat dateTimeFormat = new SimpleDateFormat("yyyy-mm-dd hh:mm:ss");
+		@Override
+		public boolean isTemporal() {
+			return true;
+		}
+
+		@Override
+		protected long fromDate(Date value) {
+			return Instant.ofEpochMilli(value.getTime()).atZone(zone())
+					.toLocalDate().toEpochDay();
+		}
+
+		@Override
+		public long parse(String value) {
+			return LocalDate.parse(value.trim(), parser).toEpochDay();
+		}
+
+		@Override
+		public String format(long epochValue) {
+			return format.format(LocalDate.ofEpochDay(epochValue));
+		}
+
+		@Override
+		public Date toDate(long epochValue) {
+			return Date.from(LocalDate.ofEpochDay(epochValue)
+					.atStartOfDay(zone()).toInstant());
+		}
+	},
+	DATETIME(
+			"^(\\d{4})-(\\d{2})-(\\d{2}) (\\d{2}):(\\d{2}):(\\d{2})$") {
+		private final DateTimeFormatter format = DateTimeFormatter
+				.ofPattern("yyyy-MM-dd HH:mm:ss");
 
 		@Override
 		public byte[] toBytes(Object value) {
@@ -621,8 +848,7 @@ public enum PrimitiveDataType implements DataType {
 			}
 
 			// Convert to Date into String in correct format
-			String dateString = dateTimeFormat.format((Date) value);
-			return fromString(dateString);
+			return fromString(format(toEpochValue(value)));
 		}
 
 		@Override
@@ -633,23 +859,41 @@ public enum PrimitiveDataType implements DataType {
 			}
 
 			try {
-				return dateTimeFormat.parse(toString(bytes));
-			} catch (ParseException e) {
-				e.printStackTrace();
+				return toDate(parse(toString(bytes)));
+			} catch (DateTimeParseException e) {
+				return null;
 			}
-			return null;
 		}
 
 		@Override
-		public String getName() {
-			return "dateTime";
+		public int encode(Object value, ByteBuffer buffer) {
+			if (value == null) {
+				return encodeNull(buffer);
+			}
+			return encodeAscii(format(toEpochValue(value)), buffer);
+		}
+
+		@Override
+		public Object decode(ByteBuffer buffer, int offset, int length) {
+			if (isNull(buffer, offset, length)) {
+				return null;
+			}
+			try {
+				return toDate(decodeLong(buffer, offset, length));
+			} catch (DateTimeParseException e) {
+				return null;
+			}
 		}
 
 		@Override
-		public Pattern getPattern() {
-			return Pattern.compile(
-					"^(\\d{4})-(\\d{2})-(\\d{2}) (\\d{2}):(\\d{2}):(\\d{2})$",
-					Pattern.CASE_INSENSITIVE);
+		public long decodeLong(ByteBuffer buffer, int offset, int length) {
+			return parse(decodeString(buffer, offset, length,
+					Charset.defaultCharset()));
+		}
+
+		@Override
+		public String getName() {
+			return "dateTime";
 		}
 
 		@Override
@@ -665,7 +909,7 @@ public enum PrimitiveDataType implements DataType {
 		@Override
 		public byte[] fromString(String value) {
 
-			if (this.getPattern().matcher(value).matches()) {
+			if (validate(value)) {
 				return value.getBytes();
 			}
 			return null;
@@ -675,9 +919,37 @@ public enum PrimitiveDataType implements DataType {
 		public String toString(byte[] bytes) {
 			return new String(bytes);
 		}
+
+		@Override
+		public boolean isTemporal() {
+			return true;
+		}
+
+		@Override
+		protected long fromDate(Date value) {
+			return value.getTime();
+		}
+
+		@Override
+		public long parse(String value) {
+			return LocalDateTime.parse(value.trim(), format).atZone(zone())
+					.toInstant().toEpochMilli();
+		}
+
+		@Override
+		public String format(long epochValue) {
+			return format.format(Instant.ofEpochMilli(epochValue).atZone(
+					zone()));
+		}
+
+		@Override
+		public Date toDate(long epochValue) {
+			return new Date(epochValue);
+		}
 	},
-	TIME {
-		DateFormat timeFormat = new SimpleDateFormat("hh:mm:ss");
+	TIME("^(\\d{2}):(\\d{2}):(\\d{2})$") {
+		private final DateTimeFormatter format = DateTimeFormatter
+				.ofPattern("HH:mm:ss");
 
 		@Override
 		public byte[] toBytes(Object value) {
@@ -686,8 +958,7 @@ public enum PrimitiveDataType implements DataType {
 			}
 
 			// Convert to Date into String in correct format
-			String dateString = timeFormat.format((Date) value);
-			return fromString(dateString);
+			return fromString(format(toEpochValue(value)));
 		}
 
 		@Override
@@ -698,22 +969,41 @@ public enum PrimitiveDataType implements DataType {
 			}
 
 			try {
-				return timeFormat.parse(toString(bytes));
-			} catch (ParseException e) {
-				e.printStackTrace();
+				return toDate(parse(toString(bytes)));
+			} catch (DateTimeParseException e) {
+				return null;
 			}
-			return null;
 		}
 
 		@Override
-		public String getName() {
-			return "time";
+		public int encode(Object value, ByteBuffer buffer) {
+			if (value == null) {
+				return encodeNull(buffer);
+			}
+			return encodeAscii(format(toEpochValue(value)), buffer);
+		}
+
+		@Override
+		public Object decode(ByteBuffer buffer, int offset, int length) {
+			if (isNull(buffer, offset, length)) {
+				return null;
+			}
+			try {
+				return toDate(decodeLong(buffer, offset, length));
+			} catch (DateTimeParseException e) {
+				return null;
+			}
 		}
 
 		@Override
-		public Pattern getPattern() {
-			return Pattern.compile("^(\\d{2}):(\\d{2}):(\\d{2})$",
-					Pattern.CASE_INSENSITIVE);
+		public long decodeLong(ByteBuffer buffer, int offset, int length) {
+			return parse(decodeString(buffer, offset, length,
+					Charset.defaultCharset()));
+		}
+
+		@Override
+		public String getName() {
+			return "time";
 		}
 
 		@Override
@@ -729,7 +1019,7 @@ public enum PrimitiveDataType implements DataType {
 		@Override
 		public byte[] fromString(String value) {
 
-			if (this.getPattern().matcher(value).matches()) {
+			if (validate(value)) {
 				return value.getBytes();
 			}
 			return null;
@@ -739,8 +1029,37 @@ public enum PrimitiveDataType implements DataType {
 		public String toString(byte[] bytes) {
 			return new String(bytes);
 		}
+
+		@Override
+		public boolean isTemporal() {
+			return true;
+		}
+
+		@Override
+		protected long fromDate(Date value) {
+			return Instant.ofEpochMilli(value.getTime()).atZone(zone())
+					.toLocalTime().toNanoOfDay() / NANOS_PER_MILLI;
+		}
+
+		@Override
+		public long parse(String value) {
+			return LocalTime.parse(value.trim(), format).toNanoOfDay()
+					/ NANOS_PER_MILLI;
+		}
+
+		@Override
+		public String format(long epochValue) {
+			return format.format(LocalTime.ofNanoOfDay(epochValue
+					* NANOS_PER_MILLI));
+		}
+
+		@Override
+		public Date toDate(long epochValue) {
+			return Date.from(LocalTime.ofNanoOfDay(epochValue * NANOS_PER_MILLI)
+					.atDate(LocalDate.ofEpochDay(0)).atZone(zone()).toInstant());
+		}
 	},
-	SUBQUERY {
+	SUBQUERY(".*") {
 
 		@Override
 		public boolean validate(String value) {
@@ -764,11 +1083,6 @@ public enum PrimitiveDataType implements DataType {
 			return "subQuery";
 		}
 
-		@Override
-		public Pattern getPattern() {
-			return Pattern.compile(".*", Pattern.CASE_INSENSITIVE);
-		}
-
 		@Override
 		public String getDescription() {
 			return "A IRCT subquery";
@@ -791,7 +1105,7 @@ public enum PrimitiveDataType implements DataType {
 			return null;
 		}
 	},
-	ARRAY {
+	ARRAY(".*") {
 
 		@Override
 		public boolean validate(String value) {
@@ -815,11 +1129,6 @@ public enum PrimitiveDataType implements DataType {
 			return "array";
 		}
 
-		@Override
-		public Pattern getPattern() {
-			return Pattern.compile(".*", Pattern.CASE_INSENSITIVE);
-		}
-
 		@Override
 		public String getDescription() {
 			return "An array";
@@ -843,9 +1152,229 @@ public enum PrimitiveDataType implements DataType {
 		}
 	};
 
+	private static final long NANOS_PER_MILLI = 1000000L;
+	private static final char BYTE_ORDER_MARK = '\uFEFF';
+	private static final char REPLACEMENT_CHARACTER = '\uFFFD';
+
+	private final Pattern pattern;
+
+	private PrimitiveDataType(String regex) {
+		this.pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+	}
+
+	/**
+	 * Returns the pattern to validate the data type. The pattern is compiled
+	 * once when the data type is loaded.
+	 * 
+	 * @return Pattern
+	 */
+	@Override
+	public Pattern getPattern() {
+		return pattern;
+	}
+
+	/**
+	 * Validates the String against the pattern of the data type. The numeric
+	 * and boolean data types check the characters directly instead of running
+	 * the pattern, and accept exactly the same strings.
+	 * 
+	 * @param value
+	 *            String representation
+	 * @return True if valid, False if not valid
+	 */
 	@Override
 	public boolean validate(String value) {
-		return getPattern().matcher(value).matches();
+		return pattern.matcher(value).matches();
+	}
+
+	/**
+	 * Returns true if the data type is a date or a time. The values of these
+	 * data types can be held as a long epoch value: the number of days since
+	 * 1970-01-01 for a DATE, the number of milliseconds since 1970-01-01T00:00Z
+	 * for a DATETIME and the number of milliseconds since midnight for a TIME.
+	 * Epoch values sort in the same order as the dates and times they
+	 * represent.
+	 * 
+	 * @return Is a date or a time
+	 */
+	public boolean isTemporal() {
+		return false;
+	}
+
+	/**
+	 * Converts a Date, a string in the format of the data type or an epoch
+	 * value into the epoch value of the data type
+	 * 
+	 * @param value
+	 *            Date, String or Number
+	 * @return Epoch value
+	 * @throws DateTimeParseException
+	 *             The string is not in the format of the data type
+	 * @throws IllegalArgumentException
+	 *             The value cannot be converted
+	 */
+	public long toEpochValue(Object value) {
+		if (!isTemporal()) {
+			throw new UnsupportedOperationException(getName()
+					+ " is not a date or time");
+		}
+		if (value instanceof Number) {
+			return ((Number) value).longValue();
+		} else if (value instanceof Date) {
+			return fromDate((Date) value);
+		} else if (value instanceof String) {
+			return parse((String) value);
+		}
+		throw new IllegalArgumentException("Unable to convert "
+				+ ((value == null) ? "null" : value.getClass().getName())
+				+ " to " + getName());
+	}
+
+	protected long fromDate(Date value) {
+		throw new UnsupportedOperationException(getName()
+				+ " is not a date or time");
+	}
+
+	/**
+	 * Parses a string in the format of the data type into an epoch value
+	 * 
+	 * @param value
+	 *            String
+	 * @return Epoch value
+	 * @throws DateTimeParseException
+	 *             The string is not in the format of the data type
+	 */
+	public long parse(String value) {
+		throw new UnsupportedOperationException(getName()
+				+ " is not a date or time");
+	}
+
+	/**
+	 * Formats an epoch value as a string in the format of the data type
+	 * 
+	 * @param epochValue
+	 *            Epoch value
+	 * @return String
+	 */
+	public String format(long epochValue) {
+		throw new UnsupportedOperationException(getName()
+				+ " is not a date or time");
+	}
+
+	/**
+	 * Converts an epoch value into a Date in the default time zone
+	 * 
+	 * @param epochValue
+	 *            Epoch value
+	 * @return Date
+	 */
+	public Date toDate(long epochValue) {
+		throw new UnsupportedOperationException(getName()
+				+ " is not a date or time");
+	}
+
+	/**
+	 * Returns the number of ASCII digits starting at the given index
+	 */
+	private static int countDigits(String value, int start) {
+		int index = start;
+		while ((index < value.length()) && (value.charAt(index) >= '0')
+				&& (value.charAt(index) <= '9')) {
+			index++;
+		}
+		return index - start;
+	}
+
+	/**
+	 * Matches ^-?\d{1,19}$
+	 */
+	private static boolean isLong(String value) {
+		int start = ((value.length() > 0) && (value.charAt(0) == '-')) ? 1 : 0;
+		int digits = countDigits(value, start);
+		return (digits >= 1) && (digits <= 19)
+				&& (start + digits == value.length());
+	}
+
+	/**
+	 * Returns true for the characters that . does not match in a pattern
+	 */
+	private static boolean isLineTerminator(char c) {
+		return (c == '\n') || (c == '\r') || (c == '\u0085')
+				|| (c == '\u2028') || (c == '\u2029');
+	}
+
+	/**
+	 * Writes the representation of a null value
+	 */
+	private static int encodeNull(ByteBuffer buffer) {
+		buffer.put((byte) Character.MIN_VALUE);
+		return 1;
+	}
+
+	private static boolean isNull(ByteBuffer buffer, int offset, int length) {
+		return (length == 1) && (buffer.get(offset) == 0);
+	}
+
+	/**
+	 * Writes a trimmed string as UTF-16 with a byte order mark, producing the
+	 * same bytes as String.getBytes without allocating them
+	 */
+	private static int encodeString(String value, ByteBuffer buffer) {
+		int start = 0;
+		int end = value.length();
+		while ((start < end) && (value.charAt(start) <= ' ')) {
+			start++;
+		}
+		while ((end > start) && (value.charAt(end - 1) <= ' ')) {
+			end--;
+		}
+		if (start == end) {
+			return 0;
+		}
+
+		int position = buffer.position();
+		buffer.putChar(BYTE_ORDER_MARK);
+		for (int index = start; index < end; index++) {
+			char c = value.charAt(index);
+			if (Character.isHighSurrogate(c) && (index + 1 < end)
+					&& Character.isLowSurrogate(value.charAt(index + 1))) {
+				buffer.putChar(c);
+				buffer.putChar(value.charAt(++index));
+			} else if (Character.isSurrogate(c)) {
+				buffer.putChar(REPLACEMENT_CHARACTER);
+			} else {
+				buffer.putChar(c);
+			}
+		}
+		return buffer.position() - position;
+	}
+
+	private static int encodeAscii(String value, ByteBuffer buffer) {
+		for (int index = 0; index < value.length(); index++) {
+			buffer.put((byte) value.charAt(index));
+		}
+		return value.length();
+	}
+
+	/**
+	 * Decodes a string from the backing array of a heap buffer, copying the
+	 * bytes out of other buffers
+	 */
+	private static String decodeString(ByteBuffer buffer, int offset,
+			int length, Charset charset) {
+		if (buffer.hasArray()) {
+			return new String(buffer.array(), buffer.arrayOffset() + offset,
+					length, charset);
+		}
+		byte[] bytes = new byte[length];
+		for (int index = 0; index < length; index++) {
+			bytes[index] = buffer.get(offset + index);
+		}
+		return new String(bytes, charset);
+	}
+
+	private static ZoneId zone() {
+		return ZoneId.systemDefault();
 	}
 
 	@Override
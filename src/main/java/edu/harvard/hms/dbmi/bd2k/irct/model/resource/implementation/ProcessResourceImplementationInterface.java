@@ -3,6 +3,8 @@
  * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
 package edu.harvard.hms.dbmi.bd2k.irct.model.resource.implementation;
 
+import java.util.concurrent.CompletableFuture;
+
 import edu.harvard.hms.dbmi.bd2k.irct.exception.ResourceInterfaceException;
 import edu.harvard.hms.dbmi.bd2k.irct.model.process.IRCTProcess;
 import edu.harvard.hms.dbmi.bd2k.irct.model.resource.ResourceState;
@@ -40,6 +42,30 @@ public interface ProcessResourceImplementationInterface extends ResourceImplemen
 	 */ 
 	Result getResults(SecureSession session, Result result) throws ResourceInterfaceException;
 
+	/**
+	 * Returns a future that completes when the results of the process are
+	 * complete or have an error. Resources that cannot notify the IRCT of
+	 * completion return null and are polled with getResults instead.
+	 * 
+	 * @param session Session to run in
+	 * @param result Results
+	 * @return Future results (Null if not supported)
+	 */
+	default CompletableFuture<Result> getProcessCompletion(SecureSession session, Result result) {
+		return null;
+	}
+
+	/**
+	 * Cancels a running process. Resources that cannot cancel a process ignore
+	 * the request, and the IRCT stops waiting for the results.
+	 * 
+	 * @param session Session to run in
+	 * @param result Results
+	 * @throws ResourceInterfaceException A resource exception occurred
+	 */
+	default void cancelProcess(SecureSession session, Result result) throws ResourceInterfaceException {
+	}
+
 	/**
 	 * Returns the state of the resource
 	 * 
@@ -16,7 +16,9 @@ import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 import javax.persistence.Transient;
@@ -36,6 +38,7 @@ import edu.harvard.hms.dbmi.bd2k.irct.util.converter.DataConverter;
  *
  */
 @Entity
+@Table(indexes = { @Index(name = "resultUserEndTimeIdx", columnList = "user, endTime, id") })
 public class Result {
 	@Id
 	@GeneratedValue(generator = "resultSequencer")
@@ -0,0 +1,108 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.result;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Date;
+
+/**
+ * The position after the last result of a page when listing results. Results
+ * are listed with the ones that have not ended first, followed by the others
+ * by their end time, newest first, with ties broken by their id. The cursor is passed to clients as an
+ * opaque string.
+ */
+public class ResultCursor {
+	/**
+	 * The order results are listed in
+	 */
+	public static final Comparator<ResultSummary> ORDER = Comparator
+			.comparing(ResultSummary::getEndTime,
+					Comparator.nullsFirst(Comparator.<Date> reverseOrder()))
+			.thenComparing(ResultSummary::getId, Comparator.reverseOrder());
+
+	private final Date endTime;
+	private final Long id;
+
+	/**
+	 * Creates a cursor after the given result
+	 * 
+	 * @param endTime
+	 *            End time of the result, or null if it has not ended
+	 * @param id
+	 *            Result Id
+	 */
+	public ResultCursor(Date endTime, Long id) {
+		if (id == null) {
+			throw new IllegalArgumentException("Cursor requires a result id");
+		}
+		this.endTime = endTime;
+		this.id = id;
+	}
+
+	/**
+	 * Creates a cursor after the given result
+	 * 
+	 * @param result
+	 *            Last result of a page
+	 * @return Cursor
+	 */
+	public static ResultCursor after(ResultSummary result) {
+		return new ResultCursor(result.getEndTime(), result.getId());
+	}
+
+	/**
+	 * Reads a cursor from the string returned by toString()
+	 * 
+	 * @param cursor
+	 *            Cursor string
+	 * @return Cursor, or null if the string is null or empty
+	 * @throws IllegalArgumentException
+	 *             The string is not a valid cursor
+	 */
+	public static ResultCursor parse(String cursor) {
+		if ((cursor == null) || cursor.isEmpty()) {
+			return null;
+		}
+		try {
+			String[] parts = new String(Base64.getUrlDecoder().decode(cursor),
+					StandardCharsets.UTF_8).split(":");
+			if (parts.length != 2) {
+				throw new IllegalArgumentException("Invalid cursor");
+			}
+			Date endTime = parts[0].isEmpty() ? null : new Date(
+					Long.parseLong(parts[0]));
+			return new ResultCursor(endTime, Long.valueOf(parts[1]));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid cursor", e);
+		}
+	}
+
+	/**
+	 * Returns the end time of the last result, or null if it has not ended
+	 * 
+	 * @return End time
+	 */
+	public Date getEndTime() {
+		return endTime;
+	}
+
+	/**
+	 * Returns the id of the last result
+	 * 
+	 * @return Result Id
+	 */
+	public Long getId() {
+		return id;
+	}
+
+	@Override
+	public String toString() {
+		String value = ((endTime == null) ? "" : Long.toString(endTime
+				.getTime())) + ":" + id;
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,68 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.result;
+
+import java.util.List;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+
+/**
+ * A page of results and the cursor to request the next page with
+ */
+public class ResultPage {
+	private final List<ResultSummary> results;
+	private final ResultCursor nextCursor;
+
+	/**
+	 * Creates a page of results
+	 * 
+	 * @param results
+	 *            Results in the page
+	 * @param nextCursor
+	 *            Cursor of the next page, or null if this is the last page
+	 */
+	public ResultPage(List<ResultSummary> results, ResultCursor nextCursor) {
+		this.results = results;
+		this.nextCursor = nextCursor;
+	}
+
+	/**
+	 * Returns a JSONObject representation of the page
+	 * 
+	 * @return JSON Representation
+	 */
+	public JsonObject toJson() {
+		JsonArrayBuilder resultArray = Json.createArrayBuilder();
+		for (ResultSummary result : results) {
+			resultArray.add(result.toJson());
+		}
+		JsonObjectBuilder jsonBuilder = Json.createObjectBuilder();
+		jsonBuilder.add("results", resultArray);
+		if (nextCursor != null) {
+			jsonBuilder.add("nextCursor", nextCursor.toString());
+		}
+		return jsonBuilder.build();
+	}
+
+	/**
+	 * Returns the results in the page
+	 * 
+	 * @return Results
+	 */
+	public List<ResultSummary> getResults() {
+		return results;
+	}
+
+	/**
+	 * Returns the cursor of the next page
+	 * 
+	 * @return Cursor, or null if this is the last page
+	 */
+	public ResultCursor getNextCursor() {
+		return nextCursor;
+	}
+}
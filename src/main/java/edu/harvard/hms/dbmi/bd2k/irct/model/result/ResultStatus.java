@@ -11,10 +11,11 @@ package edu.harvard.hms.dbmi.bd2k.irct.model.result;
  * COMPLETE - The result is ready
  * AVAILABLE - The result is available to the user
  * ERROR - An error occurred
+ * CANCELLED - The result was cancelled before it completed
  * 
  * @author Jeremy R. Easton-Marks
  *
  */
 public enum ResultStatus {
-	CREATED, RUNNING, AVAILABLE, COMPLETE, ERROR;
+	CREATED, RUNNING, AVAILABLE, COMPLETE, ERROR, CANCELLED;
 }
\ No newline at end of file
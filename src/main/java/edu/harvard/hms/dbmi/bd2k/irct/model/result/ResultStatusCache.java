@@ -0,0 +1,149 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.result;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import edu.harvard.hms.dbmi.bd2k.irct.model.security.User;
+
+/**
+ * A cache of the status and data type of results by their id, so that polling
+ * the status of a result does not need to load it. Results should only be
+ * written to the cache once the changes to them have been committed. The cache holds up to a maximum
+ * number of results and removes any of them when it is full.
+ */
+public class ResultStatusCache {
+	private final ConcurrentMap<Long, Entry> entries = new ConcurrentHashMap<Long, Entry>();
+	private final int maximumSize;
+
+	/**
+	 * The status and data type of a result, and the user who owns it
+	 */
+	public static class Entry {
+		private final Long id;
+		private final String ownerId;
+		private final ResultStatus resultStatus;
+		private final ResultDataType dataType;
+
+		/**
+		 * Creates the status of a result
+		 *
+		 * @param result
+		 *            Result
+		 */
+		public Entry(Result result) {
+			this.id = result.getId();
+			this.ownerId = (result.getUser() == null) ? null : result
+					.getUser().getUserId();
+			this.resultStatus = result.getResultStatus();
+			this.dataType = result.getDataType();
+		}
+
+		/**
+		 * Returns the id of the result
+		 *
+		 * @return Result Id
+		 */
+		public Long getId() {
+			return id;
+		}
+
+		/**
+		 * Returns the status of the result
+		 *
+		 * @return Status
+		 */
+		public ResultStatus getResultStatus() {
+			return resultStatus;
+		}
+
+		/**
+		 * Returns the data type of the result
+		 *
+		 * @return Data type
+		 */
+		public ResultDataType getDataType() {
+			return dataType;
+		}
+
+		/**
+		 * Returns true if the user has access to the result
+		 *
+		 * @param user
+		 *            User
+		 * @return True if the user has access
+		 */
+		public boolean isAccessibleBy(User user) {
+			return (ownerId == null)
+					|| ((user != null) && ownerId.equals(user.getUserId()));
+		}
+	}
+
+	/**
+	 * Creates a cache that holds up to the given number of results
+	 *
+	 * @param maximumSize
+	 *            Maximum number of results
+	 */
+	public ResultStatusCache(int maximumSize) {
+		this.maximumSize = Math.max(1, maximumSize);
+	}
+
+	/**
+	 * Returns the cached status of a result
+	 *
+	 * @param resultId
+	 *            Result Id
+	 * @return Status, or null if the result is not cached
+	 */
+	public Entry get(Long resultId) {
+		return (resultId == null) ? null : entries.get(resultId);
+	}
+
+	/**
+	 * Writes the status of a result to the cache
+	 *
+	 * @param result
+	 *            Result
+	 * @return Status
+	 */
+	public Entry put(Result result) {
+		Entry entry = new Entry(result);
+		if (result.getId() == null) {
+			return entry;
+		}
+		entries.put(result.getId(), entry);
+		if (entries.size() > maximumSize) {
+			Iterator<Long> ids = entries.keySet().iterator();
+			while ((entries.size() > maximumSize) && ids.hasNext()) {
+				ids.next();
+				ids.remove();
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * Removes a result from the cache
+	 *
+	 * @param resultId
+	 *            Result Id
+	 */
+	public void invalidate(Long resultId) {
+		if (resultId != null) {
+			entries.remove(resultId);
+		}
+	}
+
+	/**
+	 * Returns the number of results in the cache
+	 *
+	 * @return Size
+	 */
+	public int size() {
+		return entries.size();
+	}
+}
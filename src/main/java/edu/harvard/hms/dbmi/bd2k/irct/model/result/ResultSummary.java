@@ -0,0 +1,153 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.result;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+
+/**
+ * The fields of a result that are shown when listing results. It is created
+ * directly by a query, so listing results does not load their data.
+ */
+public class ResultSummary {
+	private final Long id;
+	private final Date startTime;
+	private final Date endTime;
+	private final ResultStatus resultStatus;
+	private final ResultDataType dataType;
+	private final String jobType;
+	private final String message;
+
+	/**
+	 * Creates a summary of a result
+	 * 
+	 * @param id
+	 *            Result Id
+	 * @param startTime
+	 *            Start time
+	 * @param endTime
+	 *            End time
+	 * @param resultStatus
+	 *            Status
+	 * @param dataType
+	 *            Data type
+	 * @param jobType
+	 *            Job type
+	 * @param message
+	 *            Message
+	 */
+	public ResultSummary(Long id, Date startTime, Date endTime,
+			ResultStatus resultStatus, ResultDataType dataType, String jobType,
+			String message) {
+		this.id = id;
+		this.startTime = startTime;
+		this.endTime = endTime;
+		this.resultStatus = resultStatus;
+		this.dataType = dataType;
+		this.jobType = jobType;
+		this.message = message;
+	}
+
+	/**
+	 * Returns a JSONObject representation of the summary
+	 * 
+	 * @return JSON Representation
+	 */
+	public JsonObject toJson() {
+		DateFormat formatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		JsonObjectBuilder jsonBuilder = Json.createObjectBuilder();
+		jsonBuilder.add("id", this.id);
+		if (this.resultStatus != null) {
+			jsonBuilder.add("status", this.resultStatus.toString());
+		}
+		if (this.dataType != null) {
+			jsonBuilder.add("dataType", this.dataType.toString());
+		}
+		if (this.jobType != null) {
+			jsonBuilder.add("jobType", this.jobType);
+		}
+		if (this.startTime != null) {
+			jsonBuilder.add("startTime", formatter.format(this.startTime));
+		}
+		if (this.endTime != null) {
+			jsonBuilder.add("endTime", formatter.format(this.endTime));
+		}
+		if (this.message != null) {
+			jsonBuilder.add("message", this.message);
+		}
+		return jsonBuilder.build();
+	}
+
+	// -------------------------------------------------------------------------
+	// GETTERS
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Returns the id of the result
+	 * 
+	 * @return Id
+	 */
+	public Long getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the time the result was started
+	 * 
+	 * @return Start time
+	 */
+	public Date getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * Returns the time the result finished, or null if it is still running
+	 * 
+	 * @return End time
+	 */
+	public Date getEndTime() {
+		return endTime;
+	}
+
+	/**
+	 * Returns the status of the result
+	 * 
+	 * @return Status
+	 */
+	public ResultStatus getResultStatus() {
+		return resultStatus;
+	}
+
+	/**
+	 * Returns the data type of the result
+	 * 
+	 * @return Data type
+	 */
+	public ResultDataType getDataType() {
+		return dataType;
+	}
+
+	/**
+	 * Returns the type of job that created the result
+	 * 
+	 * @return Job type
+	 */
+	public String getJobType() {
+		return jobType;
+	}
+
+	/**
+	 * Returns the message of the result
+	 * 
+	 * @return Message
+	 */
+	public String getMessage() {
+		return message;
+	}
+}
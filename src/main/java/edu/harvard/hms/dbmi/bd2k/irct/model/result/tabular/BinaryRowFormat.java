@@ -0,0 +1,394 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+import edu.harvard.hms.dbmi.bd2k.irct.model.resource.PrimitiveDataType;
+
+/**
+ * The binary row format used to store rows in a File Result Set data file.
+ * Each row is written as:
+ *
+ * <pre>
+ * int     length of the rest of the row in bytes
+ * byte[]  null bitmap, one bit per column
+ * ...     fixed width slots for the numeric, boolean and date columns
+ * ...     an int length followed by the bytes for each other column
+ * </pre>
+ *
+ * A STRING value that is in the dictionary of its column is stored as a
+ * negative length instead, -(code + 1), without any following bytes. DATE,
+ * DATETIME and TIME values are stored as their long epoch value, so they can
+ * be compared without parsing them. Files written before version 4 store them
+ * as strings instead.
+ *
+ * Unlike the delimited format no byte value is reserved, so binary numeric
+ * values can be stored and read back without any escaping or scanning.
+ */
+class BinaryRowFormat {
+	/**
+	 * The version of the data file format recorded in the info file
+	 */
+	static final int VERSION = 4;
+	/**
+	 * Size of the row length header
+	 */
+	static final int HEADER_SIZE = 4;
+
+	private PrimitiveDataType[] dataTypes;
+	private int[] fixedOffsets;
+	private int bitmapSize;
+	private int fixedSize;
+	private StringDictionary dictionary;
+
+	private ByteBuffer writeBuffer;
+
+	/**
+	 * Creates a row format for the given columns
+	 *
+	 * @param columns
+	 *            Columns
+	 */
+	BinaryRowFormat(Column[] columns) {
+		this(columns, null);
+	}
+
+	/**
+	 * Creates a row format for the given columns that stores STRING values
+	 * using the given dictionary
+	 *
+	 * @param columns
+	 *            Columns
+	 * @param dictionary
+	 *            Dictionary of the STRING columns, or null
+	 */
+	BinaryRowFormat(Column[] columns, StringDictionary dictionary) {
+		this(columns, dictionary, VERSION);
+	}
+
+	/**
+	 * Creates a row format for the given columns that reads rows written with
+	 * the given version of the format
+	 *
+	 * @param columns
+	 *            Columns
+	 * @param dictionary
+	 *            Dictionary of the STRING columns, or null
+	 * @param version
+	 *            Data file format version
+	 */
+	BinaryRowFormat(Column[] columns, StringDictionary dictionary, int version) {
+		this.dictionary = dictionary;
+		int columnCount = (columns == null) ? 0 : columns.length;
+		this.dataTypes = new PrimitiveDataType[columnCount];
+		this.fixedOffsets = new int[columnCount];
+		this.bitmapSize = (columnCount + 7) / 8;
+
+		int offset = bitmapSize;
+		for (int columnIndex = 0; columnIndex < columnCount; columnIndex++) {
+			dataTypes[columnIndex] = columns[columnIndex].getDataType();
+			int width = getFixedWidth(dataTypes[columnIndex], version);
+			if (width == -1) {
+				fixedOffsets[columnIndex] = -1;
+			} else {
+				fixedOffsets[columnIndex] = offset;
+				offset += width;
+			}
+		}
+		this.fixedSize = offset;
+		this.writeBuffer = ByteBuffer.allocate(Math.max(1024, HEADER_SIZE
+				+ fixedSize));
+	}
+
+	/**
+	 * Returns the number of bytes used to store a data type in a fixed width
+	 * slot, or -1 if the data type is stored as variable length
+	 *
+	 * @param dataType
+	 *            Data type
+	 * @return Width in bytes
+	 */
+	static int getFixedWidth(PrimitiveDataType dataType) {
+		return getFixedWidth(dataType, VERSION);
+	}
+
+	/**
+	 * Returns the number of bytes used to store a data type in a fixed width
+	 * slot by the given version of the format, or -1 if the data type is
+	 * stored as variable length
+	 *
+	 * @param dataType
+	 *            Data type
+	 * @param version
+	 *            Data file format version
+	 * @return Width in bytes
+	 */
+	static int getFixedWidth(PrimitiveDataType dataType, int version) {
+		if (dataType == null) {
+			return -1;
+		}
+		switch (dataType) {
+		case BOOLEAN:
+		case BYTE:
+			return 1;
+		case INTEGER:
+		case FLOAT:
+			return 4;
+		case LONG:
+		case DOUBLE:
+		case RESULTSET:
+			return 8;
+		case DATE:
+		case DATETIME:
+		case TIME:
+			return (version >= 4) ? 8 : -1;
+		default:
+			return -1;
+		}
+	}
+
+	/**
+	 * Encodes a row including its length header. The cells are written
+	 * directly into the write buffer by their data type, so no array is
+	 * allocated for them. The returned buffer is reused by the next call.
+	 *
+	 * @param row
+	 *            Row to encode
+	 * @return Buffer positioned at the start of the encoded row
+	 */
+	ByteBuffer encode(Row row) {
+		writeBuffer.clear();
+		Arrays.fill(writeBuffer.array(), 0, HEADER_SIZE + fixedSize, (byte) 0);
+		writeBuffer.position(HEADER_SIZE + fixedSize);
+
+		for (int columnIndex = 0; columnIndex < dataTypes.length; columnIndex++) {
+			Object value = row.getColumn(columnIndex);
+			if ((value != null) && (fixedOffsets[columnIndex] != -1)) {
+				writeFixed(HEADER_SIZE + fixedOffsets[columnIndex],
+						dataTypes[columnIndex], value);
+			} else if ((value == null) || !encodeVariable(columnIndex, value)) {
+				int bitmapByte = HEADER_SIZE + columnIndex / 8;
+				writeBuffer.put(bitmapByte, (byte) (writeBuffer.get(bitmapByte)
+						| (1 << (columnIndex % 8))));
+			}
+		}
+		writeBuffer.putInt(0, writeBuffer.position() - HEADER_SIZE);
+		writeBuffer.flip();
+		return writeBuffer;
+	}
+
+	/**
+	 * Writes a variable length cell at the position of the write buffer,
+	 * growing the buffer if it is full
+	 *
+	 * @return False if the value could not be converted and is stored as null
+	 */
+	private boolean encodeVariable(int columnIndex, Object value) {
+		int start = writeBuffer.position();
+		while (true) {
+			try {
+				if ((dictionary != null) && (value instanceof String)) {
+					int code = dictionary.encode(columnIndex, (String) value);
+					if (code != -1) {
+						writeBuffer.putInt(-(code + 1));
+						return true;
+					}
+				}
+				writeBuffer.position(start + 4);
+				int length = dataTypes[columnIndex].encode(value, writeBuffer);
+				if (length < 0) {
+					writeBuffer.position(start);
+					return false;
+				}
+				writeBuffer.putInt(start, length);
+				return true;
+			} catch (BufferOverflowException e) {
+				ByteBuffer newBuffer = ByteBuffer.allocate(writeBuffer
+						.capacity() * 2);
+				newBuffer.put(writeBuffer.array(), 0, start);
+				writeBuffer = newBuffer;
+			}
+		}
+	}
+
+	private void writeFixed(int position, PrimitiveDataType dataType,
+			Object value) {
+		switch (dataType) {
+		case BOOLEAN:
+			writeBuffer.put(position, (byte) (((Boolean) value) ? 1 : 0));
+			break;
+		case BYTE:
+			writeBuffer.put(position, ((Number) value).byteValue());
+			break;
+		case INTEGER:
+			writeBuffer.putInt(position, ((Number) value).intValue());
+			break;
+		case FLOAT:
+			writeBuffer.putFloat(position, ((Number) value).floatValue());
+			break;
+		case DOUBLE:
+			writeBuffer.putDouble(position, ((Number) value).doubleValue());
+			break;
+		case DATE:
+		case DATETIME:
+		case TIME:
+			writeBuffer.putLong(position, dataType.toEpochValue(value));
+			break;
+		default:
+			writeBuffer.putLong(position, ((Number) value).longValue());
+			break;
+		}
+	}
+
+	/**
+	 * Decodes a row. The buffer must be positioned at the start of the row
+	 * after the length header and contain the whole row.
+	 *
+	 * @param buffer
+	 *            Buffer containing the row
+	 * @return Row
+	 */
+	Row decode(ByteBuffer buffer) {
+		Row row = new Row(dataTypes.length);
+		int start = buffer.position();
+		int variablePosition = start + fixedSize;
+
+		for (int columnIndex = 0; columnIndex < dataTypes.length; columnIndex++) {
+			boolean isNull = (buffer.get(start + columnIndex / 8) & (1 << (columnIndex % 8))) != 0;
+			if (isNull) {
+				continue;
+			}
+
+			if (fixedOffsets[columnIndex] != -1) {
+				row.setColumn(
+						columnIndex,
+						readFixed(buffer, start + fixedOffsets[columnIndex],
+								dataTypes[columnIndex]));
+			} else {
+				int length = buffer.getInt(variablePosition);
+				if (length < 0) {
+					row.setColumn(columnIndex,
+							dictionary.decode(columnIndex, -length - 1));
+					variablePosition += 4;
+					continue;
+				}
+				PrimitiveDataType dataType = dataTypes[columnIndex];
+				if (dataType.isTemporal()) {
+					// Dates and times written before version 4 are strings
+					row.setColumn(columnIndex, decodeTemporal(dataType, buffer,
+							variablePosition + 4, length));
+				} else {
+					row.setColumn(columnIndex, dataType.decode(buffer,
+							variablePosition + 4, length));
+				}
+				variablePosition += 4 + length;
+			}
+		}
+		return row;
+	}
+
+	/**
+	 * Decodes a row into a row of a batch. Numeric and boolean values are
+	 * written to the column vectors without boxing them. The buffer must be
+	 * positioned at the start of the row after the length header and contain
+	 * the whole row.
+	 *
+	 * @param buffer
+	 *            Buffer containing the row
+	 * @param batch
+	 *            Batch
+	 * @param row
+	 *            Row in the batch
+	 */
+	void decode(ByteBuffer buffer, ColumnBatch batch, int row) {
+		int start = buffer.position();
+		int variablePosition = start + fixedSize;
+
+		for (int columnIndex = 0; columnIndex < dataTypes.length; columnIndex++) {
+			ColumnVector vector = batch.getVector(columnIndex);
+			boolean isNull = (buffer.get(start + columnIndex / 8) & (1 << (columnIndex % 8))) != 0;
+			if (isNull) {
+				vector.setNull(row);
+				continue;
+			}
+
+			int fixedOffset = fixedOffsets[columnIndex];
+			if (fixedOffset != -1) {
+				int position = start + fixedOffset;
+				switch (dataTypes[columnIndex]) {
+				case BOOLEAN:
+				case BYTE:
+					vector.setInt(row, buffer.get(position));
+					break;
+				case INTEGER:
+					vector.setInt(row, buffer.getInt(position));
+					break;
+				case FLOAT:
+					vector.setDouble(row, buffer.getFloat(position));
+					break;
+				case DOUBLE:
+					vector.setDouble(row, buffer.getDouble(position));
+					break;
+				default:
+					vector.setLong(row, buffer.getLong(position));
+					break;
+				}
+			} else {
+				int length = buffer.getInt(variablePosition);
+				if (length < 0) {
+					batch.setObject(columnIndex, row,
+							dictionary.decode(columnIndex, -length - 1));
+					variablePosition += 4;
+					continue;
+				}
+				PrimitiveDataType dataType = dataTypes[columnIndex];
+				if (dataType.isTemporal()) {
+					// Dates and times written before version 4 are strings
+					Long value = decodeTemporal(dataType, buffer,
+							variablePosition + 4, length);
+					if (value == null) {
+						vector.setNull(row);
+					} else {
+						vector.setLong(row, value);
+					}
+				} else {
+					batch.setObject(columnIndex, row, dataType.decode(buffer,
+							variablePosition + 4, length));
+				}
+				variablePosition += 4 + length;
+			}
+		}
+	}
+
+	private Long decodeTemporal(PrimitiveDataType dataType, ByteBuffer buffer,
+			int offset, int length) {
+		try {
+			return dataType.decodeLong(buffer, offset, length);
+		} catch (DateTimeParseException e) {
+			return null;
+		}
+	}
+
+	private Object readFixed(ByteBuffer buffer, int position,
+			PrimitiveDataType dataType) {
+		switch (dataType) {
+		case BOOLEAN:
+			return buffer.get(position) != 0;
+		case BYTE:
+			return buffer.get(position);
+		case INTEGER:
+			return buffer.getInt(position);
+		case FLOAT:
+			return buffer.getFloat(position);
+		case DOUBLE:
+			return buffer.getDouble(position);
+		default:
+			return buffer.getLong(position);
+		}
+	}
+}
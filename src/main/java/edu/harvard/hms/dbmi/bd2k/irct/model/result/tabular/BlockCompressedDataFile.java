@@ -0,0 +1,340 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A File Result Set data file stored as blocks of rows that are compressed
+ * independently with Deflate. Reading a row only requires decompressing the
+ * block that contains it. Each block is written as:
+ *
+ * <pre>
+ * int     uncompressed length
+ * int     compressed length
+ * byte[]  compressed rows
+ * </pre>
+ *
+ * The offset of each block in the data file is stored in a block index next
+ * to the data file, in the same format as the row offset index. The row
+ * offset index holds the offsets of the rows in the uncompressed data, so
+ * the position of a row in its block is the difference between its offset
+ * and the offset of the first row of the block.
+ */
+class BlockCompressedDataFile {
+	/**
+	 * Codec name of uncompressed data files
+	 */
+	static final String CODEC_NONE = "none";
+	/**
+	 * Codec name of Deflate compressed data files
+	 */
+	static final String CODEC_DEFLATE = "deflate";
+	/**
+	 * Default number of rows in a block
+	 */
+	static final int DEFAULT_BLOCK_ROWS = 1024;
+	private static final int BLOCK_HEADER_SIZE = 8;
+
+	private FileChannel dataFC;
+	private RowOffsetIndex blockIndex;
+	private int blockRows;
+
+	private Inflater inflater = new Inflater();
+	private ByteBuffer compressed = ByteBuffer.allocate(0);
+	private ByteBuffer block = ByteBuffer.allocate(0);
+	private long currentBlock = -1;
+
+	/**
+	 * Opens a block compressed data file for reading
+	 *
+	 * @param dataFC
+	 *            Data file channel
+	 * @param blockIndex
+	 *            Block index
+	 * @param blockRows
+	 *            Number of rows in a block
+	 */
+	BlockCompressedDataFile(FileChannel dataFC, RowOffsetIndex blockIndex,
+			int blockRows) {
+		this.dataFC = dataFC;
+		this.blockIndex = blockIndex;
+		this.blockRows = blockRows;
+	}
+
+	/**
+	 * Returns a new reader of the same data file. Each reader decompresses
+	 * blocks into its own buffers, and the data file is only read with
+	 * positional reads, so readers can be used on different threads.
+	 *
+	 * @return Block compressed data file
+	 */
+	BlockCompressedDataFile newReader() {
+		return new BlockCompressedDataFile(dataFC, blockIndex, blockRows);
+	}
+
+	/**
+	 * Returns the number of blocks needed to store the given number of rows
+	 *
+	 * @param rows
+	 *            Rows
+	 * @param blockRows
+	 *            Number of rows in a block
+	 * @return Blocks
+	 */
+	static long getBlockCount(long rows, int blockRows) {
+		return (rows + blockRows - 1) / blockRows;
+	}
+
+	/**
+	 * Returns the decompressed block containing the row, positioned after
+	 * the row length header
+	 *
+	 * @param row
+	 *            Row
+	 * @param rowIndex
+	 *            Row offset index of the uncompressed data
+	 * @return Buffer positioned at the start of the row
+	 * @throws IOException
+	 *             An error occurred reading the data file
+	 */
+	ByteBuffer findRow(long row, RowOffsetIndex rowIndex) throws IOException {
+		long blockNumber = row / blockRows;
+		loadBlock(blockNumber);
+		long blockStart = rowIndex.getOffset(blockNumber * blockRows);
+		block.position((int) (rowIndex.getOffset(row) - blockStart)
+				+ BinaryRowFormat.HEADER_SIZE);
+		return block;
+	}
+
+	/**
+	 * Returns the offset of a block in the data file
+	 *
+	 * @param blockNumber
+	 *            Block
+	 * @return Offset
+	 */
+	long getBlockOffset(long blockNumber) {
+		return blockIndex.getOffset(blockNumber);
+	}
+
+	/**
+	 * Returns the decompressed contents of a block
+	 *
+	 * @param blockNumber
+	 *            Block
+	 * @return Buffer containing the uncompressed rows of the block
+	 * @throws IOException
+	 *             An error occurred reading the data file
+	 */
+	ByteBuffer getBlock(long blockNumber) throws IOException {
+		loadBlock(blockNumber);
+		block.position(0);
+		return block;
+	}
+
+	private void loadBlock(long blockNumber) throws IOException {
+		if (blockNumber == currentBlock) {
+			return;
+		}
+		currentBlock = -1;
+		long offset = blockIndex.getOffset(blockNumber);
+
+		ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+		readFully(header, offset);
+		int uncompressedLength = header.getInt(0);
+		int compressedLength = header.getInt(4);
+
+		if (compressed.capacity() < compressedLength) {
+			compressed = ByteBuffer.allocate(compressedLength);
+		}
+		compressed.clear();
+		compressed.limit(compressedLength);
+		readFully(compressed, offset + BLOCK_HEADER_SIZE);
+
+		if (block.capacity() < uncompressedLength) {
+			block = ByteBuffer.allocate(uncompressedLength);
+		}
+		block.clear();
+		block.limit(uncompressedLength);
+		inflater.reset();
+		inflater.setInput(compressed.array(), 0, compressedLength);
+		try {
+			int inflated = 0;
+			while (inflated < uncompressedLength) {
+				int n = inflater.inflate(block.array(), inflated,
+						uncompressedLength - inflated);
+				if ((n == 0) && (inflater.finished() || inflater.needsInput())) {
+					throw new IOException("Block " + blockNumber
+							+ " is truncated");
+				}
+				inflated += n;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Block " + blockNumber + " is corrupt", e);
+		}
+		currentBlock = blockNumber;
+	}
+
+	private void readFully(ByteBuffer buffer, long position)
+			throws IOException {
+		while (buffer.hasRemaining()) {
+			int nRead = dataFC.read(buffer, position);
+			if (nRead == -1) {
+				throw new IOException("Unexpected end of the data file");
+			}
+			position += nRead;
+		}
+	}
+
+	/**
+	 * Releases the resources used to decompress blocks. The data file
+	 * channel is not closed.
+	 */
+	void close() {
+		inflater.end();
+	}
+
+	/**
+	 * Writes length prefixed rows to a data file as compressed blocks. Only a
+	 * single block of rows is held in memory.
+	 */
+	static class Writer implements Closeable {
+		private WritableByteChannel dataChannel;
+		private RowOffsetIndex.Writer blockIndexWriter;
+		private int blockRows;
+
+		private Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		private ByteBuffer block = ByteBuffer.allocate(64 * 1024);
+		private byte[] compressed = new byte[0];
+		private int rowsInBlock;
+		private long offset;
+
+		/**
+		 * Creates a writer for an empty data file
+		 *
+		 * @param dataChannel
+		 *            Data file channel
+		 * @param blockIndexFile
+		 *            Block index file to create
+		 * @param blockRows
+		 *            Number of rows in a block
+		 * @throws IOException
+		 *             An error occurred creating the block index
+		 */
+		Writer(WritableByteChannel dataChannel, Path blockIndexFile,
+				int blockRows) throws IOException {
+			this(dataChannel, blockIndexFile, blockRows, 0);
+		}
+
+		/**
+		 * Creates a writer that adds blocks to the end of a data file. The
+		 * data file must end with a complete block.
+		 *
+		 * @param dataChannel
+		 *            Data file channel, positioned at the end of the file
+		 * @param blockIndexFile
+		 *            Block index file to add to
+		 * @param blockRows
+		 *            Number of rows in a block
+		 * @param offset
+		 *            Size of the data file
+		 * @throws IOException
+		 *             An error occurred opening the block index
+		 */
+		Writer(WritableByteChannel dataChannel, Path blockIndexFile,
+				int blockRows, long offset) throws IOException {
+			this.dataChannel = dataChannel;
+			this.blockIndexWriter = new RowOffsetIndex.Writer(blockIndexFile,
+					offset != 0);
+			this.blockRows = blockRows;
+			this.offset = offset;
+		}
+
+		/**
+		 * Adds an encoded row, including its length header
+		 *
+		 * @param row
+		 *            Encoded row
+		 * @throws IOException
+		 *             An error occurred writing the data file
+		 */
+		void write(ByteBuffer row) throws IOException {
+			if (block.remaining() < row.remaining()) {
+				ByteBuffer newBlock = ByteBuffer.allocate(Math.max(
+						block.capacity() * 2, block.position() + row.remaining()));
+				block.flip();
+				newBlock.put(block);
+				block = newBlock;
+			}
+			block.put(row);
+			rowsInBlock++;
+			if (rowsInBlock == blockRows) {
+				flush();
+			}
+		}
+
+		private void flush() throws IOException {
+			if (rowsInBlock == 0) {
+				return;
+			}
+			int uncompressedLength = block.position();
+			int bound = uncompressedLength + (uncompressedLength >> 3) + 64;
+			if (compressed.length < bound) {
+				compressed = new byte[bound];
+			}
+			deflater.reset();
+			deflater.setInput(block.array(), 0, uncompressedLength);
+			deflater.finish();
+			int compressedLength = 0;
+			while (!deflater.finished()) {
+				if (compressedLength == compressed.length) {
+					byte[] newCompressed = new byte[compressed.length * 2];
+					System.arraycopy(compressed, 0, newCompressed, 0,
+							compressedLength);
+					compressed = newCompressed;
+				}
+				compressedLength += deflater.deflate(compressed,
+						compressedLength, compressed.length - compressedLength);
+			}
+
+			blockIndexWriter.add(offset);
+			ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+			header.putInt(uncompressedLength).putInt(compressedLength).flip();
+			ByteBuffer body = ByteBuffer.wrap(compressed, 0, compressedLength);
+			while (header.hasRemaining()) {
+				dataChannel.write(header);
+			}
+			while (body.hasRemaining()) {
+				dataChannel.write(body);
+			}
+			offset += BLOCK_HEADER_SIZE + compressedLength;
+
+			block.clear();
+			rowsInBlock = 0;
+		}
+
+		/**
+		 * Writes the last partial block and closes the block index. The data
+		 * file channel is not closed.
+		 */
+		@Override
+		public void close() throws IOException {
+			try {
+				flush();
+			} finally {
+				deflater.end();
+				blockIndexWriter.close();
+			}
+		}
+	}
+}
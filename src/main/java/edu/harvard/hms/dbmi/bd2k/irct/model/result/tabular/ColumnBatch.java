@@ -0,0 +1,328 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular;
+
+import java.time.DateTimeException;
+import java.util.Date;
+
+/**
+ * A range of consecutive rows of a result set stored column by column. Each
+ * column is held in a primitive array chosen from its data type, so numeric
+ * and boolean cells are read without boxing. Unlike the cursor methods of a
+ * result set the accessors do not check whether the result set is closed and
+ * do not throw checked exceptions, so they can be called in a tight loop:
+ *
+ * <pre>
+ * for (ColumnBatch batch = rs.nextBatch(1024); batch.getSize() &gt; 0; batch = rs
+ * 		.nextBatch(1024)) {
+ * 	for (int row = 0; row &lt; batch.getSize(); row++) {
+ * 		total += batch.getDouble(column, row);
+ * 	}
+ * }
+ * </pre>
+ *
+ * Rows are numbered from the start of the batch. A batch returned by
+ * nextBatch may be reused by the next call, so it is only valid until then.
+ */
+public class ColumnBatch {
+	private Column[] columns;
+	private ColumnVector[] vectors;
+	private int capacity;
+	private int size;
+	private long firstRow;
+
+	/**
+	 * Creates an empty batch for the given columns
+	 *
+	 * @param columns
+	 *            Columns
+	 * @param capacity
+	 *            Number of rows
+	 */
+	ColumnBatch(Column[] columns, int capacity) {
+		this.columns = (columns == null) ? new Column[0] : columns;
+		this.capacity = Math.max(1, capacity);
+		this.vectors = new ColumnVector[this.columns.length];
+		for (int columnIndex = 0; columnIndex < this.columns.length; columnIndex++) {
+			vectors[columnIndex] = ColumnVector.create(
+					this.columns[columnIndex].getDataType(), this.capacity);
+		}
+	}
+
+	/**
+	 * Returns true if the batch can be reused for the given columns
+	 *
+	 * @param columns
+	 *            Columns
+	 * @return Can be reused
+	 */
+	boolean hasColumns(Column[] columns) {
+		return (this.columns == columns)
+				|| ((columns == null) && (this.columns.length == 0));
+	}
+
+	/**
+	 * Empties the batch so that it can be filled with the given rows
+	 *
+	 * @param firstRow
+	 *            Position of the first row in the result set
+	 * @param rows
+	 *            Number of rows
+	 */
+	void reset(long firstRow, int rows) {
+		if (rows > capacity) {
+			int newCapacity = Math.max(rows, capacity + (capacity >> 1));
+			for (ColumnVector vector : vectors) {
+				vector.resize(newCapacity);
+			}
+			this.capacity = newCapacity;
+		}
+		this.firstRow = firstRow;
+		this.size = rows;
+	}
+
+	/**
+	 * Returns the vector holding a column
+	 *
+	 * @param columnIndex
+	 *            Column Index
+	 * @return Column Vector
+	 */
+	ColumnVector getVector(int columnIndex) {
+		return vectors[columnIndex];
+	}
+
+	/**
+	 * Sets a cell from an object. A column that is given a value that does
+	 * not match its data type, such as a date that cannot be parsed, is
+	 * converted to a column of objects.
+	 *
+	 * @param columnIndex
+	 *            Column Index
+	 * @param row
+	 *            Row in the batch
+	 * @param value
+	 *            Value
+	 */
+	void setObject(int columnIndex, int row, Object value) {
+		try {
+			vectors[columnIndex].setObject(row, value);
+		} catch (ClassCastException | IllegalArgumentException
+				| DateTimeException e) {
+			vectors[columnIndex] = vectors[columnIndex]
+					.toObjectVector(capacity);
+			vectors[columnIndex].setObject(row, value);
+		}
+	}
+
+	/**
+	 * Sets all the cells of a row of the batch from a Row
+	 *
+	 * @param row
+	 *            Row in the batch
+	 * @param values
+	 *            Row
+	 */
+	void setRow(int row, Row values) {
+		for (int columnIndex = 0; columnIndex < vectors.length; columnIndex++) {
+			setObject(columnIndex, row,
+					(values == null) ? null : values.getColumn(columnIndex));
+		}
+	}
+
+	/**
+	 * Copies a row of the batch into a Row object
+	 *
+	 * @param row
+	 *            Row in the batch
+	 * @param target
+	 *            Row to copy the values to
+	 * @return The target row
+	 */
+	Row copyTo(int row, Row target) {
+		for (int columnIndex = 0; columnIndex < vectors.length; columnIndex++) {
+			target.setColumn(columnIndex, vectors[columnIndex].getObject(row));
+		}
+		return target;
+	}
+
+	/**
+	 * Returns true if the row is in the batch
+	 *
+	 * @param row
+	 *            Position of the row in the result set
+	 * @return Contains the row
+	 */
+	boolean contains(long row) {
+		return (row >= firstRow) && (row < firstRow + size);
+	}
+
+	/**
+	 * Returns the position in the result set of the first row of the batch
+	 *
+	 * @return First row
+	 */
+	public long getFirstRow() {
+		return firstRow;
+	}
+
+	/**
+	 * Returns the number of rows in the batch
+	 *
+	 * @return Rows
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of columns in the batch
+	 *
+	 * @return Columns
+	 */
+	public int getColumnSize() {
+		return columns.length;
+	}
+
+	/**
+	 * Returns the columns of the batch
+	 *
+	 * @return Columns
+	 */
+	public Column[] getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Returns true if a cell is null
+	 *
+	 * @param columnIndex
+	 *            Column Index
+	 * @param row
+	 *            Row in the batch
+	 * @return Is null
+	 */
+	public boolean isNull(int columnIndex, int row) {
+		return vectors[columnIndex].isNull(row);
+	}
+
+	/**
+	 * Returns the value of a cell as a boolean
+	 *
+	 * @param columnIndex
+	 *            Column Index
+	 * @param row
+	 *            Row in the batch
+	 * @return Value
+	 */
+	public boolean getBoolean(int columnIndex, int row) {
+		return vectors[columnIndex].getBoolean(row);
+	}
+
+	/**
+	 * Returns the value of a cell as a byte
+	 *
+	 * @param columnIndex
+	 *            Column Index
+	 * @param row
+	 *            Row in the batch
+	 * @return Value
+	 */
+	public byte getByte(int columnIndex, int row) {
+		return (byte) vectors[columnIndex].getInt(row);
+	}
+
+	/**
+	 * Returns the value of a cell as an int. A null cell is returned as 0.
+	 *
+	 * @param columnIndex
+	 *            Column Index
+	 * @param row
+	 *            Row in the batch
+	 * @return Value
+	 */
+	public int getInt(int columnIndex, int row) {
+		return vectors[columnIndex].getInt(row);
+	}
+
+	/**
+	 * Returns the value of a cell as a long. A null cell is returned as 0.
+	 *
+	 * @param columnIndex
+	 *            Column Index
+	 * @param row
+	 *            Row in the batch
+	 * @return Value
+	 */
+	public long getLong(int columnIndex, int row) {
+		return vectors[columnIndex].getLong(row);
+	}
+
+	/**
+	 * Returns the value of a cell as a float. A null cell is returned as 0.
+	 *
+	 * @param columnIndex
+	 *            Column Index
+	 * @param row
+	 *            Row in the batch
+	 * @return Value
+	 */
+	public float getFloat(int columnIndex, int row) {
+		return (float) vectors[columnIndex].getDouble(row);
+	}
+
+	/**
+	 * Returns the value of a cell as a double. A null cell is returned as 0.
+	 *
+	 * @param columnIndex
+	 *            Column Index
+	 * @param row
+	 *            Row in the batch
+	 * @return Value
+	 */
+	public double getDouble(int columnIndex, int row) {
+		return vectors[columnIndex].getDouble(row);
+	}
+
+	/**
+	 * Returns the value of a cell as a string, or null. Dates and times are
+	 * formatted in the format of their data type.
+	 *
+	 * @param columnIndex
+	 *            Column Index
+	 * @param row
+	 *            Row in the batch
+	 * @return Value
+	 */
+	public String getString(int columnIndex, int row) {
+		return vectors[columnIndex].getString(row);
+	}
+
+	/**
+	 * Returns the value of a DATE, DATETIME or TIME cell as a Date, or null
+	 *
+	 * @param columnIndex
+	 *            Column Index
+	 * @param row
+	 *            Row in the batch
+	 * @return Value
+	 */
+	public Date getDate(int columnIndex, int row) {
+		return vectors[columnIndex].getDate(row);
+	}
+
+	/**
+	 * Returns the value of a cell as an object of the column data type, or
+	 * null
+	 *
+	 * @param columnIndex
+	 *            Column Index
+	 * @param row
+	 *            Row in the batch
+	 * @return Value
+	 */
+	public Object getObject(int columnIndex, int row) {
+		return vectors[columnIndex].getObject(row);
+	}
+}
@@ -0,0 +1,500 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.harvard.hms.dbmi.bd2k.irct.model.resource.PrimitiveDataType;
+
+/**
+ * The storage of a single column of a Columnar File Result Set. Boolean,
+ * numeric, date and time columns are stored as a packed array of fixed width
+ * values, dates and times as their epoch value. All other columns are
+ * dictionary encoded: the column file holds the offset of the value of each
+ * row in a values file, and rows with the same value share one copy of it. A
+ * column stops sharing new values once it is seen to have a high
+ * cardinality, and those values are stored once per row. Columns that
+ * contain nulls also have a null bitmap file.
+ *
+ * <pre>
+ * name.col   packed values or long value offsets, -1 for null
+ * name.nul   null bitmap, one bit per row
+ * name.val   int length and UTF-8 encoded bytes of each value
+ * </pre>
+ *
+ * The files are memory mapped when read, and values are only decoded when
+ * they are requested.
+ */
+class ColumnFile {
+	private static final int SEGMENT_SHIFT = 30;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+	/**
+	 * Maximum number of values shared by the rows of a column
+	 */
+	static final int MAX_ENTRIES = 1 << 16;
+	/**
+	 * Number of values written before the cardinality of a column is checked
+	 */
+	static final int SAMPLE_ROWS = 256;
+	private static final double MAX_DISTINCT_RATIO = 0.5;
+
+	private PrimitiveDataType dataType;
+	private int version;
+	private int width;
+	private ByteBuffer[] segments;
+	private ByteBuffer nulls;
+	private ByteBuffer[] values;
+
+	private ColumnFile(PrimitiveDataType dataType, int version) {
+		this.dataType = dataType;
+		this.version = version;
+		this.width = getWidth(dataType, version);
+	}
+
+	/**
+	 * Returns true if the data type is stored dictionary encoded by the given
+	 * version of the columnar layout
+	 *
+	 * @param dataType
+	 *            Data type
+	 * @param version
+	 *            Columnar layout version
+	 * @return Dictionary encoded
+	 */
+	static boolean isDictionaryEncoded(PrimitiveDataType dataType, int version) {
+		if ((dataType == null)
+				|| (BinaryRowFormat.getFixedWidth(dataType) == -1)) {
+			return true;
+		}
+		// The first version kept the formatted values of dates and times
+		return dataType.isTemporal() && (version == 1);
+	}
+
+	private static int getWidth(PrimitiveDataType dataType, int version) {
+		if (isDictionaryEncoded(dataType, version)) {
+			return 8;
+		}
+		return BinaryRowFormat.getFixedWidth(dataType);
+	}
+
+	private static Path getPath(String base, String extension) {
+		return Paths.get(base + extension);
+	}
+
+	/**
+	 * Returns the files that store the column
+	 *
+	 * @param base
+	 *            Base name of the column files
+	 * @return Paths
+	 */
+	static Path[] getPaths(String base) {
+		return new Path[] { getPath(base, ".col"), getPath(base, ".nul"),
+				getPath(base, ".val") };
+	}
+
+	/**
+	 * Opens a persisted column
+	 *
+	 * @param base
+	 *            Base name of the column files
+	 * @param dataType
+	 *            Data type of the column
+	 * @param rows
+	 *            Number of rows
+	 * @param version
+	 *            Columnar layout version the column was written with
+	 * @return Column File
+	 * @throws IOException
+	 *             An error occurred mapping the column
+	 */
+	static ColumnFile open(String base, PrimitiveDataType dataType, long rows,
+			int version) throws IOException {
+		ColumnFile columnFile = new ColumnFile(dataType, version);
+
+		try (FileChannel dataFC = FileChannel.open(getPath(base, ".col"),
+				StandardOpenOption.READ)) {
+			columnFile.segments = map(dataFC,
+					Math.min(dataFC.size(), rows * columnFile.width));
+		}
+
+		Path nullFile = getPath(base, ".nul");
+		if (Files.exists(nullFile)) {
+			try (FileChannel nullFC = FileChannel.open(nullFile,
+					StandardOpenOption.READ)) {
+				columnFile.nulls = nullFC.map(FileChannel.MapMode.READ_ONLY, 0,
+						nullFC.size());
+			}
+		}
+		if (isDictionaryEncoded(dataType, version)) {
+			try (FileChannel valueFC = FileChannel.open(getPath(base, ".val"),
+					StandardOpenOption.READ)) {
+				columnFile.values = map(valueFC, valueFC.size());
+			}
+		}
+		return columnFile;
+	}
+
+	/**
+	 * Maps the start of a file in segments, as a single mapping is limited
+	 * to 2GB
+	 */
+	private static ByteBuffer[] map(FileChannel fc, long length)
+			throws IOException {
+		int segmentCount = (int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+		ByteBuffer[] segments = new ByteBuffer[segmentCount];
+		for (int segment = 0; segment < segmentCount; segment++) {
+			long start = (long) segment << SEGMENT_SHIFT;
+			segments[segment] = fc.map(FileChannel.MapMode.READ_ONLY, start,
+					Math.min(1L << SEGMENT_SHIFT, length - start));
+		}
+		return segments;
+	}
+
+	private ByteBuffer segment(long row) {
+		return segments[(int) ((row * width) >>> SEGMENT_SHIFT)];
+	}
+
+	private int position(long row) {
+		return (int) ((row * width) & SEGMENT_MASK);
+	}
+
+	/**
+	 * Returns true if the value of the row is null
+	 *
+	 * @param row
+	 *            Row
+	 * @return Is null
+	 */
+	boolean isNull(long row) {
+		if (nulls == null) {
+			return false;
+		}
+		long bitmapByte = row >>> 3;
+		if (bitmapByte >= nulls.limit()) {
+			return false;
+		}
+		return (nulls.get((int) bitmapByte) & (1 << (row & 7))) != 0;
+	}
+
+	boolean getBoolean(long row) {
+		return segment(row).get(position(row)) != 0;
+	}
+
+	byte getByte(long row) {
+		return segment(row).get(position(row));
+	}
+
+	int getInt(long row) {
+		return segment(row).getInt(position(row));
+	}
+
+	float getFloat(long row) {
+		return segment(row).getFloat(position(row));
+	}
+
+	long getLong(long row) {
+		return segment(row).getLong(position(row));
+	}
+
+	double getDouble(long row) {
+		return segment(row).getDouble(position(row));
+	}
+
+	/**
+	 * Returns the dictionary encoded value of the row
+	 *
+	 * @param row
+	 *            Row
+	 * @return Value
+	 */
+	String getString(long row) {
+		long offset = getLong(row);
+		if (offset < 0) {
+			return null;
+		}
+		byte[] length = new byte[4];
+		readValues(offset, length);
+		byte[] bytes = new byte[ByteBuffer.wrap(length).getInt()];
+		readValues(offset + 4, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Copies bytes out of the values file. A value can cross the end of a
+	 * mapped segment.
+	 */
+	private void readValues(long position, byte[] bytes) {
+		int copied = 0;
+		while (copied < bytes.length) {
+			long start = position + copied;
+			ByteBuffer segment = values[(int) (start >>> SEGMENT_SHIFT)]
+					.duplicate();
+			segment.position((int) (start & SEGMENT_MASK));
+			int length = Math.min(bytes.length - copied, segment.remaining());
+			segment.get(bytes, copied, length);
+			copied += length;
+		}
+	}
+
+	/**
+	 * Returns the value of the row as an object of the column data type
+	 *
+	 * @param row
+	 *            Row
+	 * @return Value
+	 */
+	Object get(long row) {
+		if (isNull(row)) {
+			return null;
+		}
+		switch (dataType) {
+		case BOOLEAN:
+			return getBoolean(row);
+		case BYTE:
+			return getByte(row);
+		case INTEGER:
+			return getInt(row);
+		case FLOAT:
+			return getFloat(row);
+		case DOUBLE:
+			return getDouble(row);
+		case LONG:
+		case RESULTSET:
+			return getLong(row);
+		case DATE:
+		case DATETIME:
+		case TIME:
+			if (version == 1) {
+				return getString(row);
+			}
+			return getLong(row);
+		default:
+			return getString(row);
+		}
+	}
+
+	/**
+	 * Writes the values of a column sequentially in the current columnar
+	 * layout. A new column is written to temporary files that only replace
+	 * the existing column once committed, while rows appended to a column are
+	 * written to the end of its files.
+	 */
+	static class Writer implements Closeable {
+		private String base;
+		private PrimitiveDataType dataType;
+		private boolean append;
+		private DataOutputStream out;
+		private long row;
+		private BitSet nulls;
+
+		private DataOutputStream valuesOut;
+		private long valuesSize;
+		private Map<String, Long> offsets;
+		private long encodedRows;
+
+		/**
+		 * Creates a writer for a new column
+		 *
+		 * @param base
+		 *            Base name of the column files
+		 * @param dataType
+		 *            Data type of the column
+		 * @throws IOException
+		 *             An error occurred creating the column file
+		 */
+		Writer(String base, PrimitiveDataType dataType) throws IOException {
+			this.base = base;
+			this.dataType = dataType;
+			this.out = new DataOutputStream(new BufferedOutputStream(
+					Files.newOutputStream(getPath(base, ".col.temp"))));
+			this.nulls = new BitSet();
+			if (isDictionaryEncoded(dataType, ColumnarFileResultSet.VERSION)) {
+				this.valuesOut = new DataOutputStream(new BufferedOutputStream(
+						Files.newOutputStream(getPath(base, ".val.temp"))));
+				this.offsets = new HashMap<String, Long>();
+			}
+		}
+
+		/**
+		 * Creates a writer that appends rows to a persisted column. Anything
+		 * written after the given number of rows by an earlier write that
+		 * was not committed is discarded.
+		 *
+		 * @param base
+		 *            Base name of the column files
+		 * @param dataType
+		 *            Data type of the column
+		 * @param rows
+		 *            Number of rows in the column
+		 * @throws IOException
+		 *             An error occurred opening the column files
+		 */
+		Writer(String base, PrimitiveDataType dataType, long rows)
+				throws IOException {
+			this.base = base;
+			this.dataType = dataType;
+			this.append = true;
+			this.row = rows;
+
+			Path dataFile = getPath(base, ".col");
+			try (FileChannel dataFC = FileChannel.open(dataFile,
+					StandardOpenOption.WRITE)) {
+				dataFC.truncate(rows
+						* getWidth(dataType, ColumnarFileResultSet.VERSION));
+			}
+			this.out = new DataOutputStream(new BufferedOutputStream(
+					Files.newOutputStream(dataFile, StandardOpenOption.APPEND)));
+
+			Path nullFile = getPath(base, ".nul");
+			if (Files.exists(nullFile)) {
+				this.nulls = BitSet.valueOf(Files.readAllBytes(nullFile));
+				this.nulls.clear((int) rows, Math.max((int) rows,
+						this.nulls.length()));
+			} else {
+				this.nulls = new BitSet();
+			}
+
+			if (isDictionaryEncoded(dataType, ColumnarFileResultSet.VERSION)) {
+				Path valueFile = getPath(base, ".val");
+				this.valuesSize = Files.size(valueFile);
+				this.valuesOut = new DataOutputStream(new BufferedOutputStream(
+						Files.newOutputStream(valueFile,
+								StandardOpenOption.APPEND)));
+				this.offsets = new HashMap<String, Long>();
+			}
+		}
+
+		/**
+		 * Adds the value of the next row
+		 *
+		 * @param value
+		 *            Value
+		 * @throws IOException
+		 *             An error occurred writing the column file
+		 */
+		void add(Object value) throws IOException {
+			if (value == null) {
+				nulls.set((int) row);
+			}
+			switch (dataType) {
+			case BOOLEAN:
+				out.writeByte((value != null && (Boolean) value) ? 1 : 0);
+				break;
+			case BYTE:
+				out.writeByte(value == null ? 0 : ((Number) value).byteValue());
+				break;
+			case INTEGER:
+				out.writeInt(value == null ? 0 : ((Number) value).intValue());
+				break;
+			case FLOAT:
+				out.writeFloat(value == null ? 0 : ((Number) value)
+						.floatValue());
+				break;
+			case DOUBLE:
+				out.writeDouble(value == null ? 0 : ((Number) value)
+						.doubleValue());
+				break;
+			case LONG:
+			case RESULTSET:
+				out.writeLong(value == null ? 0 : ((Number) value).longValue());
+				break;
+			case DATE:
+			case DATETIME:
+			case TIME:
+				out.writeLong(value == null ? 0 : dataType.toEpochValue(value));
+				break;
+			default:
+				out.writeLong(value == null ? -1 : getOffset(value.toString()));
+				break;
+			}
+			row++;
+		}
+
+		/**
+		 * Returns the offset of a value in the values file, writing the value
+		 * unless it is already shared
+		 */
+		private long getOffset(String value) throws IOException {
+			encodedRows++;
+			if (offsets != null) {
+				Long offset = offsets.get(value);
+				if (offset != null) {
+					return offset;
+				}
+			}
+
+			long offset = valuesSize;
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			valuesOut.writeInt(bytes.length);
+			valuesOut.write(bytes);
+			valuesSize += 4 + bytes.length;
+
+			if (offsets != null) {
+				if ((offsets.size() >= MAX_ENTRIES)
+						|| ((encodedRows >= SAMPLE_ROWS) && (offsets.size() > encodedRows
+								* MAX_DISTINCT_RATIO))) {
+					// The column has too many distinct values to benefit from
+					// sharing them, so the remaining values are written once
+					// per row and the shared offsets are dropped
+					offsets = null;
+				} else {
+					offsets.put(value, offset);
+				}
+			}
+			return offset;
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+			if (valuesOut != null) {
+				valuesOut.close();
+			}
+
+			if (append) {
+				if (!nulls.isEmpty()) {
+					Files.write(getPath(base, ".nul"), nulls.toByteArray());
+				}
+			} else if (!nulls.isEmpty()) {
+				Files.write(getPath(base, ".nul.temp"), nulls.toByteArray());
+			}
+		}
+
+		/**
+		 * Replaces the persisted column with the newly written one. Appended
+		 * rows are already in place.
+		 *
+		 * @throws IOException
+		 *             An error occurred moving the column files
+		 */
+		void commit() throws IOException {
+			if (append) {
+				return;
+			}
+			for (Path path : getPaths(base)) {
+				Path temp = Paths.get(path.toString() + ".temp");
+				if (Files.exists(temp)) {
+					Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+				} else {
+					Files.deleteIfExists(path);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,527 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import edu.harvard.hms.dbmi.bd2k.irct.model.resource.PrimitiveDataType;
+
+/**
+ * The values of a single column stored in a primitive array chosen from the
+ * data type of the column, with a bitmap of the cells that are null. BOOLEAN,
+ * BYTE and INTEGER columns are stored as ints, LONG and RESULTSET columns as
+ * longs, DATE, DATETIME and TIME columns as their long epoch value, FLOAT and
+ * DOUBLE columns as doubles, and all other columns as objects. Reading or
+ * writing a primitive value does not allocate.
+ */
+abstract class ColumnVector {
+	protected PrimitiveDataType dataType;
+	private long[] nonNull;
+
+	private ColumnVector(PrimitiveDataType dataType, int capacity) {
+		this.dataType = dataType;
+		this.nonNull = new long[(capacity + 63) >>> 6];
+	}
+
+	/**
+	 * Creates an empty vector for a column of the given data type
+	 *
+	 * @param dataType
+	 *            Data type
+	 * @param capacity
+	 *            Number of rows
+	 * @return Column Vector
+	 */
+	static ColumnVector create(PrimitiveDataType dataType, int capacity) {
+		if (dataType == null) {
+			return new ObjectVector(dataType, capacity);
+		}
+		switch (dataType) {
+		case BOOLEAN:
+		case BYTE:
+		case INTEGER:
+			return new IntVector(dataType, capacity);
+		case LONG:
+		case RESULTSET:
+		case DATE:
+		case DATETIME:
+		case TIME:
+			return new LongVector(dataType, capacity);
+		case FLOAT:
+		case DOUBLE:
+			return new DoubleVector(dataType, capacity);
+		default:
+			return new ObjectVector(dataType, capacity);
+		}
+	}
+
+	/**
+	 * Grows the vector so that it can hold the given number of rows
+	 *
+	 * @param capacity
+	 *            Number of rows
+	 */
+	void resize(int capacity) {
+		this.nonNull = Arrays.copyOf(nonNull, (capacity + 63) >>> 6);
+		resizeValues(capacity);
+	}
+
+	protected abstract void resizeValues(int capacity);
+
+	/**
+	 * Returns true if the cell is null
+	 *
+	 * @param row
+	 *            Row
+	 * @return Is null
+	 */
+	boolean isNull(int row) {
+		return (nonNull[row >>> 6] & (1L << row)) == 0;
+	}
+
+	/**
+	 * Sets a cell to null
+	 *
+	 * @param row
+	 *            Row
+	 */
+	void setNull(int row) {
+		nonNull[row >>> 6] &= ~(1L << row);
+		clearValue(row);
+	}
+
+	protected void setNotNull(int row) {
+		nonNull[row >>> 6] |= 1L << row;
+	}
+
+	protected void clearValue(int row) {
+	}
+
+	/**
+	 * Returns the value of a cell as a boolean
+	 *
+	 * @param row
+	 *            Row
+	 * @return Value
+	 */
+	boolean getBoolean(int row) {
+		return (Boolean) getObject(row);
+	}
+
+	abstract int getInt(int row);
+
+	abstract long getLong(int row);
+
+	abstract double getDouble(int row);
+
+	abstract void setInt(int row, int value);
+
+	abstract void setLong(int row, long value);
+
+	abstract void setDouble(int row, double value);
+
+	/**
+	 * Returns the value of a cell as an object of the column data type, or
+	 * null
+	 *
+	 * @param row
+	 *            Row
+	 * @return Value
+	 */
+	abstract Object getObject(int row);
+
+	/**
+	 * Returns the value of a cell as a string, or null. Dates and times are
+	 * formatted in the format of their data type.
+	 *
+	 * @param row
+	 *            Row
+	 * @return Value
+	 */
+	String getString(int row) {
+		Object value = getObject(row);
+		if ((value instanceof Long) && isTemporal()) {
+			return dataType.format((Long) value);
+		}
+		return (value == null) ? null : value.toString();
+	}
+
+	/**
+	 * Returns the value of a date or time cell as a Date, or null
+	 *
+	 * @param row
+	 *            Row
+	 * @return Value
+	 */
+	Date getDate(int row) {
+		Object value = getObject(row);
+		if (value == null) {
+			return null;
+		}
+		return dataType.toDate(dataType.toEpochValue(value));
+	}
+
+	protected boolean isTemporal() {
+		return (dataType != null) && dataType.isTemporal();
+	}
+
+	/**
+	 * Sets the value of a cell from an object
+	 *
+	 * @param row
+	 *            Row
+	 * @param value
+	 *            Value
+	 */
+	abstract void setObject(int row, Object value);
+
+	/**
+	 * Copies a range of cells, including the null cells, to another vector
+	 *
+	 * @param from
+	 *            First row to copy
+	 * @param target
+	 *            Vector to copy to
+	 * @param to
+	 *            First row of the target to copy to
+	 * @param length
+	 *            Number of rows
+	 */
+	void copyTo(int from, ColumnVector target, int to, int length) {
+		for (int i = 0; i < length; i++) {
+			if (isNull(from + i)) {
+				target.setNull(to + i);
+			} else {
+				copyValue(from + i, target, to + i);
+			}
+		}
+	}
+
+	protected abstract void copyValue(int from, ColumnVector target, int to);
+
+	/**
+	 * Returns a vector of objects holding the same values, which can store
+	 * values that do not match the data type of the column
+	 *
+	 * @param capacity
+	 *            Number of rows
+	 * @return Column Vector
+	 */
+	ColumnVector toObjectVector(int capacity) {
+		ColumnVector objectVector = new ObjectVector(dataType, capacity);
+		for (int row = 0; row < capacity; row++) {
+			objectVector.setObject(row, getObject(row));
+		}
+		return objectVector;
+	}
+
+	/**
+	 * A vector of BOOLEAN, BYTE and INTEGER values
+	 */
+	private static class IntVector extends ColumnVector {
+		private int[] values;
+
+		private IntVector(PrimitiveDataType dataType, int capacity) {
+			super(dataType, capacity);
+			this.values = new int[capacity];
+		}
+
+		@Override
+		protected void resizeValues(int capacity) {
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		@Override
+		boolean getBoolean(int row) {
+			return values[row] != 0;
+		}
+
+		@Override
+		int getInt(int row) {
+			return values[row];
+		}
+
+		@Override
+		long getLong(int row) {
+			return values[row];
+		}
+
+		@Override
+		double getDouble(int row) {
+			return values[row];
+		}
+
+		@Override
+		void setInt(int row, int value) {
+			values[row] = value;
+			setNotNull(row);
+		}
+
+		@Override
+		void setLong(int row, long value) {
+			setInt(row, (int) value);
+		}
+
+		@Override
+		void setDouble(int row, double value) {
+			setInt(row, (int) value);
+		}
+
+		@Override
+		protected void copyValue(int from, ColumnVector target, int to) {
+			target.setInt(to, values[from]);
+		}
+
+		@Override
+		Object getObject(int row) {
+			if (isNull(row)) {
+				return null;
+			}
+			if (dataType == PrimitiveDataType.BOOLEAN) {
+				return values[row] != 0;
+			} else if (dataType == PrimitiveDataType.BYTE) {
+				return (byte) values[row];
+			}
+			return values[row];
+		}
+
+		@Override
+		void setObject(int row, Object value) {
+			if (value == null) {
+				setNull(row);
+			} else if (value instanceof Boolean) {
+				setInt(row, ((Boolean) value) ? 1 : 0);
+			} else {
+				setInt(row, ((Number) value).intValue());
+			}
+		}
+	}
+
+	/**
+	 * A vector of LONG and RESULTSET values, and of the epoch values of DATE,
+	 * DATETIME and TIME values
+	 */
+	private static class LongVector extends ColumnVector {
+		private long[] values;
+
+		private LongVector(PrimitiveDataType dataType, int capacity) {
+			super(dataType, capacity);
+			this.values = new long[capacity];
+		}
+
+		@Override
+		protected void resizeValues(int capacity) {
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		@Override
+		int getInt(int row) {
+			return (int) values[row];
+		}
+
+		@Override
+		long getLong(int row) {
+			return values[row];
+		}
+
+		@Override
+		double getDouble(int row) {
+			return values[row];
+		}
+
+		@Override
+		void setInt(int row, int value) {
+			setLong(row, value);
+		}
+
+		@Override
+		void setLong(int row, long value) {
+			values[row] = value;
+			setNotNull(row);
+		}
+
+		@Override
+		void setDouble(int row, double value) {
+			setLong(row, (long) value);
+		}
+
+		@Override
+		protected void copyValue(int from, ColumnVector target, int to) {
+			target.setLong(to, values[from]);
+		}
+
+		@Override
+		Date getDate(int row) {
+			if (isNull(row)) {
+				return null;
+			}
+			return dataType.toDate(values[row]);
+		}
+
+		@Override
+		Object getObject(int row) {
+			if (isNull(row)) {
+				return null;
+			}
+			return values[row];
+		}
+
+		@Override
+		void setObject(int row, Object value) {
+			if (value == null) {
+				setNull(row);
+			} else if (isTemporal()) {
+				setLong(row, dataType.toEpochValue(value));
+			} else {
+				setLong(row, ((Number) value).longValue());
+			}
+		}
+	}
+
+	/**
+	 * A vector of FLOAT and DOUBLE values
+	 */
+	private static class DoubleVector extends ColumnVector {
+		private double[] values;
+
+		private DoubleVector(PrimitiveDataType dataType, int capacity) {
+			super(dataType, capacity);
+			this.values = new double[capacity];
+		}
+
+		@Override
+		protected void resizeValues(int capacity) {
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		@Override
+		int getInt(int row) {
+			return (int) values[row];
+		}
+
+		@Override
+		long getLong(int row) {
+			return (long) values[row];
+		}
+
+		@Override
+		double getDouble(int row) {
+			return values[row];
+		}
+
+		@Override
+		void setInt(int row, int value) {
+			setDouble(row, value);
+		}
+
+		@Override
+		void setLong(int row, long value) {
+			setDouble(row, value);
+		}
+
+		@Override
+		void setDouble(int row, double value) {
+			values[row] = value;
+			setNotNull(row);
+		}
+
+		@Override
+		protected void copyValue(int from, ColumnVector target, int to) {
+			target.setDouble(to, values[from]);
+		}
+
+		@Override
+		Object getObject(int row) {
+			if (isNull(row)) {
+				return null;
+			}
+			if (dataType == PrimitiveDataType.FLOAT) {
+				return (float) values[row];
+			}
+			return values[row];
+		}
+
+		@Override
+		void setObject(int row, Object value) {
+			if (value == null) {
+				setNull(row);
+			} else {
+				setDouble(row, ((Number) value).doubleValue());
+			}
+		}
+	}
+
+	/**
+	 * A vector of values that are not numeric, such as strings and dates
+	 */
+	private static class ObjectVector extends ColumnVector {
+		private Object[] values;
+
+		private ObjectVector(PrimitiveDataType dataType, int capacity) {
+			super(dataType, capacity);
+			this.values = new Object[capacity];
+		}
+
+		@Override
+		protected void resizeValues(int capacity) {
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		@Override
+		protected void clearValue(int row) {
+			values[row] = null;
+		}
+
+		@Override
+		int getInt(int row) {
+			return ((Number) values[row]).intValue();
+		}
+
+		@Override
+		long getLong(int row) {
+			return ((Number) values[row]).longValue();
+		}
+
+		@Override
+		double getDouble(int row) {
+			return ((Number) values[row]).doubleValue();
+		}
+
+		@Override
+		void setInt(int row, int value) {
+			setObject(row, value);
+		}
+
+		@Override
+		void setLong(int row, long value) {
+			setObject(row, value);
+		}
+
+		@Override
+		void setDouble(int row, double value) {
+			setObject(row, value);
+		}
+
+		@Override
+		protected void copyValue(int from, ColumnVector target, int to) {
+			target.setObject(to, values[from]);
+		}
+
+		@Override
+		Object getObject(int row) {
+			return values[row];
+		}
+
+		@Override
+		void setObject(int row, Object value) {
+			if (value == null) {
+				setNull(row);
+			} else {
+				values[row] = value;
+				setNotNull(row);
+			}
+		}
+	}
+}
@@ -0,0 +1,888 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+
+import edu.harvard.hms.dbmi.bd2k.irct.model.resource.PrimitiveDataType;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.Persistable;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.exception.PersistableException;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.exception.ResultSetException;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.exception.RowSetExeception;
+
+/**
+ * An implementation of a Result Set that is persisted to the file system one
+ * file per column. Consumers that only need some of the columns can project
+ * the result set so that only the files of those columns are read.
+ */
+public class ColumnarFileResultSet extends ResultSetImpl implements
+		Persistable {
+	/**
+	 * Number of appended rows held in memory before they are written to the
+	 * column files. The default can be changed with the
+	 * irct.resultSet.maxPending system property.
+	 */
+	public static final int DEFAULT_MAX_PENDING = Integer.getInteger(
+			"irct.resultSet.maxPending", 10000);
+	private static final String LAYOUT = "columnar";
+	static final int VERSION = 2;
+
+	private long size;
+	private long persistedSize;
+
+	private String fileName;
+	private Path infoFile;
+	private boolean persisted = false;
+	private int formatVersion = VERSION;
+
+	private ColumnFile[] columnFiles;
+	private List<Row> pendingRows;
+	private Map<Long, Row> updatedRows;
+	private int maxPending = DEFAULT_MAX_PENDING;
+
+	private int[] projection;
+	private Column[] projectedColumns;
+
+	public ColumnarFileResultSet() {
+		this.pendingRows = new ArrayList<Row>();
+		this.updatedRows = new HashMap<Long, Row>();
+	}
+
+	@Override
+	public boolean isAvailable(String location) {
+		return Files.isReadable(Paths.get(location + ".info"));
+	}
+
+	@Override
+	public void close() throws ResultSetException {
+		this.columnFiles = null;
+		this.closed = true;
+	}
+
+	@Override
+	public void load(String fileName) throws ResultSetException,
+			PersistableException {
+		setFileName(fileName);
+		this.pendingRows = new ArrayList<Row>();
+		this.updatedRows = new HashMap<Long, Row>();
+
+		if (Files.isReadable(infoFile)) {
+			this.persisted = true;
+			refresh();
+		} else {
+			this.persisted = false;
+			this.current = true;
+		}
+	}
+
+	private void setFileName(String fileName) {
+		this.fileName = fileName;
+		this.infoFile = Paths.get(fileName + ".info");
+		this.columnFiles = null;
+	}
+
+	private String getColumnBase(int storedIndex) {
+		return this.fileName + "." + storedIndex;
+	}
+
+	// PROJECTION
+	/**
+	 * Restricts the result set to the given columns. Column indexes then
+	 * refer to the position of the column in the projection, and only the
+	 * files of the projected columns are read. A projected result set is
+	 * read only. Calling project with no columns removes the projection.
+	 *
+	 * @param columnLabels
+	 *            Names of the columns to keep
+	 * @throws ResultSetException
+	 *             If a column is not found
+	 */
+	public void project(String... columnLabels) throws ResultSetException {
+		if ((columnLabels == null) || (columnLabels.length == 0)) {
+			this.projection = null;
+			this.projectedColumns = null;
+			return;
+		}
+
+		int[] newProjection = new int[columnLabels.length];
+		Column[] newColumns = new Column[columnLabels.length];
+		for (int i = 0; i < columnLabels.length; i++) {
+			newProjection[i] = super.findColumn(columnLabels[i]);
+			newColumns[i] = super.getColumn(newProjection[i]);
+		}
+		this.projection = newProjection;
+		this.projectedColumns = newColumns;
+	}
+
+	/**
+	 * Returns true if the result set is restricted to a subset of its columns
+	 *
+	 * @return Projected
+	 */
+	public boolean isProjected() {
+		return this.projection != null;
+	}
+
+	@Override
+	public int getColumnSize() throws ResultSetException {
+		if (isProjected()) {
+			return projectedColumns.length;
+		}
+		return super.getColumnSize();
+	}
+
+	@Override
+	public Column getColumn(int columnIndex) throws ResultSetException {
+		if (isProjected()) {
+			return super.getColumn(toStoredIndex(columnIndex));
+		}
+		return super.getColumn(columnIndex);
+	}
+
+	@Override
+	public Column[] getColumns() throws ResultSetException {
+		if (isProjected()) {
+			return projectedColumns.clone();
+		}
+		return super.getColumns();
+	}
+
+	@Override
+	public int findColumn(String columnLabel) throws ResultSetException {
+		int storedIndex = super.findColumn(columnLabel);
+		if (!isProjected()) {
+			return storedIndex;
+		}
+		for (int i = 0; i < projection.length; i++) {
+			if (projection[i] == storedIndex) {
+				return i;
+			}
+		}
+		throw new ResultSetException("Column not found");
+	}
+
+	private int toStoredIndex(int columnIndex) throws ResultSetException {
+		if ((columnIndex < 0) || (columnIndex >= getColumnSize())) {
+			throw new ResultSetException("Column not found");
+		}
+		if (isProjected()) {
+			return projection[columnIndex];
+		}
+		return columnIndex;
+	}
+
+	// CURSOR
+	@Override
+	public long getSize() throws ResultSetException {
+		if (isClosed()) {
+			throw new ResultSetException("ResultSet is closed");
+		}
+		return size;
+	}
+
+	@Override
+	public boolean last() throws ResultSetException {
+		return absolute(getSize() - 1);
+	}
+
+	@Override
+	public void afterLast() throws ResultSetException {
+		if (isClosed()) {
+			throw new ResultSetException("ResultSet is closed");
+		}
+		this.setRowPosition(size);
+	}
+
+	@Override
+	public boolean isLast() throws ResultSetException {
+		return getRow() == getSize() - 1;
+	}
+
+	/**
+	 * Adds a new row to the columnar result set. Once the maximum number of
+	 * pending rows is reached they are written to the column files, persisting
+	 * the result set if it has not been persisted yet.
+	 *
+	 * @throws ResultSetException
+	 *             If a ResultSetException occurs
+	 * @throws PersistableException
+	 *             If the pending rows cannot be written
+	 */
+	@Override
+	public void appendRow() throws ResultSetException, PersistableException {
+		if (isClosed()) {
+			throw new ResultSetException("ResultSet is closed");
+		}
+		if (isProjected()) {
+			throw new ResultSetException("ResultSet is projected");
+		}
+		if (this.pendingRows.size() >= Math.max(1, this.maxPending)) {
+			if (!this.persisted) {
+				if (this.fileName == null) {
+					throw new PersistableException(
+							"Maximum Pending Size Reached");
+				}
+				persist();
+			} else {
+				merge();
+			}
+		}
+		this.pendingRows.add(new Row(super.getColumnSize()));
+		this.size++;
+		this.setRowPosition(this.size - 1);
+		this.current = false;
+	}
+
+	@Override
+	public Row getCurrentRow() throws ResultSetException {
+		Row row = new Row(getColumnSize());
+		for (int columnIndex = 0; columnIndex < getColumnSize(); columnIndex++) {
+			row.setColumn(columnIndex, getCell(columnIndex));
+		}
+		return row;
+	}
+
+	private long getCurrentRowIndex() throws ResultSetException {
+		long row = getRow();
+		if ((row < 0) || (row >= this.size)) {
+			throw new RowSetExeception("Row is not in ResultSet");
+		}
+		return row;
+	}
+
+	/**
+	 * Returns the in memory copy of a row if it has been appended or updated
+	 * since the result set was persisted, otherwise null
+	 */
+	private Row getPendingRow(long row) {
+		if (row >= this.persistedSize) {
+			return this.pendingRows.get((int) (row - this.persistedSize));
+		}
+		return this.updatedRows.get(row);
+	}
+
+	private ColumnFile getColumnFile(int storedIndex)
+			throws ResultSetException {
+		if (this.columnFiles == null) {
+			this.columnFiles = new ColumnFile[super.getColumnSize()];
+		}
+		if (this.columnFiles[storedIndex] == null) {
+			try {
+				this.columnFiles[storedIndex] = ColumnFile.open(
+						getColumnBase(storedIndex), super.getColumn(storedIndex)
+								.getDataType(), this.persistedSize,
+						this.formatVersion);
+			} catch (IOException e) {
+				throw new ResultSetException("Unable to read the column", e);
+			}
+		}
+		return this.columnFiles[storedIndex];
+	}
+
+	/**
+	 * Returns the persisted column of a cell if the current row has no
+	 * pending changes, otherwise null
+	 */
+	private ColumnFile getPersistedColumn(int columnIndex)
+			throws ResultSetException {
+		int storedIndex = toStoredIndex(columnIndex);
+		long row = getCurrentRowIndex();
+		if (getPendingRow(row) != null) {
+			return null;
+		}
+		ColumnFile columnFile = getColumnFile(storedIndex);
+		if (columnFile.isNull(row)) {
+			return null;
+		}
+		return columnFile;
+	}
+
+	private Object getValue(long row, int storedIndex)
+			throws ResultSetException {
+		Row pendingRow = getPendingRow(row);
+		if (pendingRow != null) {
+			return pendingRow.getColumn(storedIndex);
+		}
+		return getColumnFile(storedIndex).get(row);
+	}
+
+	/**
+	 * Returns a cell from the given column at the current position
+	 *
+	 * @param columnIndex
+	 *            Column Index
+	 * @return Value
+	 * @throws ResultSetException
+	 *             If a ResultSetException occurs
+	 */
+	private Object getCell(int columnIndex) throws ResultSetException {
+		return getValue(getCurrentRowIndex(), toStoredIndex(columnIndex));
+	}
+
+	/**
+	 * Sets the value of a cell at the given column at the current position
+	 *
+	 * @param columnIndex
+	 *            Column Index
+	 * @param value
+	 *            Value
+	 * @throws ResultSetException
+	 *             If a ResultSetException occurs
+	 */
+	private void setCell(int columnIndex, Object value)
+			throws ResultSetException {
+		if (isProjected()) {
+			throw new ResultSetException("ResultSet is projected");
+		}
+		int storedIndex = toStoredIndex(columnIndex);
+		long row = getCurrentRowIndex();
+		PrimitiveDataType dataType = super.getColumn(storedIndex)
+				.getDataType();
+		if ((value != null) && (dataType != null) && dataType.isTemporal()) {
+			// Dates and times are held as their epoch value
+			value = toEpochValue(dataType, value);
+		}
+		Row pendingRow = getPendingRow(row);
+		if (pendingRow == null) {
+			pendingRow = new Row(super.getColumnSize());
+			for (int i = 0; i < super.getColumnSize(); i++) {
+				pendingRow.setColumn(i, getColumnFile(i).get(row));
+			}
+			this.updatedRows.put(row, pendingRow);
+		}
+		pendingRow.setColumn(storedIndex, value);
+		this.current = false;
+	}
+
+	// PERSISTENCE
+	@Override
+	public void persist(String fileName) throws PersistableException {
+		if (this.persisted) {
+			throw new PersistableException(this.fileName
+					+ " has been persisted");
+		}
+		setFileName(fileName);
+		persist();
+	}
+
+	@Override
+	public void persist() throws PersistableException {
+		if (this.persisted) {
+			throw new PersistableException(this.fileName
+					+ " has been persisted");
+		}
+		write();
+	}
+
+	@Override
+	public void merge() throws PersistableException {
+		if (!this.persisted) {
+			throw new PersistableException(this.fileName
+					+ " has not been persisted");
+		}
+		if (this.current) {
+			return;
+		}
+		if (this.updatedRows.isEmpty() && (this.formatVersion == VERSION)
+				&& hasColumnFiles()) {
+			append();
+		} else {
+			write();
+		}
+	}
+
+	/**
+	 * Returns true if every column has been persisted, so that rows can be
+	 * appended to the column files
+	 */
+	private boolean hasColumnFiles() {
+		try {
+			for (int storedIndex = 0; storedIndex < super.getColumnSize(); storedIndex++) {
+				if (!Files.exists(ColumnFile.getPaths(getColumnBase(storedIndex))[0])) {
+					return false;
+				}
+			}
+		} catch (ResultSetException e) {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Writes the rows appended since the result set was last persisted to the
+	 * end of the column files, and updates the info file to include them
+	 */
+	private void append() throws PersistableException {
+		if (isProjected()) {
+			throw new PersistableException("ResultSet is projected");
+		}
+
+		List<ColumnFile.Writer> writers = new ArrayList<ColumnFile.Writer>();
+		try {
+			Column[] columns = super.getColumns();
+			int columnCount = (columns == null) ? 0 : columns.length;
+			for (int storedIndex = 0; storedIndex < columnCount; storedIndex++) {
+				ColumnFile.Writer writer = new ColumnFile.Writer(
+						getColumnBase(storedIndex),
+						columns[storedIndex].getDataType(), this.persistedSize);
+				writers.add(writer);
+				for (Row row : this.pendingRows) {
+					writer.add(row.getColumn(storedIndex));
+				}
+				writer.close();
+			}
+
+			this.columnFiles = null;
+			this.persistedSize = this.size;
+			Files.write(infoFile, toJson().toString().getBytes());
+
+			this.pendingRows.clear();
+			this.current = true;
+		} catch (IOException | ResultSetException e) {
+			for (ColumnFile.Writer writer : writers) {
+				try {
+					writer.close();
+				} catch (IOException closeException) {
+					// The original exception is reported below
+				}
+			}
+			throw new PersistableException("Unable to persist the result set",
+					e);
+		}
+	}
+
+	/**
+	 * Writes every column to a new set of files and then replaces the
+	 * persisted columns with them
+	 */
+	private void write() throws PersistableException {
+		if (isProjected()) {
+			throw new PersistableException("ResultSet is projected");
+		}
+
+		List<ColumnFile.Writer> writers = new ArrayList<ColumnFile.Writer>();
+		try {
+			Column[] columns = super.getColumns();
+			int columnCount = (columns == null) ? 0 : columns.length;
+			for (int storedIndex = 0; storedIndex < columnCount; storedIndex++) {
+				ColumnFile.Writer writer = new ColumnFile.Writer(
+						getColumnBase(storedIndex),
+						columns[storedIndex].getDataType());
+				writers.add(writer);
+				for (long row = 0; row < this.size; row++) {
+					writer.add(getValue(row, storedIndex));
+				}
+				writer.close();
+			}
+
+			for (ColumnFile.Writer writer : writers) {
+				writer.commit();
+			}
+
+			this.columnFiles = null;
+			this.persistedSize = this.size;
+			this.formatVersion = VERSION;
+			Files.write(infoFile, toJson().toString().getBytes());
+
+			this.pendingRows.clear();
+			this.updatedRows.clear();
+			this.current = true;
+			this.persisted = true;
+		} catch (IOException | ResultSetException e) {
+			for (ColumnFile.Writer writer : writers) {
+				try {
+					writer.close();
+				} catch (IOException closeException) {
+					// The original exception is reported below
+				}
+			}
+			throw new PersistableException("Unable to persist the result set",
+					e);
+		}
+	}
+
+	@Override
+	public void refresh() throws PersistableException {
+		if (!this.persisted) {
+			throw new PersistableException(this.fileName
+					+ " has not been persisted");
+		}
+		if (this.current) {
+			return;
+		}
+
+		try {
+			JsonObject jsonReader = Json.createReader(
+					new StringReader(new String(Files.readAllBytes(infoFile))))
+					.readObject();
+
+			JsonArray jsonColArray = jsonReader.getJsonArray("columns");
+			for (int i = 0; i < jsonColArray.size(); i++) {
+				JsonObject job = (JsonObject) jsonColArray.get(i);
+				Column newColumn = new Column();
+				newColumn.setDataType(PrimitiveDataType.valueOf(job
+						.getString("dataType")));
+				newColumn.setName(job.getString("name"));
+				this.appendColumn(newColumn);
+			}
+
+			this.size = jsonReader.getJsonNumber("size").longValue();
+			this.formatVersion = jsonReader.getInt("version", 1);
+			this.persistedSize = this.size;
+			this.columnFiles = null;
+			this.pendingRows = new ArrayList<Row>();
+			this.updatedRows = new HashMap<Long, Row>();
+			this.current = true;
+		} catch (IOException | ResultSetException e) {
+			throw new PersistableException("Unable to refresh the result set",
+					e);
+		}
+	}
+
+	@Override
+	public List<File> getFileList() {
+		List<File> files = new ArrayList<File>();
+		files.add(infoFile.toFile());
+		try {
+			for (int storedIndex = 0; storedIndex < super.getColumnSize(); storedIndex++) {
+				for (Path path : ColumnFile.getPaths(getColumnBase(storedIndex))) {
+					if (Files.exists(path)) {
+						files.add(path.toFile());
+					}
+				}
+			}
+		} catch (ResultSetException e) {
+			e.printStackTrace();
+		}
+		return files;
+	}
+
+	@Override
+	public boolean isCurrent() {
+		return this.current;
+	}
+
+	@Override
+	public boolean isPersisted() {
+		return this.persisted;
+	}
+
+	/**
+	 * Returns the number of appended rows held in memory before they are
+	 * written to the column files
+	 *
+	 * @return Maximum pending rows
+	 */
+	public int getMaxPending() {
+		return this.maxPending;
+	}
+
+	/**
+	 * Sets the number of appended rows held in memory before they are written
+	 * to the column files
+	 *
+	 * @param maxPending
+	 *            Maximum pending rows
+	 */
+	public void setMaxPending(int maxPending) {
+		this.maxPending = maxPending;
+	}
+
+	// Data Retrieval and editing
+	// BOOLEAN
+	@Override
+	public boolean getBoolean(int columnIndex) throws ResultSetException {
+		ColumnFile columnFile = getPersistedColumn(columnIndex);
+		if (columnFile != null) {
+			return columnFile.getBoolean(getRow());
+		}
+		return (Boolean) getCell(columnIndex);
+	}
+
+	@Override
+	public boolean getBoolean(String columnLabel) throws ResultSetException {
+		return getBoolean(findColumn(columnLabel));
+	}
+
+	@Override
+	public void updateBoolean(int columnIndex, boolean value)
+			throws ResultSetException {
+		setCell(columnIndex, value);
+	}
+
+	@Override
+	public void updateBoolean(String columnLabel, boolean value)
+			throws ResultSetException {
+		updateBoolean(findColumn(columnLabel), value);
+	}
+
+	// BYTE
+	@Override
+	public byte getByte(int columnIndex) throws ResultSetException {
+		ColumnFile columnFile = getPersistedColumn(columnIndex);
+		if (columnFile != null) {
+			return columnFile.getByte(getRow());
+		}
+		return (Byte) getCell(columnIndex);
+	}
+
+	@Override
+	public byte getByte(String columnLabel) throws ResultSetException {
+		return getByte(findColumn(columnLabel));
+	}
+
+	@Override
+	public void updateByte(int columnIndex, byte value)
+			throws ResultSetException {
+		setCell(columnIndex, value);
+	}
+
+	@Override
+	public void updateByte(String columnLabel, byte value)
+			throws ResultSetException {
+		updateByte(findColumn(columnLabel), value);
+	}
+
+	// DATE
+	@Override
+	public Date getDate(int columnIndex) throws ResultSetException {
+		PrimitiveDataType dt = getTemporalDataType(columnIndex);
+		if (this.formatVersion != 1) {
+			ColumnFile columnFile = getPersistedColumn(columnIndex);
+			if (columnFile != null) {
+				return dt.toDate(columnFile.getLong(getRow()));
+			}
+		}
+		Object value = getCell(columnIndex);
+		if (value == null) {
+			return null;
+		}
+		return dt.toDate(toEpochValue(dt, value));
+	}
+
+	@Override
+	public Date getDate(String columnLabel) throws ResultSetException {
+		return getDate(findColumn(columnLabel));
+	}
+
+	@Override
+	public void updateDate(int columnIndex, Date value)
+			throws ResultSetException {
+		getTemporalDataType(columnIndex);
+		setCell(columnIndex, value);
+	}
+
+	@Override
+	public void updateDate(String columnLabel, Date value)
+			throws ResultSetException {
+		updateDate(findColumn(columnLabel), value);
+	}
+
+	// DOUBLE
+	@Override
+	public double getDouble(int columnIndex) throws ResultSetException {
+		ColumnFile columnFile = getPersistedColumn(columnIndex);
+		if (columnFile != null) {
+			return columnFile.getDouble(getRow());
+		}
+		return (Double) getCell(columnIndex);
+	}
+
+	@Override
+	public double getDouble(String columnLabel) throws ResultSetException {
+		return getDouble(findColumn(columnLabel));
+	}
+
+	@Override
+	public void updateDouble(int columnIndex, double value)
+			throws ResultSetException {
+		setCell(columnIndex, value);
+	}
+
+	@Override
+	public void updateDouble(String columnLabel, double value)
+			throws ResultSetException {
+		updateDouble(findColumn(columnLabel), value);
+	}
+
+	// FLOAT
+	@Override
+	public float getFloat(int columnIndex) throws ResultSetException {
+		ColumnFile columnFile = getPersistedColumn(columnIndex);
+		if (columnFile != null) {
+			return columnFile.getFloat(getRow());
+		}
+		return (Float) getCell(columnIndex);
+	}
+
+	@Override
+	public float getFloat(String columnLabel) throws ResultSetException {
+		return getFloat(findColumn(columnLabel));
+	}
+
+	@Override
+	public void updateFloat(int columnIndex, float value)
+			throws ResultSetException {
+		setCell(columnIndex, value);
+	}
+
+	@Override
+	public void updateFloat(String columnLabel, float value)
+			throws ResultSetException {
+		updateFloat(findColumn(columnLabel), value);
+	}
+
+	// INT
+	@Override
+	public int getInt(int columnIndex) throws ResultSetException {
+		ColumnFile columnFile = getPersistedColumn(columnIndex);
+		if (columnFile != null) {
+			return columnFile.getInt(getRow());
+		}
+		return (Integer) getCell(columnIndex);
+	}
+
+	@Override
+	public int getInt(String columnLabel) throws ResultSetException {
+		return getInt(findColumn(columnLabel));
+	}
+
+	@Override
+	public void updateInt(int columnIndex, int value) throws ResultSetException {
+		setCell(columnIndex, value);
+	}
+
+	@Override
+	public void updateInt(String columnLabel, int value)
+			throws ResultSetException {
+		updateInt(findColumn(columnLabel), value);
+	}
+
+	// LONG
+	@Override
+	public long getLong(int columnIndex) throws ResultSetException {
+		ColumnFile columnFile = getPersistedColumn(columnIndex);
+		if (columnFile != null) {
+			return columnFile.getLong(getRow());
+		}
+		return (Long) getCell(columnIndex);
+	}
+
+	@Override
+	public long getLong(String columnLabel) throws ResultSetException {
+		return getLong(findColumn(columnLabel));
+	}
+
+	@Override
+	public void updateLong(int columnIndex, long value)
+			throws ResultSetException {
+		setCell(columnIndex, value);
+	}
+
+	@Override
+	public void updateLong(String columnLabel, long value)
+			throws ResultSetException {
+		updateLong(findColumn(columnLabel), value);
+	}
+
+	// STRING
+	@Override
+	public String getString(int columnIndex) throws ResultSetException {
+		Object value = getCell(columnIndex);
+		if (value instanceof Long) {
+			PrimitiveDataType dt = getColumn(columnIndex).getDataType();
+			if ((dt != null) && dt.isTemporal()) {
+				return dt.format((Long) value);
+			}
+		}
+		return (String) value;
+	}
+
+	@Override
+	public String getString(String columnLabel) throws ResultSetException {
+		return getString(findColumn(columnLabel));
+	}
+
+	@Override
+	public void updateString(int columnIndex, String value)
+			throws ResultSetException {
+		setCell(columnIndex, value);
+	}
+
+	@Override
+	public void updateString(String columnLabel, String value)
+			throws ResultSetException {
+		updateString(findColumn(columnLabel), value);
+	}
+
+	// OBJECT
+	@Override
+	public Object getObject(int columnIndex) throws ResultSetException {
+		return getCell(columnIndex);
+	}
+
+	@Override
+	public void updateObject(int columnIndex, Object obj)
+			throws ResultSetException {
+		setCell(columnIndex, obj);
+	}
+
+	/**
+	 * Returns a JSONObject representation of the object. This returns only the
+	 * attributes associated with this object and not their representation.
+	 *
+	 * This is equivalent of toJson(1);
+	 *
+	 * @return JSON Representation
+	 */
+	public JsonObject toJson() {
+		return toJson(1);
+	}
+
+	/**
+	 * Returns a JSONObject representation of the object. This returns only the
+	 * attributes associated with this object and not their representation.
+	 *
+	 *
+	 * @param depth
+	 *            Depth to travel
+	 * @return JSON Representation
+	 */
+	public JsonObject toJson(int depth) {
+		depth--;
+		JsonObjectBuilder jsonBuilder = Json.createObjectBuilder();
+		jsonBuilder.add("size", this.size);
+		jsonBuilder.add("layout", LAYOUT);
+		jsonBuilder.add("version", this.formatVersion);
+		JsonArrayBuilder jsonColArray = Json.createArrayBuilder();
+		try {
+			if (super.getColumns() != null) {
+				for (Column column : super.getColumns()) {
+					jsonColArray.add(column.toJson());
+				}
+			}
+		} catch (ResultSetException e) {
+			e.printStackTrace();
+		}
+
+		jsonBuilder.add("columns", jsonColArray);
+		return jsonBuilder.build();
+	}
+}
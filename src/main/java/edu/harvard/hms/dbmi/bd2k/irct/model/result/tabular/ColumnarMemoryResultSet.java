@@ -0,0 +1,460 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular;
+
+import java.time.DateTimeException;
+import java.util.Date;
+
+import edu.harvard.hms.dbmi.bd2k.irct.model.resource.PrimitiveDataType;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.exception.ResultSetException;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.exception.RowSetExeception;
+
+/**
+ * The columnar memory ResultSet stores a result set in JVM memory with one
+ * primitive array per column, chosen from the data type of the column, and a
+ * bitmap of the null cells. Unlike the Memory Result Set, reading or updating
+ * a numeric or boolean cell does not box the value, which makes it suited to
+ * joins and aggregations over numeric columns.
+ */
+public class ColumnarMemoryResultSet extends ResultSetImpl {
+	private static final int INITIAL_CAPACITY = 16;
+
+	private ColumnVector[] vectors = new ColumnVector[0];
+	private int capacity;
+	private long size;
+	private ColumnBatch batch;
+
+	/**
+	 * Creates an empty columnar memory result set
+	 */
+	public ColumnarMemoryResultSet() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty columnar memory result set with room for the expected
+	 * number of rows
+	 *
+	 * @param expectedRows
+	 *            Expected number of rows
+	 */
+	public ColumnarMemoryResultSet(int expectedRows) {
+		this.capacity = (int) Math.max(1,
+				Math.min(expectedRows, MemoryResultSet.MAX_ROWS));
+	}
+
+	@Override
+	public void appendColumn(Column column) throws ResultSetException {
+		int columnSize = this.vectors.length;
+		super.appendColumn(column);
+		if (getColumnSize() > columnSize) {
+			ColumnVector[] newVectors = new ColumnVector[columnSize + 1];
+			System.arraycopy(this.vectors, 0, newVectors, 0, columnSize);
+			newVectors[columnSize] = ColumnVector.create(column.getDataType(),
+					this.capacity);
+			this.vectors = newVectors;
+		}
+	}
+
+	/**
+	 * Adds a new row to the columnar memory result set. The cells of the new
+	 * row are null.
+	 *
+	 * @throws ResultSetException
+	 *             If a ResultSetException occurs
+	 */
+	@Override
+	public void appendRow() throws ResultSetException {
+		if (isClosed()) {
+			throw new ResultSetException("ResultSet is closed");
+		}
+		ensureCapacity(this.size + 1);
+		this.size++;
+		next();
+	}
+
+	/**
+	 * Adds a number of empty rows to the columnar memory result set and moves
+	 * the cursor to the first of them
+	 *
+	 * @param rows
+	 *            Number of rows to add
+	 * @throws ResultSetException
+	 *             If a ResultSetException occurs
+	 */
+	public void appendRows(int rows) throws ResultSetException {
+		if (isClosed()) {
+			throw new ResultSetException("ResultSet is closed");
+		}
+		if (rows <= 0) {
+			return;
+		}
+		long firstRow = this.size;
+		ensureCapacity(this.size + rows);
+		this.size += rows;
+		absolute(firstRow);
+	}
+
+	/**
+	 * Makes sure the result set can hold the given number of rows without
+	 * growing its column vectors again
+	 *
+	 * @param rows
+	 *            Number of rows
+	 * @throws ResultSetException
+	 *             If the number of rows is too large to hold in memory
+	 */
+	public void ensureCapacity(long rows) throws ResultSetException {
+		if (rows <= this.capacity) {
+			return;
+		}
+		if (rows > MemoryResultSet.MAX_ROWS) {
+			throw new ResultSetException("Too many rows for a memory result set");
+		}
+		long current = this.capacity;
+		long newCapacity = Math.min(MemoryResultSet.MAX_ROWS, Math.max(rows,
+				current + (current >> 1) + 1));
+		for (ColumnVector vector : this.vectors) {
+			vector.resize((int) newCapacity);
+		}
+		this.capacity = (int) newCapacity;
+	}
+
+	@Override
+	public long getSize() throws ResultSetException {
+		if (isClosed()) {
+			throw new ResultSetException("ResultSet is closed");
+		}
+		return size;
+	}
+
+	@Override
+	public boolean last() throws ResultSetException {
+		return absolute(getSize() - 1);
+	}
+
+	@Override
+	public void afterLast() throws ResultSetException {
+		if (isClosed()) {
+			throw new ResultSetException("ResultSet is closed");
+		}
+		this.setRowPosition(size);
+	}
+
+	@Override
+	public boolean isLast() throws ResultSetException {
+		return getRow() == getSize() - 1;
+	}
+
+	/**
+	 * Returns the vector of the given column
+	 *
+	 * @param columnIndex
+	 *            Column Index
+	 * @return Column Vector
+	 * @throws ResultSetException
+	 *             If the result set is closed or the column does not exist
+	 */
+	private ColumnVector getVector(int columnIndex) throws ResultSetException {
+		if (isClosed()) {
+			throw new ResultSetException("ResultSet is closed");
+		}
+		if ((columnIndex < 0) || (columnIndex >= vectors.length)) {
+			throw new ResultSetException("Column not found");
+		}
+		return vectors[columnIndex];
+	}
+
+	/**
+	 * Returns the current row as an index into the column vectors
+	 *
+	 * @return Row
+	 * @throws ResultSetException
+	 *             If the cursor is not on a row
+	 */
+	private int getVectorRow() throws ResultSetException {
+		long row = getRowPosition();
+		if ((row < 0) || (row >= size)) {
+			throw new RowSetExeception("Row is not in ResultSet");
+		}
+		return (int) row;
+	}
+
+	/**
+	 * Returns true if the cell of the given column at the current position is
+	 * null
+	 *
+	 * @param columnIndex
+	 *            Column Index
+	 * @return Is null
+	 * @throws ResultSetException
+	 *             If a ResultSetException occurs
+	 */
+	public boolean isNull(int columnIndex) throws ResultSetException {
+		return getVector(columnIndex).isNull(getVectorRow());
+	}
+
+	/**
+	 * Sets the cell of the given column at the current position to null
+	 *
+	 * @param columnIndex
+	 *            Column Index
+	 * @throws ResultSetException
+	 *             If a ResultSetException occurs
+	 */
+	public void updateNull(int columnIndex) throws ResultSetException {
+		getVector(columnIndex).setNull(getVectorRow());
+	}
+
+	// Data Retrieval and editing
+	// BOOLEAN
+	@Override
+	public boolean getBoolean(int columnIndex) throws ResultSetException {
+		return getVector(columnIndex).getBoolean(getVectorRow());
+	}
+
+	@Override
+	public boolean getBoolean(String columnLabel) throws ResultSetException {
+		return getBoolean(findColumn(columnLabel));
+	}
+
+	@Override
+	public void updateBoolean(int columnIndex, boolean value)
+			throws ResultSetException {
+		ColumnVector vector = getVector(columnIndex);
+		if (vector.dataType == PrimitiveDataType.BOOLEAN) {
+			vector.setInt(getVectorRow(), value ? 1 : 0);
+		} else {
+			vector.setObject(getVectorRow(), value);
+		}
+	}
+
+	@Override
+	public void updateBoolean(String columnLabel, boolean value)
+			throws ResultSetException {
+		updateBoolean(findColumn(columnLabel), value);
+	}
+
+	// BYTE
+	@Override
+	public byte getByte(int columnIndex) throws ResultSetException {
+		return (byte) getVector(columnIndex).getInt(getVectorRow());
+	}
+
+	@Override
+	public byte getByte(String columnLabel) throws ResultSetException {
+		return getByte(findColumn(columnLabel));
+	}
+
+	@Override
+	public void updateByte(int columnIndex, byte value)
+			throws ResultSetException {
+		getVector(columnIndex).setInt(getVectorRow(), value);
+	}
+
+	@Override
+	public void updateByte(String columnLabel, byte value)
+			throws ResultSetException {
+		updateByte(findColumn(columnLabel), value);
+	}
+
+	// DATE
+	@Override
+	public Date getDate(int columnIndex) throws ResultSetException {
+		getTemporalDataType(columnIndex);
+		return getVector(columnIndex).getDate(getVectorRow());
+	}
+
+	@Override
+	public Date getDate(String columnLabel) throws ResultSetException {
+		return getDate(findColumn(columnLabel));
+	}
+
+	@Override
+	public void updateDate(int columnIndex, Date value)
+			throws ResultSetException {
+		if (value == null) {
+			updateNull(columnIndex);
+			return;
+		}
+		getVector(columnIndex).setLong(getVectorRow(),
+				getTemporalDataType(columnIndex).toEpochValue(value));
+	}
+
+	@Override
+	public void updateDate(String columnLabel, Date value)
+			throws ResultSetException {
+		updateDate(findColumn(columnLabel), value);
+	}
+
+	// DOUBLE
+	@Override
+	public double getDouble(int columnIndex) throws ResultSetException {
+		return getVector(columnIndex).getDouble(getVectorRow());
+	}
+
+	@Override
+	public double getDouble(String columnLabel) throws ResultSetException {
+		return getDouble(findColumn(columnLabel));
+	}
+
+	@Override
+	public void updateDouble(int columnIndex, double value)
+			throws ResultSetException {
+		getVector(columnIndex).setDouble(getVectorRow(), value);
+	}
+
+	@Override
+	public void updateDouble(String columnLabel, double value)
+			throws ResultSetException {
+		updateDouble(findColumn(columnLabel), value);
+	}
+
+	// FLOAT
+	@Override
+	public float getFloat(int columnIndex) throws ResultSetException {
+		return (float) getVector(columnIndex).getDouble(getVectorRow());
+	}
+
+	@Override
+	public float getFloat(String columnLabel) throws ResultSetException {
+		return getFloat(findColumn(columnLabel));
+	}
+
+	@Override
+	public void updateFloat(int columnIndex, float value)
+			throws ResultSetException {
+		getVector(columnIndex).setDouble(getVectorRow(), value);
+	}
+
+	@Override
+	public void updateFloat(String columnLabel, float value)
+			throws ResultSetException {
+		updateFloat(findColumn(columnLabel), value);
+	}
+
+	// INT
+	@Override
+	public int getInt(int columnIndex) throws ResultSetException {
+		return getVector(columnIndex).getInt(getVectorRow());
+	}
+
+	@Override
+	public int getInt(String columnLabel) throws ResultSetException {
+		return getInt(findColumn(columnLabel));
+	}
+
+	@Override
+	public void updateInt(int columnIndex, int value) throws ResultSetException {
+		getVector(columnIndex).setInt(getVectorRow(), value);
+	}
+
+	@Override
+	public void updateInt(String columnLabel, int value)
+			throws ResultSetException {
+		updateInt(findColumn(columnLabel), value);
+	}
+
+	// LONG
+	@Override
+	public long getLong(int columnIndex) throws ResultSetException {
+		return getVector(columnIndex).getLong(getVectorRow());
+	}
+
+	@Override
+	public long getLong(String columnLabel) throws ResultSetException {
+		return getLong(findColumn(columnLabel));
+	}
+
+	@Override
+	public void updateLong(int columnIndex, long value)
+			throws ResultSetException {
+		getVector(columnIndex).setLong(getVectorRow(), value);
+	}
+
+	@Override
+	public void updateLong(String columnLabel, long value)
+			throws ResultSetException {
+		updateLong(findColumn(columnLabel), value);
+	}
+
+	// STRING
+	@Override
+	public String getString(int columnIndex) throws ResultSetException {
+		return getVector(columnIndex).getString(getVectorRow());
+	}
+
+	@Override
+	public String getString(String columnLabel) throws ResultSetException {
+		return getString(findColumn(columnLabel));
+	}
+
+	@Override
+	public void updateString(int columnIndex, String value)
+			throws ResultSetException {
+		updateObject(columnIndex, value);
+	}
+
+	@Override
+	public void updateString(String columnLabel, String value)
+			throws ResultSetException {
+		updateString(findColumn(columnLabel), value);
+	}
+
+	// OBJECT
+	@Override
+	public Object getObject(int columnIndex) throws ResultSetException {
+		return getVector(columnIndex).getObject(getVectorRow());
+	}
+
+	@Override
+	public void updateObject(int columnIndex, Object obj)
+			throws ResultSetException {
+		try {
+			getVector(columnIndex).setObject(getVectorRow(), obj);
+		} catch (ClassCastException | IllegalArgumentException
+				| DateTimeException e) {
+			throw new ResultSetException("Value does not match the column type");
+		}
+	}
+
+	@Override
+	RowRangeSpliterator.BatchReader createBatchReader() {
+		return (batch, firstRow, rows) -> {
+			for (int columnIndex = 0; columnIndex < vectors.length; columnIndex++) {
+				vectors[columnIndex].copyTo((int) firstRow,
+						batch.getVector(columnIndex), 0, rows);
+			}
+		};
+	}
+
+	@Override
+	public ColumnBatch nextBatch(int maxRows) throws ResultSetException {
+		long firstRow = getBatchStart(maxRows);
+		int rows = getBatchSize(firstRow, maxRows);
+		if ((this.batch == null) || !this.batch.hasColumns(getColumns())) {
+			this.batch = new ColumnBatch(getColumns(), rows);
+		}
+		this.batch.reset(firstRow, rows);
+		for (int columnIndex = 0; columnIndex < vectors.length; columnIndex++) {
+			vectors[columnIndex].copyTo((int) firstRow,
+					this.batch.getVector(columnIndex), 0, rows);
+		}
+		if (rows > 0) {
+			setRowPosition(firstRow + rows - 1);
+		}
+		return this.batch;
+	}
+
+	@Override
+	public Row getCurrentRow() throws ResultSetException {
+		int row = getVectorRow();
+		Row currentRow = new Row(vectors.length);
+		for (int columnIndex = 0; columnIndex < vectors.length; columnIndex++) {
+			currentRow.setColumn(columnIndex,
+					vectors[columnIndex].getObject(row));
+		}
+		return currentRow;
+	}
+}
@@ -14,15 +14,12 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
 
 import javax.json.Json;
 import javax.json.JsonArray;
@@ -44,7 +41,30 @@ import edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular.Row;
  *
  */
 public class FileResultSet extends ResultSetImpl implements Persistable {
+	/**
+	 * Data files of at least this many bytes are memory mapped for reading.
+	 * The default can be changed with the irct.resultSet.mapThreshold system
+	 * property.
+	 */
+	public static final long DEFAULT_MAP_THRESHOLD = Long.getLong(
+			"irct.resultSet.mapThreshold", 64L * 1024 * 1024);
+	/**
+	 * Codec used to compress the data file of new result sets, either none
+	 * or deflate. The default can be changed with the irct.resultSet.codec
+	 * system property.
+	 */
+	public static final String DEFAULT_CODEC = System.getProperty(
+			"irct.resultSet.codec", BlockCompressedDataFile.CODEC_NONE);
+	/**
+	 * Number of appended rows held in memory before they are written to the
+	 * data file. The default can be changed with the
+	 * irct.resultSet.maxPending system property.
+	 */
+	public static final int DEFAULT_MAX_PENDING = Integer.getInteger(
+			"irct.resultSet.maxPending", 10000);
+
 	private long size;
+	private long persistedSize;
 	private int maxReadSize = 4096;
 	private char DELIMITER = '\t';
 	private char QUOTE = '"';
@@ -52,19 +72,59 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 	private String fileName;
 	private Path infoFile;
 	private Path dataFile;
+	private Path indexFile;
+	private Path dictionaryFile;
+	private Path blockIndexFile;
 	private FileChannel dataReadFC;
+	private RowOffsetIndex rowIndex;
+	private MappedDataFile mappedData;
+	private boolean mappingChecked;
+	private long mapThreshold = DEFAULT_MAP_THRESHOLD;
+	private String codec = DEFAULT_CODEC;
+	private String dataCodec = BlockCompressedDataFile.CODEC_NONE;
+	private int blockRows = BlockCompressedDataFile.DEFAULT_BLOCK_ROWS;
+	private BlockCompressedDataFile compressedData;
 
 	private ByteBuffer read;
+	private ByteBuffer lineBuffer;
+	private ByteBuffer rowBuffer;
+	private int formatVersion = BinaryRowFormat.VERSION;
+	private BinaryRowFormat rowFormat;
+	private StringDictionary dictionary;
 	// private long rowPosition = -1;
 	private Row currentRow;
 
 	private boolean persisted = false;
 
-	private Map<Long, Row> pendingData;
-	private int MAXPENDING = 100000;
+	private PendingRowBuffer appendedRows;
+	private Map<Long, Row> updatedRows;
+	private Row writeRow;
+	private int maxPending = DEFAULT_MAX_PENDING;
+
+	// Persisted rows are read into a batch, which grows while the rows are
+	// read in order so that a scan decodes many rows per read
+	private static final int MAX_READ_AHEAD = 1024;
+	private ColumnBatch readBatch;
+	private int readAhead = 1;
+	private ColumnBatch scanBatch;
+	private RowRangeReader cursorReader;
 
 	public FileResultSet() {
-		this.pendingData = new HashMap<Long, Row>();
+		this.updatedRows = new HashMap<Long, Row>();
+	}
+
+	@Override
+	public void appendColumn(Column column) throws ResultSetException {
+		super.appendColumn(column);
+		if (this.dictionary != null) {
+			this.dictionary.appendColumn(column);
+		}
+		if (this.appendedRows != null) {
+			this.appendedRows.appendColumn(column);
+		}
+		this.rowFormat = null;
+		this.writeRow = null;
+		this.readBatch = null;
 	}
 
 	@Override
@@ -80,6 +140,7 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
+		resetReaders();
 		this.closed = true;
 	}
 
@@ -89,13 +150,18 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 
 		// Setup the initial variables
 		this.fileName = fileName;
-		this.pendingData = new HashMap<Long, Row>();
+		this.appendedRows = null;
+		this.updatedRows = new HashMap<Long, Row>();
 
 		// Initialize the buffer to read
 		read = ByteBuffer.allocate(maxReadSize);
 		// Set up the paths
 		infoFile = Paths.get(fileName + ".info");
 		dataFile = Paths.get(fileName + ".data");
+		indexFile = Paths.get(fileName + ".idx");
+		dictionaryFile = Paths.get(fileName + ".dict");
+		blockIndexFile = Paths.get(fileName + ".blk");
+		resetReaders();
 		// Check to see if the file exists
 		try {
 			if (Files.isReadable(infoFile) && Files.isReadable(dataFile)) {
@@ -108,6 +174,7 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 				// If both files do not exist then create the file
 				this.persisted = false;
 				this.current = true;
+				this.formatVersion = BinaryRowFormat.VERSION;
 				Files.createFile(dataFile);
 				dataReadFC = FileChannel
 						.open(dataFile, StandardOpenOption.READ);
@@ -141,20 +208,96 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 		if (isClosed()) {
 			throw new ResultSetException("ResultSet is closed");
 		}
-		if (this.pendingData.size() == MAXPENDING) {
-			throw new PersistableException("Maximum Pending Size Reached");
+		if (this.size - this.persistedSize >= getFlushSize()) {
+			if (!this.persisted) {
+				// A result set that has been loaded is persisted to its files
+				// the first time its buffer fills, and its rows are written to
+				// the data file from then on
+				if (this.dataFile == null) {
+					throw new PersistableException(
+							"Maximum Pending Size Reached");
+				}
+				persist();
+			} else {
+				// Write the appended rows to the data file so that only a
+				// bounded number of rows is held in memory
+				flushPending();
+			}
 		}
 
-		Row newRow = new Row(this.getColumnSize());
-		this.currentRow = newRow;
-
-		pendingData.put(getSize(), newRow);
+		getAppendedRows().appendRow();
+		this.currentRow = null;
 
 		this.setRowPosition(this.getSize());
 		this.setSize(this.getSize() + 1);
 
 	}
 
+	/**
+	 * Returns the buffer of the rows appended since the result set was last
+	 * persisted
+	 * 
+	 * @return Appended rows
+	 * @throws ResultSetException
+	 *             If a ResultSetException occurs
+	 */
+	private PendingRowBuffer getAppendedRows() throws ResultSetException {
+		if (this.appendedRows == null) {
+			this.appendedRows = new PendingRowBuffer(getColumns());
+		}
+		return this.appendedRows;
+	}
+
+	/**
+	 * Returns the position in the appended row buffer of a row that has not
+	 * been written to the data file, or -1 if the row has been written
+	 * 
+	 * @param row
+	 *            Row
+	 * @return Position in the appended row buffer
+	 */
+	private int getAppendedIndex(long row) {
+		if (row < this.persistedSize) {
+			return -1;
+		}
+		return (int) (row - this.persistedSize);
+	}
+
+	/**
+	 * Returns the position in the appended row buffer of the current row if
+	 * it is an appended row and the column exists, otherwise -1. Numeric
+	 * values of appended rows are set without boxing them.
+	 * 
+	 * @param columnIndex
+	 *            Column Index
+	 * @return Position in the appended row buffer
+	 * @throws ResultSetException
+	 *             If a ResultSetException occurs
+	 */
+	private int getAppendedRowForUpdate(int columnIndex)
+			throws ResultSetException {
+		if ((columnIndex < 0) || (columnIndex >= getColumnSize())) {
+			return -1;
+		}
+		return getAppendedIndex(getRowPosition());
+	}
+
+	/**
+	 * Returns an appended row copied into a Row that is reused for each call
+	 * 
+	 * @param appendedIndex
+	 *            Position in the appended row buffer
+	 * @return Row
+	 * @throws ResultSetException
+	 *             If a ResultSetException occurs
+	 */
+	private Row getAppendedRow(int appendedIndex) throws ResultSetException {
+		if (this.writeRow == null) {
+			this.writeRow = new Row(getColumnSize());
+		}
+		return getAppendedRows().copyTo(appendedIndex, this.writeRow);
+	}
+
 	/**
 	 * Sets the number of rows in the result set
 	 * 
@@ -178,40 +321,365 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 		if (isClosed()) {
 			throw new ResultSetException("ResultSet is closed");
 		}
-		if ((newRow != 0) && ((newRow > getSize() - 1) || (newRow < 0))) {
+		if ((newRow > getSize() - 1) || (newRow < 0)) {
 			throw new RowSetExeception("Row is not in ResultSet");
 		}
-		// Is the row already loaded into pending?
-		if (this.pendingData.containsKey(newRow)) {
+		// Is the row an appended row that has not been written yet?
+		if (getAppendedIndex(newRow) != -1) {
 			this.setRowPosition(newRow);
-			currentRow = this.pendingData.get(newRow);
+			currentRow = null;
+			return true;
+		}
+		// Has the row been updated since it was persisted?
+		if (this.updatedRows.containsKey(newRow)) {
+			this.setRowPosition(newRow);
+			currentRow = this.updatedRows.get(newRow);
+			return true;
+		}
+		this.setRowPosition(newRow);
+		currentRow = null;
+		if ((readBatch != null) && readBatch.contains(newRow)) {
 			return true;
 		}
-		// If the row is not in memory
-		// Set the file cursor position
+		// Read more rows at once while the rows are read in order
+		if ((readBatch != null)
+				&& (newRow == readBatch.getFirstRow() + readBatch.getSize())) {
+			readAhead = Math.min(readAhead * 2, MAX_READ_AHEAD);
+		} else {
+			readAhead = 1;
+		}
+		readRows(newRow, (int) Math.min(readAhead, this.persistedSize - newRow));
+		return true;
+	}
+
+	/**
+	 * Reads persisted rows into the batch that the cell getters read from
+	 * 
+	 * @param firstRow
+	 *            First row
+	 * @param rows
+	 *            Number of rows
+	 * @throws ResultSetException
+	 *             An error occurred reading the data file
+	 */
+	private void readRows(long firstRow, int rows) throws ResultSetException {
+		if ((readBatch == null) || !readBatch.hasColumns(getColumns())) {
+			readBatch = new ColumnBatch(getColumns(), rows);
+		}
+		readBatch.reset(firstRow, rows);
 		try {
-			if (newRow == 0) {
-				dataReadFC.position(0);
-			} else {
-				if (newRow == getRowPosition()) {
-					return true;
-				} else if (newRow > getRowPosition()) {
-					moveForward(newRow - getRowPosition());
+			loadPersistedRows(readBatch, 0, firstRow, rows);
+		} catch (IOException e) {
+			readBatch = null;
+			throw new ResultSetException("Unable to read the result set", e);
+		}
+	}
+
+	/**
+	 * Returns the position in the read batch of the current row, reading the
+	 * row if it is not in the batch. The current row must be a persisted row.
+	 * 
+	 * @return Row in the read batch
+	 * @throws ResultSetException
+	 *             If the cursor is not on a row
+	 */
+	private int getReadBatchRow() throws ResultSetException {
+		long row = getRowPosition();
+		if ((readBatch == null) || !readBatch.contains(row)) {
+			if ((row < 0) || (row >= this.persistedSize)) {
+				throw new RowSetExeception("Row is not in ResultSet");
+			}
+			readRows(row, 1);
+		}
+		return (int) (row - readBatch.getFirstRow());
+	}
+
+	/**
+	 * Returns true if the given column of the current row is read from the
+	 * read batch, which is the case for persisted rows that have not been
+	 * updated
+	 * 
+	 * @param columnIndex
+	 *            Column Index
+	 * @return Is read from the batch
+	 * @throws ResultSetException
+	 *             If a ResultSetException occurs
+	 */
+	private boolean isReadBatchCell(int columnIndex) throws ResultSetException {
+		return (this.currentRow == null) && (columnIndex >= 0)
+				&& (columnIndex < getColumnSize())
+				&& (getAppendedIndex(getRowPosition()) == -1);
+	}
+
+	/**
+	 * Decodes persisted rows into a batch through the readers of the cursor.
+	 * Rows of an uncompressed data file that is not memory mapped are read
+	 * with a single read.
+	 * 
+	 * @param batch
+	 *            Batch
+	 * @param batchRow
+	 *            First row of the batch to fill
+	 * @param firstRow
+	 *            First row to read
+	 * @param rows
+	 *            Number of rows
+	 * @throws IOException
+	 *             An error occurred reading the data file
+	 * @throws ResultSetException
+	 *             If a ResultSetException occurs
+	 */
+	private void loadPersistedRows(ColumnBatch batch, int batchRow,
+			long firstRow, int rows) throws IOException, ResultSetException {
+		RowOffsetIndex index = getRowIndex();
+		if (this.formatVersion == 1) {
+			for (int row = 0; row < rows; row++) {
+				dataReadFC.position(index.getOffset(firstRow + row));
+				batch.setRow(batchRow + row, loadCurrentLine());
+			}
+			return;
+		}
+
+		BinaryRowFormat format = getRowFormat();
+		MappedDataFile mapped = isCompressed() ? null : getMappedData();
+		if (mapped != null) {
+			for (int row = 0; row < rows; row++) {
+				ByteBuffer segment = mapped.findRow(index.getOffset(firstRow
+						+ row));
+				if (segment != null) {
+					format.decode(segment, batch, batchRow + row);
 				} else {
-					moveBackward(getRowPosition() - newRow);
+					getCursorReader().read(index, format, batch,
+							batchRow + row, firstRow + row, 1);
 				}
-				this.setRowPosition(newRow);
 			}
-			this.setRowPosition(newRow);
+			return;
+		}
 
-			// Read the line and load it as the currentRow
-			this.currentRow = loadCurrentLine();
+		getCursorReader().read(index, format, batch, batchRow, firstRow, rows);
+	}
 
-			return true;
-		} catch (IOException | PersistableException e) {
+	private RowRangeReader getCursorReader() throws IOException {
+		if (cursorReader == null) {
+			cursorReader = new RowRangeReader(isCompressed() ? getCompressedData()
+					: null);
+		}
+		return cursorReader;
+	}
+
+	/**
+	 * Reads ranges of rows of a binary data file into batches. The data file
+	 * is only read with positional reads and each reader has its own
+	 * buffers, so several readers can read the same result set at once.
+	 */
+	private class RowRangeReader {
+		private BlockCompressedDataFile blocks;
+		private ByteBuffer buffer;
+
+		/**
+		 * Creates a reader
+		 * 
+		 * @param blocks
+		 *            Reader of the compressed blocks, or null if the data
+		 *            file is not compressed
+		 */
+		RowRangeReader(BlockCompressedDataFile blocks) {
+			this.blocks = blocks;
+		}
+
+		/**
+		 * Decodes persisted rows into a batch. Rows of an uncompressed data
+		 * file are read with a single read.
+		 */
+		void read(RowOffsetIndex index, BinaryRowFormat format,
+				ColumnBatch batch, int batchRow, long firstRow, int rows)
+				throws IOException {
+			if (blocks != null) {
+				for (int row = 0; row < rows; row++) {
+					format.decode(blocks.findRow(firstRow + row, index), batch,
+							batchRow + row);
+				}
+				return;
+			}
+
+			long start = index.getOffset(firstRow);
+			long end = (firstRow + rows < persistedSize) ? index
+					.getOffset(firstRow + rows) : dataReadFC.size();
+			int length = (int) (end - start);
+
+			if ((buffer == null) || (buffer.capacity() < length)) {
+				buffer = ByteBuffer.allocate(Math.max(maxReadSize, length));
+			}
+			buffer.clear();
+			buffer.limit(length);
+			readFully(buffer, start);
+
+			for (int row = 0; row < rows; row++) {
+				buffer.position((int) (index.getOffset(firstRow + row) - start)
+						+ BinaryRowFormat.HEADER_SIZE);
+				format.decode(buffer, batch, batchRow + row);
+			}
+		}
+
+		/**
+		 * Releases the block decompressor of a reader created for a
+		 * spliterator
+		 */
+		void close() {
+			if ((blocks != null) && (blocks != compressedData)) {
+				blocks.close();
+			}
+		}
+	}
+
+	/**
+	 * Fills a batch with persisted rows, followed by the appended rows, and
+	 * replaces the rows updated since they were persisted
+	 * 
+	 * @param batch
+	 *            Batch that has been reset to hold the rows
+	 * @param firstRow
+	 *            First row
+	 * @param rows
+	 *            Number of rows
+	 * @param reader
+	 *            Reader of the persisted rows, or null to read them through
+	 *            the readers of the cursor
+	 * @throws ResultSetException
+	 *             An error occurred reading the data file
+	 */
+	private void fillBatch(ColumnBatch batch, long firstRow, int rows,
+			RowRangeReader reader) throws ResultSetException {
+		int persistedRows = (int) Math.max(0,
+				Math.min(rows, this.persistedSize - firstRow));
+		try {
+			for (int row = 0; row < persistedRows; row += MAX_READ_AHEAD) {
+				int count = Math.min(MAX_READ_AHEAD, persistedRows - row);
+				if ((reader != null) && (this.formatVersion != 1)) {
+					reader.read(getRowIndex(), getRowFormat(), batch, row,
+							firstRow + row, count);
+				} else {
+					// Delimited rows are read by moving the channel position
+					synchronized (this) {
+						loadPersistedRows(batch, row, firstRow + row, count);
+					}
+				}
+			}
+		} catch (IOException e) {
 			throw new ResultSetException("Unable to read the result set", e);
 		}
+		for (int row = persistedRows; row < rows; row++) {
+			this.appendedRows.copyTo(getAppendedIndex(firstRow + row), batch,
+					row);
+		}
+		for (Map.Entry<Long, Row> updated : this.updatedRows.entrySet()) {
+			if (batch.contains(updated.getKey())) {
+				batch.setRow((int) (updated.getKey() - firstRow),
+						updated.getValue());
+			}
+		}
 	}
+
+	/**
+	 * Loads the readers shared by all parts of the spliterator so that they
+	 * are not created by several threads at once. Each part starts reading at
+	 * the offset of its first row in the row index, so a window of rows is
+	 * read without reading the rows before it.
+	 */
+	@Override
+	public Spliterator<Row> spliterator(long firstRow, long rows)
+			throws ResultSetException {
+		if (isClosed()) {
+			throw new ResultSetException("ResultSet is closed");
+		}
+		if (this.persistedSize > 0) {
+			try {
+				getRowIndex();
+				getRowFormat();
+				if (isCompressed()) {
+					getCompressedData();
+				}
+			} catch (IOException e) {
+				throw new ResultSetException("Unable to read the result set", e);
+			}
+		}
+		return super.spliterator(firstRow, rows);
+	}
+
+	/**
+	 * Creates a reader for one part of a spliterator. Each reader reads the
+	 * rows of its part with positional reads of the data file, starting at
+	 * the offset of the first row of its part.
+	 */
+	@Override
+	RowRangeSpliterator.BatchReader createBatchReader() {
+		final BlockCompressedDataFile blocks = (compressedData != null) ? compressedData
+				.newReader() : null;
+		final RowRangeReader reader = new RowRangeReader(blocks);
+		return new RowRangeSpliterator.BatchReader() {
+			@Override
+			public void read(ColumnBatch batch, long firstRow, int rows)
+					throws ResultSetException {
+				fillBatch(batch, firstRow, rows, reader);
+			}
+
+			@Override
+			public void close() {
+				reader.close();
+			}
+		};
+	}
+
+	/**
+	 * Reads the rows natively into a batch: persisted rows are decoded
+	 * straight into the column vectors, followed by the appended rows, and
+	 * rows updated since they were persisted replace the decoded ones.
+	 */
+	@Override
+	public ColumnBatch nextBatch(int maxRows) throws ResultSetException {
+		long firstRow = getBatchStart(maxRows);
+		int rows = getBatchSize(firstRow, maxRows);
+		if ((scanBatch == null) || !scanBatch.hasColumns(getColumns())) {
+			scanBatch = new ColumnBatch(getColumns(), rows);
+		}
+		scanBatch.reset(firstRow, rows);
+		fillBatch(scanBatch, firstRow, rows, null);
+
+		if (rows > 0) {
+			long lastRow = firstRow + rows - 1;
+			this.setRowPosition(lastRow);
+			this.currentRow = (lastRow < this.persistedSize) ? this.updatedRows
+					.get(lastRow) : null;
+		}
+		return scanBatch;
+	}
+
+	/**
+	 * Returns the row offset index of the persisted data file. The index is
+	 * loaded the first time it is needed, and built from the data file if
+	 * the result set was persisted without one.
+	 * 
+	 * @return Row Offset Index
+	 * @throws IOException
+	 *             An error occurred reading the index or data file
+	 */
+	private RowOffsetIndex getRowIndex() throws IOException {
+		if (rowIndex == null) {
+			rowIndex = RowOffsetIndex.load(indexFile, this.persistedSize);
+			if ((rowIndex == null) && (this.formatVersion == 1)) {
+				rowIndex = RowOffsetIndex.build(dataFile, indexFile,
+						this.persistedSize);
+			} else if ((rowIndex == null) && isCompressed()) {
+				rowIndex = RowOffsetIndex.buildFromBlocks(getCompressedData(),
+						getBlockCount(), indexFile, this.persistedSize);
+			} else if (rowIndex == null) {
+				rowIndex = RowOffsetIndex.buildLengthPrefixed(dataFile,
+						indexFile, this.persistedSize);
+			}
+		}
+		return rowIndex;
+	}
+
 	@Override
 	public void afterLast() throws ResultSetException {
 		if (isClosed()) {
@@ -282,91 +750,169 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 		return getRowPosition();
 	}
 
-	private void moveForward(long rowMovement) throws IOException,
-			PersistableException {
-		long originalPosition = dataReadFC.position();
-		long currentCount = 0;
+	/**
+	 * Returns the binary row format for the current columns
+	 * 
+	 * @return Row format
+	 * @throws ResultSetException
+	 *             If a ResultSetException occurs
+	 */
+	private BinaryRowFormat getRowFormat() throws ResultSetException {
+		if (this.rowFormat == null) {
+			this.rowFormat = new BinaryRowFormat(getColumns(), this.dictionary,
+					this.formatVersion);
+		}
+		return this.rowFormat;
+	}
 
-		while (currentCount < rowMovement) {
-			read.clear();
-			int nRead = dataReadFC.read(read);
+	/**
+	 * Reads a length prefixed binary row that starts at the given offset of
+	 * the uncompressed data
+	 * 
+	 * @param row
+	 *            Row
+	 * @param offset
+	 *            Offset of the row
+	 * @return Row
+	 * @throws IOException
+	 *             An error occurred reading the data file
+	 * @throws ResultSetException
+	 *             If a ResultSetException occurs
+	 */
+	private Row loadBinaryRow(long row, long offset) throws IOException,
+			ResultSetException {
+		if (isCompressed()) {
+			return getRowFormat().decode(
+					getCompressedData().findRow(row, getRowIndex()));
+		}
 
-			if (nRead == -1) {
-				read.clear();
-				throw new PersistableException("Unable to find row");
+		MappedDataFile mapped = getMappedData();
+		if (mapped != null) {
+			ByteBuffer segment = mapped.findRow(offset);
+			if (segment != null) {
+				return getRowFormat().decode(segment);
 			}
-			byte[] byteArray = read.array();
-			for (int position = 0; position < nRead; position++) {
-				char charRead = (char) byteArray[position];
+		}
 
-				if ((charRead == '\r') || (charRead == '\n')) {
-					currentCount++;
-					if (currentCount == rowMovement) {
-						dataReadFC.position(originalPosition + position + 1);
-						break;
-					}
-				}
-			}
-			originalPosition += this.maxReadSize;
+		if (rowBuffer == null) {
+			rowBuffer = ByteBuffer.allocate(maxReadSize);
 		}
-	}
+		rowBuffer.clear();
+		rowBuffer.limit(BinaryRowFormat.HEADER_SIZE);
+		readFully(rowBuffer, offset);
+		int rowLength = rowBuffer.getInt(0);
 
-	private void moveBackward(long rowMovement) throws IOException,
-			PersistableException {
-		long originalPosition = dataReadFC.position();
-		long currentCount = 0;
-		long offset = 0;
+		if (rowBuffer.capacity() < rowLength) {
+			rowBuffer = ByteBuffer.allocate(rowLength);
+		}
+		rowBuffer.clear();
+		rowBuffer.limit(rowLength);
+		readFully(rowBuffer, offset + BinaryRowFormat.HEADER_SIZE);
+		rowBuffer.flip();
+
+		return getRowFormat().decode(rowBuffer);
+	}
 
-		while (currentCount < rowMovement) {
-			long newPosition = originalPosition - offset - maxReadSize;
-			if (newPosition <= 0) {
-				newPosition = 0;
+	/**
+	 * Returns the memory mapping of the data file if it is large enough to be
+	 * read through a mapping, otherwise null
+	 * 
+	 * @return Mapped data file
+	 * @throws IOException
+	 *             An error occurred mapping the data file
+	 */
+	private MappedDataFile getMappedData() throws IOException {
+		if (!mappingChecked) {
+			mappingChecked = true;
+			if (dataReadFC.size() >= this.mapThreshold) {
+				mappedData = new MappedDataFile(dataReadFC);
 			}
+		}
+		return mappedData;
+	}
 
-			dataReadFC.position(newPosition);
+	/**
+	 * Returns true if the data file is stored as compressed blocks
+	 * 
+	 * @return Is compressed
+	 */
+	private boolean isCompressed() {
+		return !BlockCompressedDataFile.CODEC_NONE.equals(this.dataCodec);
+	}
 
-			read.clear();
-			int nRead = dataReadFC.read(read);
+	private long getBlockCount() {
+		return BlockCompressedDataFile.getBlockCount(this.persistedSize,
+				this.blockRows);
+	}
 
-			byte[] byteArray = read.array();
-			int startPosition = nRead;
-			if (nRead >= originalPosition) {
-				startPosition = (int) originalPosition - 2;
+	/**
+	 * Returns the reader of the compressed blocks of the data file
+	 * 
+	 * @return Block compressed data file
+	 * @throws IOException
+	 *             An error occurred reading the block index
+	 */
+	private BlockCompressedDataFile getCompressedData() throws IOException {
+		if (compressedData == null) {
+			RowOffsetIndex blockIndex = RowOffsetIndex.load(blockIndexFile,
+					getBlockCount());
+			if (blockIndex == null) {
+				throw new IOException("Unable to read the block index");
 			}
-			for (int position = startPosition; position >= 0; position--) {
-				char charRead = (char) byteArray[position];
+			compressedData = new BlockCompressedDataFile(dataReadFC,
+					blockIndex, this.blockRows);
+		}
+		return compressedData;
+	}
 
-				if ((charRead == '\r') || (charRead == '\n')) {
-					currentCount++;
-					if (currentCount == rowMovement) {
-						dataReadFC.position(originalPosition - offset
-								- startPosition + position - 1);
-						break;
-					}
-				}
-			}
-			offset += maxReadSize;
+	/**
+	 * Releases the row index and the readers of the data file so that they
+	 * are reopened the next time a row is read
+	 */
+	private void resetReaders() {
+		this.rowIndex = null;
+		this.readBatch = null;
+		this.cursorReader = null;
+		this.mappedData = null;
+		this.mappingChecked = false;
+		if (this.compressedData != null) {
+			this.compressedData.close();
+			this.compressedData = null;
+		}
+	}
 
+	private void readFully(ByteBuffer buffer, long position)
+			throws IOException {
+		while (buffer.hasRemaining()) {
+			int nRead = dataReadFC.read(buffer, position);
 			if (nRead == -1) {
-				read.clear();
-				throw new PersistableException("Unable to find row");
-			}
-
-			if ((newPosition == 0) && (currentCount < rowMovement)) {
-				read.clear();
-				throw new PersistableException("Unable to find row");
+				throw new IOException("Unexpected end of the data file");
 			}
+			position += nRead;
 		}
-
 	}
 
+	/**
+	 * Reads a delimited row from the current position of the data file. This
+	 * is only used for results persisted before the binary row format.
+	 * 
+	 * @return Row
+	 * @throws IOException
+	 *             An error occurred reading the data file
+	 * @throws ResultSetException
+	 *             If a ResultSetException occurs
+	 */
 	private Row loadCurrentLine() throws IOException, ResultSetException {
 		Row row = new Row(this.getColumnSize());
 		read.clear();
 		long originalPosition = dataReadFC.position();
 		boolean outsideQuote = true;
 		int currentColumn = 0;
-		ByteBuffer line = ByteBuffer.allocate(maxReadSize);
+		if (lineBuffer == null) {
+			lineBuffer = ByteBuffer.allocate(maxReadSize);
+		}
+		ByteBuffer line = lineBuffer;
+		line.clear();
 
 		do {
 			int nRead = dataReadFC.read(read);
@@ -379,12 +925,8 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 				char charRead = (char) readByte;
 
 				if ((charRead == '\r') || (charRead == '\n')) {
-					row.setColumn(
-							currentColumn,
-							getColumn(currentColumn).getDataType()
-									.fromBytes(
-											Arrays.copyOf(line.array(),
-													line.position())));
+					row.setColumn(currentColumn,
+							fromDelimited(currentColumn, line));
 					line.clear();
 					dataReadFC.position(originalPosition);
 					break;
@@ -395,12 +937,8 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 					// If a delimiter is found and the current position is
 					// outside a quote
 
-					row.setColumn(
-							currentColumn,
-							getColumn(currentColumn).getDataType()
-									.fromBytes(
-											Arrays.copyOf(line.array(),
-													line.position())));
+					row.setColumn(currentColumn,
+							fromDelimited(currentColumn, line));
 					currentColumn++;
 					line.clear();
 				} else {
@@ -413,6 +951,20 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 		return row;
 	}
 
+	/**
+	 * Decodes a cell of a delimited row. Dates and times are converted to
+	 * their epoch value.
+	 */
+	private Object fromDelimited(int columnIndex, ByteBuffer line)
+			throws ResultSetException {
+		PrimitiveDataType dataType = getColumn(columnIndex).getDataType();
+		Object value = dataType.decode(line, 0, line.position());
+		if ((value != null) && dataType.isTemporal()) {
+			return dataType.toEpochValue(value);
+		}
+		return value;
+	}
+
 	/**
 	 * Sets the value of a cell at the given column at the current position
 	 * 
@@ -428,8 +980,24 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 		if (columnIndex >= getColumnSize()) {
 			throw new ResultSetException("Column not found");
 		}
-		this.currentRow.setColumn(columnIndex, value);
-		this.pendingData.put(this.getRowPosition(), this.currentRow);
+		PrimitiveDataType dataType = getColumn(columnIndex).getDataType();
+		if ((value != null) && (dataType != null) && dataType.isTemporal()) {
+			// Dates and times are held as their epoch value
+			value = toEpochValue(dataType, value);
+		}
+		int appendedIndex = getAppendedIndex(this.getRowPosition());
+		if (appendedIndex != -1) {
+			getAppendedRows().set(appendedIndex, columnIndex, value);
+		} else {
+			if (this.currentRow == null) {
+				// Copy the row out of the read batch so that it can be changed
+				int batchRow = getReadBatchRow();
+				this.currentRow = readBatch.copyTo(batchRow,
+						new Row(getColumnSize()));
+			}
+			this.currentRow.setColumn(columnIndex, value);
+			this.updatedRows.put(this.getRowPosition(), this.currentRow);
+		}
 		this.current = false;
 	}
 
@@ -446,6 +1014,14 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 		if (columnIndex >= getColumnSize()) {
 			throw new ResultSetException("Column not found");
 		}
+		int appendedIndex = getAppendedIndex(this.getRowPosition());
+		if (appendedIndex != -1) {
+			return getAppendedRows().get(appendedIndex, columnIndex);
+		}
+		if (this.currentRow == null) {
+			int batchRow = getReadBatchRow();
+			return readBatch.getObject(columnIndex, batchRow);
+		}
 		return this.currentRow.getColumn(columnIndex);
 	}
 
@@ -463,6 +1039,10 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 		// Set up the paths
 		infoFile = Paths.get(fileName + ".info");
 		dataFile = Paths.get(fileName + ".data");
+		indexFile = Paths.get(fileName + ".idx");
+		dictionaryFile = Paths.get(fileName + ".dict");
+		blockIndexFile = Paths.get(fileName + ".blk");
+		resetReaders();
 		// Check to see if the file exists
 		try {
 			Files.createFile(dataFile);
@@ -491,31 +1071,44 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 		}
 
 		try (SeekableByteChannel dataOutStream = Files.newByteChannel(dataFile,
-				StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+				RowOffsetIndex.Writer indexWriter = new RowOffsetIndex.Writer(
+						indexFile);
+				BlockCompressedDataFile.Writer blockWriter = createBlockWriter(
+						dataOutStream, blockIndexFile)) {
 			// Write the information to the info File
+			this.formatVersion = BinaryRowFormat.VERSION;
 			Files.write(infoFile, toJson().toString().getBytes());
 
-			// Write pending data to file
-			Long[] keys = new Long[0];
-			keys = this.pendingData.keySet().toArray(keys);
-			Arrays.sort(keys);
+			// Build a new dictionary of the STRING columns as rows are written
+			StringDictionary newDictionary = new StringDictionary(getColumns());
+			BinaryRowFormat newFormat = new BinaryRowFormat(getColumns(),
+					newDictionary);
 
-			for (Long key : keys) {
-				writeRowToFile(dataOutStream, this.pendingData.get(key));
-				ByteBuffer bb = ByteBuffer
-						.wrap(new byte[] { (byte) ((byte) '\n' & 0x00FF) });
-				dataOutStream.write(bb);
+			// Write pending data to file
+			long offset = dataOutStream.size();
+			int appendedCount = (this.appendedRows == null) ? 0
+					: this.appendedRows.getSize();
+			for (int appendedIndex = 0; appendedIndex < appendedCount; appendedIndex++) {
+				indexWriter.add(offset);
+				offset += writeRowToFile(dataOutStream, blockWriter,
+						newFormat, getAppendedRow(appendedIndex));
 			}
+			saveDictionary(newDictionary, dictionaryFile);
+			this.dictionary = newDictionary;
+			this.rowFormat = newFormat;
 
-			// Reset the FileChannel and position
+			// Reset the FileChannel, position and index
 			dataReadFC.close();
 			dataReadFC = FileChannel.open(dataFile, StandardOpenOption.READ);
+			resetReaders();
+			this.persistedSize = this.size;
+			this.dataCodec = this.codec;
 
 			// Reset the variables and clear out the pending results
-			dataOutStream.close();
 			this.current = true;
 			this.persisted = true;
-			this.pendingData.clear();
+			clearPending();
 		} catch (IOException | ResultSetException e) {
 			throw new PersistableException("Unable to persist the result set",
 					e);
@@ -532,45 +1125,97 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 		if (this.current) {
 			return;
 		}
+		// Appended rows are written to the end of the data file, unless
+		// persisted rows have changed or the data file has to be rewritten
+		if (this.updatedRows.isEmpty() && !isCompressed()
+				&& (this.formatVersion == BinaryRowFormat.VERSION)
+				&& this.codec.equals(this.dataCodec)) {
+			if (this.size > this.persistedSize) {
+				flushPending();
+			}
+			this.current = true;
+			return;
+		}
 
-		// Create temporary file
+		// Create temporary files
 		Path tempDataFile = Paths.get(fileName + ".temp");
+		Path tempIndexFile = Paths.get(fileName + ".idx.temp");
+		Path tempDictionaryFile = Paths.get(fileName + ".dict.temp");
+		Path tempBlockIndexFile = Paths.get(fileName + ".blk.temp");
 
 		// Write all changes to temporary file
+		StringDictionary newDictionary;
+		BinaryRowFormat newFormat;
 		try (SeekableByteChannel dataOutStream = Files.newByteChannel(
 				tempDataFile, StandardOpenOption.CREATE,
-				StandardOpenOption.APPEND)) {
-			// Write the information to the info File
-			Files.write(infoFile, toJson().toString().getBytes());
-
+				StandardOpenOption.APPEND);
+				RowOffsetIndex.Writer indexWriter = new RowOffsetIndex.Writer(
+						tempIndexFile);
+				BlockCompressedDataFile.Writer blockWriter = createBlockWriter(
+						dataOutStream, tempBlockIndexFile)) {
+			newDictionary = new StringDictionary(getColumns());
+			newFormat = new BinaryRowFormat(getColumns(), newDictionary);
+			long offset = 0;
 			for (long rowIndex = 0; rowIndex < this.getSize(); rowIndex++) {
-				if (this.pendingData.containsKey(rowIndex)) {
-					writeRowToFile(dataOutStream,
-							this.pendingData.get(rowIndex));
+				indexWriter.add(offset);
+				int appendedIndex = getAppendedIndex(rowIndex);
+				if (appendedIndex != -1) {
+					offset += writeRowToFile(dataOutStream, blockWriter,
+							newFormat, getAppendedRow(appendedIndex));
 				} else {
 					this.absolute(rowIndex);
-					writeRowToFile(dataOutStream, this.currentRow);
+					offset += writeRowToFile(dataOutStream, blockWriter,
+							newFormat, getCurrentRow());
 				}
-				ByteBuffer bb = ByteBuffer
-						.wrap(new byte[] { (byte) ((byte) '\n' & 0x00FF) });
-				dataOutStream.write(bb);
 			}
-			dataOutStream.close();
+		} catch (IOException | ResultSetException e) {
+			throw new PersistableException("Unable to persist the result set",
+					e);
+		}
 
-			// Replace the current file with the temporary file
-			Files.copy(tempDataFile, dataFile,
+		// The temporary files are closed before they replace the current files
+		try {
+			saveDictionary(newDictionary, tempDictionaryFile);
+
+			// Replace the current files with the temporary files. They are
+			// moved rather than copied so that any mapping of the old files
+			// remains valid until it is released
+			Files.move(tempDataFile, dataFile,
+					StandardCopyOption.REPLACE_EXISTING);
+			Files.move(tempIndexFile, indexFile,
 					StandardCopyOption.REPLACE_EXISTING);
-			Files.delete(tempDataFile);
+			if (Files.exists(tempBlockIndexFile)) {
+				Files.move(tempBlockIndexFile, blockIndexFile,
+						StandardCopyOption.REPLACE_EXISTING);
+			} else {
+				Files.deleteIfExists(blockIndexFile);
+			}
+			if (Files.exists(tempDictionaryFile)) {
+				Files.move(tempDictionaryFile, dictionaryFile,
+						StandardCopyOption.REPLACE_EXISTING);
+			} else {
+				Files.deleteIfExists(dictionaryFile);
+			}
+			this.dictionary = newDictionary;
+			this.rowFormat = newFormat;
+
+			// Write the information to the info File. Results in an older
+			// format are upgraded to the current format when merged.
+			this.formatVersion = BinaryRowFormat.VERSION;
+			Files.write(infoFile, toJson().toString().getBytes());
 
-			// Reset the FileChannel and position
+			// Reset the FileChannel, position and index
 			dataReadFC.close();
 			dataReadFC = FileChannel.open(dataFile, StandardOpenOption.READ);
+			resetReaders();
+			this.persistedSize = this.size;
+			this.dataCodec = this.codec;
 
 			// Reset the variables and clear out the pending results
 			this.current = true;
 			this.persisted = true;
-			this.pendingData.clear();
-		} catch (IOException | ResultSetException e) {
+			clearPending();
+		} catch (IOException e) {
 			throw new PersistableException("Unable to persist the result set",
 					e);
 		}
@@ -607,11 +1252,24 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 				this.appendColumn(newColumn);
 			}
 
-			// Set the size
-			this.size = jsonReader.getInt("size");
+			// Set the size and the format of the data file
+			this.size = jsonReader.getJsonNumber("size").longValue();
+			this.formatVersion = jsonReader.getInt("version", 1);
+			this.codec = jsonReader.getString("codec",
+					BlockCompressedDataFile.CODEC_NONE);
+			this.dataCodec = this.codec;
+			this.blockRows = jsonReader.getInt("blockRows",
+					BlockCompressedDataFile.DEFAULT_BLOCK_ROWS);
+			this.persistedSize = this.size;
+
+			// Load the dictionary of the STRING columns
+			this.dictionary = StringDictionary.load(dictionaryFile,
+					getColumns());
+			this.rowFormat = null;
 
 			// Clear out any pending data
-			this.pendingData = new HashMap<Long, Row>();
+			this.appendedRows = null;
+			this.updatedRows = new HashMap<Long, Row>();
 			this.current = true;
 
 		} catch (IOException | ResultSetException e) {
@@ -628,31 +1286,209 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 
 	}
 
-	private void writeRowToFile(SeekableByteChannel dataOutStream, Row row)
-			throws ResultSetException, IOException {
-		// Loop through columns and write the serialized data to file with
-		// delimiter between.
-		for (int columnIndex = 0; columnIndex < this.getColumnSize(); columnIndex++) {
-			
-			byte[] outBytes = this.getColumn(columnIndex).getDataType()
-					.toBytes(row.getColumn(columnIndex));
+	/**
+	 * Returns the number of appended rows that are written to the data file
+	 * at once. Compressed data files are only added to in whole blocks.
+	 * 
+	 * @return Rows
+	 */
+	private long getFlushSize() {
+		if (BlockCompressedDataFile.CODEC_NONE.equals(this.dataCodec)) {
+			return Math.max(1, this.maxPending);
+		}
+		return Math.max(this.blockRows, this.maxPending);
+	}
 
-			ByteBuffer bb = ByteBuffer.wrap(outBytes);
-			dataOutStream.write(bb);
-			if (columnIndex != this.getColumnSize() - 1) {
-				bb = ByteBuffer
-						.wrap(new byte[] { (byte) ((byte) this.DELIMITER & 0x00FF) });
-				dataOutStream.write(bb);
+	/**
+	 * Writes the rows appended since the result set was last persisted to the
+	 * end of the data file, and updates the info file to include them. Rows
+	 * of a compressed data file are written in whole blocks, so the rows of a
+	 * partial last block are read back and written again with the new rows.
+	 * Changes to rows that were already persisted are kept until the result
+	 * set is merged.
+	 * 
+	 * @throws PersistableException
+	 *             An error occurred writing the rows
+	 */
+	private void flushPending() throws PersistableException {
+		if ((this.formatVersion != BinaryRowFormat.VERSION)
+				|| !this.codec.equals(this.dataCodec)) {
+			// The data file has to be rewritten in the current format
+			merge();
+			return;
+		}
+
+		try {
+			RowOffsetIndex index = getRowIndex();
+			long firstRow = this.persistedSize;
+			long lastRow = this.size;
+			List<Row> rows = new ArrayList<Row>();
+			long blockOffset = 0;
+			long offset = getDataSize(index);
+
+			if (isCompressed()) {
+				// Read back the rows of the partial last block
+				long blockStartRow = (firstRow / blockRows) * blockRows;
+				lastRow = blockStartRow + ((lastRow - blockStartRow) / blockRows)
+						* blockRows;
+				if (blockStartRow < firstRow) {
+					for (long row = blockStartRow; row < firstRow; row++) {
+						rows.add(loadBinaryRow(row, index.getOffset(row)));
+					}
+					blockOffset = getCompressedData().getBlockOffset(
+							blockStartRow / blockRows);
+					offset = index.getOffset(blockStartRow);
+					firstRow = blockStartRow;
+				} else {
+					blockOffset = Files.size(dataFile);
+				}
+			}
+			int flushed = (int) (lastRow - this.persistedSize);
+
+			resetReaders();
+			RowOffsetIndex.truncate(indexFile, firstRow);
+			BinaryRowFormat format = getRowFormat();
+			try (SeekableByteChannel dataOutStream = Files.newByteChannel(
+					dataFile, StandardOpenOption.WRITE);
+					RowOffsetIndex.Writer indexWriter = new RowOffsetIndex.Writer(
+							indexFile, true);
+					BlockCompressedDataFile.Writer blockWriter = openBlockWriter(
+							dataOutStream, firstRow, blockOffset)) {
+				dataOutStream.position(dataOutStream.size());
+
+				for (Row row : rows) {
+					indexWriter.add(offset);
+					offset += writeRowToFile(dataOutStream, blockWriter,
+							format, row);
+				}
+				for (int appendedIndex = 0; appendedIndex < flushed; appendedIndex++) {
+					indexWriter.add(offset);
+					offset += writeRowToFile(dataOutStream, blockWriter,
+							format, getAppendedRow(appendedIndex));
+				}
+			}
+			if (this.dictionary != null) {
+				saveDictionary(this.dictionary, dictionaryFile);
 			}
 
+			getAppendedRows().removeFirst(flushed);
+			this.persistedSize = lastRow;
+			Files.write(infoFile, toJson(1, this.persistedSize).toString()
+					.getBytes());
+		} catch (IOException | ResultSetException e) {
+			throw new PersistableException("Unable to write the pending rows",
+					e);
 		}
 	}
-	
+
+	/**
+	 * Returns the size in bytes of the uncompressed persisted rows
+	 * 
+	 * @param index
+	 *            Row offset index
+	 * @return Size
+	 * @throws IOException
+	 *             An error occurred reading the data file
+	 */
+	private long getDataSize(RowOffsetIndex index) throws IOException {
+		if (!isCompressed()) {
+			return dataReadFC.size();
+		}
+		if (this.persistedSize == 0) {
+			return 0;
+		}
+		long lastRow = this.persistedSize - 1;
+		ByteBuffer block = getCompressedData().findRow(lastRow, index);
+		return index.getOffset(lastRow) + BinaryRowFormat.HEADER_SIZE
+				+ block.getInt(block.position() - BinaryRowFormat.HEADER_SIZE);
+	}
+
+	/**
+	 * Writes a row to the data file, or to the current compressed block if
+	 * the data file is compressed
+	 * 
+	 * @return Uncompressed size of the row in bytes
+	 */
+	private int writeRowToFile(SeekableByteChannel dataOutStream,
+			BlockCompressedDataFile.Writer blockWriter, BinaryRowFormat format,
+			Row row) throws ResultSetException, IOException {
+		ByteBuffer bb = format.encode(row);
+		int written = bb.remaining();
+		if (blockWriter != null) {
+			blockWriter.write(bb);
+			return written;
+		}
+		while (bb.hasRemaining()) {
+			dataOutStream.write(bb);
+		}
+		return written;
+	}
+
+	/**
+	 * Returns a writer of compressed blocks if the result set is compressed,
+	 * otherwise null
+	 */
+	private BlockCompressedDataFile.Writer createBlockWriter(
+			SeekableByteChannel dataOutStream, Path file) throws IOException {
+		if (BlockCompressedDataFile.CODEC_NONE.equals(this.codec)) {
+			return null;
+		}
+		return new BlockCompressedDataFile.Writer(dataOutStream, file,
+				this.blockRows);
+	}
+
+	/**
+	 * Returns a writer that continues the compressed blocks of the data file
+	 * at the block of the given row if the data file is compressed, otherwise
+	 * null. The blocks from that block on are removed from the data file.
+	 */
+	private BlockCompressedDataFile.Writer openBlockWriter(
+			SeekableByteChannel dataOutStream, long firstRow, long blockOffset)
+			throws IOException {
+		if (!isCompressed()) {
+			return null;
+		}
+		dataOutStream.truncate(blockOffset);
+		RowOffsetIndex.truncate(blockIndexFile, firstRow / blockRows);
+		return new BlockCompressedDataFile.Writer(dataOutStream,
+				blockIndexFile, blockRows, blockOffset);
+	}
+
+	/**
+	 * Writes the dictionary to the given file if any column was dictionary
+	 * encoded. Otherwise any dictionary file left from an earlier version of
+	 * the result set is removed.
+	 * 
+	 * @param newDictionary
+	 *            Dictionary
+	 * @param file
+	 *            Dictionary file
+	 * @throws IOException
+	 *             An error occurred writing the dictionary file
+	 */
+	private void saveDictionary(StringDictionary newDictionary, Path file)
+			throws IOException {
+		if (newDictionary.isEmpty()) {
+			Files.deleteIfExists(file);
+		} else {
+			newDictionary.save(file);
+		}
+	}
+
 	@Override
 	public List<File> getFileList() {
 		List<File> files = new ArrayList<File>();
 		files.add(infoFile.toFile());
 		files.add(dataFile.toFile());
+		if (Files.exists(indexFile)) {
+			files.add(indexFile.toFile());
+		}
+		if (Files.exists(dictionaryFile)) {
+			files.add(dictionaryFile.toFile());
+		}
+		if (Files.exists(blockIndexFile)) {
+			files.add(blockIndexFile.toFile());
+		}
 		return files;
 	}
 
@@ -668,6 +1504,10 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 	// BOOLEAN
 	@Override
 	public boolean getBoolean(int columnIndex) throws ResultSetException {
+		if (isReadBatchCell(columnIndex)) {
+			int batchRow = getReadBatchRow();
+			return readBatch.getBoolean(columnIndex, batchRow);
+		}
 		return (Boolean) getCell(columnIndex);
 	}
 
@@ -691,6 +1531,10 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 	// BYTE
 	@Override
 	public byte getByte(int columnIndex) throws ResultSetException {
+		if (isReadBatchCell(columnIndex)) {
+			int batchRow = getReadBatchRow();
+			return readBatch.getByte(columnIndex, batchRow);
+		}
 		return (Byte) getCell(columnIndex);
 	}
 
@@ -714,27 +1558,19 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 	// DATE
 	@Override
 	public Date getDate(int columnIndex) throws ResultSetException {
-		String dateString = getString(columnIndex);
-
-		PrimitiveDataType dt = getColumn(columnIndex).getDataType();
-
-		String pattern = null;
-		if (dt == PrimitiveDataType.DATE) {
-			pattern = "YYYY-MM-dd";
-		} else if (dt == PrimitiveDataType.DATETIME) {
-			pattern = "YYYY-MM-dd HH:mm:ss";
-		} else if (dt == PrimitiveDataType.TIME) {
-			pattern = "HH:mm:ss";
+		PrimitiveDataType dt = getTemporalDataType(columnIndex);
+		if (isReadBatchCell(columnIndex)) {
+			int batchRow = getReadBatchRow();
+			if (readBatch.isNull(columnIndex, batchRow)) {
+				return null;
+			}
+			return dt.toDate(readBatch.getLong(columnIndex, batchRow));
 		}
-		DateFormat formatter = new SimpleDateFormat(pattern);
-
-		try {
-			return formatter.parse(dateString);
-		} catch (ParseException e) {
-			e.printStackTrace();
+		Object value = getCell(columnIndex);
+		if (value == null) {
+			return null;
 		}
-
-		return null;
+		return dt.toDate(toEpochValue(dt, value));
 	}
 
 	@Override
@@ -745,19 +1581,8 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 	@Override
 	public void updateDate(int columnIndex, Date value)
 			throws ResultSetException {
-		PrimitiveDataType dt = getColumn(columnIndex).getDataType();
-
-		String pattern = null;
-		if (dt == PrimitiveDataType.DATE) {
-			pattern = "yyyy-MM-dd";
-		} else if (dt == PrimitiveDataType.DATETIME) {
-			pattern = "yyyy-MM-dd HH:mm:ss";
-		} else if (dt == PrimitiveDataType.TIME) {
-			pattern = "HH:mm:ss";
-		}
-		DateFormat formatter = new SimpleDateFormat(pattern);
-
-		setCell(columnIndex, formatter.format(value));
+		getTemporalDataType(columnIndex);
+		setCell(columnIndex, value);
 	}
 
 	@Override
@@ -769,6 +1594,10 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 	// DOUBLE
 	@Override
 	public double getDouble(int columnIndex) throws ResultSetException {
+		if (isReadBatchCell(columnIndex)) {
+			int batchRow = getReadBatchRow();
+			return readBatch.getDouble(columnIndex, batchRow);
+		}
 		return (Double) getCell(columnIndex);
 	}
 
@@ -780,7 +1609,13 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 	@Override
 	public void updateDouble(int columnIndex, double value)
 			throws ResultSetException {
-		setCell(columnIndex, value);
+		int appendedIndex = getAppendedRowForUpdate(columnIndex);
+		if (appendedIndex != -1) {
+			getAppendedRows().setDouble(appendedIndex, columnIndex, value);
+			this.current = false;
+		} else {
+			setCell(columnIndex, value);
+		}
 	}
 
 	@Override
@@ -792,6 +1627,10 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 	// FLOAT
 	@Override
 	public float getFloat(int columnIndex) throws ResultSetException {
+		if (isReadBatchCell(columnIndex)) {
+			int batchRow = getReadBatchRow();
+			return readBatch.getFloat(columnIndex, batchRow);
+		}
 		return (Float) getCell(columnIndex);
 	}
 
@@ -803,7 +1642,13 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 	@Override
 	public void updateFloat(int columnIndex, float value)
 			throws ResultSetException {
-		setCell(columnIndex, value);
+		int appendedIndex = getAppendedRowForUpdate(columnIndex);
+		if (appendedIndex != -1) {
+			getAppendedRows().setDouble(appendedIndex, columnIndex, value);
+			this.current = false;
+		} else {
+			setCell(columnIndex, value);
+		}
 	}
 
 	@Override
@@ -815,6 +1660,10 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 	// INT
 	@Override
 	public int getInt(int columnIndex) throws ResultSetException {
+		if (isReadBatchCell(columnIndex)) {
+			int batchRow = getReadBatchRow();
+			return readBatch.getInt(columnIndex, batchRow);
+		}
 		return (Integer) getCell(columnIndex);
 	}
 
@@ -825,7 +1674,13 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 
 	@Override
 	public void updateInt(int columnIndex, int value) throws ResultSetException {
-		setCell(columnIndex, value);
+		int appendedIndex = getAppendedRowForUpdate(columnIndex);
+		if (appendedIndex != -1) {
+			getAppendedRows().setLong(appendedIndex, columnIndex, value);
+			this.current = false;
+		} else {
+			setCell(columnIndex, value);
+		}
 	}
 
 	@Override
@@ -837,6 +1692,10 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 	// LONG
 	@Override
 	public long getLong(int columnIndex) throws ResultSetException {
+		if (isReadBatchCell(columnIndex)) {
+			int batchRow = getReadBatchRow();
+			return readBatch.getLong(columnIndex, batchRow);
+		}
 		return (Long) getCell(columnIndex);
 	}
 
@@ -848,7 +1707,13 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 	@Override
 	public void updateLong(int columnIndex, long value)
 			throws ResultSetException {
-		setCell(columnIndex, value);
+		int appendedIndex = getAppendedRowForUpdate(columnIndex);
+		if (appendedIndex != -1) {
+			getAppendedRows().setLong(appendedIndex, columnIndex, value);
+			this.current = false;
+		} else {
+			setCell(columnIndex, value);
+		}
 	}
 
 	@Override
@@ -860,7 +1725,14 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 	// STRING
 	@Override
 	public String getString(int columnIndex) throws ResultSetException {
-		return (String) getCell(columnIndex);
+		Object value = getCell(columnIndex);
+		if (value instanceof Long) {
+			PrimitiveDataType dt = getColumn(columnIndex).getDataType();
+			if ((dt != null) && dt.isTemporal()) {
+				return dt.format((Long) value);
+			}
+		}
+		return (String) value;
 	}
 
 	@Override
@@ -892,11 +1764,101 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 	
 	@Override
 	public Row getCurrentRow() throws ResultSetException {
+		int appendedIndex = getAppendedIndex(this.getRowPosition());
+		if (appendedIndex != -1) {
+			return getAppendedRows().copyTo(appendedIndex,
+					new Row(getColumnSize()));
+		}
+		if ((this.currentRow == null) && (getRowPosition() >= 0)
+				&& (getRowPosition() < this.persistedSize)) {
+			int batchRow = getReadBatchRow();
+			return readBatch.copyTo(batchRow, new Row(getColumnSize()));
+		}
 		return currentRow;
 	}
+
+	/**
+	 * Removes the appended and updated rows once they have been written
+	 */
+	private void clearPending() {
+		if (this.appendedRows != null) {
+			this.appendedRows.clear();
+		}
+		this.updatedRows.clear();
+	}
 	// MAXPENDING
+	/**
+	 * Returns the number of appended rows held in memory before they are
+	 * written to the data file
+	 * 
+	 * @return Maximum pending rows
+	 */
 	public int getMaxPending() {
-		return this.MAXPENDING;
+		return this.maxPending;
+	}
+
+	/**
+	 * Sets the number of appended rows held in memory before they are written
+	 * to the data file
+	 * 
+	 * @param maxPending
+	 *            Maximum pending rows
+	 */
+	public void setMaxPending(int maxPending) {
+		this.maxPending = maxPending;
+	}
+
+	/**
+	 * Returns the size in bytes at which the data file is read through a
+	 * memory mapping
+	 * 
+	 * @return Map threshold
+	 */
+	public long getMapThreshold() {
+		return this.mapThreshold;
+	}
+
+	/**
+	 * Sets the size in bytes at which the data file is read through a memory
+	 * mapping
+	 * 
+	 * @param mapThreshold
+	 *            Map threshold
+	 */
+	public void setMapThreshold(long mapThreshold) {
+		this.mapThreshold = mapThreshold;
+		this.mappedData = null;
+		this.mappingChecked = false;
+	}
+
+	/**
+	 * Returns the codec used to compress the data file
+	 * 
+	 * @return Codec
+	 */
+	public String getCodec() {
+		return this.codec;
+	}
+
+	/**
+	 * Sets the codec used to compress the data file, either none or deflate.
+	 * A persisted result set is rewritten with the new codec the next time
+	 * it is merged.
+	 * 
+	 * @param codec
+	 *            Codec
+	 * @throws PersistableException
+	 *             If the codec is not supported
+	 */
+	public void setCodec(String codec) throws PersistableException {
+		if (!BlockCompressedDataFile.CODEC_NONE.equals(codec)
+				&& !BlockCompressedDataFile.CODEC_DEFLATE.equals(codec)) {
+			throw new PersistableException("Unsupported codec " + codec);
+		}
+		if (!codec.equals(this.codec)) {
+			this.codec = codec;
+			this.current = false;
+		}
 	}
 
 	/**
@@ -921,9 +1883,18 @@ public class FileResultSet extends ResultSetImpl implements Persistable {
 	 * @return JSON Representation
 	 */
 	public JsonObject toJson(int depth) {
+		return toJson(depth, this.size);
+	}
+
+	private JsonObject toJson(int depth, long rows) {
 		depth--;
 		JsonObjectBuilder jsonBuilder = Json.createObjectBuilder();
-		jsonBuilder.add("size", this.size);
+		jsonBuilder.add("size", rows);
+		jsonBuilder.add("version", this.formatVersion);
+		if (!BlockCompressedDataFile.CODEC_NONE.equals(this.codec)) {
+			jsonBuilder.add("codec", this.codec);
+			jsonBuilder.add("blockRows", this.blockRows);
+		}
 		JsonArrayBuilder jsonColArray = Json.createArrayBuilder();
 		try {
 			if (getColumns() != null) {
@@ -0,0 +1,70 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read only memory mapping of a File Result Set data file. A mapped buffer
+ * is limited to 2GB so the file is mapped in segments. Each segment overlaps
+ * the start of the next one so that a row starting in a segment can almost
+ * always be read from that segment without copying it.
+ */
+class MappedDataFile {
+	private static final long SEGMENT_SIZE = 1L << 30;
+	private static final long SEGMENT_OVERLAP = 1L << 26;
+
+	private MappedByteBuffer[] segments;
+
+	/**
+	 * Maps the whole of the file opened by the channel
+	 *
+	 * @param dataFC
+	 *            Data file channel
+	 * @throws IOException
+	 *             An error occurred mapping the file
+	 */
+	MappedDataFile(FileChannel dataFC) throws IOException {
+		long fileSize = dataFC.size();
+		int segmentCount = (int) ((fileSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+		this.segments = new MappedByteBuffer[segmentCount];
+		for (int segment = 0; segment < segmentCount; segment++) {
+			long start = segment * SEGMENT_SIZE;
+			long length = Math.min(SEGMENT_SIZE + SEGMENT_OVERLAP, fileSize
+					- start);
+			segments[segment] = dataFC.map(FileChannel.MapMode.READ_ONLY,
+					start, length);
+		}
+	}
+
+	/**
+	 * Returns the mapped segment containing the length prefixed row that
+	 * starts at the given offset, positioned after the row length header.
+	 * Returns null if the row is not contained in a single segment.
+	 *
+	 * @param offset
+	 *            Offset of the row in the data file
+	 * @return Buffer positioned at the start of the row
+	 */
+	ByteBuffer findRow(long offset) {
+		int segmentIndex = (int) (offset / SEGMENT_SIZE);
+		if (segmentIndex >= segments.length) {
+			return null;
+		}
+		ByteBuffer segment = segments[segmentIndex];
+		int position = (int) (offset - segmentIndex * SEGMENT_SIZE);
+		int rowStart = position + BinaryRowFormat.HEADER_SIZE;
+
+		if ((rowStart > segment.limit())
+				|| ((long) rowStart + segment.getInt(position) > segment
+						.limit())) {
+			return null;
+		}
+		segment.position(rowStart);
+		return segment;
+	}
+}
@@ -3,13 +3,9 @@
  * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
 package edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular;
 
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
 
-import org.apache.commons.lang3.ArrayUtils;
-
 import edu.harvard.hms.dbmi.bd2k.irct.model.resource.PrimitiveDataType;
 import edu.harvard.hms.dbmi.bd2k.irct.model.result.exception.ResultSetException;
 
@@ -21,8 +17,35 @@ import edu.harvard.hms.dbmi.bd2k.irct.model.result.exception.ResultSetException;
  *
  */
 public class MemoryResultSet extends ResultSetImpl {
+	private static final int INITIAL_CAPACITY = 16;
+	/**
+	 * Maximum number of rows of a memory result set. Arrays larger than this
+	 * cannot be allocated by the JVM.
+	 */
+	static final long MAX_ROWS = Integer.MAX_VALUE - 8;
+
 	private Row[] data;
 	private long size;
+	private ColumnBatch batch;
+
+	/**
+	 * Creates an empty memory result set
+	 */
+	public MemoryResultSet() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty memory result set with room for the expected number
+	 * of rows
+	 * 
+	 * @param expectedRows
+	 *            Expected number of rows
+	 */
+	public MemoryResultSet(int expectedRows) {
+		this.data = new Row[(int) Math.max(1,
+				Math.min(expectedRows, MAX_ROWS))];
+	}
 
 	/**
 	 * Adds a new row to the memory result set
@@ -32,11 +55,58 @@ public class MemoryResultSet extends ResultSetImpl {
 	 */
 	@Override
 	public void appendRow() throws ResultSetException {
-		this.data = ArrayUtils.add(data, new Row(this.getColumnSize()));
+		ensureCapacity(this.size + 1);
+		this.data[(int) this.size] = new Row(this.getColumnSize());
 		setSize(this.getSize() + 1);
 		next();
 	}
 
+	/**
+	 * Adds a number of empty rows to the memory result set and moves the
+	 * cursor to the first of them
+	 * 
+	 * @param rows
+	 *            Number of rows to add
+	 * @throws ResultSetException
+	 *             If a ResultSetException occurs
+	 */
+	public void appendRows(int rows) throws ResultSetException {
+		if (isClosed()) {
+			throw new ResultSetException("ResultSet is closed");
+		}
+		if (rows <= 0) {
+			return;
+		}
+		long firstRow = this.size;
+		ensureCapacity(this.size + rows);
+		setSize(this.size + rows);
+		absolute(firstRow);
+	}
+
+	/**
+	 * Makes sure the result set can hold the given number of rows without
+	 * growing its storage again
+	 * 
+	 * @param rows
+	 *            Number of rows
+	 * @throws ResultSetException
+	 *             If the number of rows is too large to hold in memory
+	 */
+	public void ensureCapacity(long rows) throws ResultSetException {
+		if (rows <= this.data.length) {
+			return;
+		}
+		if (rows > MAX_ROWS) {
+			throw new ResultSetException("Too many rows for a memory result set");
+		}
+		// Grow geometrically so that appending N rows copies O(N) rows. The
+		// growth is computed as a long so that it cannot wrap around.
+		long length = this.data.length;
+		long capacity = Math.min(MAX_ROWS, Math.max(rows, length
+				+ (length >> 1) + 1));
+		this.data = Arrays.copyOf(this.data, (int) capacity);
+	}
+
 	/**
 	 * Sets the number of rows in the result set
 	 * 
@@ -60,7 +130,11 @@ public class MemoryResultSet extends ResultSetImpl {
 		if (columnIndex >= getColumnSize()) {
 			throw new ResultSetException("Column not found");
 		}
-		return data[(int) getRow()].getColumn(columnIndex);
+		Row row = data[(int) getRow()];
+		if (row == null) {
+			return null;
+		}
+		return row.getColumn(columnIndex);
 	}
 
 	/**
@@ -74,7 +148,12 @@ public class MemoryResultSet extends ResultSetImpl {
 		if (columnIndex >= getColumnSize()) {
 			throw new ResultSetException("Column not found");
 		}
-		data[(int) getRow()].setColumn(columnIndex, value);
+		int row = (int) getRow();
+		if (data[row] == null) {
+			// Rows added by appendRows are created when first set
+			data[row] = new Row(getColumnSize());
+		}
+		data[row].setColumn(columnIndex, value);
 	}
 
 	@Override
@@ -135,27 +214,12 @@ public class MemoryResultSet extends ResultSetImpl {
 	// DATE
 	@Override
 	public Date getDate(int columnIndex) throws ResultSetException {
-		String dateString = getString(columnIndex);
-
-		PrimitiveDataType dt = getColumn(columnIndex).getDataType();
-
-		String pattern = null;
-		if (dt == PrimitiveDataType.DATE) {
-			pattern = "YYYY-MM-dd";
-		} else if (dt == PrimitiveDataType.DATETIME) {
-			pattern = "YYYY-MM-dd HH:mm:ss";
-		} else if (dt == PrimitiveDataType.TIME) {
-			pattern = "HH:mm:ss";
-		}
-		DateFormat formatter = new SimpleDateFormat(pattern);
-
-		try {
-			return formatter.parse(dateString);
-		} catch (ParseException e) {
-			e.printStackTrace();
+		PrimitiveDataType dt = getTemporalDataType(columnIndex);
+		Object value = getCell(columnIndex);
+		if (value == null) {
+			return null;
 		}
-
-		return null;
+		return dt.toDate(toEpochValue(dt, value));
 	}
 
 	@Override
@@ -166,19 +230,9 @@ public class MemoryResultSet extends ResultSetImpl {
 	@Override
 	public void updateDate(int columnIndex, Date value)
 			throws ResultSetException {
-		PrimitiveDataType dt = getColumn(columnIndex).getDataType();
-
-		String pattern = null;
-		if (dt == PrimitiveDataType.DATE) {
-			pattern = "yyyy-MM-dd";
-		} else if (dt == PrimitiveDataType.DATETIME) {
-			pattern = "yyyy-MM-dd HH:mm:ss";
-		} else if (dt == PrimitiveDataType.TIME) {
-			pattern = "HH:mm:ss";
-		}
-		DateFormat formatter = new SimpleDateFormat(pattern);
-
-		setCell(columnIndex, formatter.format(value));
+		PrimitiveDataType dt = getTemporalDataType(columnIndex);
+		setCell(columnIndex,
+				(value == null) ? null : dt.format(toEpochValue(dt, value)));
 	}
 
 	@Override
@@ -313,4 +367,30 @@ public class MemoryResultSet extends ResultSetImpl {
 		setCell(columnIndex, obj);
 	}
 
+	@Override
+	RowRangeSpliterator.BatchReader createBatchReader() {
+		return (batch, firstRow, rows) -> {
+			for (int row = 0; row < rows; row++) {
+				batch.setRow(row, data[(int) firstRow + row]);
+			}
+		};
+	}
+
+	@Override
+	public ColumnBatch nextBatch(int maxRows) throws ResultSetException {
+		long firstRow = getBatchStart(maxRows);
+		int rows = getBatchSize(firstRow, maxRows);
+		if ((this.batch == null) || !this.batch.hasColumns(getColumns())) {
+			this.batch = new ColumnBatch(getColumns(), rows);
+		}
+		this.batch.reset(firstRow, rows);
+		for (int row = 0; row < rows; row++) {
+			this.batch.setRow(row, data[(int) firstRow + row]);
+		}
+		if (rows > 0) {
+			setRowPosition(firstRow + rows - 1);
+		}
+		return this.batch;
+	}
+
 }
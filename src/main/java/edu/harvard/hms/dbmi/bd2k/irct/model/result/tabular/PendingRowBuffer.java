@@ -0,0 +1,403 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.harvard.hms.dbmi.bd2k.irct.model.resource.PrimitiveDataType;
+
+/**
+ * An append only buffer of the rows added to a File Result Set that have not
+ * been written to its data file yet. Rows are stored column by column in
+ * primitive arrays instead of as Row objects:
+ *
+ * <ul>
+ * <li>Numeric and boolean cells are stored as the bits of a long</li>
+ * <li>String cells are stored as UTF-8 in a shared byte arena, and the cell
+ * holds the offset and length of the value in the arena</li>
+ * <li>A bitmap records which cells have a value</li>
+ * </ul>
+ *
+ * Values of any other type are kept in a map, which is expected to be empty.
+ */
+class PendingRowBuffer {
+	private static final int INITIAL_ROWS = 64;
+
+	private PrimitiveDataType[] dataTypes;
+	private boolean[] fixedWidth;
+	private int rows;
+	private int capacity;
+
+	private long[] cells;
+	private long[] present;
+	private byte[] arena = new byte[4096];
+	private int arenaSize;
+	private Map<Long, Object> objects = new HashMap<Long, Object>();
+
+	/**
+	 * Creates an empty buffer for the given columns
+	 *
+	 * @param columns
+	 *            Columns
+	 */
+	PendingRowBuffer(Column[] columns) {
+		int columnCount = (columns == null) ? 0 : columns.length;
+		this.dataTypes = new PrimitiveDataType[columnCount];
+		this.fixedWidth = new boolean[columnCount];
+		for (int columnIndex = 0; columnIndex < columnCount; columnIndex++) {
+			dataTypes[columnIndex] = columns[columnIndex].getDataType();
+			fixedWidth[columnIndex] = BinaryRowFormat
+					.getFixedWidth(dataTypes[columnIndex]) != -1;
+		}
+		allocate(INITIAL_ROWS);
+	}
+
+	private void allocate(int newCapacity) {
+		long cellCount = (long) newCapacity * Math.max(1, dataTypes.length);
+		if (cellCount > Integer.MAX_VALUE - 64) {
+			throw new IllegalStateException("Pending row buffer is full");
+		}
+		long[] newCells = new long[(int) cellCount];
+		long[] newPresent = new long[(int) ((cellCount + 63) >>> 6)];
+		if (cells != null) {
+			System.arraycopy(cells, 0, newCells, 0, cells.length);
+			System.arraycopy(present, 0, newPresent, 0, present.length);
+		}
+		this.cells = newCells;
+		this.present = newPresent;
+		this.capacity = newCapacity;
+	}
+
+	/**
+	 * Adds a column after the existing columns. The cells of the new column
+	 * are empty.
+	 *
+	 * @param column
+	 *            Column
+	 */
+	void appendColumn(Column column) {
+		int oldStride = Math.max(1, dataTypes.length);
+		long[] oldCells = cells;
+		long[] oldPresent = present;
+		Map<Long, Object> oldObjects = objects;
+
+		PrimitiveDataType[] newDataTypes = new PrimitiveDataType[dataTypes.length + 1];
+		System.arraycopy(dataTypes, 0, newDataTypes, 0, dataTypes.length);
+		newDataTypes[dataTypes.length] = column.getDataType();
+		boolean[] newFixedWidth = new boolean[dataTypes.length + 1];
+		System.arraycopy(fixedWidth, 0, newFixedWidth, 0, fixedWidth.length);
+		newFixedWidth[dataTypes.length] = BinaryRowFormat.getFixedWidth(column
+				.getDataType()) != -1;
+		int oldColumns = dataTypes.length;
+		this.dataTypes = newDataTypes;
+		this.fixedWidth = newFixedWidth;
+
+		this.cells = null;
+		this.present = null;
+		this.objects = new HashMap<Long, Object>();
+		allocate(Math.max(capacity, INITIAL_ROWS));
+		for (int row = 0; row < rows; row++) {
+			for (int columnIndex = 0; columnIndex < oldColumns; columnIndex++) {
+				long oldCell = (long) row * oldStride + columnIndex;
+				long newCell = cell(row, columnIndex);
+				cells[(int) newCell] = oldCells[(int) oldCell];
+				if ((oldPresent[(int) (oldCell >>> 6)] & (1L << oldCell)) != 0) {
+					present[(int) (newCell >>> 6)] |= 1L << newCell;
+				}
+				if (oldObjects.containsKey(oldCell)) {
+					objects.put(newCell, oldObjects.get(oldCell));
+				}
+			}
+		}
+	}
+
+	private long cell(int row, int columnIndex) {
+		return (long) row * dataTypes.length + columnIndex;
+	}
+
+	/**
+	 * Returns the number of rows in the buffer
+	 *
+	 * @return Rows
+	 */
+	int getSize() {
+		return rows;
+	}
+
+	/**
+	 * Adds an empty row to the end of the buffer
+	 */
+	void appendRow() {
+		if (rows == capacity) {
+			allocate(capacity * 2);
+		}
+		rows++;
+	}
+
+	/**
+	 * Removes all rows from the buffer while keeping the allocated memory
+	 */
+	void clear() {
+		long cellCount = (long) rows * dataTypes.length;
+		for (int word = 0; word < (cellCount + 63) >>> 6; word++) {
+			present[word] = 0;
+		}
+		rows = 0;
+		arenaSize = 0;
+		objects.clear();
+	}
+
+	/**
+	 * Removes the first rows of the buffer and moves the remaining rows to
+	 * the start of it. The arena is not compacted until the buffer is
+	 * cleared.
+	 *
+	 * @param count
+	 *            Number of rows to remove
+	 */
+	void removeFirst(int count) {
+		if (count >= rows) {
+			clear();
+			return;
+		}
+		int stride = dataTypes.length;
+		Map<Long, Object> oldObjects = objects;
+		objects = new HashMap<Long, Object>();
+		for (long cell = 0; cell < (long) (rows - count) * stride; cell++) {
+			long from = cell + (long) count * stride;
+			cells[(int) cell] = cells[(int) from];
+			if ((present[(int) (from >>> 6)] & (1L << from)) != 0) {
+				present[(int) (cell >>> 6)] |= 1L << cell;
+			} else {
+				present[(int) (cell >>> 6)] &= ~(1L << cell);
+			}
+			if (oldObjects.containsKey(from)) {
+				objects.put(cell, oldObjects.get(from));
+			}
+		}
+		for (long cell = (long) (rows - count) * stride; cell < (long) rows
+				* stride; cell++) {
+			present[(int) (cell >>> 6)] &= ~(1L << cell);
+		}
+		rows -= count;
+	}
+
+	/**
+	 * Returns the value of a cell as an object of the column data type
+	 *
+	 * @param row
+	 *            Row in the buffer
+	 * @param columnIndex
+	 *            Column Index
+	 * @return Value
+	 */
+	Object get(int row, int columnIndex) {
+		long cell = cell(row, columnIndex);
+		if ((present[(int) (cell >>> 6)] & (1L << cell)) == 0) {
+			return null;
+		}
+		if (objects.containsKey(cell)) {
+			return objects.get(cell);
+		}
+		long bits = cells[(int) cell];
+		if (!fixedWidth[columnIndex]) {
+			return new String(arena, (int) (bits >>> 32), (int) bits,
+					StandardCharsets.UTF_8);
+		}
+		switch (dataTypes[columnIndex]) {
+		case BOOLEAN:
+			return bits != 0;
+		case BYTE:
+			return (byte) bits;
+		case INTEGER:
+			return (int) bits;
+		case FLOAT:
+			return Float.intBitsToFloat((int) bits);
+		case DOUBLE:
+			return Double.longBitsToDouble(bits);
+		default:
+			return bits;
+		}
+	}
+
+	/**
+	 * Sets the value of a cell
+	 *
+	 * @param row
+	 *            Row in the buffer
+	 * @param columnIndex
+	 *            Column Index
+	 * @param value
+	 *            Value
+	 */
+	void set(int row, int columnIndex, Object value) {
+		long cell = cell(row, columnIndex);
+		objects.remove(cell);
+		if (value == null) {
+			present[(int) (cell >>> 6)] &= ~(1L << cell);
+			return;
+		}
+		if (fixedWidth[columnIndex] && (value instanceof Boolean)) {
+			setBits(cell, ((Boolean) value) ? 1 : 0);
+		} else if (fixedWidth[columnIndex] && (value instanceof Number)) {
+			Number number = (Number) value;
+			switch (dataTypes[columnIndex]) {
+			case FLOAT:
+				setBits(cell, Float.floatToRawIntBits(number.floatValue()));
+				break;
+			case DOUBLE:
+				setBits(cell, Double.doubleToRawLongBits(number.doubleValue()));
+				break;
+			default:
+				setBits(cell, number.longValue());
+				break;
+			}
+		} else if (fixedWidth[columnIndex] && dataTypes[columnIndex].isTemporal()) {
+			// Dates and times are held as their epoch value
+			setBits(cell, dataTypes[columnIndex].toEpochValue(value));
+		} else if (!fixedWidth[columnIndex] && (value instanceof String)) {
+			setString(cell, (String) value);
+		} else {
+			present[(int) (cell >>> 6)] |= 1L << cell;
+			objects.put(cell, value);
+		}
+	}
+
+	/**
+	 * Sets the value of a numeric cell without boxing it
+	 *
+	 * @param row
+	 *            Row in the buffer
+	 * @param columnIndex
+	 *            Column Index
+	 * @param value
+	 *            Value
+	 */
+	void setLong(int row, int columnIndex, long value) {
+		if (!fixedWidth[columnIndex]) {
+			set(row, columnIndex, value);
+			return;
+		}
+		long cell = cell(row, columnIndex);
+		objects.remove(cell);
+		switch (dataTypes[columnIndex]) {
+		case FLOAT:
+			setBits(cell, Float.floatToRawIntBits(value));
+			break;
+		case DOUBLE:
+			setBits(cell, Double.doubleToRawLongBits(value));
+			break;
+		default:
+			setBits(cell, value);
+			break;
+		}
+	}
+
+	/**
+	 * Sets the value of a floating point cell without boxing it
+	 *
+	 * @param row
+	 *            Row in the buffer
+	 * @param columnIndex
+	 *            Column Index
+	 * @param value
+	 *            Value
+	 */
+	void setDouble(int row, int columnIndex, double value) {
+		if (!fixedWidth[columnIndex]) {
+			set(row, columnIndex, value);
+			return;
+		}
+		long cell = cell(row, columnIndex);
+		objects.remove(cell);
+		switch (dataTypes[columnIndex]) {
+		case FLOAT:
+			setBits(cell, Float.floatToRawIntBits((float) value));
+			break;
+		case DOUBLE:
+			setBits(cell, Double.doubleToRawLongBits(value));
+			break;
+		default:
+			setBits(cell, (long) value);
+			break;
+		}
+	}
+
+	private void setBits(long cell, long bits) {
+		cells[(int) cell] = bits;
+		present[(int) (cell >>> 6)] |= 1L << cell;
+	}
+
+	private void setString(long cell, String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (arenaSize + bytes.length > arena.length) {
+			long newLength = Math.max((long) arena.length * 2, (long) arenaSize
+					+ bytes.length);
+			if (newLength > Integer.MAX_VALUE - 8) {
+				throw new IllegalStateException("Pending row buffer is full");
+			}
+			byte[] newArena = new byte[(int) newLength];
+			System.arraycopy(arena, 0, newArena, 0, arenaSize);
+			arena = newArena;
+		}
+		System.arraycopy(bytes, 0, arena, arenaSize, bytes.length);
+		setBits(cell, ((long) arenaSize << 32) | bytes.length);
+		arenaSize += bytes.length;
+	}
+
+	/**
+	 * Copies a row of the buffer into a Row object
+	 *
+	 * @param row
+	 *            Row in the buffer
+	 * @param target
+	 *            Row to copy the values to
+	 * @return The target row
+	 */
+	Row copyTo(int row, Row target) {
+		for (int columnIndex = 0; columnIndex < dataTypes.length; columnIndex++) {
+			target.setColumn(columnIndex, get(row, columnIndex));
+		}
+		return target;
+	}
+
+	/**
+	 * Copies a row of the buffer into a row of a batch. Numeric and boolean
+	 * values are copied without boxing them.
+	 *
+	 * @param row
+	 *            Row in the buffer
+	 * @param batch
+	 *            Batch
+	 * @param batchRow
+	 *            Row in the batch
+	 */
+	void copyTo(int row, ColumnBatch batch, int batchRow) {
+		for (int columnIndex = 0; columnIndex < dataTypes.length; columnIndex++) {
+			long cell = cell(row, columnIndex);
+			ColumnVector vector = batch.getVector(columnIndex);
+			if ((present[(int) (cell >>> 6)] & (1L << cell)) == 0) {
+				vector.setNull(batchRow);
+			} else if (!fixedWidth[columnIndex]
+					|| (!objects.isEmpty() && objects.containsKey(cell))) {
+				batch.setObject(columnIndex, batchRow, get(row, columnIndex));
+			} else {
+				long bits = cells[(int) cell];
+				switch (dataTypes[columnIndex]) {
+				case FLOAT:
+					vector.setDouble(batchRow, Float.intBitsToFloat((int) bits));
+					break;
+				case DOUBLE:
+					vector.setDouble(batchRow, Double.longBitsToDouble(bits));
+					break;
+				default:
+					vector.setLong(batchRow, bits);
+					break;
+				}
+			}
+		}
+	}
+}
@@ -4,10 +4,14 @@
 package edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular;
 
 import java.util.Date;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import edu.harvard.hms.dbmi.bd2k.irct.model.result.Data;
 import edu.harvard.hms.dbmi.bd2k.irct.model.result.exception.PersistableException;
 import edu.harvard.hms.dbmi.bd2k.irct.model.result.exception.ResultSetException;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.exception.RowSetExeception;
 
 /**
  * Provides an interface that all result sets are to implement. It is based on
@@ -606,4 +610,136 @@ public interface ResultSet extends Data {
 	 * @throws ResultSetException If a ResultSetException occurs
 	 */
 	Row getCurrentRow() throws ResultSetException;
+
+	/**
+	 * Returns the rows after the current position of the cursor as a column
+	 * major batch and moves the cursor to the last row of the batch. The
+	 * batch holds at most the given number of rows, and has no rows once the
+	 * cursor is on the last row. The returned batch may be reused by the
+	 * next call. The default implementation reads the batch through the row
+	 * cursor.
+	 * 
+	 * @param maxRows
+	 *            Maximum number of rows in the batch
+	 * @return Batch of rows
+	 * @throws ResultSetException
+	 *             If a ResultSetException occurs
+	 */
+	default ColumnBatch nextBatch(int maxRows) throws ResultSetException {
+		if (isClosed()) {
+			throw new ResultSetException("ResultSet is closed");
+		}
+		if (maxRows <= 0) {
+			throw new ResultSetException("Batch size must be positive");
+		}
+		long firstRow = Math.max(0, getRow() + 1);
+		int rows = (int) Math.max(0, Math.min(maxRows, getSize() - firstRow));
+		ColumnBatch batch = new ColumnBatch(getColumns(), rows);
+		batch.reset(firstRow, rows);
+		for (int row = 0; row < rows; row++) {
+			absolute(firstRow + row);
+			for (int columnIndex = 0; columnIndex < batch.getColumnSize(); columnIndex++) {
+				batch.setObject(columnIndex, row, getObject(columnIndex));
+			}
+		}
+		return batch;
+	}
+
+	/**
+	 * Returns a spliterator over all the rows of the ResultSet. It can be
+	 * split into ranges of rows that are read independently, so that the
+	 * rows can be processed in parallel. The ResultSet must not be changed
+	 * while the rows are read.
+	 * 
+	 * @return Spliterator of rows
+	 * @throws ResultSetException
+	 *             If a ResultSetException occurs
+	 */
+	default Spliterator<Row> spliterator() throws ResultSetException {
+		if (isClosed()) {
+			throw new ResultSetException("ResultSet is closed");
+		}
+		return spliterator(0, getSize());
+	}
+
+	/**
+	 * Returns a sequential stream of all the rows of the ResultSet. Calling
+	 * parallel() on the stream reads ranges of rows on several threads.
+	 * 
+	 * @return Stream of rows
+	 * @throws ResultSetException
+	 *             If a ResultSetException occurs
+	 */
+	default Stream<Row> stream() throws ResultSetException {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * Returns a spliterator over a window of rows of the ResultSet. Result
+	 * sets that are persisted start reading at the first row of the window,
+	 * without reading the rows before it. The default implementation reads
+	 * the rows through the row cursor while holding the lock of the result
+	 * set, and moves the cursor back afterwards.
+	 * 
+	 * @param firstRow
+	 *            First row of the window
+	 * @param rows
+	 *            Number of rows in the window
+	 * @return Spliterator of rows
+	 * @throws ResultSetException
+	 *             If a ResultSetException occurs
+	 */
+	default Spliterator<Row> spliterator(long firstRow, long rows)
+			throws ResultSetException {
+		if (isClosed()) {
+			throw new ResultSetException("ResultSet is closed");
+		}
+		if ((firstRow < 0) || (rows < 0)) {
+			throw new RowSetExeception("Row is not in ResultSet");
+		}
+		long size = getSize();
+		long start = Math.min(firstRow, size);
+		long end = (rows < size - start) ? start + rows : size;
+		return new RowRangeSpliterator(getColumns(), start, end,
+				() -> (batch, batchStart, batchRows) -> {
+					synchronized (this) {
+						long position = getRow();
+						try {
+							for (int row = 0; row < batchRows; row++) {
+								absolute(batchStart + row);
+								for (int columnIndex = 0; columnIndex < batch
+										.getColumnSize(); columnIndex++) {
+									batch.setObject(columnIndex, row,
+											getObject(columnIndex));
+								}
+							}
+						} finally {
+							if (position < 0) {
+								beforeFirst();
+							} else if (position >= getSize()) {
+								afterLast();
+							} else {
+								absolute(position);
+							}
+						}
+					}
+				});
+	}
+
+	/**
+	 * Returns a sequential stream of a window of rows of the ResultSet. The
+	 * window ends at the last row if it is larger than the ResultSet.
+	 * 
+	 * @param firstRow
+	 *            First row of the window
+	 * @param rows
+	 *            Number of rows in the window
+	 * @return Stream of rows
+	 * @throws ResultSetException
+	 *             If a ResultSetException occurs
+	 */
+	default Stream<Row> stream(long firstRow, long rows)
+			throws ResultSetException {
+		return StreamSupport.stream(spliterator(firstRow, rows), false);
+	}
 }
@@ -4,11 +4,14 @@
 package edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular;
 
 import java.io.File;
+import java.time.DateTimeException;
 import java.util.Date;
 import java.util.List;
+import java.util.Spliterator;
 
 import org.apache.commons.lang3.ArrayUtils;
 
+import edu.harvard.hms.dbmi.bd2k.irct.model.resource.PrimitiveDataType;
 import edu.harvard.hms.dbmi.bd2k.irct.model.result.exception.PersistableException;
 import edu.harvard.hms.dbmi.bd2k.irct.model.result.exception.ResultSetException;
 import edu.harvard.hms.dbmi.bd2k.irct.model.result.exception.RowSetExeception;
@@ -439,4 +442,143 @@ public class ResultSetImpl implements ResultSet {
 	public Row getCurrentRow() throws ResultSetException {
 		throw new ResultSetException("Not Implemented in this class");
 	}
+
+	/**
+	 * Reads a batch through the row cursor. Result sets that can fill a batch
+	 * without going through the cursor override this.
+	 */
+	@Override
+	public ColumnBatch nextBatch(int maxRows) throws ResultSetException {
+		long firstRow = getBatchStart(maxRows);
+		int rows = getBatchSize(firstRow, maxRows);
+		ColumnBatch batch = new ColumnBatch(getColumns(), rows);
+		batch.reset(firstRow, rows);
+		for (int row = 0; row < rows; row++) {
+			absolute(firstRow + row);
+			for (int columnIndex = 0; columnIndex < batch.getColumnSize(); columnIndex++) {
+				batch.setObject(columnIndex, row, getObject(columnIndex));
+			}
+		}
+		return batch;
+	}
+
+	@Override
+	public Spliterator<Row> spliterator(long firstRow, long rows)
+			throws ResultSetException {
+		if (isClosed()) {
+			throw new ResultSetException("ResultSet is closed");
+		}
+		if ((firstRow < 0) || (rows < 0)) {
+			throw new RowSetExeception("Row is not in ResultSet");
+		}
+		long size = getSize();
+		long start = Math.min(firstRow, size);
+		long end = (rows < size - start) ? start + rows : size;
+		return new RowRangeSpliterator(getColumns(), start, end,
+				() -> createBatchReader());
+	}
+
+	/**
+	 * Creates a reader for one part of a spliterator. The default reader
+	 * goes through the row cursor while holding the lock of the result set,
+	 * and moves the cursor back afterwards. Result sets that can read rows
+	 * without the cursor override this so that the parts are read in
+	 * parallel.
+	 * 
+	 * @return Batch reader
+	 */
+	RowRangeSpliterator.BatchReader createBatchReader() {
+		return (batch, firstRow, rows) -> {
+			synchronized (this) {
+				long position = getRowPosition();
+				try {
+					for (int row = 0; row < rows; row++) {
+						absolute(firstRow + row);
+						for (int columnIndex = 0; columnIndex < batch
+								.getColumnSize(); columnIndex++) {
+							batch.setObject(columnIndex, row,
+									getObject(columnIndex));
+						}
+					}
+				} finally {
+					setRowPosition(position);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns the first row of the next batch
+	 * 
+	 * @param maxRows
+	 *            Maximum number of rows in the batch
+	 * @return First row
+	 * @throws ResultSetException
+	 *             If the result set is closed or the number of rows is not
+	 *             positive
+	 */
+	protected long getBatchStart(int maxRows) throws ResultSetException {
+		if (isClosed()) {
+			throw new ResultSetException("ResultSet is closed");
+		}
+		if (maxRows <= 0) {
+			throw new ResultSetException("Batch size must be positive");
+		}
+		return Math.max(0, getRowPosition() + 1);
+	}
+
+	/**
+	 * Returns the number of rows in a batch starting at the given row
+	 * 
+	 * @param firstRow
+	 *            First row
+	 * @param maxRows
+	 *            Maximum number of rows in the batch
+	 * @return Rows
+	 * @throws ResultSetException
+	 *             If a ResultSetException occurs
+	 */
+	protected int getBatchSize(long firstRow, int maxRows)
+			throws ResultSetException {
+		return (int) Math.max(0, Math.min(maxRows, getSize() - firstRow));
+	}
+
+	/**
+	 * Returns the data type of a DATE, DATETIME or TIME column
+	 * 
+	 * @param columnIndex
+	 *            Column Index
+	 * @return Data type
+	 * @throws ResultSetException
+	 *             If the column is not a date or time
+	 */
+	protected PrimitiveDataType getTemporalDataType(int columnIndex)
+			throws ResultSetException {
+		PrimitiveDataType dt = getColumn(columnIndex).getDataType();
+		if ((dt == null) || !dt.isTemporal()) {
+			throw new ResultSetException("Column is not a date or time");
+		}
+		return dt;
+	}
+
+	/**
+	 * Converts a Date, a formatted string or an epoch value into the epoch
+	 * value of a date or time data type
+	 * 
+	 * @param dt
+	 *            Data type
+	 * @param value
+	 *            Value
+	 * @return Epoch value
+	 * @throws ResultSetException
+	 *             If the value is not a valid date or time
+	 */
+	protected long toEpochValue(PrimitiveDataType dt, Object value)
+			throws ResultSetException {
+		try {
+			return dt.toEpochValue(value);
+		} catch (IllegalArgumentException | DateTimeException e) {
+			throw new ResultSetException("Invalid " + dt.getName() + " value");
+		}
+	}
 }
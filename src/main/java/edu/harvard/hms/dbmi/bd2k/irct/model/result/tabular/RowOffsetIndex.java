@@ -0,0 +1,338 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An index of the byte offset of the start of each row in a result set data
+ * file. The index is stored next to the data file as a packed array of big
+ * endian longs, one per row, and is memory mapped when it is loaded so that
+ * looking up the position of a row does not require scanning the data file.
+ */
+class RowOffsetIndex {
+	/**
+	 * Number of offsets held in a single mapped segment. A mapped buffer is
+	 * limited to 2GB so large indexes are split across several segments.
+	 */
+	private static final int SEGMENT_ROWS = 1 << 27;
+	private static final int ENTRY_SIZE = 8;
+
+	private LongBuffer[] segments;
+	private long size;
+
+	private RowOffsetIndex(LongBuffer[] segments, long size) {
+		this.segments = segments;
+		this.size = size;
+	}
+
+	/**
+	 * Loads an index file by memory mapping it. Returns null if the index
+	 * file does not exist or does not contain an entry for every row.
+	 *
+	 * @param indexFile
+	 *            Index file
+	 * @param rows
+	 *            Number of rows in the result set
+	 * @return Row Offset Index
+	 * @throws IOException
+	 *             An error occurred reading the index file
+	 */
+	static RowOffsetIndex load(Path indexFile, long rows) throws IOException {
+		if (!Files.isReadable(indexFile)
+				|| (Files.size(indexFile) < rows * ENTRY_SIZE)) {
+			return null;
+		}
+
+		try (FileChannel indexFC = FileChannel.open(indexFile,
+				StandardOpenOption.READ)) {
+			LongBuffer[] segments = new LongBuffer[segmentCount(rows)];
+			for (int segment = 0; segment < segments.length; segment++) {
+				long start = (long) segment * SEGMENT_ROWS;
+				long length = Math.min(SEGMENT_ROWS, rows - start);
+				segments[segment] = indexFC.map(FileChannel.MapMode.READ_ONLY,
+						start * ENTRY_SIZE, length * ENTRY_SIZE).asLongBuffer();
+			}
+			return new RowOffsetIndex(segments, rows);
+		}
+	}
+
+	/**
+	 * Builds the index for a delimited data file that was persisted without
+	 * one by scanning it once for the row delimiters. The new index is
+	 * written to the index file so that it only has to be built once. If the
+	 * index file cannot be written the index is kept in memory only.
+	 *
+	 * @param dataFile
+	 *            Data file
+	 * @param indexFile
+	 *            Index file to create
+	 * @param rows
+	 *            Number of rows in the result set
+	 * @return Row Offset Index
+	 * @throws IOException
+	 *             An error occurred reading the data file
+	 */
+	static RowOffsetIndex build(Path dataFile, Path indexFile, long rows)
+			throws IOException {
+		LongBuffer[] segments = allocate(rows);
+
+		long row = 0;
+		if (rows > 0) {
+			segments[0].put(0L);
+			row++;
+		}
+
+		try (FileChannel dataFC = FileChannel.open(dataFile,
+				StandardOpenOption.READ)) {
+			ByteBuffer read = ByteBuffer.allocate(64 * 1024);
+			long position = 0;
+			while (row < rows) {
+				read.clear();
+				int nRead = dataFC.read(read);
+				if (nRead == -1) {
+					throw new IOException("Unable to find row " + row);
+				}
+				byte[] byteArray = read.array();
+				for (int i = 0; i < nRead && row < rows; i++) {
+					if ((byteArray[i] == '\r') || (byteArray[i] == '\n')) {
+						segments[(int) (row / SEGMENT_ROWS)].put(position + i
+								+ 1);
+						row++;
+					}
+				}
+				position += nRead;
+			}
+		}
+
+		return save(segments, indexFile, rows);
+	}
+
+	/**
+	 * Builds the index for a data file of length prefixed rows that was
+	 * persisted without one by following the row length headers. The new
+	 * index is written to the index file so that it only has to be built
+	 * once. If the index file cannot be written the index is kept in memory
+	 * only.
+	 *
+	 * @param dataFile
+	 *            Data file
+	 * @param indexFile
+	 *            Index file to create
+	 * @param rows
+	 *            Number of rows in the result set
+	 * @return Row Offset Index
+	 * @throws IOException
+	 *             An error occurred reading the data file
+	 */
+	static RowOffsetIndex buildLengthPrefixed(Path dataFile, Path indexFile,
+			long rows) throws IOException {
+		LongBuffer[] segments = allocate(rows);
+
+		try (FileChannel dataFC = FileChannel.open(dataFile,
+				StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(BinaryRowFormat.HEADER_SIZE);
+			long position = 0;
+			for (long row = 0; row < rows; row++) {
+				segments[(int) (row / SEGMENT_ROWS)].put(position);
+				header.clear();
+				while (header.hasRemaining()) {
+					if (dataFC.read(header, position + header.position()) == -1) {
+						throw new IOException("Unable to find row " + row);
+					}
+				}
+				position += BinaryRowFormat.HEADER_SIZE + header.getInt(0);
+			}
+		}
+
+		return save(segments, indexFile, rows);
+	}
+
+	/**
+	 * Builds the index for a block compressed data file that was persisted
+	 * without one by decompressing each block and following the row length
+	 * headers. The offsets are those of the rows in the uncompressed data.
+	 *
+	 * @param data
+	 *            Block compressed data file
+	 * @param blocks
+	 *            Number of blocks in the data file
+	 * @param indexFile
+	 *            Index file to create
+	 * @param rows
+	 *            Number of rows in the result set
+	 * @return Row Offset Index
+	 * @throws IOException
+	 *             An error occurred reading the data file
+	 */
+	static RowOffsetIndex buildFromBlocks(BlockCompressedDataFile data,
+			long blocks, Path indexFile, long rows) throws IOException {
+		LongBuffer[] segments = allocate(rows);
+
+		long row = 0;
+		long blockStart = 0;
+		for (long blockNumber = 0; blockNumber < blocks; blockNumber++) {
+			ByteBuffer block = data.getBlock(blockNumber);
+			int position = 0;
+			while ((position < block.limit()) && (row < rows)) {
+				segments[(int) (row / SEGMENT_ROWS)].put(blockStart + position);
+				position += BinaryRowFormat.HEADER_SIZE
+						+ block.getInt(position);
+				row++;
+			}
+			blockStart += block.limit();
+		}
+		if (row < rows) {
+			throw new IOException("Unable to find row " + row);
+		}
+
+		return save(segments, indexFile, rows);
+	}
+
+	/**
+	 * Removes the entries of the index file after the given number of rows
+	 *
+	 * @param indexFile
+	 *            Index file
+	 * @param rows
+	 *            Number of rows to keep
+	 * @throws IOException
+	 *             An error occurred truncating the index file
+	 */
+	static void truncate(Path indexFile, long rows) throws IOException {
+		try (FileChannel indexFC = FileChannel.open(indexFile,
+				StandardOpenOption.WRITE)) {
+			indexFC.truncate(rows * ENTRY_SIZE);
+		}
+	}
+
+	private static LongBuffer[] allocate(long rows) {
+		LongBuffer[] segments = new LongBuffer[segmentCount(rows)];
+		for (int segment = 0; segment < segments.length; segment++) {
+			long start = (long) segment * SEGMENT_ROWS;
+			segments[segment] = LongBuffer.allocate((int) Math.min(
+					SEGMENT_ROWS, rows - start));
+		}
+		return segments;
+	}
+
+	private static RowOffsetIndex save(LongBuffer[] segments, Path indexFile,
+			long rows) throws IOException {
+		for (LongBuffer segment : segments) {
+			segment.flip();
+		}
+		RowOffsetIndex index = new RowOffsetIndex(segments, rows);
+
+		try (Writer writer = new Writer(indexFile)) {
+			for (long i = 0; i < rows; i++) {
+				writer.add(index.getOffset(i));
+			}
+		} catch (IOException e) {
+			Files.deleteIfExists(indexFile);
+		}
+		return index;
+	}
+
+	private static int segmentCount(long rows) {
+		return (int) ((rows + SEGMENT_ROWS - 1) / SEGMENT_ROWS);
+	}
+
+	/**
+	 * Returns the byte offset of the start of the given row
+	 *
+	 * @param row
+	 *            Row
+	 * @return Offset in the data file
+	 */
+	long getOffset(long row) {
+		return segments[(int) (row / SEGMENT_ROWS)]
+				.get((int) (row % SEGMENT_ROWS));
+	}
+
+	/**
+	 * Returns the number of rows in the index
+	 *
+	 * @return Rows
+	 */
+	long getSize() {
+		return size;
+	}
+
+	/**
+	 * Writes row offsets sequentially to an index file
+	 */
+	static class Writer implements Closeable {
+		private FileChannel indexFC;
+		private ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE * 8192);
+
+		/**
+		 * Creates a writer that replaces the contents of the index file
+		 *
+		 * @param indexFile
+		 *            Index file
+		 * @throws IOException
+		 *             An error occurred opening the index file
+		 */
+		Writer(Path indexFile) throws IOException {
+			this(indexFile, false);
+		}
+
+		/**
+		 * Creates a writer that either replaces the contents of the index
+		 * file or adds offsets to the end of it
+		 *
+		 * @param indexFile
+		 *            Index file
+		 * @param append
+		 *            Add to the end of the existing index
+		 * @throws IOException
+		 *             An error occurred opening the index file
+		 */
+		Writer(Path indexFile, boolean append) throws IOException {
+			this.indexFC = FileChannel.open(indexFile,
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					append ? StandardOpenOption.APPEND
+							: StandardOpenOption.TRUNCATE_EXISTING);
+		}
+
+		/**
+		 * Adds the offset of the next row
+		 *
+		 * @param offset
+		 *            Offset in the data file
+		 * @throws IOException
+		 *             An error occurred writing the index file
+		 */
+		void add(long offset) throws IOException {
+			if (!buffer.hasRemaining()) {
+				flush();
+			}
+			buffer.putLong(offset);
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				indexFC.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				flush();
+			} finally {
+				indexFC.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,151 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.exception.ResultSetException;
+
+/**
+ * A spliterator over a range of rows of a result set. The rows are read a
+ * batch at a time by a reader that belongs to the spliterator, and the range
+ * is split in half so that each part can be read on its own thread.
+ */
+class RowRangeSpliterator implements Spliterator<Row> {
+	/**
+	 * Number of rows read at once
+	 */
+	static final int BATCH_ROWS = 1024;
+	private static final int MIN_SPLIT_ROWS = 256;
+
+	private Column[] columns;
+	private Supplier<BatchReader> readers;
+	private long position;
+	private long end;
+
+	private BatchReader reader;
+	private ColumnBatch batch;
+	private int batchRow;
+
+	/**
+	 * Creates a spliterator over a range of rows
+	 *
+	 * @param columns
+	 *            Columns
+	 * @param position
+	 *            First row
+	 * @param end
+	 *            Row after the last row
+	 * @param readers
+	 *            Creates a reader for each part of the range
+	 */
+	RowRangeSpliterator(Column[] columns, long position, long end,
+			Supplier<BatchReader> readers) {
+		this.columns = columns;
+		this.position = position;
+		this.end = end;
+		this.readers = readers;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super Row> action) {
+		if (position >= end) {
+			close();
+			return false;
+		}
+		if ((batch == null) || (batchRow == batch.getSize())) {
+			readBatch();
+		}
+		Row row = batch.copyTo(batchRow++, new Row(batch.getColumnSize()));
+		position++;
+		action.accept(row);
+		return true;
+	}
+
+	private void readBatch() {
+		if (reader == null) {
+			reader = readers.get();
+		}
+		if (batch == null) {
+			batch = new ColumnBatch(columns, BATCH_ROWS);
+		}
+		int rows = (int) Math.min(BATCH_ROWS, end - position);
+		batch.reset(position, rows);
+		try {
+			reader.read(batch, position, rows);
+		} catch (ResultSetException e) {
+			close();
+			throw new IllegalStateException("Unable to read the result set", e);
+		}
+		batchRow = 0;
+	}
+
+	private void close() {
+		if (reader != null) {
+			reader.close();
+			reader = null;
+		}
+	}
+
+	@Override
+	public Spliterator<Row> trySplit() {
+		if ((batch != null) && (batchRow < batch.getSize())) {
+			// The rows that have been read stay with this spliterator
+			return null;
+		}
+		if (end - position < 2 * MIN_SPLIT_ROWS) {
+			return null;
+		}
+		long middle = position + (end - position) / 2;
+		if (end - position >= 4 * BATCH_ROWS) {
+			// Large ranges are split at a batch boundary, which is also a
+			// block boundary of compressed data files
+			middle = (middle / BATCH_ROWS) * BATCH_ROWS;
+		}
+		RowRangeSpliterator prefix = new RowRangeSpliterator(columns,
+				position, middle, readers);
+		this.position = middle;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		return end - position;
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | SIZED | SUBSIZED | NONNULL;
+	}
+
+	/**
+	 * Reads ranges of rows into batches. Each part of a split range has its
+	 * own reader, so a reader is only used by one thread at a time.
+	 */
+	interface BatchReader {
+		/**
+		 * Fills a batch that has been reset to hold the given rows
+		 *
+		 * @param batch
+		 *            Batch
+		 * @param firstRow
+		 *            First row
+		 * @param rows
+		 *            Number of rows
+		 * @throws ResultSetException
+		 *             An error occurred reading the rows
+		 */
+		void read(ColumnBatch batch, long firstRow, int rows)
+				throws ResultSetException;
+
+		/**
+		 * Releases the resources of the reader once all of its rows have
+		 * been read
+		 */
+		default void close() {
+		}
+	}
+}
@@ -0,0 +1,248 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.harvard.hms.dbmi.bd2k.irct.model.resource.PrimitiveDataType;
+
+/**
+ * The dictionaries of the STRING columns of a File Result Set. While a result
+ * set is persisted each distinct value of a column is given an int code, and
+ * rows store the code instead of the value. A column stops adding values to
+ * its dictionary once it is seen to have a high cardinality, and the values
+ * that are not in the dictionary are stored in the row as usual.
+ *
+ * The dictionaries are stored next to the info file as:
+ *
+ * <pre>
+ * int     number of columns
+ * for each column
+ *   int     number of values
+ *   for each value
+ *     int     length
+ *     byte[]  UTF-8 encoded value
+ * </pre>
+ *
+ * Values are only decoded into Strings the first time they are read.
+ */
+class StringDictionary {
+	/**
+	 * Maximum number of values in the dictionary of a column
+	 */
+	static final int MAX_ENTRIES = 1 << 16;
+	/**
+	 * Number of values seen before the cardinality of a column is checked
+	 */
+	static final int SAMPLE_ROWS = 256;
+	private static final double MAX_DISTINCT_RATIO = 0.5;
+
+	private ColumnDictionary[] columns;
+
+	/**
+	 * Creates an empty dictionary for the given columns. Only STRING columns
+	 * are encoded.
+	 *
+	 * @param columns
+	 *            Columns
+	 */
+	StringDictionary(Column[] columns) {
+		int columnCount = (columns == null) ? 0 : columns.length;
+		this.columns = new ColumnDictionary[columnCount];
+		for (int columnIndex = 0; columnIndex < columnCount; columnIndex++) {
+			if (columns[columnIndex].getDataType() == PrimitiveDataType.STRING) {
+				this.columns[columnIndex] = new ColumnDictionary();
+			}
+		}
+	}
+
+	/**
+	 * Adds a column after the existing columns
+	 *
+	 * @param column
+	 *            Column
+	 */
+	void appendColumn(Column column) {
+		ColumnDictionary[] newColumns = new ColumnDictionary[columns.length + 1];
+		System.arraycopy(columns, 0, newColumns, 0, columns.length);
+		if (column.getDataType() == PrimitiveDataType.STRING) {
+			newColumns[columns.length] = new ColumnDictionary();
+		}
+		this.columns = newColumns;
+	}
+
+	/**
+	 * Loads the dictionary file of a result set. Returns null if the result
+	 * set was persisted without one.
+	 *
+	 * @param dictionaryFile
+	 *            Dictionary file
+	 * @param columns
+	 *            Columns
+	 * @return String Dictionary
+	 * @throws IOException
+	 *             An error occurred reading the dictionary file
+	 */
+	static StringDictionary load(Path dictionaryFile, Column[] columns)
+			throws IOException {
+		if (!Files.isReadable(dictionaryFile)) {
+			return null;
+		}
+		StringDictionary dictionary = new StringDictionary(columns);
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(dictionaryFile));
+
+		int columnCount = buffer.getInt();
+		if (columnCount != dictionary.columns.length) {
+			throw new IOException("Dictionary does not match the columns");
+		}
+		for (int columnIndex = 0; columnIndex < columnCount; columnIndex++) {
+			int entryCount = buffer.getInt();
+			ColumnDictionary column = dictionary.columns[columnIndex];
+			if ((column == null) && (entryCount != 0)) {
+				throw new IOException("Dictionary does not match the columns");
+			}
+			for (int code = 0; code < entryCount; code++) {
+				byte[] value = new byte[buffer.getInt()];
+				buffer.get(value);
+				column.entries.add(value);
+			}
+			if (column != null) {
+				column.enabled = false;
+				column.decoded = new String[entryCount];
+			}
+		}
+		return dictionary;
+	}
+
+	/**
+	 * Returns the code of a value, adding it to the dictionary of the column
+	 * if needed. Returns -1 if the value is not dictionary encoded.
+	 *
+	 * @param columnIndex
+	 *            Column Index
+	 * @param value
+	 *            Value
+	 * @return Code
+	 */
+	int encode(int columnIndex, String value) {
+		ColumnDictionary column = columns[columnIndex];
+		if (column == null) {
+			return -1;
+		}
+		column.rows++;
+		if (column.codes.size() < column.entries.size()) {
+			// The dictionary was loaded from a file
+			for (int entry = column.codes.size(); entry < column.entries.size(); entry++) {
+				column.codes.put(decode(columnIndex, entry), entry);
+			}
+		}
+		Integer code = column.codes.get(value);
+		if (code != null) {
+			return code;
+		}
+		if (!column.enabled) {
+			return -1;
+		}
+		if ((column.entries.size() >= MAX_ENTRIES)
+				|| ((column.rows >= SAMPLE_ROWS) && (column.entries.size() > column.rows
+						* MAX_DISTINCT_RATIO))) {
+			// The column has too many distinct values to benefit from a
+			// dictionary. Values already in the dictionary are still encoded.
+			column.enabled = false;
+			return -1;
+		}
+		code = column.entries.size();
+		column.codes.put(value, code);
+		column.entries.add(value.getBytes(StandardCharsets.UTF_8));
+		return code;
+	}
+
+	/**
+	 * Returns the value of a code
+	 *
+	 * @param columnIndex
+	 *            Column Index
+	 * @param code
+	 *            Code
+	 * @return Value
+	 */
+	String decode(int columnIndex, int code) {
+		ColumnDictionary column = columns[columnIndex];
+		if ((column.decoded == null)
+				|| (column.decoded.length < column.entries.size())) {
+			String[] decoded = new String[column.entries.size()];
+			if (column.decoded != null) {
+				System.arraycopy(column.decoded, 0, decoded, 0,
+						column.decoded.length);
+			}
+			column.decoded = decoded;
+		}
+		if (column.decoded[code] == null) {
+			column.decoded[code] = new String(column.entries.get(code),
+					StandardCharsets.UTF_8);
+		}
+		return column.decoded[code];
+	}
+
+	/**
+	 * Returns true if no column has any values in its dictionary
+	 *
+	 * @return Is empty
+	 */
+	boolean isEmpty() {
+		for (ColumnDictionary column : columns) {
+			if ((column != null) && (!column.entries.isEmpty())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes the dictionary to a file
+	 *
+	 * @param dictionaryFile
+	 *            Dictionary file
+	 * @throws IOException
+	 *             An error occurred writing the dictionary file
+	 */
+	void save(Path dictionaryFile) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(dictionaryFile)))) {
+			out.writeInt(columns.length);
+			for (ColumnDictionary column : columns) {
+				if (column == null) {
+					out.writeInt(0);
+					continue;
+				}
+				out.writeInt(column.entries.size());
+				for (byte[] value : column.entries) {
+					out.writeInt(value.length);
+					out.write(value);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The dictionary of a single column
+	 */
+	private static class ColumnDictionary {
+		private Map<String, Integer> codes = new HashMap<String, Integer>();
+		private List<byte[]> entries = new ArrayList<byte[]>();
+		private String[] decoded;
+		private long rows;
+		private boolean enabled = true;
+	}
+}
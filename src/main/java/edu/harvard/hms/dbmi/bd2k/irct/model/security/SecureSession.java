@@ -5,7 +5,6 @@ package edu.harvard.hms.dbmi.bd2k.irct.model.security;
 
 import java.io.Serializable;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Map;
 
 import javax.persistence.CascadeType;
@@ -16,7 +15,8 @@ import javax.persistence.ManyToOne;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
-import javax.persistence.Transient;
+
+import edu.harvard.hms.dbmi.bd2k.irct.security.TokenDelegationService;
 
 /**
  * A secure session contains information about a user, the token associated with
@@ -44,14 +44,6 @@ public class SecureSession implements Serializable {
 
 	@Temporal(TemporalType.TIMESTAMP)
 	private Date created;
-	
-	@Transient
-	private Map<String, Token> delegated;
-	
-	
-	public SecureSession() {
-		this.delegated = new HashMap<String, Token>();
-	}
 
 	/**
 	 * Returns the id of this secure session object
@@ -148,17 +140,32 @@ public class SecureSession implements Serializable {
 	}
 
 	/**
+	 * Returns the tokens of the user of this session that have been delegated
+	 * to other applications, by their client id
+	 * 
 	 * @return the delegated
+	 * @deprecated Delegated tokens are cached by the TokenDelegationService
 	 */
+	@Deprecated
 	public Map<String, Token> getDelegated() {
-		return delegated;
+		return TokenDelegationService.getInstance().getDelegatedTokens(this);
 	}
 
 	/**
+	 * Caches the tokens of the user of this session that have been delegated
+	 * to other applications. Only JWT tokens are cached.
+	 * 
 	 * @param delegated the delegated to set
+	 * @deprecated Delegated tokens are cached by the TokenDelegationService
 	 */
+	@Deprecated
 	public void setDelegated(Map<String, Token> delegated) {
-		this.delegated = delegated;
+		for (Map.Entry<String, Token> entry : delegated.entrySet()) {
+			if (entry.getValue() instanceof JWT) {
+				TokenDelegationService.getInstance().putDelegatedToken(this,
+						entry.getKey(), (JWT) entry.getValue());
+			}
+		}
 	}
 
 }
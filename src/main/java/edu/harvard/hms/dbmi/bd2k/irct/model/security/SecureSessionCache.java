@@ -0,0 +1,203 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.security;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of the secure sessions by their access key. A session is only
+ * returned until its key times out, the same as if it was looked up again.
+ * Lookups do not take a lock; each one only records when the session was last
+ * used.
+ *
+ * The cache holds up to a maximum number of sessions. When it is full a sample
+ * of the sessions is checked, and a session that has timed out is removed, or
+ * else the sampled session that was used least recently.
+ */
+public class SecureSessionCache {
+	/**
+	 * Number of sessions checked to find one to remove
+	 */
+	static final int EVICTION_SAMPLE = 8;
+
+	private final ConcurrentMap<String, Entry> sessions = new ConcurrentHashMap<String, Entry>();
+	private final int maximumSize;
+	private final AtomicLong clock = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * A cached session and when it was last used
+	 */
+	private static class Entry {
+		private final SecureSession session;
+		private volatile long lastUsed;
+
+		Entry(SecureSession session, long lastUsed) {
+			this.session = session;
+			this.lastUsed = lastUsed;
+		}
+	}
+
+	/**
+	 * Creates a cache that holds up to the given number of sessions
+	 *
+	 * @param maximumSize
+	 *            Maximum number of sessions
+	 */
+	public SecureSessionCache(int maximumSize) {
+		this.maximumSize = Math.max(1, maximumSize);
+	}
+
+	/**
+	 * Returns the session of an access key if it is cached and its key has not
+	 * timed out
+	 *
+	 * @param key
+	 *            Access key
+	 * @param timeOut
+	 *            Milliseconds a key is valid after it is created
+	 * @return Secure session, or null if it is not cached
+	 */
+	public SecureSession get(String key, long timeOut) {
+		Entry entry = (key == null) ? null : sessions.get(key);
+		if (entry != null) {
+			if (isValid(entry.session, timeOut, System.currentTimeMillis())) {
+				entry.lastUsed = clock.incrementAndGet();
+				hits.incrementAndGet();
+				return entry.session;
+			}
+			sessions.remove(key, entry);
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Adds a session to the cache
+	 *
+	 * @param session
+	 *            Secure session
+	 * @param timeOut
+	 *            Milliseconds a key is valid after it is created
+	 */
+	public void put(SecureSession session, long timeOut) {
+		if ((session.getAccessKey() == null) || (session.getCreated() == null)
+				|| !isValid(session, timeOut, System.currentTimeMillis())) {
+			return;
+		}
+		sessions.put(session.getAccessKey(),
+				new Entry(session, clock.incrementAndGet()));
+		while (sessions.size() > maximumSize) {
+			evict(timeOut);
+		}
+	}
+
+	/**
+	 * Removes the session of an access key
+	 *
+	 * @param key
+	 *            Access key
+	 */
+	public void invalidate(String key) {
+		if (key != null) {
+			sessions.remove(key);
+		}
+	}
+
+	/**
+	 * Removes all the sessions of a user
+	 *
+	 * @param userId
+	 *            User id
+	 */
+	public void invalidateUser(String userId) {
+		if (userId == null) {
+			return;
+		}
+		sessions.values().removeIf(
+				entry -> (entry.session.getUser() != null)
+						&& userId.equals(entry.session.getUser().getUserId()));
+	}
+
+	/**
+	 * Removes all the sessions
+	 */
+	public void clear() {
+		sessions.clear();
+	}
+
+	/**
+	 * Returns the number of sessions in the cache
+	 *
+	 * @return Size
+	 */
+	public int size() {
+		return sessions.size();
+	}
+
+	/**
+	 * Returns the number of lookups that found a valid session
+	 *
+	 * @return Hits
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of lookups that did not find a valid session
+	 *
+	 * @return Misses
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Returns the number of sessions removed to keep the cache below its
+	 * maximum size
+	 *
+	 * @return Evictions
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	private boolean isValid(SecureSession session, long timeOut, long now) {
+		long created = session.getCreated().getTime();
+		return (created <= now) && (now - created <= timeOut);
+	}
+
+	/**
+	 * Removes a session that has timed out, or the least recently used of a
+	 * sample of the sessions
+	 */
+	private void evict(long timeOut) {
+		long now = System.currentTimeMillis();
+		Map.Entry<String, Entry> eldest = null;
+		Iterator<Map.Entry<String, Entry>> entries = sessions.entrySet()
+				.iterator();
+		for (int sampled = 0; (sampled < EVICTION_SAMPLE) && entries.hasNext(); sampled++) {
+			Map.Entry<String, Entry> entry = entries.next();
+			if (!isValid(entry.getValue().session, timeOut, now)) {
+				eldest = entry;
+				break;
+			}
+			if ((eldest == null)
+					|| (entry.getValue().lastUsed < eldest.getValue().lastUsed)) {
+				eldest = entry;
+			}
+		}
+		if ((eldest != null)
+				&& sessions.remove(eldest.getKey(), eldest.getValue())) {
+			evictions.incrementAndGet();
+		}
+	}
+}
@@ -1,22 +1,7 @@
 package edu.harvard.hms.dbmi.bd2k.irct.security;
 
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.logging.Level;
 
-import javax.json.Json;
-import javax.json.JsonObject;
-import javax.json.JsonReader;
-
-import org.apache.http.HttpResponse;
-import org.apache.http.NameValuePair;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.entity.UrlEncodedFormEntity;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.message.BasicNameValuePair;
-
 import edu.harvard.hms.dbmi.bd2k.irct.model.security.JWT;
 import edu.harvard.hms.dbmi.bd2k.irct.model.security.SecureSession;
 
@@ -31,7 +16,8 @@ public class SecurityUtility {
 
 	/**
 	 * Returns a delegated a token for a user for a new Auth0 application. If an
-	 * error occurs then NULL is returned.
+	 * error occurs then NULL is returned. Delegated tokens are cached by the
+	 * TokenDelegationService until they expire.
 	 *
 	 * @param namespace
 	 *            URL of the namespace
@@ -61,61 +47,14 @@ public class SecurityUtility {
 			java.util.logging.Logger.getGlobal().log(Level.INFO, "delegateToken() session token DOES NOT MATCH the specified resourceClientId");
 		}
 
-		if (session.getDelegated().containsKey(resourceClientId)) {
+		JWT jwt = TokenDelegationService.getInstance().getDelegatedToken(
+				namespace, resourceClientId, session);
+		if (jwt != null) {
 			java.util.logging.Logger.getGlobal().log(Level.INFO, "delegateToken() returning a Bearer token");
-			return "Bearer "
-					+ session.getDelegated().get(resourceClientId).toString();
-		} else {
-			java.util.logging.Logger.getGlobal().log(Level.INFO, "delegateToken() session does NOT have a delegated token.");
-		}
-
-		try {
-			HttpClient client = HttpClientBuilder.create().build();
-			HttpPost post = new HttpPost("https://" + namespace + "/delegation");
-			java.util.logging.Logger.getGlobal().log(Level.INFO, "delegateToken() call to ```https://"+namespace+"/delegation``` URL.");
-
-			List<NameValuePair> urlParameters = new ArrayList<NameValuePair>();
-			urlParameters.add(new BasicNameValuePair("grant_type",
-					"urn:ietf:params:oauth:grant-type:jwt-bearer"));
-			urlParameters
-					.add(new BasicNameValuePair("target", resourceClientId));
-
-			//
-			urlParameters.add(new BasicNameValuePair("client_id",
-					((JWT) session.getToken()).getClientId()));
-			urlParameters.add(new BasicNameValuePair("scope",
-					"openid name email"));
-			urlParameters.add(new BasicNameValuePair("api_type", "app"));
-			urlParameters.add(new BasicNameValuePair("id_token", session
-					.getToken().toString().split(" ")[1]));
-
-			post.setEntity(new UrlEncodedFormEntity(urlParameters));
-
-			HttpResponse response = client.execute(post);
-			JsonReader reader = Json.createReader(response.getEntity()
-					.getContent());
-
-			JsonObject responseObject = reader.readObject();
-
-			if(responseObject.containsKey("error")) {
-				java.util.logging.Logger.getGlobal().log(Level.INFO, "delegateToken() Could not get delegated token. "+responseObject.toString());
-				java.util.logging.Logger.getGlobal().log(Level.INFO, "delegateToken() returning NULL, after error response from delegation authority");
-				return null;
-			}
-
-			JWT jwt = new JWT();
-			jwt.setType(responseObject.getString("token_type"));
-			jwt.setIdToken(responseObject.getString("id_token"));
-			session.getDelegated().put(resourceClientId, jwt);
-			java.util.logging.Logger.getGlobal().log(Level.INFO, "delegateToken() returning new delegation token:"+responseObject.getString("id_token"));
-			return "Bearer " + responseObject.getString("id_token");
-
-		} catch (IOException e) {
-			java.util.logging.Logger.getGlobal().log(Level.SEVERE, "delegateToken() Exception:"+e.getMessage());
-			e.printStackTrace();
+			return "Bearer " + jwt.getIdToken();
 		}
 
-		java.util.logging.Logger.getGlobal().log(Level.INFO, "delegateToken() returning NULL, after exception.");
+		java.util.logging.Logger.getGlobal().log(Level.INFO, "delegateToken() returning NULL, after error response from delegation authority");
 		return null;
 	}
 }
@@ -0,0 +1,360 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.security;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicNameValuePair;
+
+import edu.harvard.hms.dbmi.bd2k.irct.executable.ExecutionScheduler;
+import edu.harvard.hms.dbmi.bd2k.irct.model.security.JWT;
+import edu.harvard.hms.dbmi.bd2k.irct.model.security.SecureSession;
+import edu.harvard.hms.dbmi.bd2k.irct.model.security.Token;
+
+/**
+ * Delegates the token of a user to other applications, and caches the
+ * delegated tokens by user and application until they expire. The delegation
+ * requests share a pool of connections, so they do not each open a new
+ * connection to the delegation endpoint.
+ *
+ * A delegated token is used until the expiry in its exp claim. Shortly before
+ * it expires it is still returned, but a new token is requested in the
+ * background. When several requests need the same token at once only one of
+ * them calls the delegation endpoint and the others wait for its result.
+ * Tokens are refreshed on the executor of the ExecutionScheduler, which is the
+ * managed executor service of the container once the application has started.
+ *
+ * The service is configured with system properties:
+ *
+ * <pre>
+ * irct.security.delegation.refreshBefore  seconds before expiry to refresh
+ * irct.security.delegation.lifetime       seconds to keep a token without exp
+ * irct.security.delegation.maxConnections connections to the endpoints
+ * </pre>
+ */
+public class TokenDelegationService {
+	/**
+	 * Seconds before a delegated token expires that a new one is requested.
+	 * The default can be changed with the
+	 * irct.security.delegation.refreshBefore system property.
+	 */
+	public static final long REFRESH_BEFORE = Long.getLong(
+			"irct.security.delegation.refreshBefore", 60);
+	/**
+	 * Seconds a delegated token without an exp claim is used. The default can
+	 * be changed with the irct.security.delegation.lifetime system property.
+	 */
+	public static final long LIFETIME = Long.getLong(
+			"irct.security.delegation.lifetime", 300);
+	/**
+	 * Number of connections to the delegation endpoints. The default can be
+	 * changed with the irct.security.delegation.maxConnections system
+	 * property.
+	 */
+	public static final int MAX_CONNECTIONS = Integer.getInteger(
+			"irct.security.delegation.maxConnections", 20);
+
+	private static final Logger LOGGER = Logger
+			.getLogger(TokenDelegationService.class.getName());
+
+	private static final TokenDelegationService INSTANCE = new TokenDelegationService(
+			"https", TimeUnit.SECONDS.toMillis(REFRESH_BEFORE),
+			TimeUnit.SECONDS.toMillis(LIFETIME), task -> ExecutionScheduler
+					.getInstance().getExecutor().execute(task));
+
+	private final String scheme;
+	private final long refreshBefore;
+	private final long lifetime;
+	private final Executor executor;
+	private final CloseableHttpClient client;
+	private final ConcurrentMap<String, CompletableFuture<DelegatedToken>> tokens = new ConcurrentHashMap<String, CompletableFuture<DelegatedToken>>();
+	private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * A delegated token and the time it expires
+	 */
+	private static class DelegatedToken {
+		private final JWT jwt;
+		private final long expires;
+
+		DelegatedToken(JWT jwt, long expires) {
+			this.jwt = jwt;
+			this.expires = expires;
+		}
+	}
+
+	/**
+	 * Creates a service that calls the delegation endpoints with the given
+	 * scheme
+	 *
+	 * @param scheme
+	 *            Scheme of the delegation endpoints
+	 * @param refreshBefore
+	 *            Milliseconds before expiry to request a new token
+	 * @param lifetime
+	 *            Milliseconds to use a token without an exp claim
+	 * @param executor
+	 *            Executor that refreshes tokens
+	 */
+	TokenDelegationService(String scheme, long refreshBefore, long lifetime,
+			Executor executor) {
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(MAX_CONNECTIONS);
+		connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS);
+
+		this.scheme = scheme;
+		this.refreshBefore = refreshBefore;
+		this.lifetime = lifetime;
+		this.executor = executor;
+		this.client = HttpClients.custom()
+				.setConnectionManager(connectionManager).build();
+	}
+
+	/**
+	 * Returns the application wide delegation service
+	 *
+	 * @return Delegation service
+	 */
+	public static TokenDelegationService getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns a token of the user of a session delegated to another
+	 * application. If the token cannot be delegated then NULL is returned.
+	 *
+	 * @param namespace
+	 *            Host of the delegation endpoint
+	 * @param resourceClientId
+	 *            Client id of the application
+	 * @param session
+	 *            Session of the user
+	 * @return Delegated token
+	 */
+	public JWT getDelegatedToken(String namespace, String resourceClientId,
+			SecureSession session) {
+		String key = getKey(session, resourceClientId);
+		long now = System.currentTimeMillis();
+
+		CompletableFuture<DelegatedToken> request = new CompletableFuture<DelegatedToken>();
+		CompletableFuture<DelegatedToken> future = tokens.compute(key, (k,
+				current) -> isUsable(current, now) ? current : request);
+		if (future == request) {
+			requestToken(key, request, namespace, resourceClientId, session);
+		}
+
+		DelegatedToken token;
+		try {
+			token = future.join();
+		} catch (CompletionException e) {
+			return null;
+		}
+		if ((future != request) && (token.expires - now <= refreshBefore)) {
+			refresh(key, future, namespace, resourceClientId, session);
+		}
+		return token.jwt;
+	}
+
+	/**
+	 * Returns the delegated tokens of the user of a session that have not
+	 * expired, by the client id of the application they were delegated to
+	 *
+	 * @param session
+	 *            Session of the user
+	 * @return Delegated tokens
+	 */
+	public Map<String, Token> getDelegatedTokens(SecureSession session) {
+		String prefix = getKey(session, "");
+		long now = System.currentTimeMillis();
+		Map<String, Token> delegated = new HashMap<String, Token>();
+		for (Map.Entry<String, CompletableFuture<DelegatedToken>> entry : tokens
+				.entrySet()) {
+			CompletableFuture<DelegatedToken> future = entry.getValue();
+			if (entry.getKey().startsWith(prefix) && future.isDone()
+					&& !future.isCompletedExceptionally()
+					&& (future.join().expires > now)) {
+				delegated.put(entry.getKey().substring(prefix.length()),
+						future.join().jwt);
+			}
+		}
+		return Collections.unmodifiableMap(delegated);
+	}
+
+	/**
+	 * Caches a token of the user of a session that was delegated to another
+	 * application
+	 *
+	 * @param session
+	 *            Session of the user
+	 * @param resourceClientId
+	 *            Client id of the application
+	 * @param jwt
+	 *            Delegated token
+	 */
+	public void putDelegatedToken(SecureSession session,
+			String resourceClientId, JWT jwt) {
+		tokens.put(getKey(session, resourceClientId), CompletableFuture
+				.completedFuture(new DelegatedToken(jwt, getExpires(jwt
+						.getIdToken()))));
+	}
+
+	/**
+	 * Removes the delegated tokens of a user
+	 *
+	 * @param userId
+	 *            User id
+	 */
+	public void invalidate(String userId) {
+		tokens.keySet().removeIf(key -> key.startsWith(userId + "\n"));
+	}
+
+	private String getKey(SecureSession session, String resourceClientId) {
+		String userId = (session.getUser() == null) ? session.getToken()
+				.toString() : session.getUser().getUserId();
+		return userId + "\n" + resourceClientId;
+	}
+
+	private boolean isUsable(CompletableFuture<DelegatedToken> future, long now) {
+		if (future == null) {
+			return false;
+		}
+		if (!future.isDone()) {
+			return true;
+		}
+		if (future.isCompletedExceptionally()) {
+			return false;
+		}
+		return future.join().expires > now;
+	}
+
+	private void refresh(String key, CompletableFuture<DelegatedToken> current,
+			String namespace, String resourceClientId, SecureSession session) {
+		if (!refreshing.add(key)) {
+			return;
+		}
+		CompletableFuture.runAsync(() -> {
+			try {
+				CompletableFuture<DelegatedToken> request = new CompletableFuture<DelegatedToken>();
+				requestToken(null, request, namespace, resourceClientId,
+						session);
+				if (!request.isCompletedExceptionally()) {
+					tokens.replace(key, current, request);
+				}
+			} finally {
+				refreshing.remove(key);
+			}
+		}, executor);
+	}
+
+	/**
+	 * Requests a delegated token and completes the future with it. If the
+	 * request fails and a key is given, the future is removed from the cache
+	 * so that the next use requests a token again.
+	 */
+	private void requestToken(String key,
+			CompletableFuture<DelegatedToken> request, String namespace,
+			String resourceClientId, SecureSession session) {
+		try {
+			request.complete(delegate(namespace, resourceClientId, session));
+		} catch (IOException | RuntimeException e) {
+			LOGGER.log(Level.SEVERE, "Unable to delegate token to "
+					+ resourceClientId, e);
+			request.completeExceptionally(e);
+		}
+		if ((key != null) && request.isCompletedExceptionally()) {
+			tokens.remove(key, request);
+		}
+	}
+
+	private DelegatedToken delegate(String namespace, String resourceClientId,
+			SecureSession session) throws IOException {
+		HttpPost post = new HttpPost(scheme + "://" + namespace + "/delegation");
+
+		List<NameValuePair> urlParameters = new ArrayList<NameValuePair>();
+		urlParameters.add(new BasicNameValuePair("grant_type",
+				"urn:ietf:params:oauth:grant-type:jwt-bearer"));
+		urlParameters.add(new BasicNameValuePair("target", resourceClientId));
+		urlParameters.add(new BasicNameValuePair("client_id",
+				((JWT) session.getToken()).getClientId()));
+		urlParameters.add(new BasicNameValuePair("scope", "openid name email"));
+		urlParameters.add(new BasicNameValuePair("api_type", "app"));
+		urlParameters.add(new BasicNameValuePair("id_token", session
+				.getToken().toString().split(" ")[1]));
+		post.setEntity(new UrlEncodedFormEntity(urlParameters));
+
+		JsonObject responseObject;
+		try (CloseableHttpResponse response = client.execute(post);
+				JsonReader reader = Json.createReader(response.getEntity()
+						.getContent())) {
+			responseObject = reader.readObject();
+		} catch (JsonException e) {
+			throw new IOException("Invalid response from delegation authority",
+					e);
+		}
+
+		if (responseObject.containsKey("error")) {
+			throw new IOException("Could not get delegated token. "
+					+ responseObject.toString());
+		}
+
+		JWT jwt = new JWT();
+		jwt.setType(responseObject.getString("token_type"));
+		jwt.setIdToken(responseObject.getString("id_token"));
+		jwt.setClientId(resourceClientId);
+		return new DelegatedToken(jwt, getExpires(jwt.getIdToken()));
+	}
+
+	/**
+	 * Returns the time a token expires from its exp claim, or after the
+	 * default lifetime if it does not have one
+	 */
+	private long getExpires(String idToken) {
+		String[] parts = idToken.split("\\.");
+		if (parts.length > 1) {
+			try (JsonReader reader = Json.createReader(new StringReader(
+					new String(Base64.getUrlDecoder().decode(parts[1]),
+							StandardCharsets.UTF_8)))) {
+				JsonObject claims = reader.readObject();
+				if (claims.get("exp") instanceof JsonNumber) {
+					return TimeUnit.SECONDS.toMillis(claims.getJsonNumber("exp")
+							.longValue());
+				}
+			} catch (IllegalArgumentException | JsonException e) {
+				LOGGER.log(Level.FINE, "Delegated token has no readable claims",
+						e);
+			}
+		}
+		return System.currentTimeMillis() + lifetime;
+	}
+}
@@ -0,0 +1,90 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.action;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import edu.harvard.hms.dbmi.bd2k.irct.exception.ResourceInterfaceException;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.Result;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.ResultStatus;
+
+/**
+ * Tests polling a resource for a result
+ */
+public class ResultPollerTest {
+
+	/**
+	 * Test that a result is polled until it completes
+	 */
+	@Test
+	public void testPoll() throws Exception {
+		Result result = new Result();
+		result.setResultStatus(ResultStatus.RUNNING);
+		AtomicInteger polls = new AtomicInteger();
+
+		CompletableFuture<Result> future = ResultPoller.poll(result,
+				current -> {
+					if (polls.incrementAndGet() == 4) {
+						current.setResultStatus(ResultStatus.COMPLETE);
+					}
+					return current;
+				});
+
+		assertSame(result, future.get(10, TimeUnit.SECONDS));
+		assertEquals(4, polls.get());
+	}
+
+	/**
+	 * Test that an error while polling completes the future exceptionally
+	 */
+	@Test
+	public void testPollError() throws Exception {
+		Result result = new Result();
+		result.setResultStatus(ResultStatus.RUNNING);
+
+		CompletableFuture<Result> future = ResultPoller.poll(result,
+				current -> {
+					throw new ResourceInterfaceException("Resource is down");
+				});
+
+		try {
+			future.get(10, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof ResourceInterfaceException);
+			return;
+		}
+		throw new AssertionError("Expected the poll to fail");
+	}
+
+	/**
+	 * Test that cancelling the future stops the polling
+	 */
+	@Test
+	public void testCancel() throws Exception {
+		Result result = new Result();
+		result.setResultStatus(ResultStatus.RUNNING);
+		AtomicInteger polls = new AtomicInteger();
+
+		CompletableFuture<Result> future = ResultPoller.poll(result,
+				current -> {
+					polls.incrementAndGet();
+					return current;
+				});
+		future.cancel(false);
+		int cancelledPolls = polls.get();
+
+		Thread.sleep(4 * ResultPoller.POLL_INTERVAL);
+		assertTrue(future.isCancelled());
+		assertEquals(cancelledPolls, polls.get());
+	}
+}
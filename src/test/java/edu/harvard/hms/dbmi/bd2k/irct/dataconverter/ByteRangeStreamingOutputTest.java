@@ -0,0 +1,56 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.dataconverter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import org.junit.Test;
+
+/**
+ * Tests writing a range of the bytes of a streaming output
+ */
+public class ByteRangeStreamingOutputTest {
+	private final AtomicInteger lines = new AtomicInteger();
+
+	private final StreamingOutput output = outputStream -> {
+		for (int line = 0; line < 1000; line++) {
+			lines.incrementAndGet();
+			outputStream.write(String.format("%04d\n", line).getBytes(
+					StandardCharsets.UTF_8));
+		}
+	};
+
+	private String write(long firstByte, long lastByte) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new ByteRangeStreamingOutput(output, firstByte, lastByte).write(bytes);
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Test that only the bytes in the range are written
+	 */
+	@Test
+	public void testRange() throws Exception {
+		assertEquals("0002\n0003\n", write(10, 19));
+		assertEquals("02\n0", write(12, 15));
+		assertEquals("0999\n", write(4995, -1));
+		assertEquals("", write(6000, -1));
+		assertEquals(5000, write(0, -1).length());
+	}
+
+	/**
+	 * Test that the output is stopped after the range
+	 */
+	@Test
+	public void testStop() throws Exception {
+		write(0, 9);
+		assertEquals(3, lines.get());
+	}
+}
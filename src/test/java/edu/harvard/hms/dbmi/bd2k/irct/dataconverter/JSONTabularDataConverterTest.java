@@ -0,0 +1,65 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.dataconverter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import org.junit.Test;
+
+import edu.harvard.hms.dbmi.bd2k.irct.model.resource.PrimitiveDataType;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.Result;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular.Column;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular.MemoryResultSet;
+
+/**
+ * Tests converting windows of rows of a tabular result into JSON
+ */
+public class JSONTabularDataConverterTest {
+	private final JSONTabularDataConverter converter = new JSONTabularDataConverter();
+
+	private Result createResult() throws Exception {
+		MemoryResultSet mrs = new MemoryResultSet();
+		Column name = new Column();
+		name.setName("name");
+		name.setDataType(PrimitiveDataType.STRING);
+		mrs.appendColumn(name);
+		Column value = new Column();
+		value.setName("value");
+		value.setDataType(PrimitiveDataType.INTEGER);
+		mrs.appendColumn(value);
+		for (int row = 0; row < 10; row++) {
+			mrs.appendRow();
+			mrs.updateString("name", (row == 0) ? "a,\"b\"" : "row " + row);
+			mrs.updateInt("value", row);
+		}
+		Result result = new Result();
+		result.setData(mrs);
+		return result;
+	}
+
+	private String write(StreamingOutput output) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		output.write(bytes);
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Test that only the rows in the window are written
+	 */
+	@Test
+	public void testWindow() throws Exception {
+		Result result = createResult();
+		assertEquals("[{\"name\":\"a,\\\"b\\\"\",\"value\":0},{\"name\":\"row 1\",\"value\":1}]",
+				write(converter.createStream(result, 0, 2)));
+		assertEquals("[{\"name\":\"row 3\",\"value\":3},{\"name\":\"row 4\",\"value\":4}]",
+				write(converter.createStream(result, 3, 2)));
+		assertEquals("[{\"name\":\"row 9\",\"value\":9}]",
+				write(converter.createStream(result, 9, 5)));
+	}
+}
@@ -0,0 +1,190 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.executable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.Context;
+import javax.naming.spi.InitialContextFactory;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.harvard.hms.dbmi.bd2k.irct.action.Action;
+import edu.harvard.hms.dbmi.bd2k.irct.action.ActionStatus;
+import edu.harvard.hms.dbmi.bd2k.irct.event.IRCTEventListener;
+import edu.harvard.hms.dbmi.bd2k.irct.exception.ResourceInterfaceException;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.Result;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.ResultStatus;
+import edu.harvard.hms.dbmi.bd2k.irct.model.security.SecureSession;
+import edu.harvard.hms.dbmi.bd2k.irct.model.security.User;
+
+/**
+ * Tests running and cancelling execution plans
+ */
+public class ExecutionPlanTest {
+	private static String initialContextFactory;
+
+	/**
+	 * Returns a naming context that holds an event listener without any
+	 * listeners registered
+	 */
+	public static class ListenerContextFactory implements
+			InitialContextFactory {
+		private static final IRCTEventListener LISTENER = new IRCTEventListener();
+
+		static {
+			LISTENER.init();
+		}
+
+		@Override
+		public Context getInitialContext(Hashtable<?, ?> environment) {
+			return (Context) Proxy.newProxyInstance(
+					ExecutionPlanTest.class.getClassLoader(),
+					new Class<?>[] { Context.class },
+					(proxy, method, args) -> "lookup".equals(method.getName()) ? LISTENER
+							: null);
+		}
+	}
+
+	/**
+	 * An action that waits to be released, and records how it was run and
+	 * cancelled
+	 */
+	private static class WaitingAction implements Action {
+		private final String fingerprint;
+		private final CountDownLatch started = new CountDownLatch(1);
+		private final CountDownLatch release;
+		private final AtomicInteger runs = new AtomicInteger();
+		private final AtomicInteger cancels = new AtomicInteger();
+		private final AtomicInteger cancelsWithoutSession = new AtomicInteger();
+		private volatile ActionStatus status = ActionStatus.CREATED;
+
+		WaitingAction(String fingerprint, CountDownLatch release) {
+			this.fingerprint = fingerprint;
+			this.release = release;
+		}
+
+		@Override
+		public void run(SecureSession secureSession)
+				throws ResourceInterfaceException {
+			runs.incrementAndGet();
+			started.countDown();
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				throw new ResourceInterfaceException(e);
+			}
+		}
+
+		@Override
+		public void cancel(SecureSession secureSession) {
+			cancels.incrementAndGet();
+			if (secureSession == null) {
+				cancelsWithoutSession.incrementAndGet();
+			}
+			status = ActionStatus.CANCELLED;
+		}
+
+		@Override
+		public void updateActionParams(Map<String, Result> updatedParams) {
+		}
+
+		@Override
+		public Result getResults(SecureSession secureSession) {
+			Result result = new Result();
+			result.setResultStatus(ResultStatus.COMPLETE);
+			return result;
+		}
+
+		@Override
+		public ActionStatus getStatus() {
+			return status;
+		}
+
+		@Override
+		public String getFingerprint() {
+			return fingerprint;
+		}
+	}
+
+	@BeforeClass
+	public static void setUpNaming() {
+		initialContextFactory = System.getProperty(Context.INITIAL_CONTEXT_FACTORY);
+		System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+				ListenerContextFactory.class.getName());
+	}
+
+	@AfterClass
+	public static void tearDownNaming() {
+		if (initialContextFactory == null) {
+			System.clearProperty(Context.INITIAL_CONTEXT_FACTORY);
+		} else {
+			System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+					initialContextFactory);
+		}
+	}
+
+	private ExecutableChildNode createSubtree(WaitingAction nodeAction,
+			WaitingAction leafAction) {
+		ExecutableLeafNode leaf = new ExecutableLeafNode();
+		leaf.setAction(leafAction);
+		ExecutableChildNode node = new ExecutableChildNode();
+		node.setAction(nodeAction);
+		node.addChild("leaf", leaf);
+		return node;
+	}
+
+	/**
+	 * Test that cancelling a plan with a duplicated subtree only cancels the
+	 * executables that were started, and never the duplicate
+	 */
+	@Test
+	public void testCancelDuplicatedSubtree() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		WaitingAction rootAction = new WaitingAction("root", release);
+		WaitingAction nodeA = new WaitingAction("node", release);
+		WaitingAction leafA = new WaitingAction("leaf", release);
+		WaitingAction nodeB = new WaitingAction("node", release);
+		WaitingAction leafB = new WaitingAction("leaf", release);
+
+		ExecutableChildNode root = new ExecutableChildNode();
+		root.setAction(rootAction);
+		root.addChild("a", createSubtree(nodeA, leafA));
+		root.addChild("b", createSubtree(nodeB, leafB));
+
+		SecureSession session = new SecureSession();
+		session.setUser(new User("user"));
+		ExecutionPlan plan = new ExecutionPlan();
+		plan.setup(root, session);
+		CompletableFuture<Result> completion = plan.runAsync();
+
+		assertTrue(leafA.started.await(10, TimeUnit.SECONDS));
+		plan.cancel();
+		release.countDown();
+
+		assertEquals(ResultStatus.CANCELLED,
+				completion.get(10, TimeUnit.SECONDS).getResultStatus());
+		assertEquals(1, leafA.cancels.get());
+		for (WaitingAction action : new WaitingAction[] { rootAction, nodeA,
+				leafA, nodeB, leafB }) {
+			assertEquals(0, action.cancelsWithoutSession.get());
+		}
+		for (WaitingAction action : new WaitingAction[] { rootAction, nodeA,
+				nodeB, leafB }) {
+			assertEquals(0, action.cancels.get());
+			assertEquals(0, action.runs.get());
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.executable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import edu.harvard.hms.dbmi.bd2k.irct.action.Action;
+import edu.harvard.hms.dbmi.bd2k.irct.action.ActionStatus;
+import edu.harvard.hms.dbmi.bd2k.irct.exception.ResourceInterfaceException;
+import edu.harvard.hms.dbmi.bd2k.irct.model.resource.Resource;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.Result;
+import edu.harvard.hms.dbmi.bd2k.irct.model.security.SecureSession;
+import edu.harvard.hms.dbmi.bd2k.irct.model.security.User;
+
+/**
+ * Tests running executables through the execution scheduler
+ */
+public class ExecutionSchedulerTest {
+
+	/**
+	 * An action that records how many copies of it run at once
+	 */
+	private static class CountingAction implements Action {
+		private Resource resource;
+		private AtomicInteger running;
+		private AtomicInteger maxRunning;
+
+		CountingAction(Resource resource, AtomicInteger running,
+				AtomicInteger maxRunning) {
+			this.resource = resource;
+			this.running = running;
+			this.maxRunning = maxRunning;
+		}
+
+		@Override
+		public void run(SecureSession secureSession)
+				throws ResourceInterfaceException {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				throw new ResourceInterfaceException(e);
+			}
+			running.decrementAndGet();
+		}
+
+		@Override
+		public void updateActionParams(Map<String, Result> updatedParams) {
+		}
+
+		@Override
+		public Result getResults(SecureSession secureSession) {
+			return null;
+		}
+
+		@Override
+		public ActionStatus getStatus() {
+			return null;
+		}
+
+		@Override
+		public Resource getResource() {
+			return resource;
+		}
+	}
+
+	/**
+	 * Test that actions on a resource do not run above the resource limit
+	 */
+	@Test
+	public void testResourceLimit() throws Exception {
+		ExecutionScheduler scheduler = new ExecutionScheduler(4, 2, 4);
+		Resource resource = new Resource();
+		resource.setName("i2b2");
+		SecureSession session = new SecureSession();
+		session.setUser(new User("user"));
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		Action action = new CountingAction(resource, running, maxRunning);
+
+		List<CompletableFuture<Void>> runs = new ArrayList<CompletableFuture<Void>>();
+		for (int run = 0; run < 8; run++) {
+			runs.add(scheduler.runAction(action, session));
+		}
+		CompletableFuture.allOf(runs.toArray(new CompletableFuture<?>[runs.size()]))
+				.get(10, TimeUnit.SECONDS);
+		assertEquals(2, maxRunning.get());
+	}
+
+	/**
+	 * Test that actions waiting for a busy resource do not hold the threads
+	 * that other resources need
+	 */
+	@Test
+	public void testWaitingActions() throws Exception {
+		ExecutionScheduler scheduler = new ExecutionScheduler(2, 1, 10);
+		Resource slow = new Resource();
+		slow.setName("slow");
+		Resource fast = new Resource();
+		fast.setName("fast");
+		SecureSession session = new SecureSession();
+		session.setUser(new User("user"));
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+
+		Action blocking = new CountingAction(slow, running, maxRunning) {
+			@Override
+			public void run(SecureSession secureSession)
+					throws ResourceInterfaceException {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new ResourceInterfaceException(e);
+				}
+			}
+		};
+		List<CompletableFuture<Void>> slowRuns = new ArrayList<CompletableFuture<Void>>();
+		for (int run = 0; run < 5; run++) {
+			slowRuns.add(scheduler.runAction(blocking, session));
+		}
+
+		scheduler.runAction(new CountingAction(fast, running, maxRunning),
+				session).get(10, TimeUnit.SECONDS);
+		assertFalse(slowRuns.get(1).isDone());
+
+		release.countDown();
+		CompletableFuture.allOf(
+				slowRuns.toArray(new CompletableFuture<?>[slowRuns.size()]))
+				.get(10, TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,117 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.executable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import edu.harvard.hms.dbmi.bd2k.irct.action.Action;
+import edu.harvard.hms.dbmi.bd2k.irct.action.ActionStatus;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.Result;
+import edu.harvard.hms.dbmi.bd2k.irct.model.security.SecureSession;
+
+/**
+ * Tests the fingerprints used to share executables in an execution plan
+ */
+public class FingerprintTest {
+
+	/**
+	 * An action with a fixed fingerprint
+	 */
+	private static class FixedAction implements Action {
+		private String fingerprint;
+
+		FixedAction(String fingerprint) {
+			this.fingerprint = fingerprint;
+		}
+
+		@Override
+		public void run(SecureSession secureSession) {
+		}
+
+		@Override
+		public void updateActionParams(Map<String, Result> updatedParams) {
+		}
+
+		@Override
+		public Result getResults(SecureSession secureSession) {
+			return null;
+		}
+
+		@Override
+		public ActionStatus getStatus() {
+			return null;
+		}
+
+		@Override
+		public String getFingerprint() {
+			return fingerprint;
+		}
+	}
+
+	private ExecutableLeafNode leaf(String fingerprint) {
+		ExecutableLeafNode leaf = new ExecutableLeafNode();
+		leaf.setAction(new FixedAction(fingerprint));
+		return leaf;
+	}
+
+	/**
+	 * Test that values are fingerprinted independent of map order and of how
+	 * they are split
+	 */
+	@Test
+	public void testValues() {
+		Map<String, Object> values = new HashMap<String, Object>();
+		values.put("b", 2);
+		values.put("a", "1");
+		Map<String, Object> ordered = new LinkedHashMap<String, Object>();
+		ordered.put("a", "1");
+		ordered.put("b", 2);
+
+		assertEquals(new Fingerprint("query").add(values).toString(),
+				new Fingerprint("query").add(ordered).toString());
+		assertNotEquals(new Fingerprint("query").add("ab").add("c")
+				.toString(), new Fingerprint("query").add("a").add("bc")
+				.toString());
+		assertNotEquals(new Fingerprint("query").add((String) null)
+				.toString(), new Fingerprint("query").add("").toString());
+
+		values.put("c", new Object());
+		assertNull(new Fingerprint("query").add(values).toString());
+	}
+
+	/**
+	 * Test that identical subtrees have the same fingerprint and that a
+	 * subtree that cannot be shared makes its parents unshareable
+	 */
+	@Test
+	public void testSubtrees() {
+		ExecutableChildNode left = new ExecutableChildNode();
+		left.setAction(new FixedAction("join"));
+		left.addChild("1", leaf("query"));
+		left.addChild("2", leaf("process"));
+
+		ExecutableChildNode right = new ExecutableChildNode();
+		right.setAction(new FixedAction("join"));
+		right.addChild("2", leaf("process"));
+		right.addChild("1", leaf("query"));
+
+		assertNotNull(left.getFingerprint());
+		assertEquals(left.getFingerprint(), right.getFingerprint());
+
+		right.setBlocking(true);
+		assertNotEquals(left.getFingerprint(), right.getFingerprint());
+
+		left.addChild("3", leaf(null));
+		assertNull(left.getFingerprint());
+	}
+}
@@ -0,0 +1,111 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.resource;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.Test;
+
+/**
+ * Tests the conversion of the primitive data types to and from bytes
+ */
+public class PrimitiveDataTypeTest {
+
+	private void assertCodec(PrimitiveDataType dataType, Object value) {
+		byte[] expected = dataType.toBytes(value);
+		ByteBuffer buffer = ByteBuffer.allocate(64);
+		buffer.position(3);
+		int length = dataType.encode(value, buffer);
+
+		assertEquals(expected.length, length);
+		assertEquals(3 + length, buffer.position());
+		assertArrayEquals(expected,
+				Arrays.copyOfRange(buffer.array(), 3, 3 + length));
+		assertEquals(dataType.fromBytes(expected),
+				dataType.decode(buffer, 3, length));
+
+		ByteBuffer direct = ByteBuffer.allocateDirect(64);
+		direct.put(expected);
+		assertEquals(dataType.fromBytes(expected),
+				dataType.decode(direct, 0, length));
+	}
+
+	/**
+	 * Test that encoding into a buffer writes the same bytes as toBytes
+	 */
+	@Test
+	public void testEncode() {
+		assertCodec(PrimitiveDataType.STRING, "patient");
+		assertCodec(PrimitiveDataType.STRING, "  padded\t");
+		assertCodec(PrimitiveDataType.STRING, "");
+		assertCodec(PrimitiveDataType.STRING, "pair \uD83D\uDE00 lone \uD800!");
+		assertCodec(PrimitiveDataType.COLUMN, "column");
+		assertCodec(PrimitiveDataType.INTEGER, 42);
+		assertCodec(PrimitiveDataType.LONG, -7L);
+		assertCodec(PrimitiveDataType.DOUBLE, 2.5);
+		assertCodec(PrimitiveDataType.FLOAT, 1.25f);
+		assertCodec(PrimitiveDataType.DATE,
+				PrimitiveDataType.DATE.toDate(PrimitiveDataType.DATE
+						.parse("2016-02-29")));
+		assertCodec(PrimitiveDataType.STRING, null);
+	}
+
+	/**
+	 * Test decoding numbers and dates without boxing them
+	 */
+	@Test
+	public void testDecodePrimitives() {
+		ByteBuffer buffer = ByteBuffer.allocate(32);
+		int length = PrimitiveDataType.INTEGER.encode(12, buffer);
+		assertEquals(12L, PrimitiveDataType.INTEGER.decodeLong(buffer, 0, length));
+		assertEquals(12.0,
+				PrimitiveDataType.INTEGER.decodeDouble(buffer, 0, length), 0.0);
+
+		buffer.clear();
+		length = PrimitiveDataType.DATETIME.encode("2016-03-01 13:45:10",
+				buffer);
+		assertEquals(PrimitiveDataType.DATETIME.parse("2016-03-01 13:45:10"),
+				PrimitiveDataType.DATETIME.decodeLong(buffer, 0, length));
+
+		buffer.clear();
+		length = PrimitiveDataType.DATE.encode(null, buffer);
+		assertNull(PrimitiveDataType.DATE.decode(buffer, 0, length));
+		assertNull(PrimitiveDataType.DATE.fromBytes(new byte[] { 0 }));
+		assertEquals(new Date(PrimitiveDataType.TIME.toDate(0).getTime()),
+				PrimitiveDataType.TIME.fromBytes("00:00:00".getBytes()));
+	}
+
+	/**
+	 * Test that the validators without patterns accept the same strings as
+	 * the patterns
+	 */
+	@Test
+	public void testValidate() {
+		String[] values = { "", "0", "12", "-12", "+12", "1.5", "-1.5", ".5",
+				"5.", ".", "-", "+", "1.2.3", "1e5", "12345678901234567890",
+				"1234567890123456789", "-1234567890123456789",
+				"12345678901234.5", "1234567890123.5", "true", "FALSE",
+				"truex", "a", "\n", "ab", " 1", "1 ", "\u0661" };
+		PrimitiveDataType[] dataTypes = { PrimitiveDataType.BOOLEAN,
+				PrimitiveDataType.BYTE, PrimitiveDataType.DOUBLE,
+				PrimitiveDataType.FLOAT, PrimitiveDataType.INTEGER,
+				PrimitiveDataType.LONG, PrimitiveDataType.RESULTSET,
+				PrimitiveDataType.STRING, PrimitiveDataType.DATE };
+		for (PrimitiveDataType dataType : dataTypes) {
+			for (String value : values) {
+				assertEquals(dataType + " " + value, dataType.getPattern()
+						.matcher(value).matches(), dataType.validate(value));
+			}
+		}
+		assertSame(PrimitiveDataType.LONG.getPattern(),
+				PrimitiveDataType.LONG.getPattern());
+	}
+}
@@ -0,0 +1,72 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.result;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests reading and writing the cursors of result pages
+ */
+public class ResultCursorTest {
+
+	/**
+	 * Test that a cursor is read back from its string
+	 */
+	@Test
+	public void testParse() {
+		ResultCursor cursor = ResultCursor.parse(new ResultCursor(new Date(
+				1500000000000L), 42L).toString());
+		assertEquals(new Date(1500000000000L), cursor.getEndTime());
+		assertEquals(Long.valueOf(42), cursor.getId());
+
+		cursor = ResultCursor.parse(new ResultCursor(null, 7L).toString());
+		assertNull(cursor.getEndTime());
+		assertEquals(Long.valueOf(7), cursor.getId());
+
+		assertNull(ResultCursor.parse(null));
+		assertNull(ResultCursor.parse(""));
+	}
+
+	/**
+	 * Test that an invalid cursor is rejected
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalid() {
+		ResultCursor.parse("not a cursor");
+	}
+
+	private ResultSummary createSummary(long id, Long endTime) {
+		return new ResultSummary(id, new Date(0), (endTime == null) ? null
+				: new Date(endTime), ResultStatus.AVAILABLE,
+				ResultDataType.TABULAR, "QUERY", null);
+	}
+
+	/**
+	 * Test that results that have not ended are listed first, followed by the
+	 * newest results, with ties broken by id
+	 */
+	@Test
+	public void testOrder() {
+		List<ResultSummary> results = new ArrayList<ResultSummary>(
+				Arrays.asList(createSummary(1, 100L), createSummary(2, null),
+						createSummary(3, 200L), createSummary(4, 100L),
+						createSummary(5, null)));
+		results.sort(ResultCursor.ORDER);
+
+		long[] ids = new long[results.size()];
+		for (int index = 0; index < ids.length; index++) {
+			ids[index] = results.get(index).getId();
+		}
+		assertArrayEquals(new long[] { 5, 2, 3, 4, 1 }, ids);
+	}
+}
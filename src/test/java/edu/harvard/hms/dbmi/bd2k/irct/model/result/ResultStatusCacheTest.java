@@ -0,0 +1,79 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.harvard.hms.dbmi.bd2k.irct.model.security.User;
+
+/**
+ * Tests caching the status of results
+ */
+public class ResultStatusCacheTest {
+
+	private Result createResult(long id, String userId, ResultStatus status) {
+		Result result = new Result();
+		result.setId(id);
+		if (userId != null) {
+			result.setUser(new User(userId));
+		}
+		result.setResultStatus(status);
+		result.setDataType(ResultDataType.TABULAR);
+		return result;
+	}
+
+	/**
+	 * Test that the cached status is updated when a result is saved and
+	 * removed when it is invalidated
+	 */
+	@Test
+	public void testWriteThrough() {
+		ResultStatusCache cache = new ResultStatusCache(10);
+		Result result = createResult(1, "user", ResultStatus.RUNNING);
+		cache.put(result);
+		assertEquals(ResultStatus.RUNNING, cache.get(1L).getResultStatus());
+
+		result.setResultStatus(ResultStatus.AVAILABLE);
+		assertEquals(ResultStatus.RUNNING, cache.get(1L).getResultStatus());
+		cache.put(result);
+		assertEquals(ResultStatus.AVAILABLE, cache.get(1L).getResultStatus());
+		assertEquals(ResultDataType.TABULAR, cache.get(1L).getDataType());
+
+		cache.invalidate(1L);
+		assertNull(cache.get(1L));
+		assertNull(cache.get(null));
+	}
+
+	/**
+	 * Test that only the owner has access to a result with an owner
+	 */
+	@Test
+	public void testAccess() {
+		ResultStatusCache cache = new ResultStatusCache(10);
+		cache.put(createResult(1, "user", ResultStatus.AVAILABLE));
+		cache.put(createResult(2, null, ResultStatus.AVAILABLE));
+
+		assertTrue(cache.get(1L).isAccessibleBy(new User("user")));
+		assertFalse(cache.get(1L).isAccessibleBy(new User("other")));
+		assertFalse(cache.get(1L).isAccessibleBy(null));
+		assertTrue(cache.get(2L).isAccessibleBy(new User("other")));
+	}
+
+	/**
+	 * Test that the cache does not grow above its maximum size
+	 */
+	@Test
+	public void testMaximumSize() {
+		ResultStatusCache cache = new ResultStatusCache(3);
+		for (long id = 0; id < 10; id++) {
+			cache.put(createResult(id, "user", ResultStatus.AVAILABLE));
+		}
+		assertEquals(3, cache.size());
+	}
+}
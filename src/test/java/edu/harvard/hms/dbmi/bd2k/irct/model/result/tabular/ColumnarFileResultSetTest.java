@@ -0,0 +1,278 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.harvard.hms.dbmi.bd2k.irct.model.resource.PrimitiveDataType;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.exception.ResultSetException;
+
+/**
+ * Tests persisting and reading back a Columnar File Result Set
+ */
+public class ColumnarFileResultSetTest {
+	private static final int ROWS = 2000;
+
+	private Path folder;
+	private String location;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		this.folder = Files.createTempDirectory("cfrs");
+		this.location = folder.resolve("1").toString();
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		for (File file : folder.toFile().listFiles()) {
+			file.delete();
+		}
+		Files.delete(folder);
+	}
+
+	private void createResultSet() throws Exception {
+		ColumnarFileResultSet rs = new ColumnarFileResultSet();
+		rs.persist(location);
+
+		Column patient = new Column();
+		patient.setName("patient");
+		patient.setDataType(PrimitiveDataType.STRING);
+		rs.appendColumn(patient);
+
+		Column gender = new Column();
+		gender.setName("gender");
+		gender.setDataType(PrimitiveDataType.STRING);
+		rs.appendColumn(gender);
+
+		Column age = new Column();
+		age.setName("age");
+		age.setDataType(PrimitiveDataType.INTEGER);
+		rs.appendColumn(age);
+
+		Column weight = new Column();
+		weight.setName("weight");
+		weight.setDataType(PrimitiveDataType.DOUBLE);
+		rs.appendColumn(weight);
+
+		for (int row = 0; row < ROWS; row++) {
+			rs.appendRow();
+			rs.updateString("patient", "patient " + row);
+			rs.updateString("gender", (row % 2 == 0) ? "male" : "female");
+			rs.updateInt("age", row);
+			if (row % 7 != 0) {
+				rs.updateDouble("weight", row / 4.0);
+			}
+		}
+		rs.merge();
+		rs.close();
+	}
+
+	private ColumnarFileResultSet loadResultSet() throws Exception {
+		ColumnarFileResultSet rs = new ColumnarFileResultSet();
+		rs.load(location);
+		return rs;
+	}
+
+	/**
+	 * Test that every column is read back
+	 */
+	@Test
+	public void testRoundTrip() throws Exception {
+		createResultSet();
+		ColumnarFileResultSet rs = loadResultSet();
+
+		assertEquals(ROWS, rs.getSize());
+		assertEquals(4, rs.getColumnSize());
+		rs.beforeFirst();
+		int row = 0;
+		while (rs.next()) {
+			assertEquals("patient " + row, rs.getString("patient"));
+			assertEquals((row % 2 == 0) ? "male" : "female",
+					rs.getString("gender"));
+			assertEquals(row, rs.getInt("age"));
+			if (row % 7 == 0) {
+				assertNull(rs.getObject(3));
+			} else {
+				assertEquals(row / 4.0, rs.getDouble("weight"), 0.0);
+			}
+			row++;
+		}
+		assertEquals(ROWS, row);
+		assertTrue(rs.last());
+		assertTrue(rs.isLast());
+		rs.close();
+	}
+
+	/**
+	 * Test that a projected result set only exposes the projected columns
+	 */
+	@Test
+	public void testProject() throws Exception {
+		createResultSet();
+		ColumnarFileResultSet rs = loadResultSet();
+		rs.project("age", "patient");
+
+		assertEquals(2, rs.getColumnSize());
+		assertEquals("age", rs.getColumn(0).getName());
+		assertEquals(1, rs.findColumn("patient"));
+		rs.absolute(1234);
+		assertEquals(1234, rs.getInt(0));
+		assertEquals("patient 1234", rs.getString(1));
+		assertEquals("patient 1234", rs.getCurrentRow().getColumn(1));
+
+		try {
+			rs.findColumn("gender");
+			assertTrue(false);
+		} catch (ResultSetException e) {
+			assertTrue(rs.isProjected());
+		}
+
+		rs.project();
+		assertFalse(rs.isProjected());
+		assertEquals("male", rs.getString("gender"));
+		rs.close();
+	}
+
+	/**
+	 * Test that updates to a persisted result are merged
+	 */
+	@Test
+	public void testMerge() throws Exception {
+		createResultSet();
+		ColumnarFileResultSet rs = loadResultSet();
+		rs.absolute(10);
+		rs.updateString(0, "updated");
+		rs.appendRow();
+		rs.updateInt("age", ROWS);
+		rs.merge();
+		rs.close();
+
+		rs = loadResultSet();
+		assertEquals(ROWS + 1, rs.getSize());
+		rs.absolute(10);
+		assertEquals("updated", rs.getString(0));
+		assertEquals(10, rs.getInt("age"));
+		rs.absolute(11);
+		assertEquals("patient 11", rs.getString(0));
+		rs.last();
+		assertEquals(ROWS, rs.getInt("age"));
+		assertNull(rs.getString(0));
+		rs.close();
+	}
+
+	/**
+	 * Test that repeated values are shared and distinct values are written
+	 * once per row
+	 */
+	@Test
+	public void testDictionary() throws Exception {
+		createResultSet();
+
+		// male and female are each stored once
+		assertEquals(4 + 4 + 4 + 6, Files.size(Paths.get(location + ".1.val")));
+		assertTrue(Files.size(Paths.get(location + ".0.val")) > ROWS * 4);
+		assertEquals(ROWS * 8, Files.size(Paths.get(location + ".0.col")));
+	}
+
+	/**
+	 * Test that rows appended to a persisted result set are written to the
+	 * end of the column files once the pending rows reach the maximum
+	 */
+	@Test
+	public void testAppend() throws Exception {
+		createResultSet();
+		ColumnarFileResultSet rs = loadResultSet();
+		rs.setMaxPending(100);
+		for (int row = ROWS; row < ROWS + 450; row++) {
+			rs.appendRow();
+			rs.updateString("patient", "patient " + row);
+			rs.updateString("gender", "female");
+			rs.updateInt("age", row);
+		}
+		assertEquals((ROWS + 400) * 4,
+				Files.size(Paths.get(location + ".2.col")));
+		rs.merge();
+		rs.close();
+
+		rs = loadResultSet();
+		assertEquals(ROWS + 450, rs.getSize());
+		rs.absolute(3);
+		assertEquals("patient 3", rs.getString("patient"));
+		assertEquals(3 / 4.0, rs.getDouble("weight"), 0.0);
+		rs.absolute(ROWS + 123);
+		assertEquals("patient " + (ROWS + 123), rs.getString("patient"));
+		assertEquals("female", rs.getString("gender"));
+		assertEquals(ROWS + 123, rs.getInt("age"));
+		assertNull(rs.getObject(3));
+		rs.last();
+		assertEquals(ROWS + 449, rs.getInt("age"));
+		rs.close();
+	}
+
+	/**
+	 * Test that dates and times are persisted as epoch values and read back
+	 */
+	@Test
+	public void testDates() throws Exception {
+		ColumnarFileResultSet rs = new ColumnarFileResultSet();
+		rs.persist(location);
+
+		Column visit = new Column();
+		visit.setName("visit");
+		visit.setDataType(PrimitiveDataType.DATE);
+		rs.appendColumn(visit);
+
+		Column recorded = new Column();
+		recorded.setName("recorded");
+		recorded.setDataType(PrimitiveDataType.DATETIME);
+		rs.appendColumn(recorded);
+
+		Date start = PrimitiveDataType.DATETIME.toDate(PrimitiveDataType.DATETIME
+				.parse("2016-03-01 13:45:10"));
+		for (int row = 0; row < 40; row++) {
+			rs.appendRow();
+			rs.updateString("visit", "2016-03-" + (row % 28 + 1));
+			if (row % 5 != 0) {
+				rs.updateDate("recorded", new Date(start.getTime() + row
+						* 3600000L));
+			}
+		}
+		rs.merge();
+		rs.close();
+
+		assertFalse(Files.exists(Paths.get(location + ".0.dict")));
+		assertEquals(40 * 8, Files.size(Paths.get(location + ".1.col")));
+
+		rs = loadResultSet();
+		rs.absolute(9);
+		assertEquals("2016-03-10", rs.getString("visit"));
+		assertEquals("2016-03-01 22:45:10", rs.getString("recorded"));
+		assertEquals(start.getTime() + 9 * 3600000L, rs.getDate("recorded")
+				.getTime());
+		assertEquals(PrimitiveDataType.DATE.parse("2016-03-10"),
+				rs.getObject(0));
+		rs.absolute(10);
+		assertNull(rs.getDate("recorded"));
+		rs.close();
+	}
+}
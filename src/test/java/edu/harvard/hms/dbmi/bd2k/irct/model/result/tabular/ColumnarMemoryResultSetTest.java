@@ -0,0 +1,121 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.harvard.hms.dbmi.bd2k.irct.model.resource.PrimitiveDataType;
+
+/**
+ * Tests storing values in a Columnar Memory Result Set
+ */
+public class ColumnarMemoryResultSetTest {
+	private static final int ROWS = 1000;
+
+	private Column createColumn(String name, PrimitiveDataType dataType) {
+		Column column = new Column();
+		column.setName(name);
+		column.setDataType(dataType);
+		return column;
+	}
+
+	/**
+	 * Test that typed values are read back from each kind of column vector
+	 */
+	@Test
+	public void testTypedValues() throws Exception {
+		ColumnarMemoryResultSet mrs = new ColumnarMemoryResultSet();
+		mrs.appendColumn(createColumn("patient", PrimitiveDataType.STRING));
+		mrs.appendColumn(createColumn("age", PrimitiveDataType.INTEGER));
+		mrs.appendColumn(createColumn("visits", PrimitiveDataType.LONG));
+		mrs.appendColumn(createColumn("weight", PrimitiveDataType.DOUBLE));
+		mrs.appendColumn(createColumn("alive", PrimitiveDataType.BOOLEAN));
+
+		for (int row = 0; row < ROWS; row++) {
+			mrs.appendRow();
+			mrs.updateString("patient", "patient " + row);
+			mrs.updateInt("age", row);
+			mrs.updateLong("visits", row * 10000000000L);
+			if (row % 7 != 0) {
+				mrs.updateDouble("weight", row / 4.0);
+			}
+			mrs.updateBoolean("alive", row % 2 == 0);
+		}
+		assertEquals(ROWS, mrs.getSize());
+
+		for (int row : new int[] { 999, 0, 13, 500 }) {
+			assertTrue(mrs.absolute(row));
+			assertEquals("patient " + row, mrs.getString(0));
+			assertEquals(row, mrs.getInt(1));
+			assertEquals(row * 10000000000L, mrs.getLong(2));
+			assertEquals(row / 4.0, mrs.getDouble(3), 0.0);
+			assertEquals(row % 2 == 0, mrs.getBoolean(4));
+			assertEquals(Integer.valueOf(row), mrs.getObject(1));
+		}
+
+		mrs.absolute(14);
+		assertTrue(mrs.isNull(3));
+		assertNull(mrs.getObject(3));
+		assertNull(mrs.getCurrentRow().getColumn(3));
+		mrs.updateDouble(3, 1.5);
+		assertFalse(mrs.isNull(3));
+		assertEquals(Double.valueOf(1.5), mrs.getObject(3));
+
+		assertTrue(mrs.last());
+		assertEquals(ROWS - 1, mrs.getInt(1));
+	}
+
+	/**
+	 * Test that rows added in bulk start out null
+	 */
+	@Test
+	public void testAppendRows() throws Exception {
+		ColumnarMemoryResultSet mrs = new ColumnarMemoryResultSet(4);
+		mrs.appendColumn(createColumn("age", PrimitiveDataType.INTEGER));
+		mrs.appendRows(100);
+		assertEquals(100, mrs.getSize());
+		assertEquals(0, mrs.getRow());
+		assertTrue(mrs.isNull(0));
+		mrs.absolute(99);
+		mrs.updateInt(0, 99);
+		assertEquals(99, mrs.getInt(0));
+		mrs.absolute(98);
+		assertNull(mrs.getObject(0));
+	}
+
+	/**
+	 * Test that batches are copied from the column vectors
+	 */
+	@Test
+	public void testNextBatch() throws Exception {
+		ColumnarMemoryResultSet mrs = new ColumnarMemoryResultSet();
+		mrs.appendColumn(createColumn("age", PrimitiveDataType.INTEGER));
+		mrs.appendColumn(createColumn("patient", PrimitiveDataType.STRING));
+		for (int row = 0; row < ROWS; row++) {
+			mrs.appendRow();
+			mrs.updateInt(0, row);
+			if (row % 3 != 0) {
+				mrs.updateString(1, "patient " + row);
+			}
+		}
+
+		mrs.beforeFirst();
+		ColumnBatch batch = mrs.nextBatch(600);
+		assertEquals(600, batch.getSize());
+		assertEquals(599, batch.getInt(0, 599));
+		assertEquals(599, mrs.getRow());
+		batch = mrs.nextBatch(600);
+		assertEquals(600, batch.getFirstRow());
+		assertEquals(400, batch.getSize());
+		assertEquals(601, batch.getInt(0, 1));
+		assertEquals("patient 601", batch.getString(1, 1));
+		assertTrue(batch.isNull(1, 0));
+		assertEquals(0, mrs.nextBatch(600).getSize());
+	}
+}
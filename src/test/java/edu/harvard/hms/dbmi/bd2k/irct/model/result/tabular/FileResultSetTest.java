@@ -0,0 +1,586 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.harvard.hms.dbmi.bd2k.irct.model.resource.PrimitiveDataType;
+
+/**
+ * Tests persisting and reading back a File Result Set
+ */
+public class FileResultSetTest {
+	private static final int ROWS = 2000;
+
+	private Path folder;
+	private String location;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		this.folder = Files.createTempDirectory("frs");
+		this.location = folder.resolve("1").toString();
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		for (File file : folder.toFile().listFiles()) {
+			file.delete();
+		}
+		Files.delete(folder);
+	}
+
+	private void createResultSet() throws Exception {
+		FileResultSet frs = new FileResultSet();
+		frs.persist(location);
+
+		Column patient = new Column();
+		patient.setName("patient");
+		patient.setDataType(PrimitiveDataType.STRING);
+		frs.appendColumn(patient);
+
+		Column gender = new Column();
+		gender.setName("gender");
+		gender.setDataType(PrimitiveDataType.STRING);
+		frs.appendColumn(gender);
+
+		Column age = new Column();
+		age.setName("age");
+		age.setDataType(PrimitiveDataType.INTEGER);
+		frs.appendColumn(age);
+
+		Column weight = new Column();
+		weight.setName("weight");
+		weight.setDataType(PrimitiveDataType.DOUBLE);
+		frs.appendColumn(weight);
+
+		for (int row = 0; row < ROWS; row++) {
+			frs.appendRow();
+			frs.updateString("patient", "patient " + row);
+			frs.updateString("gender", (row % 2 == 0) ? "male" : "female");
+			frs.updateInt("age", row);
+			if (row % 7 != 0) {
+				frs.updateDouble("weight", row / 4.0);
+			}
+		}
+		frs.merge();
+		frs.close();
+	}
+
+	private FileResultSet loadResultSet() throws Exception {
+		FileResultSet frs = new FileResultSet();
+		frs.load(location);
+		return frs;
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular.FileResultSet#absolute(long)}
+	 * .
+	 */
+	@Test
+	public void testAbsolute() throws Exception {
+		createResultSet();
+		FileResultSet frs = loadResultSet();
+
+		assertEquals(ROWS, frs.getSize());
+		for (long row : new long[] { 1500, 3, ROWS - 1, 0, 999 }) {
+			assertTrue(frs.absolute(row));
+			assertEquals("patient " + row, frs.getString("patient"));
+		}
+
+		assertTrue(frs.last());
+		assertEquals("patient " + (ROWS - 1), frs.getString(0));
+		assertTrue(frs.relative(-10));
+		assertEquals("patient " + (ROWS - 11), frs.getString(0));
+		assertEquals("female", frs.getString(1));
+		frs.close();
+	}
+
+	/**
+	 * Test that numeric values containing delimiter bytes are read back
+	 */
+	@Test
+	public void testNumericValues() throws Exception {
+		createResultSet();
+		FileResultSet frs = loadResultSet();
+
+		for (int row : new int[] { 9, 10, 13, 1290, 1 }) {
+			frs.absolute(row);
+			assertEquals("patient " + row, frs.getString("patient"));
+			assertEquals(row, frs.getInt("age"));
+			assertEquals(row / 4.0, frs.getDouble("weight"), 0.0);
+		}
+		frs.absolute(14);
+		assertNull(frs.getObject(3));
+		frs.close();
+	}
+
+	/**
+	 * Test reading the data file through a memory mapping
+	 */
+	@Test
+	public void testMappedRead() throws Exception {
+		createResultSet();
+		FileResultSet frs = loadResultSet();
+		frs.setMapThreshold(0);
+
+		for (int row : new int[] { 1999, 10, 0, 1290 }) {
+			frs.absolute(row);
+			assertEquals("patient " + row, frs.getString("patient"));
+			assertEquals(row, frs.getInt("age"));
+		}
+		frs.beforeFirst();
+		int row = 0;
+		while (frs.next()) {
+			assertEquals(row, frs.getInt("age"));
+			row++;
+		}
+		assertEquals(ROWS, row);
+		frs.close();
+	}
+
+	/**
+	 * Test that results persisted in the delimited format can be read and are
+	 * upgraded when merged
+	 */
+	@Test
+	public void testDelimitedFormat() throws Exception {
+		Files.write(Paths.get(location + ".info"),
+				("{\"size\":3,\"columns\":[{\"name\":\"patient\","
+						+ "\"dataType\":\"STRING\"}]}").getBytes());
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		for (int row = 0; row < 3; row++) {
+			data.write(("patient " + row).getBytes(StandardCharsets.UTF_16));
+			data.write('\n');
+		}
+		Files.write(Paths.get(location + ".data"), data.toByteArray());
+
+		FileResultSet frs = loadResultSet();
+		assertTrue(frs.absolute(2));
+		assertEquals("patient 2", frs.getString(0));
+		frs.absolute(0);
+		assertEquals("patient 0", frs.getString(0));
+		frs.updateString(0, "updated");
+		frs.merge();
+		frs.close();
+
+		frs = loadResultSet();
+		assertEquals(BinaryRowFormat.VERSION, frs.toJson().getInt("version"));
+		frs.absolute(0);
+		assertEquals("updated", frs.getString(0));
+		frs.absolute(1);
+		assertEquals("patient 1", frs.getString(0));
+		frs.close();
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular.FileResultSet#next()}
+	 * .
+	 */
+	@Test
+	public void testNext() throws Exception {
+		createResultSet();
+		FileResultSet frs = loadResultSet();
+
+		frs.beforeFirst();
+		int row = 0;
+		while (frs.next()) {
+			assertEquals("patient " + row, frs.getString(0));
+			row++;
+		}
+		assertEquals(ROWS, row);
+		frs.close();
+	}
+
+	/**
+	 * Test that low cardinality STRING columns are dictionary encoded while
+	 * high cardinality columns are stored in the rows
+	 */
+	@Test
+	public void testDictionaryEncoding() throws Exception {
+		createResultSet();
+		Path dictionaryFile = Paths.get(location + ".dict");
+		assertTrue(Files.exists(dictionaryFile));
+		assertTrue(Files.size(dictionaryFile) < 4096);
+
+		FileResultSet frs = loadResultSet();
+		for (int row : new int[] { 1999, 0, 1025, 1290 }) {
+			frs.absolute(row);
+			assertEquals("patient " + row, frs.getString("patient"));
+			assertEquals((row % 2 == 0) ? "male" : "female",
+					frs.getString("gender"));
+		}
+		frs.absolute(3);
+		frs.updateString("gender", "unknown");
+		frs.merge();
+		frs.close();
+
+		frs = loadResultSet();
+		frs.absolute(3);
+		assertEquals("unknown", frs.getString("gender"));
+		frs.absolute(4);
+		assertEquals("male", frs.getString("gender"));
+		frs.close();
+	}
+
+	/**
+	 * Test that a result set is rewritten as compressed blocks and that rows
+	 * are read back from any block
+	 */
+	@Test
+	public void testCompression() throws Exception {
+		createResultSet();
+		long uncompressedSize = Files.size(Paths.get(location + ".data"));
+
+		FileResultSet frs = loadResultSet();
+		frs.setCodec("deflate");
+		frs.merge();
+		frs.close();
+		assertTrue(Files.size(Paths.get(location + ".data")) < uncompressedSize);
+		assertTrue(Files.exists(Paths.get(location + ".blk")));
+
+		Files.delete(Paths.get(location + ".idx"));
+		frs = loadResultSet();
+		assertEquals("deflate", frs.getCodec());
+		for (int row : new int[] { 1999, 0, 1024, 1023, 1290 }) {
+			frs.absolute(row);
+			assertEquals("patient " + row, frs.getString("patient"));
+			assertEquals(row, frs.getInt("age"));
+		}
+		frs.absolute(5);
+		frs.updateString("patient", "updated");
+		frs.setCodec("none");
+		frs.merge();
+		frs.close();
+
+		assertFalse(Files.exists(Paths.get(location + ".blk")));
+		frs = loadResultSet();
+		frs.absolute(5);
+		assertEquals("updated", frs.getString("patient"));
+		frs.absolute(1500);
+		assertEquals(1500, frs.getInt("age"));
+		frs.close();
+	}
+
+	/**
+	 * Test that appended rows are written to the data file once the pending
+	 * limit is reached, for both uncompressed and compressed data files
+	 */
+	@Test
+	public void testStreamingAppend() throws Exception {
+		for (String codec : new String[] { "none", "deflate" }) {
+			FileResultSet frs = new FileResultSet();
+			frs.persist(location);
+			frs.setMaxPending(100);
+			frs.setCodec(codec);
+
+			Column patient = new Column();
+			patient.setName("patient");
+			patient.setDataType(PrimitiveDataType.STRING);
+			frs.appendColumn(patient);
+			Column age = new Column();
+			age.setName("age");
+			age.setDataType(PrimitiveDataType.INTEGER);
+			frs.appendColumn(age);
+
+			for (int row = 0; row < ROWS + 50; row++) {
+				frs.appendRow();
+				frs.updateString("patient", "patient " + row);
+				frs.updateInt("age", row);
+				if (row == 1500) {
+					assertTrue(frs.absolute(42));
+					assertEquals("patient 42", frs.getString(0));
+					frs.updateString(0, "updated");
+					assertTrue(frs.absolute(row));
+				}
+			}
+
+			FileResultSet partial = loadResultSet();
+			assertTrue(partial.getSize() >= ROWS + 50 - 1024);
+			partial.close();
+
+			frs.merge();
+			frs.close();
+
+			frs = loadResultSet();
+			assertEquals(codec, frs.getCodec());
+			assertEquals(ROWS + 50, frs.getSize());
+			frs.beforeFirst();
+			int row = 0;
+			while (frs.next()) {
+				assertEquals(row, frs.getInt("age"));
+				assertEquals((row == 42) ? "updated" : "patient " + row,
+						frs.getString("patient"));
+				row++;
+			}
+			assertEquals(ROWS + 50, row);
+			frs.close();
+
+			for (File file : folder.toFile().listFiles()) {
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * Test that a loaded result set that has not been persisted writes its
+	 * rows to its files once its buffer fills, instead of being limited to
+	 * the rows it can hold
+	 */
+	@Test
+	public void testAppendBeforePersist() throws Exception {
+		FileResultSet frs = new FileResultSet();
+		frs.load(location);
+		frs.setMaxPending(100);
+
+		Column age = new Column();
+		age.setName("age");
+		age.setDataType(PrimitiveDataType.INTEGER);
+		frs.appendColumn(age);
+
+		for (int row = 0; row < ROWS; row++) {
+			frs.appendRow();
+			frs.updateInt("age", row);
+		}
+		assertTrue(frs.isPersisted());
+		frs.merge();
+		frs.close();
+
+		frs = loadResultSet();
+		assertEquals(ROWS, frs.getSize());
+		assertTrue(frs.absolute(ROWS - 1));
+		assertEquals(ROWS - 1, frs.getInt("age"));
+		frs.close();
+	}
+
+	/**
+	 * Test that batches hold the persisted, updated and appended rows and
+	 * that the cursor follows the batches
+	 */
+	@Test
+	public void testNextBatch() throws Exception {
+		createResultSet();
+		FileResultSet frs = loadResultSet();
+		frs.absolute(5);
+		frs.updateInt("age", -5);
+		frs.last();
+		frs.appendRow();
+		frs.updateString("patient", "appended");
+		frs.updateInt("age", ROWS);
+
+		frs.beforeFirst();
+		int rows = 0;
+		for (ColumnBatch batch = frs.nextBatch(300); batch.getSize() > 0; batch = frs
+				.nextBatch(300)) {
+			assertEquals(rows, batch.getFirstRow());
+			for (int row = 0; row < batch.getSize(); row++, rows++) {
+				assertEquals((rows == 5) ? -5 : rows, batch.getInt(2, row));
+				assertEquals((rows % 7 == 0) || (rows == ROWS),
+						batch.isNull(3, row));
+				if (rows < ROWS) {
+					assertEquals("patient " + rows, batch.getString(0, row));
+				}
+				if (!batch.isNull(3, row)) {
+					assertEquals(rows / 4.0, batch.getDouble(3, row), 0.0);
+				}
+			}
+			assertEquals(rows - 1, frs.getRow());
+			assertEquals(rows - 1, frs.getInt("age"));
+		}
+		assertEquals(ROWS + 1, rows);
+		frs.absolute(ROWS);
+		assertEquals("appended", frs.getString(0));
+		frs.close();
+	}
+
+	/**
+	 * Test that the rows are read in parallel from uncompressed and
+	 * compressed data files
+	 */
+	@Test
+	public void testParallelStream() throws Exception {
+		createResultSet();
+		long expected = (long) ROWS * (ROWS - 1) / 2;
+		for (String codec : new String[] { "none", "deflate" }) {
+			FileResultSet frs = loadResultSet();
+			frs.setCodec(codec);
+			frs.merge();
+
+			assertNotNull(frs.spliterator().trySplit());
+			assertEquals(ROWS, frs.stream().count());
+			assertEquals(expected,
+					frs.stream().parallel()
+							.mapToLong(row -> (Integer) row.getColumn(2)).sum());
+			assertEquals(
+					ROWS / 2,
+					frs.stream().parallel()
+							.filter(row -> "male".equals(row.getColumn(1)))
+							.count());
+			assertEquals("patient 1500", frs.stream().skip(1500).findFirst()
+					.get().getColumn(0));
+			frs.close();
+		}
+	}
+
+	/**
+	 * Test that a window of rows is read from uncompressed and compressed
+	 * data files
+	 */
+	@Test
+	public void testWindow() throws Exception {
+		createResultSet();
+		for (String codec : new String[] { "none", "deflate" }) {
+			FileResultSet frs = loadResultSet();
+			frs.setCodec(codec);
+			frs.merge();
+
+			assertEquals(100, frs.stream(1000, 100).count());
+			assertEquals("patient 1000", frs.stream(1000, 100).findFirst()
+					.get().getColumn(0));
+			assertEquals(10, frs.stream(ROWS - 10, 100).count());
+			assertEquals(0, frs.stream(ROWS + 10, 100).count());
+			assertEquals(ROWS - 5, frs.stream(5, Long.MAX_VALUE).count());
+			frs.close();
+		}
+	}
+
+	/**
+	 * Test that merging a result set without dictionary encoded columns does
+	 * not leave a dictionary file behind
+	 */
+	@Test
+	public void testMergeWithoutDictionary() throws Exception {
+		FileResultSet frs = new FileResultSet();
+		frs.persist(location);
+		Column age = new Column();
+		age.setName("age");
+		age.setDataType(PrimitiveDataType.INTEGER);
+		frs.appendColumn(age);
+		for (int row = 0; row < 10; row++) {
+			frs.appendRow();
+			frs.updateInt("age", row);
+		}
+		frs.merge();
+		frs.close();
+
+		assertFalse(Files.exists(Paths.get(location + ".dict")));
+		assertFalse(Files.exists(Paths.get(location + ".dict.temp")));
+		frs = loadResultSet();
+		assertTrue(frs.absolute(9));
+		assertEquals(9, frs.getInt("age"));
+		frs.close();
+	}
+
+	/**
+	 * Test that the row index is rebuilt for results persisted without one
+	 */
+	@Test
+	public void testMissingIndex() throws Exception {
+		createResultSet();
+		Path indexFile = Paths.get(location + ".idx");
+		assertTrue(Files.exists(indexFile));
+		Files.delete(indexFile);
+
+		FileResultSet frs = loadResultSet();
+		assertTrue(frs.absolute(1234));
+		assertEquals("patient 1234", frs.getString(0));
+		assertTrue(Files.exists(indexFile));
+		frs.close();
+	}
+
+	/**
+	 * Test that dates and times are persisted as epoch values and read back
+	 */
+	@Test
+	public void testDates() throws Exception {
+		FileResultSet frs = new FileResultSet();
+		frs.persist(location);
+
+		Column visit = new Column();
+		visit.setName("visit");
+		visit.setDataType(PrimitiveDataType.DATE);
+		frs.appendColumn(visit);
+
+		Column recorded = new Column();
+		recorded.setName("recorded");
+		recorded.setDataType(PrimitiveDataType.DATETIME);
+		frs.appendColumn(recorded);
+
+		Date start = PrimitiveDataType.DATETIME.toDate(PrimitiveDataType.DATETIME
+				.parse("2016-03-01 13:45:10"));
+		for (int row = 0; row < 40; row++) {
+			frs.appendRow();
+			frs.updateString("visit", "2016-03-" + (row % 28 + 1));
+			if (row % 5 != 0) {
+				frs.updateDate("recorded", new Date(start.getTime() + row
+						* 3600000L));
+			}
+		}
+		frs.merge();
+		frs.close();
+
+		frs = loadResultSet();
+		frs.absolute(9);
+		assertEquals("2016-03-10", frs.getString("visit"));
+		assertEquals("2016-03-01 22:45:10", frs.getString("recorded"));
+		assertEquals(start.getTime() + 9 * 3600000L, frs.getDate("recorded")
+				.getTime());
+		frs.absolute(10);
+		assertNull(frs.getDate("recorded"));
+
+		frs.beforeFirst();
+		ColumnBatch batch = frs.nextBatch(40);
+		long firstDay = PrimitiveDataType.DATE.parse("2016-03-01");
+		for (int row = 0; row < batch.getSize(); row++) {
+			assertEquals(firstDay + row % 28, batch.getLong(0, row));
+		}
+		assertEquals(frs.getColumn(0).getDataType().format(firstDay + 27),
+				batch.getString(0, 27));
+		frs.close();
+	}
+
+	/**
+	 * Test that updates to a persisted result are merged
+	 */
+	@Test
+	public void testMerge() throws Exception {
+		createResultSet();
+		FileResultSet frs = loadResultSet();
+		frs.absolute(10);
+		frs.updateString(0, "updated");
+		frs.merge();
+		frs.close();
+
+		frs = loadResultSet();
+		frs.absolute(10);
+		assertEquals("updated", frs.getString(0));
+		frs.absolute(11);
+		assertEquals("patient 11", frs.getString(0));
+		assertFalse(frs.relative(ROWS));
+		frs.close();
+	}
+}
@@ -0,0 +1,45 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.result.tabular;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import edu.harvard.hms.dbmi.bd2k.irct.model.resource.PrimitiveDataType;
+import edu.harvard.hms.dbmi.bd2k.irct.model.result.exception.ResultSetException;
+
+/**
+ * Tests growing the storage of a memory result set
+ */
+public class MemoryResultSetTest {
+
+	/**
+	 * Test that rows are kept while the storage grows
+	 */
+	@Test
+	public void testAppendRows() throws Exception {
+		MemoryResultSet mrs = new MemoryResultSet(1);
+		Column value = new Column();
+		value.setName("value");
+		value.setDataType(PrimitiveDataType.INTEGER);
+		mrs.appendColumn(value);
+		for (int row = 0; row < 100; row++) {
+			mrs.appendRow();
+			mrs.updateInt("value", row);
+		}
+		mrs.appendRows(50);
+		assertEquals(150, mrs.getSize());
+		mrs.absolute(99);
+		assertEquals(99, mrs.getInt("value"));
+	}
+
+	/**
+	 * Test that a capacity larger than an array can hold is rejected
+	 */
+	@Test(expected = ResultSetException.class)
+	public void testTooManyRows() throws Exception {
+		new MemoryResultSet().ensureCapacity(Integer.MAX_VALUE + 1L);
+	}
+}
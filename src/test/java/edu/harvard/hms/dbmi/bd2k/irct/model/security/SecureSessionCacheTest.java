@@ -0,0 +1,89 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.model.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+/**
+ * Tests caching secure sessions by their access key
+ */
+public class SecureSessionCacheTest {
+	private static final long TIME_OUT = 60000;
+
+	private SecureSession createSession(String key, String userId, long age) {
+		SecureSession session = new SecureSession();
+		session.setAccessKey(key);
+		session.setUser(new User(userId));
+		session.setCreated(new Date(System.currentTimeMillis() - age));
+		return session;
+	}
+
+	/**
+	 * Test that sessions are returned until their key times out
+	 */
+	@Test
+	public void testTimeOut() {
+		SecureSessionCache cache = new SecureSessionCache(10);
+		SecureSession session = createSession("key", "user", 0);
+		cache.put(session, TIME_OUT);
+		cache.put(createSession("old", "user", 2 * TIME_OUT), TIME_OUT);
+
+		assertSame(session, cache.get("key", TIME_OUT));
+		assertNull(cache.get("old", TIME_OUT));
+		assertNull(cache.get("missing", TIME_OUT));
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		assertEquals(1, cache.size());
+	}
+
+	/**
+	 * Test that sessions can be invalidated by key and by user
+	 */
+	@Test
+	public void testInvalidate() {
+		SecureSessionCache cache = new SecureSessionCache(10);
+		cache.put(createSession("a", "user1", 0), TIME_OUT);
+		cache.put(createSession("b", "user1", 0), TIME_OUT);
+		cache.put(createSession("c", "user2", 0), TIME_OUT);
+
+		cache.invalidate("c");
+		assertNull(cache.get("c", TIME_OUT));
+		cache.invalidateUser("user1");
+		assertEquals(0, cache.size());
+
+		cache.put(createSession("d", "user2", 0), TIME_OUT);
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+	/**
+	 * Test that the cache does not grow above its maximum size and removes
+	 * the session that was used least recently
+	 */
+	@Test
+	public void testMaximumSize() {
+		SecureSessionCache cache = new SecureSessionCache(3);
+		for (int key = 0; key < 3; key++) {
+			cache.put(createSession("key" + key, "user", 0), TIME_OUT);
+		}
+		assertEquals("key0", cache.get("key0", TIME_OUT).getAccessKey());
+		assertEquals("key2", cache.get("key2", TIME_OUT).getAccessKey());
+		cache.put(createSession("key3", "user", 0), TIME_OUT);
+		assertEquals(3, cache.size());
+		assertNull(cache.get("key1", TIME_OUT));
+		assertEquals("key0", cache.get("key0", TIME_OUT).getAccessKey());
+
+		for (int key = 4; key < 10; key++) {
+			cache.put(createSession("key" + key, "user", 0), TIME_OUT);
+		}
+		assertEquals(3, cache.size());
+		assertEquals(7, cache.getEvictions());
+	}
+}
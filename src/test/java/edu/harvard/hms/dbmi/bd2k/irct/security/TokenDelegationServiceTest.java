@@ -0,0 +1,224 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package edu.harvard.hms.dbmi.bd2k.irct.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import edu.harvard.hms.dbmi.bd2k.irct.model.security.JWT;
+import edu.harvard.hms.dbmi.bd2k.irct.model.security.SecureSession;
+import edu.harvard.hms.dbmi.bd2k.irct.model.security.Token;
+import edu.harvard.hms.dbmi.bd2k.irct.model.security.User;
+
+/**
+ * Tests delegating tokens against a local delegation endpoint
+ */
+public class TokenDelegationServiceTest {
+	private static final long REFRESH_BEFORE = 60000;
+
+	private HttpServer server;
+	private ExecutorService executor;
+	private String namespace;
+	private TokenDelegationService service;
+
+	private final AtomicInteger requests = new AtomicInteger();
+	private final AtomicLong expiresIn = new AtomicLong(3600);
+	private final AtomicLong delay = new AtomicLong();
+	private final AtomicBoolean error = new AtomicBoolean();
+
+	@Before
+	public void startServer() throws IOException {
+		executor = Executors.newCachedThreadPool();
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(executor);
+		server.createContext("/delegation", exchange -> {
+			int request = requests.incrementAndGet();
+			try {
+				Thread.sleep(delay.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			String response;
+			if (error.get()) {
+				response = "{\"error\":\"unauthorized\"}";
+			} else {
+				long exp = TimeUnit.MILLISECONDS.toSeconds(System
+						.currentTimeMillis()) + expiresIn.get();
+				String claims = Base64.getUrlEncoder().encodeToString(
+						("{\"exp\":" + exp + ",\"n\":" + request + "}")
+								.getBytes(StandardCharsets.UTF_8));
+				response = "{\"token_type\":\"Bearer\",\"id_token\":\"header."
+						+ claims + ".signature\"}";
+			}
+			byte[] body = response.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("Content-Type",
+					"application/json");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+
+		namespace = "127.0.0.1:" + server.getAddress().getPort();
+		service = new TokenDelegationService("http", REFRESH_BEFORE, 300000,
+				executor);
+	}
+
+	@After
+	public void stopServer() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	private SecureSession createSession(String userId) {
+		SecureSession session = new SecureSession();
+		session.setUser(new User(userId));
+		session.setToken(new JWT("Bearer token", null, "Bearer", "irct"));
+		return session;
+	}
+
+	/**
+	 * Test that a delegated token is reused for the same user and application
+	 */
+	@Test
+	public void testCache() {
+		JWT token = service.getDelegatedToken(namespace, "resource",
+				createSession("user"));
+		assertNotNull(token);
+		assertSame(token, service.getDelegatedToken(namespace, "resource",
+				createSession("user")));
+		assertEquals(1, requests.get());
+
+		service.getDelegatedToken(namespace, "other", createSession("user"));
+		service.getDelegatedToken(namespace, "resource", createSession("user2"));
+		assertEquals(3, requests.get());
+	}
+
+	/**
+	 * Test that concurrent requests for the same token call the endpoint once
+	 */
+	@Test
+	public void testCoalesce() throws Exception {
+		delay.set(200);
+		ExecutorService callers = Executors.newFixedThreadPool(8);
+		try {
+			List<Callable<JWT>> calls = new ArrayList<Callable<JWT>>();
+			for (int call = 0; call < 8; call++) {
+				calls.add(() -> service.getDelegatedToken(namespace,
+						"resource", createSession("user")));
+			}
+			List<Future<JWT>> tokens = callers.invokeAll(calls);
+			for (Future<JWT> token : tokens) {
+				assertSame(tokens.get(0).get(), token.get());
+			}
+		} finally {
+			callers.shutdownNow();
+		}
+		assertEquals(1, requests.get());
+	}
+
+	/**
+	 * Test that a token close to expiry is returned while a new one is
+	 * requested, and that an expired token is never returned
+	 */
+	@Test
+	public void testExpiry() throws Exception {
+		expiresIn.set(30);
+		JWT first = service.getDelegatedToken(namespace, "resource",
+				createSession("user"));
+		expiresIn.set(3600);
+		assertSame(first, service.getDelegatedToken(namespace, "resource",
+				createSession("user")));
+
+		long waitUntil = System.currentTimeMillis() + 5000;
+		while ((requests.get() < 2) && (System.currentTimeMillis() < waitUntil)) {
+			Thread.sleep(10);
+		}
+		assertEquals(2, requests.get());
+
+		JWT refreshed = null;
+		while (System.currentTimeMillis() < waitUntil) {
+			refreshed = service.getDelegatedToken(namespace, "resource",
+					createSession("user"));
+			if (refreshed != first) {
+				break;
+			}
+			Thread.sleep(10);
+		}
+		assertNotEquals(first.getIdToken(), refreshed.getIdToken());
+		assertEquals(2, requests.get());
+
+		expiresIn.set(-10);
+		service.invalidate("user");
+		service.getDelegatedToken(namespace, "resource", createSession("user"));
+		service.getDelegatedToken(namespace, "resource", createSession("user"));
+		assertEquals(4, requests.get());
+	}
+
+	/**
+	 * Test that a failed delegation is not cached
+	 */
+	@Test
+	public void testError() {
+		error.set(true);
+		assertNull(service.getDelegatedToken(namespace, "resource",
+				createSession("user")));
+		error.set(false);
+		assertNotNull(service.getDelegatedToken(namespace, "resource",
+				createSession("user")));
+		assertEquals(2, requests.get());
+	}
+
+	/**
+	 * Test that the delegated tokens of a user can be listed, added and
+	 * invalidated
+	 */
+	@Test
+	public void testDelegatedTokens() {
+		JWT token = service.getDelegatedToken(namespace, "resource",
+				createSession("user"));
+		JWT added = new JWT("header.e30.signature", null, "Bearer", "other");
+		service.putDelegatedToken(createSession("user"), "other", added);
+
+		Map<String, Token> delegated = service
+				.getDelegatedTokens(createSession("user"));
+		assertEquals(2, delegated.size());
+		assertSame(token, delegated.get("resource"));
+		assertSame(added, delegated.get("other"));
+		assertTrue(service.getDelegatedTokens(createSession("user2"))
+				.isEmpty());
+
+		service.invalidate("user");
+		assertTrue(service.getDelegatedTokens(createSession("user")).isEmpty());
+	}
+}